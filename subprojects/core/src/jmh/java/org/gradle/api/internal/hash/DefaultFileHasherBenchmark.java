@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash;
+
+import com.google.common.io.Files;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Measures the throughput of hashing the content of a single file with each hash strategy.
+ */
+@State(Scope.Benchmark)
+public class DefaultFileHasherBenchmark {
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    @Param({"4096", "1048576", "67108864"})
+    long fileSize;
+
+    @Param({"MD5", "MURMUR3"})
+    FileHashStrategy strategy;
+
+    private File file;
+    private DefaultFileHasher hasher;
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        file = new File(Files.createTempDir(), "content.bin");
+        byte[] chunk = new byte[CHUNK_SIZE];
+        new Random(1234).nextBytes(chunk);
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            for (long remaining = fileSize; remaining > 0; remaining -= CHUNK_SIZE) {
+                outputStream.write(chunk, 0, (int) Math.min(remaining, CHUNK_SIZE));
+            }
+        } finally {
+            outputStream.close();
+        }
+        hasher = new DefaultFileHasher(strategy);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() {
+        file.delete();
+        file.getParentFile().delete();
+    }
+
+    @Benchmark
+    public Object hash() {
+        return hasher.hash(file);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.io.Files;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.initialization.DefaultBuildCancellationToken;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures handing out the tasks of large synthetic task graphs to workers, excluding the time it takes to build the graph.
+ */
+@State(Scope.Benchmark)
+public class DefaultTaskExecutionPlanBenchmark {
+    private static final int PROJECT_COUNT = 100;
+    private static final int MAX_DEPENDENCIES = 4;
+    // Tasks depend on tasks created shortly before them, which gives a graph that is both wide and deep
+    private static final int DEPENDENCY_WINDOW = 500;
+
+    @Param({"1000", "10000", "100000"})
+    int taskCount;
+
+    @Param({"1", "8"})
+    int workerCount;
+
+    private final List<Task> tasks = new ArrayList<Task>();
+    private DefaultTaskExecutionPlan executionPlan;
+
+    @Setup(Level.Trial)
+    public void createTasks() {
+        File rootDir = Files.createTempDir();
+        Project root = ProjectBuilder.builder().withProjectDir(rootDir).withName("root").build();
+        List<Project> projects = new ArrayList<Project>();
+        for (int i = 0; i < PROJECT_COUNT; i++) {
+            projects.add(ProjectBuilder.builder().withParent(root).withName("project" + i).withProjectDir(new File(rootDir, "project" + i)).build());
+        }
+
+        Random random = new Random(1234);
+        for (int i = 0; i < taskCount; i++) {
+            Task task = projects.get(i % PROJECT_COUNT).getTasks().create("task" + i);
+            if (i > 0) {
+                int dependencyCount = random.nextInt(MAX_DEPENDENCIES + 1);
+                for (int j = 0; j < dependencyCount; j++) {
+                    int dependency = Math.max(0, i - 1 - random.nextInt(DEPENDENCY_WINDOW));
+                    task.dependsOn(tasks.get(dependency));
+                }
+            }
+            tasks.add(task);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createExecutionPlan() {
+        executionPlan = new DefaultTaskExecutionPlan(new DefaultBuildCancellationToken());
+        executionPlan.addToTaskGraph(tasks);
+        executionPlan.determineExecutionPlan();
+    }
+
+    @Benchmark
+    public void executeAllTasks() throws InterruptedException {
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    TaskInfo taskInfo;
+                    while ((taskInfo = executionPlan.getTaskToExecute()) != null) {
+                        executionPlan.taskComplete(taskInfo);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        executionPlan.awaitCompletion();
+    }
+}
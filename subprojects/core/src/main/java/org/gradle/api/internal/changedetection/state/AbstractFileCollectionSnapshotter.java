@@ -18,7 +18,10 @@ package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
 import org.gradle.api.internal.cache.StringInterner;
@@ -29,41 +32,46 @@ import org.gradle.api.internal.file.collections.DirectoryFileTree;
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
 import org.gradle.api.internal.file.collections.SingletonFileTree;
 import org.gradle.api.internal.hash.FileHasher;
-import org.gradle.api.internal.tasks.execution.TaskOutputsGenerationListener;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.serialize.SerializerRegistry;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import static org.gradle.api.internal.changedetection.state.FileDetails.FileType.*;
 
 /**
  * Responsible for calculating a {@link FileCollectionSnapshot} for a particular {@link FileCollection}.
  *
- * <p>Implementation performs some in-memory caching, should be notified of potential changes by calling {@link #beforeTaskOutputsGenerated()}.</p>
+ * <p>Implementation reuses the details of root files and unfiltered directory trees kept by the {@link FileSystemMirror}.</p>
  */
-public abstract class AbstractFileCollectionSnapshotter implements FileCollectionSnapshotter, TaskOutputsGenerationListener {
+public abstract class AbstractFileCollectionSnapshotter implements FileCollectionSnapshotter {
+    // The number of files hashed by one fork/join task
+    private static final int SNAPSHOT_BATCH_SIZE = 64;
     private final FileHasher hasher;
     private final StringInterner stringInterner;
     private final FileSystem fileSystem;
     private final DirectoryFileTreeFactory directoryFileTreeFactory;
-    // Map from interned absolute path for a file to known details for the file. Currently used only for root files, not those nested in a directory
-    private final Map<String, DefaultFileDetails> rootFiles = new ConcurrentHashMap<String, DefaultFileDetails>();
+    private final FileSystemMirror fileSystemMirror;
+    private final ForkJoinPool forkJoinPool;
 
-    public AbstractFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory) {
+    /**
+     * @param forkJoinPool used to visit directory trees and hash files in parallel, or null to do everything on the calling thread.
+     */
+    public AbstractFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, @Nullable ForkJoinPool forkJoinPool) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.fileSystem = fileSystem;
         this.directoryFileTreeFactory = directoryFileTreeFactory;
-    }
-
-    @Override
-    public void beforeTaskOutputsGenerated() {
-        // When the task outputs are generated, throw away all cached state. This is intentionally very simple, to be improved later
-        rootFiles.clear();
+        this.fileSystemMirror = fileSystemMirror;
+        this.forkJoinPool = forkJoinPool;
     }
 
     public void registerSerializers(SerializerRegistry registry) {
@@ -72,34 +80,28 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
 
     @Override
     public FileCollectionSnapshot snapshot(FileCollection input, TaskFilePropertyCompareStrategy compareStrategy, final SnapshotNormalizationStrategy snapshotNormalizationStrategy) {
-        final List<DefaultFileDetails> fileTreeElements = Lists.newLinkedList();
         FileCollectionInternal fileCollection = (FileCollectionInternal) input;
-        FileCollectionVisitorImpl visitor = new FileCollectionVisitorImpl(fileTreeElements);
+        FileCollectionVisitorImpl visitor = new FileCollectionVisitorImpl();
         fileCollection.visitRootElements(visitor);
+        List<DefaultFileDetails> fileTreeElements = visitor.getFileTreeElements();
 
         if (fileTreeElements.isEmpty()) {
             return FileCollectionSnapshot.EMPTY;
         }
 
+        IncrementalFileSnapshot[] fileSnapshots = new IncrementalFileSnapshot[fileTreeElements.size()];
+        if (forkJoinPool != null && fileTreeElements.size() > SNAPSHOT_BATCH_SIZE) {
+            forkJoinPool.invoke(new SnapshotFilesAction(fileTreeElements, fileSnapshots, 0, fileSnapshots.length));
+        } else {
+            snapshotFiles(fileTreeElements, fileSnapshots, 0, fileSnapshots.length);
+        }
+
         Map<String, NormalizedFileSnapshot> snapshots = Maps.newLinkedHashMap();
-        for (DefaultFileDetails fileDetails : fileTreeElements) {
+        for (int i = 0; i < fileSnapshots.length; i++) {
+            DefaultFileDetails fileDetails = fileTreeElements.get(i);
             String absolutePath = fileDetails.path;
             if (!snapshots.containsKey(absolutePath)) {
-                IncrementalFileSnapshot snapshot;
-                switch (fileDetails.getType()) {
-                    case Missing:
-                        snapshot = MissingFileSnapshot.getInstance();
-                        break;
-                    case Directory:
-                        snapshot = DirSnapshot.getInstance();
-                        break;
-                    case RegularFile:
-                        snapshot = new FileHashSnapshot(hasher.hash(fileDetails.details), fileDetails.details.getLastModified());
-                        break;
-                    default:
-                        throw new AssertionError();
-                }
-                NormalizedFileSnapshot normalizedSnapshot = snapshotNormalizationStrategy.getNormalizedSnapshot(fileDetails, snapshot, stringInterner);
+                NormalizedFileSnapshot normalizedSnapshot = snapshotNormalizationStrategy.getNormalizedSnapshot(fileDetails, fileSnapshots[i], stringInterner);
                 if (normalizedSnapshot != null) {
                     snapshots.put(absolutePath, normalizedSnapshot);
                 }
@@ -108,20 +110,97 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
         return new DefaultFileCollectionSnapshot(snapshots, compareStrategy, snapshotNormalizationStrategy.isPathAbsolute());
     }
 
-    private class FileCollectionVisitorImpl implements FileCollectionVisitor {
+    private void snapshotFiles(List<DefaultFileDetails> fileTreeElements, IncrementalFileSnapshot[] fileSnapshots, int from, int to) {
+        // Hash the regular files of the range as one batch, so that the file hash cache is looked up and updated once per batch
+        List<FileTreeElement> regularFiles = new ArrayList<FileTreeElement>();
+        for (int i = from; i < to; i++) {
+            DefaultFileDetails fileDetails = fileTreeElements.get(i);
+            if (fileDetails.getType() == RegularFile) {
+                regularFiles.add(fileDetails.details);
+            }
+        }
+        Iterator<HashCode> hashes = null;
+        if (!regularFiles.isEmpty()) {
+            hashes = hasher.hashAll(regularFiles).iterator();
+        }
+        for (int i = from; i < to; i++) {
+            DefaultFileDetails fileDetails = fileTreeElements.get(i);
+            switch (fileDetails.getType()) {
+                case Missing:
+                    fileSnapshots[i] = MissingFileSnapshot.getInstance();
+                    break;
+                case Directory:
+                    fileSnapshots[i] = DirSnapshot.getInstance();
+                    break;
+                case RegularFile:
+                    fileSnapshots[i] = new FileHashSnapshot(hashes.next(), fileDetails.details.getLastModified());
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+        }
+    }
+
+    /**
+     * Snapshots a range of the elements, splitting it in halves until it is small enough, so that files are hashed in parallel.
+     */
+    private class SnapshotFilesAction extends RecursiveAction {
         private final List<DefaultFileDetails> fileTreeElements;
+        private final IncrementalFileSnapshot[] fileSnapshots;
+        private final int from;
+        private final int to;
 
-        FileCollectionVisitorImpl(List<DefaultFileDetails> fileTreeElements) {
+        SnapshotFilesAction(List<DefaultFileDetails> fileTreeElements, IncrementalFileSnapshot[] fileSnapshots, int from, int to) {
             this.fileTreeElements = fileTreeElements;
+            this.fileSnapshots = fileSnapshots;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SNAPSHOT_BATCH_SIZE) {
+                snapshotFiles(fileTreeElements, fileSnapshots, from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SnapshotFilesAction(fileTreeElements, fileSnapshots, from, middle), new SnapshotFilesAction(fileTreeElements, fileSnapshots, middle, to));
+            }
+        }
+    }
+
+    private class FileCollectionVisitorImpl implements FileCollectionVisitor {
+        private final List<DefaultFileDetails> fileTreeElements = Lists.newArrayList();
+        // Directory trees visited on the fork/join pool, and the number of elements visited before each of them
+        private final List<ForkJoinTask<List<DefaultFileDetails>>> forkedTrees = Lists.newArrayList();
+        private final List<Integer> forkedTreePositions = Lists.newArrayList();
+
+        /**
+         * Returns all visited elements, in the same order as when visiting everything on the current thread.
+         */
+        List<DefaultFileDetails> getFileTreeElements() {
+            if (forkedTrees.isEmpty()) {
+                return fileTreeElements;
+            }
+            List<DefaultFileDetails> elements = Lists.newArrayList();
+            int visited = 0;
+            for (int i = 0; i < forkedTrees.size(); i++) {
+                int position = forkedTreePositions.get(i);
+                elements.addAll(fileTreeElements.subList(visited, position));
+                elements.addAll(forkedTrees.get(i).join());
+                visited = position;
+            }
+            elements.addAll(fileTreeElements.subList(visited, fileTreeElements.size()));
+            return elements;
         }
 
         @Override
         public void visitCollection(FileCollectionInternal fileCollection) {
             for (File file : fileCollection) {
-                DefaultFileDetails details = rootFiles.get(file.getPath());
+                String path = getPath(file);
+                DefaultFileDetails details = fileSystemMirror.getFile(path);
                 if (details == null) {
-                    details = calculateDetails(file);
-                    rootFiles.put(details.path, details);
+                    details = calculateDetails(file, path);
+                    fileSystemMirror.putFile(details);
                 }
                 switch (details.type) {
                     case Missing:
@@ -139,8 +218,7 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
             }
         }
 
-        private DefaultFileDetails calculateDetails(File file) {
-            String path = getPath(file);
+        private DefaultFileDetails calculateDetails(File file, String path) {
             if (!file.exists()) {
                 return new DefaultFileDetails(path, Missing, new MissingFileVisitDetails(file));
             } else if (file.isDirectory()) {
@@ -156,8 +234,21 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
         }
 
         @Override
-        public void visitDirectoryTree(DirectoryFileTree directoryTree) {
-            AbstractFileCollectionSnapshotter.this.visitDirectoryTree(directoryTree, fileTreeElements);
+        public void visitDirectoryTree(final DirectoryFileTree directoryTree) {
+            if (forkJoinPool == null) {
+                AbstractFileCollectionSnapshotter.this.visitDirectoryTree(directoryTree, fileTreeElements);
+                return;
+            }
+            // Each tree is still visited by a single thread, so that its elements are visited in the usual order
+            forkedTreePositions.add(fileTreeElements.size());
+            forkedTrees.add(forkJoinPool.submit(new Callable<List<DefaultFileDetails>>() {
+                @Override
+                public List<DefaultFileDetails> call() {
+                    List<DefaultFileDetails> elements = Lists.newArrayList();
+                    AbstractFileCollectionSnapshotter.this.visitDirectoryTree(directoryTree, elements);
+                    return elements;
+                }
+            }));
         }
     }
 
@@ -170,7 +261,19 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
     }
 
     protected void visitDirectoryTree(DirectoryFileTree directoryTree, List<DefaultFileDetails> fileTreeElements) {
-        directoryTree.visit(new FileVisitorImpl(fileTreeElements));
+        if (!directoryTree.getPatterns().isEmpty()) {
+            // Only complete trees are kept in the mirror
+            directoryTree.visit(new FileVisitorImpl(fileTreeElements));
+            return;
+        }
+        String path = getPath(directoryTree.getDir());
+        List<DefaultFileDetails> elements = fileSystemMirror.getDirectoryTree(path);
+        if (elements == null) {
+            elements = Lists.newArrayList();
+            directoryTree.visit(new FileVisitorImpl(elements));
+            fileSystemMirror.putDirectoryTree(path, elements);
+        }
+        fileTreeElements.addAll(elements);
     }
 
     private class FileVisitorImpl implements FileVisitor {
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.execution.internal.InternalTaskExecutionListener;
+import org.gradle.api.execution.internal.TaskOperationInternal;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.tasks.TaskExecutionOutcome;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.execution.taskgraph.TaskDurationEstimator;
+import org.gradle.internal.progress.OperationResult;
+import org.gradle.internal.progress.OperationStartEvent;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+
+/**
+ * Records how long tasks took to execute in the task history store, and estimates their duration in later builds from that.
+ */
+public class CacheBackedTaskDurationHistory implements TaskDurationEstimator, InternalTaskExecutionListener {
+    private final PersistentIndexedCache<String, Long> durations;
+
+    public CacheBackedTaskDurationHistory(TaskHistoryStore cacheAccess) {
+        durations = cacheAccess.createCache("taskDurations", String.class, BaseSerializerFactory.LONG_SERIALIZER);
+    }
+
+    @Override
+    public long getEstimatedDuration(TaskInternal task) {
+        Long duration = durations.get(task.getPath());
+        return duration == null ? 0 : duration;
+    }
+
+    @Override
+    public void beforeExecute(TaskOperationInternal taskOperation, OperationStartEvent startEvent) {
+    }
+
+    @Override
+    public void afterExecute(TaskOperationInternal taskOperation, OperationResult result) {
+        if (result.getFailure() != null) {
+            // A failed task usually stops early, so its duration says little about the next execution
+            return;
+        }
+        TaskInternal task = taskOperation.getTask();
+        if (task.getState().getOutcome() != TaskExecutionOutcome.EXECUTED) {
+            // Up-to-date, cached and skipped tasks take next to no time, which says nothing about how long executing them takes
+            return;
+        }
+        String path = task.getPath();
+        long duration = result.getEndTime() - result.getStartTime();
+        Long previousDuration = durations.get(path);
+        // Average with the previous estimate, so that a single unusually fast or slow execution does not dominate
+        durations.put(path, previousDuration == null ? duration : (previousDuration + duration) / 2);
+    }
+}
@@ -81,20 +81,27 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
                 previousExecutions.executions.addFirst(currentExecution);
                 if (currentExecution.inputFilesSnapshotIds == null && currentExecution.inputFilesSnapshot != null) {
                     ImmutableSortedMap.Builder<String, Long> builder = ImmutableSortedMap.naturalOrder();
+                    ImmutableSortedMap.Builder<String, HashCode> hashesBuilder = ImmutableSortedMap.naturalOrder();
                     for (Map.Entry<String, FileCollectionSnapshot> entry : currentExecution.inputFilesSnapshot.entrySet()) {
                         builder.put(entry.getKey(), snapshotRepository.add(entry.getValue()));
+                        hashesBuilder.put(entry.getKey(), entry.getValue().getHash());
                     }
                     currentExecution.inputFilesSnapshotIds = builder.build();
+                    currentExecution.inputFilesSnapshotHashes = hashesBuilder.build();
                 }
                 if (currentExecution.outputFilesSnapshotIds == null && currentExecution.outputFilesSnapshot != null) {
                     ImmutableSortedMap.Builder<String, Long> builder = ImmutableSortedMap.naturalOrder();
+                    ImmutableSortedMap.Builder<String, HashCode> hashesBuilder = ImmutableSortedMap.naturalOrder();
                     for (Map.Entry<String, FileCollectionSnapshot> entry : currentExecution.outputFilesSnapshot.entrySet()) {
                         builder.put(entry.getKey(), snapshotRepository.add(entry.getValue()));
+                        hashesBuilder.put(entry.getKey(), entry.getValue().getHash());
                     }
                     currentExecution.outputFilesSnapshotIds = builder.build();
+                    currentExecution.outputFilesSnapshotHashes = hashesBuilder.build();
                 }
                 if (currentExecution.discoveredFilesSnapshotId == null && currentExecution.discoveredFilesSnapshot != null) {
                     currentExecution.discoveredFilesSnapshotId = snapshotRepository.add(currentExecution.discoveredFilesSnapshot);
+                    currentExecution.discoveredFilesSnapshotHash = currentExecution.discoveredFilesSnapshot.getHash();
                 }
                 while (previousExecutions.executions.size() > MAX_HISTORY_ENTRIES) {
                     LazyTaskExecution execution = previousExecutions.executions.removeLast();
@@ -235,6 +242,9 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         private ImmutableSortedMap<String, Long> inputFilesSnapshotIds;
         private ImmutableSortedMap<String, Long> outputFilesSnapshotIds;
         private Long discoveredFilesSnapshotId;
+        private ImmutableSortedMap<String, HashCode> inputFilesSnapshotHashes;
+        private ImmutableSortedMap<String, HashCode> outputFilesSnapshotHashes;
+        private HashCode discoveredFilesSnapshotHash;
         private FileSnapshotRepository snapshotRepository;
         private Map<String, FileCollectionSnapshot> inputFilesSnapshot;
         private Map<String, FileCollectionSnapshot> outputFilesSnapshot;
@@ -253,6 +263,9 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
             inputFilesSnapshotIds = taskExecutionSnapshot.getInputFilesSnapshotIds();
             outputFilesSnapshotIds = taskExecutionSnapshot.getOutputFilesSnapshotIds();
             discoveredFilesSnapshotId = taskExecutionSnapshot.getDiscoveredFilesSnapshotId();
+            inputFilesSnapshotHashes = taskExecutionSnapshot.getInputFilesSnapshotHashes();
+            outputFilesSnapshotHashes = taskExecutionSnapshot.getOutputFilesSnapshotHashes();
+            discoveredFilesSnapshotHash = taskExecutionSnapshot.getDiscoveredFilesSnapshotHash();
         }
 
         LazyTaskExecution() {
@@ -261,11 +274,7 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         @Override
         public Map<String, FileCollectionSnapshot> getInputFilesSnapshot() {
             if (inputFilesSnapshot == null) {
-                ImmutableSortedMap.Builder<String, FileCollectionSnapshot> builder = ImmutableSortedMap.naturalOrder();
-                for (Map.Entry<String, Long> entry : inputFilesSnapshotIds.entrySet()) {
-                    builder.put(entry.getKey(), snapshotRepository.get(entry.getValue()));
-                }
-                inputFilesSnapshot = builder.build();
+                inputFilesSnapshot = lazySnapshots(inputFilesSnapshotIds, inputFilesSnapshotHashes);
             }
             return inputFilesSnapshot;
         }
@@ -274,12 +283,13 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         public void setInputFilesSnapshot(Map<String, FileCollectionSnapshot> inputFilesSnapshot) {
             this.inputFilesSnapshot = inputFilesSnapshot;
             this.inputFilesSnapshotIds = null;
+            this.inputFilesSnapshotHashes = null;
         }
 
         @Override
         public FileCollectionSnapshot getDiscoveredInputFilesSnapshot() {
             if (discoveredFilesSnapshot == null) {
-                discoveredFilesSnapshot = snapshotRepository.get(discoveredFilesSnapshotId);
+                discoveredFilesSnapshot = new LazyFileCollectionSnapshot(discoveredFilesSnapshotId, discoveredFilesSnapshotHash, snapshotRepository);
             }
             return discoveredFilesSnapshot;
         }
@@ -288,25 +298,35 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         public void setDiscoveredInputFilesSnapshot(FileCollectionSnapshot discoveredFilesSnapshot) {
             this.discoveredFilesSnapshot = discoveredFilesSnapshot;
             this.discoveredFilesSnapshotId = null;
+            this.discoveredFilesSnapshotHash = null;
         }
 
         @Override
         public Map<String, FileCollectionSnapshot> getOutputFilesSnapshot() {
             if (outputFilesSnapshot == null) {
-                ImmutableSortedMap.Builder<String, FileCollectionSnapshot> builder = ImmutableSortedMap.naturalOrder();
-                for (Map.Entry<String, Long> entry : outputFilesSnapshotIds.entrySet()) {
-                    String propertyName = entry.getKey();
-                    builder.put(propertyName, snapshotRepository.get(entry.getValue()));
-                }
-                outputFilesSnapshot = builder.build();
+                outputFilesSnapshot = lazySnapshots(outputFilesSnapshotIds, outputFilesSnapshotHashes);
             }
             return outputFilesSnapshot;
         }
 
+        /**
+         * Snapshots are only loaded from the repository when their contents are required, which is not the case when their hash has not changed.
+         */
+        private ImmutableSortedMap<String, FileCollectionSnapshot> lazySnapshots(Map<String, Long> ids, Map<String, HashCode> hashes) {
+            ImmutableSortedMap.Builder<String, FileCollectionSnapshot> builder = ImmutableSortedMap.naturalOrder();
+            for (Map.Entry<String, Long> entry : ids.entrySet()) {
+                String propertyName = entry.getKey();
+                HashCode hash = hashes == null ? null : hashes.get(propertyName);
+                builder.put(propertyName, new LazyFileCollectionSnapshot(entry.getValue(), hash, snapshotRepository));
+            }
+            return builder.build();
+        }
+
         @Override
         public void setOutputFilesSnapshot(Map<String, FileCollectionSnapshot> outputFilesSnapshot) {
             this.outputFilesSnapshot = outputFilesSnapshot;
             outputFilesSnapshotIds = null;
+            outputFilesSnapshotHashes = null;
         }
 
         public TaskExecutionSnapshot snapshot() {
@@ -317,8 +337,11 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
                 getTaskActionsClassLoaderHash(),
                 new HashMap<String, Object>(getInputProperties()),
                 inputFilesSnapshotIds,
+                inputFilesSnapshotHashes,
                 discoveredFilesSnapshotId,
-                outputFilesSnapshotIds);
+                discoveredFilesSnapshotHash,
+                outputFilesSnapshotIds,
+                outputFilesSnapshotHashes);
         }
 
         static class TaskExecutionSnapshotSerializer implements Serializer<TaskExecutionSnapshot> {
@@ -334,6 +357,12 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
                 ImmutableSortedMap<String, Long> inputFilesSnapshotIds = readSnapshotIds(decoder);
                 ImmutableSortedMap<String, Long> outputFilesSnapshotIds = readSnapshotIds(decoder);
                 Long discoveredFilesSnapshotId = decoder.readLong();
+                ImmutableSortedMap<String, HashCode> inputFilesSnapshotHashes = readSnapshotHashes(decoder);
+                ImmutableSortedMap<String, HashCode> outputFilesSnapshotHashes = readSnapshotHashes(decoder);
+                HashCode discoveredFilesSnapshotHash = null;
+                if (decoder.readBoolean()) {
+                    discoveredFilesSnapshotHash = HashCode.fromBytes(decoder.readBinary());
+                }
                 String taskClass = decoder.readString();
                 HashCode taskClassLoaderHash = null;
                 if (decoder.readBoolean()) {
@@ -364,8 +393,11 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
                     taskActionsClassLoaderHash,
                     inputProperties,
                     inputFilesSnapshotIds,
+                    inputFilesSnapshotHashes,
                     discoveredFilesSnapshotId,
-                    outputFilesSnapshotIds
+                    discoveredFilesSnapshotHash,
+                    outputFilesSnapshotIds,
+                    outputFilesSnapshotHashes
                 );
             }
 
@@ -373,6 +405,15 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
                 writeSnapshotIds(encoder, execution.getInputFilesSnapshotIds());
                 writeSnapshotIds(encoder, execution.getOutputFilesSnapshotIds());
                 encoder.writeLong(execution.getDiscoveredFilesSnapshotId());
+                writeSnapshotHashes(encoder, execution.getInputFilesSnapshotHashes());
+                writeSnapshotHashes(encoder, execution.getOutputFilesSnapshotHashes());
+                HashCode discoveredFilesSnapshotHash = execution.getDiscoveredFilesSnapshotHash();
+                if (discoveredFilesSnapshotHash == null) {
+                    encoder.writeBoolean(false);
+                } else {
+                    encoder.writeBoolean(true);
+                    encoder.writeBinary(discoveredFilesSnapshotHash.asBytes());
+                }
                 encoder.writeString(execution.getTaskClass());
                 HashCode classLoaderHash = execution.getTaskClassLoaderHash();
                 if (classLoaderHash == null) {
@@ -418,6 +459,29 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
                     encoder.writeLong(entry.getValue());
                 }
             }
+
+            private static ImmutableSortedMap<String, HashCode> readSnapshotHashes(Decoder decoder) throws IOException {
+                int count = decoder.readSmallInt();
+                ImmutableSortedMap.Builder<String, HashCode> builder = ImmutableSortedMap.naturalOrder();
+                for (int snapshotIdx = 0; snapshotIdx < count; snapshotIdx++) {
+                    String property = decoder.readString();
+                    HashCode hash = HashCode.fromBytes(decoder.readBinary());
+                    builder.put(property, hash);
+                }
+                return builder.build();
+            }
+
+            private static void writeSnapshotHashes(Encoder encoder, Map<String, HashCode> hashes) throws IOException {
+                if (hashes == null) {
+                    encoder.writeSmallInt(0);
+                    return;
+                }
+                encoder.writeSmallInt(hashes.size());
+                for (Map.Entry<String, HashCode> entry : hashes.entrySet()) {
+                    encoder.writeString(entry.getKey());
+                    encoder.writeBinary(entry.getValue().asBytes());
+                }
+            }
         }
     }
 }
@@ -21,14 +21,26 @@ import org.gradle.api.internal.cache.HeapProportionalCacheSizer;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Calculates the memory budget of the in-memory task artifact caches. The budget is proportional to the maximum heap size, and each cache gets a share of it
+ * that corresponds to a reference number of entries of a reference size.
+ */
 class CacheCapSizer {
     private static final Map<String, Integer> DEFAULT_CAP_SIZES = new HashMap<String, Integer>();
+    // Typical heap retained by an entry, including its key
+    private static final Map<String, Integer> REFERENCE_ENTRY_SIZES = new HashMap<String, Integer>();
 
     static {
         DEFAULT_CAP_SIZES.put("fileSnapshots", 10000);
         DEFAULT_CAP_SIZES.put("taskArtifacts", 2000);
         DEFAULT_CAP_SIZES.put("fileHashes", 400000);
         DEFAULT_CAP_SIZES.put("compilationState", 1000);
+        DEFAULT_CAP_SIZES.put("taskDurations", 2000);
+        REFERENCE_ENTRY_SIZES.put("fileSnapshots", 8192);
+        REFERENCE_ENTRY_SIZES.put("taskArtifacts", 4096);
+        REFERENCE_ENTRY_SIZES.put("fileHashes", 320);
+        REFERENCE_ENTRY_SIZES.put("compilationState", 16384);
+        REFERENCE_ENTRY_SIZES.put("taskDurations", 128);
     }
 
     final HeapProportionalCacheSizer sizer;
@@ -59,6 +71,24 @@ class CacheCapSizer {
         return capSizes.get(cacheName);
     }
 
+    /**
+     * Returns the number of bytes of heap that the entries of the given cache may retain, or null for an unknown cache.
+     */
+    public Long getMaxWeight(String cacheName) {
+        Integer maxSize = capSizes.get(cacheName);
+        if (maxSize == null) {
+            return null;
+        }
+        return (long) maxSize * REFERENCE_ENTRY_SIZES.get(cacheName);
+    }
+
+    /**
+     * Returns the weight of an entry of the given cache whose value cannot estimate its own size.
+     */
+    public int getDefaultEntryWeight(String cacheName) {
+        return REFERENCE_ENTRY_SIZES.get(cacheName);
+    }
+
     public int getNumberOfCaches() {
         return capSizes.size();
     }
@@ -18,7 +18,9 @@ package org.gradle.api.internal.changedetection.state;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.hash.HashCode;
 import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.internal.cache.HasEstimatedRetainedSize;
 import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.hash.FileHashStrategy;
 import org.gradle.api.internal.hash.FileHasher;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentStore;
@@ -29,14 +31,23 @@ import org.gradle.internal.serialize.HashCodeSerializer;
 import org.gradle.internal.serialize.Serializer;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class CachingFileSnapshotter implements FileHasher {
     private final PersistentIndexedCache<String, FileInfo> cache;
     private final FileHasher delegate;
+    private final FileHashStrategy strategy;
     private final StringInterner stringInterner;
 
-    public CachingFileSnapshotter(FileHasher delegate, PersistentStore store, StringInterner stringInterner) {
+    /**
+     * @param strategy the strategy used by the delegate. It is recorded with each cached hash, so that hashes calculated with another strategy are not reused.
+     */
+    public CachingFileSnapshotter(FileHasher delegate, FileHashStrategy strategy, PersistentStore store, StringInterner stringInterner) {
         this.delegate = delegate;
+        this.strategy = strategy;
         this.cache = store.createCache("fileHashes", String.class, new FileInfoSerializer());
         this.stringInterner = stringInterner;
     }
@@ -60,6 +71,38 @@ public class CachingFileSnapshotter implements FileHasher {
         return snapshot(fileDetails).getHash();
     }
 
+    /**
+     * Looks up the cached hashes of all the given files with a single cache read, and stores the hashes of any changed files with a single cache write.
+     */
+    @Override
+    public List<HashCode> hashAll(List<? extends FileTreeElement> fileDetails) {
+        List<String> absolutePaths = new ArrayList<String>(fileDetails.size());
+        for (FileTreeElement details : fileDetails) {
+            absolutePaths.add(details.getFile().getAbsolutePath());
+        }
+        Map<String, FileInfo> cached = cache.getAll(absolutePaths);
+
+        List<HashCode> hashes = new ArrayList<HashCode>(fileDetails.size());
+        Map<String, FileInfo> updates = null;
+        for (int i = 0; i < fileDetails.size(); i++) {
+            FileTreeElement details = fileDetails.get(i);
+            String absolutePath = absolutePaths.get(i);
+            FileInfo info = cached.get(absolutePath);
+            if (!isUpToDate(info, details.getSize(), details.getLastModified())) {
+                info = new FileInfo(delegate.hash(details.getFile()), strategy, details.getSize(), details.getLastModified());
+                if (updates == null) {
+                    updates = new LinkedHashMap<String, FileInfo>();
+                }
+                updates.put(stringInterner.intern(absolutePath), info);
+            }
+            hashes.add(info.getHash());
+        }
+        if (updates != null) {
+            cache.putAll(updates);
+        }
+        return hashes;
+    }
+
     private FileInfo snapshot(File file) {
         return snapshot(file, file.length(), file.lastModified());
     }
@@ -72,24 +115,30 @@ public class CachingFileSnapshotter implements FileHasher {
         String absolutePath = file.getAbsolutePath();
         FileInfo info = cache.get(absolutePath);
 
-        if (info != null && length == info.length && timestamp == info.timestamp) {
+        if (isUpToDate(info, length, timestamp)) {
             return info;
         }
 
         HashCode hash = delegate.hash(file);
-        info = new FileInfo(hash, length, timestamp);
+        info = new FileInfo(hash, strategy, length, timestamp);
         cache.put(stringInterner.intern(absolutePath), info);
         return info;
     }
 
+    private boolean isUpToDate(FileInfo info, long length, long timestamp) {
+        return info != null && length == info.length && timestamp == info.timestamp && strategy == info.strategy;
+    }
+
     @VisibleForTesting
-    static class FileInfo {
+    static class FileInfo implements HasEstimatedRetainedSize {
         private final HashCode hash;
+        private final FileHashStrategy strategy;
         private final long timestamp;
         private final long length;
 
-        public FileInfo(HashCode hash, long length, long timestamp) {
+        public FileInfo(HashCode hash, FileHashStrategy strategy, long length, long timestamp) {
             this.hash = hash;
+            this.strategy = strategy;
             this.length = length;
             this.timestamp = timestamp;
         }
@@ -97,20 +146,29 @@ public class CachingFileSnapshotter implements FileHasher {
         public HashCode getHash() {
             return hash;
         }
+
+        @Override
+        public long getEstimatedRetainedSize() {
+            // This object, the hash code object and its byte array
+            return 40 + 16 + 16 + hash.bits() / 8;
+        }
     }
 
     private static class FileInfoSerializer implements Serializer<FileInfo> {
+        private static final FileHashStrategy[] STRATEGIES = FileHashStrategy.values();
         private final HashCodeSerializer hashCodeSerializer = new HashCodeSerializer();
 
         public FileInfo read(Decoder decoder) throws Exception {
             HashCode hash = hashCodeSerializer.read(decoder);
+            FileHashStrategy strategy = STRATEGIES[decoder.readSmallInt()];
             long timestamp = decoder.readLong();
             long length = decoder.readLong();
-            return new FileInfo(hash, length, timestamp);
+            return new FileInfo(hash, strategy, length, timestamp);
         }
 
         public void write(Encoder encoder, FileInfo value) throws Exception {
             hashCodeSerializer.write(encoder, value.hash);
+            encoder.writeSmallInt(value.strategy.ordinal());
             encoder.writeLong(value.timestamp);
             encoder.writeLong(value.length);
         }
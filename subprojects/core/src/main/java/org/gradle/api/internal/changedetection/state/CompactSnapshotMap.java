@@ -0,0 +1,543 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.hash.HashCode;
+import org.gradle.api.internal.cache.HasEstimatedRetainedSize;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeySink;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable map from absolute path to file snapshot, which keeps its entries in insertion order. Instead of a group of objects per file,
+ * the paths are packed into a single character table, and the file types, normalization, hashes and timestamps are kept in one array each.
+ * The map entries and snapshots are created when the map is queried through the {@link Map} interface. The compare strategies use the methods that
+ * take an entry number instead, which work on the arrays directly.
+ */
+class CompactSnapshotMap extends AbstractMap<String, NormalizedFileSnapshot> implements HasEstimatedRetainedSize {
+    private static final byte DIR_SNAPSHOT = 0;
+    private static final byte MISSING_FILE_SNAPSHOT = 1;
+    private static final byte REGULAR_FILE_SNAPSHOT = 2;
+    private static final int FILE_TYPE_MASK = 3;
+    private static final byte NO_NORMALIZATION = 0;
+    private static final byte DEFAULT_NORMALIZATION = 1 << 2;
+    private static final byte INDEXED_NORMALIZATION = 2 << 2;
+    private static final byte IGNORED_PATH_NORMALIZATION = 3 << 2;
+    private static final int NORMALIZATION_MASK = 3 << 2;
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final byte[] DIR_SIGNATURE = DirSnapshot.getInstance().getHash().asBytes();
+    private static final byte[] MISSING_FILE_SIGNATURE = MissingFileSnapshot.getInstance().getHash().asBytes();
+
+    private final int size;
+    private final char[] pathChars;
+    // The end of each path in the character table, which is also where the next path starts
+    private final int[] pathEnds;
+    // Open addressing hash table from path to entry number + 1
+    private final int[] pathIndex;
+    private final byte[] kinds;
+    private final int[] normalizedPathIndexes;
+    // The normalized paths of DefaultNormalizedFileSnapshot entries, null when there are none
+    private final String[] normalizedPaths;
+    private final int hashLength;
+    private final byte[] hashes;
+    // Null when all timestamps are 0, as for snapshots read back from the cache
+    private final long[] timestamps;
+
+    /**
+     * Returns a compact copy of the given snapshots, or the snapshots themselves when they cannot be represented compactly.
+     */
+    static Map<String, NormalizedFileSnapshot> of(Map<String, NormalizedFileSnapshot> snapshots) {
+        if (snapshots.isEmpty() || snapshots instanceof CompactSnapshotMap) {
+            return snapshots;
+        }
+        int hashLength = 0;
+        boolean hasTimestamps = false;
+        boolean hasNormalizedPaths = false;
+        for (Map.Entry<String, NormalizedFileSnapshot> entry : snapshots.entrySet()) {
+            NormalizedFileSnapshot snapshot = entry.getValue();
+            IncrementalFileSnapshot fileSnapshot = snapshot.getSnapshot();
+            if (fileSnapshot instanceof FileHashSnapshot) {
+                int length = fileSnapshot.getHash().bits() / 8;
+                if (length == 0 || hashLength != 0 && length != hashLength) {
+                    return snapshots;
+                }
+                hashLength = length;
+                hasTimestamps |= ((FileHashSnapshot) fileSnapshot).getLastModified() != 0;
+            } else if (!(fileSnapshot instanceof DirSnapshot) && !(fileSnapshot instanceof MissingFileSnapshot)) {
+                return snapshots;
+            }
+            if (snapshot instanceof DefaultNormalizedFileSnapshot) {
+                hasNormalizedPaths = true;
+            } else if (snapshot instanceof NonNormalizedFileSnapshot) {
+                if (!snapshot.getNormalizedPath().equals(entry.getKey())) {
+                    return snapshots;
+                }
+            } else if (snapshot instanceof IndexedNormalizedFileSnapshot) {
+                if (!((IndexedNormalizedFileSnapshot) snapshot).getAbsolutePath().equals(entry.getKey())) {
+                    return snapshots;
+                }
+            } else if (!(snapshot instanceof IgnoredPathFileSnapshot)) {
+                return snapshots;
+            }
+        }
+        return new CompactSnapshotMap(snapshots, hashLength, hasTimestamps, hasNormalizedPaths);
+    }
+
+    private CompactSnapshotMap(Map<String, NormalizedFileSnapshot> snapshots, int hashLength, boolean hasTimestamps, boolean hasNormalizedPaths) {
+        this.size = snapshots.size();
+        this.hashLength = hashLength;
+        int pathLength = 0;
+        for (String path : snapshots.keySet()) {
+            pathLength += path.length();
+        }
+        this.pathChars = new char[pathLength];
+        this.pathEnds = new int[size];
+        this.pathIndex = new int[Integer.highestOneBit(size * 2 - 1) << 1];
+        this.kinds = new byte[size];
+        this.normalizedPathIndexes = new int[size];
+        this.normalizedPaths = hasNormalizedPaths ? new String[size] : null;
+        this.hashes = new byte[size * hashLength];
+        this.timestamps = hasTimestamps ? new long[size] : null;
+
+        int entry = 0;
+        int pathStart = 0;
+        for (Map.Entry<String, NormalizedFileSnapshot> mapEntry : snapshots.entrySet()) {
+            String path = mapEntry.getKey();
+            path.getChars(0, path.length(), pathChars, pathStart);
+            pathStart += path.length();
+            pathEnds[entry] = pathStart;
+            int mask = pathIndex.length - 1;
+            int slot = spread(path.hashCode()) & mask;
+            while (pathIndex[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            pathIndex[slot] = entry + 1;
+
+            NormalizedFileSnapshot snapshot = mapEntry.getValue();
+            IncrementalFileSnapshot fileSnapshot = snapshot.getSnapshot();
+            byte kind;
+            if (fileSnapshot instanceof DirSnapshot) {
+                kind = DIR_SNAPSHOT;
+            } else if (fileSnapshot instanceof MissingFileSnapshot) {
+                kind = MISSING_FILE_SNAPSHOT;
+            } else {
+                kind = REGULAR_FILE_SNAPSHOT;
+                fileSnapshot.getHash().writeBytesTo(hashes, entry * hashLength, hashLength);
+                if (timestamps != null) {
+                    timestamps[entry] = ((FileHashSnapshot) fileSnapshot).getLastModified();
+                }
+            }
+            if (snapshot instanceof NonNormalizedFileSnapshot) {
+                kind |= NO_NORMALIZATION;
+            } else if (snapshot instanceof DefaultNormalizedFileSnapshot) {
+                kind |= DEFAULT_NORMALIZATION;
+                normalizedPaths[entry] = snapshot.getNormalizedPath();
+            } else if (snapshot instanceof IndexedNormalizedFileSnapshot) {
+                kind |= INDEXED_NORMALIZATION;
+                normalizedPathIndexes[entry] = ((IndexedNormalizedFileSnapshot) snapshot).getIndex();
+            } else {
+                kind |= IGNORED_PATH_NORMALIZATION;
+            }
+            kinds[entry] = kind;
+            entry++;
+        }
+    }
+
+    @Override
+    public long getEstimatedRetainedSize() {
+        long size = OBJECT_OVERHEAD
+            + arraySize(pathChars.length, 2)
+            + arraySize(pathEnds.length, 4)
+            + arraySize(pathIndex.length, 4)
+            + arraySize(kinds.length, 1)
+            + arraySize(normalizedPathIndexes.length, 4)
+            + arraySize(hashes.length, 1);
+        if (timestamps != null) {
+            size += arraySize(timestamps.length, 8);
+        }
+        if (normalizedPaths != null) {
+            size += arraySize(normalizedPaths.length, 4);
+            for (String normalizedPath : normalizedPaths) {
+                // Normalized paths may be shared with other snapshots, but count them anyway
+                if (normalizedPath != null) {
+                    size += OBJECT_OVERHEAD + arraySize(normalizedPath.length(), 2);
+                }
+            }
+        }
+        return size;
+    }
+
+    private static long arraySize(int length, int elementSize) {
+        return OBJECT_OVERHEAD + (long) length * elementSize;
+    }
+
+    private static int spread(int hashCode) {
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public NormalizedFileSnapshot get(Object key) {
+        int entry = indexOf(key);
+        return entry < 0 ? null : getSnapshot(entry, (String) key);
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        String path = (String) key;
+        int mask = pathIndex.length - 1;
+        for (int slot = spread(path.hashCode()) & mask;; slot = (slot + 1) & mask) {
+            int entry = pathIndex[slot] - 1;
+            if (entry < 0) {
+                return -1;
+            }
+            if (pathEquals(entry, path)) {
+                return entry;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of the entry with the same path as the given entry of the other map, or -1 when there is none.
+     */
+    int indexOf(CompactSnapshotMap other, int otherEntry) {
+        int otherStart = other.pathStart(otherEntry);
+        int length = other.pathEnds[otherEntry] - otherStart;
+        // Same as String.hashCode()
+        int hashCode = 0;
+        for (int i = 0; i < length; i++) {
+            hashCode = 31 * hashCode + other.pathChars[otherStart + i];
+        }
+        int mask = pathIndex.length - 1;
+        for (int slot = spread(hashCode) & mask;; slot = (slot + 1) & mask) {
+            int entry = pathIndex[slot] - 1;
+            if (entry < 0) {
+                return -1;
+            }
+            if (pathEquals(entry, other.pathChars, otherStart, length)) {
+                return entry;
+            }
+        }
+    }
+
+    private int pathStart(int entry) {
+        return entry == 0 ? 0 : pathEnds[entry - 1];
+    }
+
+    private boolean pathEquals(int entry, String path) {
+        int start = pathStart(entry);
+        int length = pathEnds[entry] - start;
+        if (length != path.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (pathChars[start + i] != path.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean pathEquals(int entry, char[] chars, int offset, int length) {
+        int start = pathStart(entry);
+        if (pathEnds[entry] - start != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (pathChars[start + i] != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    String getPath(int entry) {
+        int start = pathStart(entry);
+        return new String(pathChars, start, pathEnds[entry] - start);
+    }
+
+    private int normalizedPathLength(int entry) {
+        switch (kinds[entry] & NORMALIZATION_MASK) {
+            case DEFAULT_NORMALIZATION:
+                return normalizedPaths[entry].length();
+            case INDEXED_NORMALIZATION:
+                return pathEnds[entry] - pathStart(entry) - normalizedPathIndexes[entry];
+            case IGNORED_PATH_NORMALIZATION:
+                return 0;
+            default:
+                return pathEnds[entry] - pathStart(entry);
+        }
+    }
+
+    private char normalizedPathCharAt(int entry, int index) {
+        switch (kinds[entry] & NORMALIZATION_MASK) {
+            case DEFAULT_NORMALIZATION:
+                return normalizedPaths[entry].charAt(index);
+            case INDEXED_NORMALIZATION:
+                return pathChars[pathStart(entry) + normalizedPathIndexes[entry] + index];
+            default:
+                return pathChars[pathStart(entry) + index];
+        }
+    }
+
+    private String getNormalizedPath(int entry) {
+        switch (kinds[entry] & NORMALIZATION_MASK) {
+            case DEFAULT_NORMALIZATION:
+                return normalizedPaths[entry];
+            case INDEXED_NORMALIZATION:
+                int start = pathStart(entry) + normalizedPathIndexes[entry];
+                return new String(pathChars, start, pathEnds[entry] - start);
+            case IGNORED_PATH_NORMALIZATION:
+                return "";
+            default:
+                return getPath(entry);
+        }
+    }
+
+    /**
+     * Compares the normalized paths of the given entries, in the same order as {@link String#compareTo(String)}.
+     */
+    int compareNormalizedPaths(int entry, CompactSnapshotMap other, int otherEntry) {
+        int length = normalizedPathLength(entry);
+        int otherLength = other.normalizedPathLength(otherEntry);
+        for (int i = 0, common = Math.min(length, otherLength); i < common; i++) {
+            int result = normalizedPathCharAt(entry, i) - other.normalizedPathCharAt(otherEntry, i);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return length - otherLength;
+    }
+
+    private byte[] hashArray(int entry) {
+        switch (kinds[entry] & FILE_TYPE_MASK) {
+            case DIR_SNAPSHOT:
+                return DIR_SIGNATURE;
+            case MISSING_FILE_SNAPSHOT:
+                return MISSING_FILE_SIGNATURE;
+            default:
+                return hashes;
+        }
+    }
+
+    private int hashOffset(int entry) {
+        return (kinds[entry] & FILE_TYPE_MASK) == REGULAR_FILE_SNAPSHOT ? entry * hashLength : 0;
+    }
+
+    private int hashLength(int entry) {
+        return (kinds[entry] & FILE_TYPE_MASK) == REGULAR_FILE_SNAPSHOT ? hashLength : hashArray(entry).length;
+    }
+
+    /**
+     * Compares the hashes of the given entries, in the same order as {@link org.gradle.internal.hash.HashUtil#compareHashCodes(byte[], byte[])}.
+     */
+    private int compareHashes(int entry, CompactSnapshotMap other, int otherEntry) {
+        int length = hashLength(entry);
+        int result = length - other.hashLength(otherEntry);
+        if (result != 0) {
+            return result;
+        }
+        byte[] hash = hashArray(entry);
+        int offset = hashOffset(entry);
+        byte[] otherHash = other.hashArray(otherEntry);
+        int otherOffset = other.hashOffset(otherEntry);
+        for (int i = 0; i < length; i++) {
+            result = hash[offset + i] - otherHash[otherOffset + i];
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns whether the given entries have the same content, like {@link IncrementalFileSnapshot#isContentUpToDate(IncrementalFileSnapshot)}.
+     */
+    boolean isContentUpToDate(int entry, CompactSnapshotMap other, int otherEntry) {
+        int fileType = kinds[entry] & FILE_TYPE_MASK;
+        if (fileType != (other.kinds[otherEntry] & FILE_TYPE_MASK)) {
+            return false;
+        }
+        return fileType != REGULAR_FILE_SNAPSHOT || compareHashes(entry, other, otherEntry) == 0;
+    }
+
+    /**
+     * Appends the given entry to the cache key, like {@link NormalizedFileSnapshot#appendToCacheKey(TaskCacheKeySink)}.
+     */
+    void appendToCacheKey(int entry, TaskCacheKeySink builder) {
+        if ((kinds[entry] & NORMALIZATION_MASK) != IGNORED_PATH_NORMALIZATION) {
+            builder.putString(getNormalizedPath(entry));
+        }
+        builder.putBytes(hashArray(entry), hashOffset(entry), hashLength(entry));
+    }
+
+    /**
+     * Returns the entry numbers in the order of their snapshots, that is by normalized path and then by hash.
+     */
+    int[] sortedEntries() {
+        int[] entries = new int[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = i;
+        }
+        mergeSort(entries, new int[size], 0, size);
+        return entries;
+    }
+
+    private void mergeSort(int[] entries, int[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(entries, buffer, from, middle);
+        mergeSort(entries, buffer, middle, to);
+        System.arraycopy(entries, from, buffer, from, to - from);
+        for (int i = from, left = from, right = middle; i < to; i++) {
+            if (right >= to || left < middle && compareEntries(buffer[left], buffer[right]) <= 0) {
+                entries[i] = buffer[left++];
+            } else {
+                entries[i] = buffer[right++];
+            }
+        }
+    }
+
+    private int compareEntries(int entry, int otherEntry) {
+        int result = compareNormalizedPaths(entry, this, otherEntry);
+        return result != 0 ? result : compareHashes(entry, this, otherEntry);
+    }
+
+    private NormalizedFileSnapshot getSnapshot(int entry, String path) {
+        IncrementalFileSnapshot fileSnapshot;
+        switch (kinds[entry] & FILE_TYPE_MASK) {
+            case DIR_SNAPSHOT:
+                fileSnapshot = DirSnapshot.getInstance();
+                break;
+            case MISSING_FILE_SNAPSHOT:
+                fileSnapshot = MissingFileSnapshot.getInstance();
+                break;
+            case REGULAR_FILE_SNAPSHOT:
+                HashCode hash = HashCode.fromBytes(Arrays.copyOfRange(hashes, entry * hashLength, (entry + 1) * hashLength));
+                fileSnapshot = new FileHashSnapshot(hash, timestamps == null ? 0 : timestamps[entry]);
+                break;
+            default:
+                throw new AssertionError();
+        }
+        switch (kinds[entry] & NORMALIZATION_MASK) {
+            case NO_NORMALIZATION:
+                return new NonNormalizedFileSnapshot(path, fileSnapshot);
+            case DEFAULT_NORMALIZATION:
+                return new DefaultNormalizedFileSnapshot(normalizedPaths[entry], fileSnapshot);
+            case INDEXED_NORMALIZATION:
+                return new IndexedNormalizedFileSnapshot(path, normalizedPathIndexes[entry], fileSnapshot);
+            case IGNORED_PATH_NORMALIZATION:
+                return new IgnoredPathFileSnapshot(fileSnapshot);
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new EntryIterator<String>() {
+                    @Override
+                    String get(int entry) {
+                        return getPath(entry);
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<String, NormalizedFileSnapshot>> entrySet() {
+        return new AbstractSet<Entry<String, NormalizedFileSnapshot>>() {
+            @Override
+            public Iterator<Entry<String, NormalizedFileSnapshot>> iterator() {
+                return new EntryIterator<Entry<String, NormalizedFileSnapshot>>() {
+                    @Override
+                    Entry<String, NormalizedFileSnapshot> get(int entry) {
+                        String path = getPath(entry);
+                        return new SimpleImmutableEntry<String, NormalizedFileSnapshot>(path, getSnapshot(entry, path));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private abstract class EntryIterator<T> implements Iterator<T> {
+        private int next;
+
+        abstract T get(int entry);
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public T next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            return get(next++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
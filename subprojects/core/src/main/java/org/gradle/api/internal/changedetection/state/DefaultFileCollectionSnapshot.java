@@ -16,10 +16,13 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import org.gradle.api.internal.cache.HasEstimatedRetainedSize;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.rules.TaskStateChange;
-import org.gradle.api.internal.tasks.cache.TaskCacheKeyBuilder;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeySink;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
 import org.gradle.internal.serialize.Decoder;
@@ -31,10 +34,13 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
+class DefaultFileCollectionSnapshot implements FileCollectionSnapshot, HasEstimatedRetainedSize {
+    // Rough size of a map entry with its path, snapshot and hash, for snapshots that could not be stored compactly
+    private static final int ESTIMATED_ENTRY_SIZE = 256;
     private final Map<String, NormalizedFileSnapshot> snapshots;
     private final TaskFilePropertyCompareStrategy compareStrategy;
     private final boolean pathIsAbsolute;
+    private HashCode hash;
     private final Factory<List<File>> cachedElementsFactory = Factories.softReferenceCache(new Factory<List<File>>() {
         @Override
         public List<File> create() {
@@ -49,7 +55,7 @@ class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
     });
 
     public DefaultFileCollectionSnapshot(Map<String, NormalizedFileSnapshot> snapshots, TaskFilePropertyCompareStrategy compareStrategy, boolean pathIsAbsolute) {
-        this.snapshots = snapshots;
+        this.snapshots = CompactSnapshotMap.of(snapshots);
         this.compareStrategy = compareStrategy;
         this.pathIsAbsolute = pathIsAbsolute;
     }
@@ -59,19 +65,49 @@ class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
         return snapshots;
     }
 
+    @Override
+    public long getEstimatedRetainedSize() {
+        if (snapshots instanceof HasEstimatedRetainedSize) {
+            return ((HasEstimatedRetainedSize) snapshots).getEstimatedRetainedSize();
+        }
+        return (long) snapshots.size() * ESTIMATED_ENTRY_SIZE;
+    }
+
     @Override
     public boolean isEmpty() {
         return snapshots.isEmpty();
     }
 
+    @Override
+    public HashCode getHash() {
+        if (hash == null) {
+            hash = calculateHash();
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes exactly what the snapshot contributes to task cache keys, so that the hash can be used both for up-to-date checks and cache keys.
+     */
+    private HashCode calculateHash() {
+        FileCollectionSnapshotHasher hasher = new FileCollectionSnapshotHasher();
+        hasher.putString(compareStrategy.name());
+        hasher.putBoolean(pathIsAbsolute);
+        compareStrategy.appendToCacheKey(hasher, snapshots);
+        return hasher.hash();
+    }
+
     @Override
     public Iterator<TaskStateChange> iterateContentChangesSince(FileCollectionSnapshot oldSnapshot, String fileType) {
+        if (getHash().equals(oldSnapshot.getHash())) {
+            return Iterators.emptyIterator();
+        }
         return compareStrategy.iterateContentChangesSince(snapshots, oldSnapshot.getSnapshots(), fileType, pathIsAbsolute);
     }
 
     @Override
-    public void appendToCacheKey(TaskCacheKeyBuilder builder) {
-        compareStrategy.appendToCacheKey(builder, snapshots);
+    public void appendToCacheKey(TaskCacheKeySink builder) {
+        builder.putBytes(getHash().asBytes());
     }
 
     @Override
@@ -0,0 +1,374 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import org.gradle.BuildAdapter;
+import org.gradle.api.Action;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.file.FileSystemSubset;
+import org.gradle.api.internal.tasks.execution.TaskOutputsGenerationListener;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.initialization.BuildCompletionListener;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.filewatch.FileWatcher;
+import org.gradle.internal.filewatch.FileWatcherEvent;
+import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.filewatch.FileWatcherListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Keeps the details of snapshotted files and directory trees in memory.
+ *
+ * <p>While a build runs, the details at the declared outputs of a task are discarded when the task generates its outputs.
+ * When a {@link FileWatcherFactory} is available, the directories whose trees are snapshotted are watched for changes as well,
+ * and the details inside of them are kept from one build to the next until a change is reported.
+ * Everything else is discarded at the end of each build, as are the details in directories the build did not use.</p>
+ *
+ * <p>Change events can arrive some time after the change was made, so the details kept from an earlier build are checked against the
+ * file system when the next build starts.</p>
+ */
+public class DefaultFileSystemMirror extends BuildAdapter implements FileSystemMirror, TaskOutputsGenerationListener, BuildCompletionListener, FileWatcherListener, Stoppable {
+    private static final Logger LOGGER = Logging.getLogger(DefaultFileSystemMirror.class);
+    private static final char SEPARATOR = File.separatorChar;
+
+    // Keyed by absolute path. Sorted, so that everything below a path can be found quickly
+    private final ConcurrentNavigableMap<String, DefaultFileDetails> files = new ConcurrentSkipListMap<String, DefaultFileDetails>();
+    private final ConcurrentNavigableMap<String, List<DefaultFileDetails>> directoryTrees = new ConcurrentSkipListMap<String, List<DefaultFileDetails>>();
+    // Paths that missed and are being calculated, mapped to false once something changed at the path in the meantime
+    private final ConcurrentMap<String, Boolean> pendingPaths = new ConcurrentHashMap<String, Boolean>();
+    private final Set<String> watchedDirectories = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    // Directory trees looked up by the current build
+    private final Set<String> usedDirectories = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final FileWatcherFactory fileWatcherFactory;
+    private FileWatcher watcher;
+    private volatile boolean watching;
+
+    /**
+     * @param fileWatcherFactory used to keep details between builds, or null to discard all details at the end of each build.
+     */
+    public DefaultFileSystemMirror(@Nullable FileWatcherFactory fileWatcherFactory) {
+        this.fileWatcherFactory = fileWatcherFactory;
+        this.watching = fileWatcherFactory != null;
+    }
+
+    @Nullable
+    @Override
+    public DefaultFileDetails getFile(String path) {
+        DefaultFileDetails file = files.get(path);
+        if (file == null) {
+            pendingPaths.putIfAbsent(path, Boolean.TRUE);
+        }
+        return file;
+    }
+
+    @Override
+    public void putFile(DefaultFileDetails file) {
+        if (Boolean.TRUE.equals(pendingPaths.remove(file.path))) {
+            files.put(file.path, file);
+        }
+    }
+
+    @Nullable
+    @Override
+    public List<DefaultFileDetails> getDirectoryTree(String path) {
+        if (watching) {
+            usedDirectories.add(path);
+        }
+        List<DefaultFileDetails> elements = directoryTrees.get(path);
+        if (elements == null) {
+            // Start watching before the tree is visited, so that no change made while visiting is missed
+            watch(path);
+            pendingPaths.putIfAbsent(path, Boolean.TRUE);
+        }
+        return elements;
+    }
+
+    @Override
+    public void putDirectoryTree(String path, List<DefaultFileDetails> elements) {
+        if (Boolean.TRUE.equals(pendingPaths.remove(path))) {
+            directoryTrees.put(path, ImmutableList.copyOf(elements));
+        }
+    }
+
+    @Override
+    public void beforeTaskOutputsGenerated(TaskInternal task) {
+        if (!task.getOutputs().getHasOutput()) {
+            // No idea where the task writes to
+            invalidateAll();
+            return;
+        }
+        for (File outputFile : task.getOutputs().getFiles()) {
+            invalidate(outputFile.getAbsolutePath());
+        }
+    }
+
+    @Override
+    public void onChange(FileWatcher watcher, FileWatcherEvent event) {
+        if (event.getType() == FileWatcherEvent.Type.UNDEFINED || event.getFile() == null) {
+            invalidateAll();
+        } else {
+            invalidate(event.getFile().getAbsolutePath());
+        }
+    }
+
+    /**
+     * Discards the details kept from earlier builds that have changed since, in case the change events have not been received yet.
+     */
+    @Override
+    public void buildStarted(Gradle gradle) {
+        for (DefaultFileDetails file : files.values()) {
+            if (!isUnchanged(file)) {
+                invalidate(file.path);
+            }
+        }
+        for (Map.Entry<String, List<DefaultFileDetails>> entry : directoryTrees.entrySet()) {
+            if (!isUnchanged(entry.getKey(), entry.getValue())) {
+                invalidate(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Discards the details that will not be kept up-to-date until the next build.
+     */
+    @Override
+    public void completed() {
+        pendingPaths.clear();
+        if (!isWatching()) {
+            usedDirectories.clear();
+            files.clear();
+            directoryTrees.clear();
+            return;
+        }
+        unwatchUnusedDirectories();
+        usedDirectories.clear();
+        removeUnwatched(files);
+        removeUnwatched(directoryTrees);
+    }
+
+    @Override
+    public void stop() {
+        FileWatcher watcher;
+        synchronized (this) {
+            watching = false;
+            watcher = this.watcher;
+            this.watcher = null;
+        }
+        if (watcher != null) {
+            watcher.stop();
+        }
+        invalidateAll();
+    }
+
+    private synchronized boolean isWatching() {
+        return watching && (watcher == null || watcher.isRunning());
+    }
+
+    private synchronized void watch(String path) {
+        if (!watching || isWatched(path)) {
+            return;
+        }
+        File directory = new File(path);
+        if (!directory.isDirectory()) {
+            // Nothing to receive events for
+            return;
+        }
+        try {
+            if (watcher == null) {
+                watcher = startWatcher();
+            }
+            watcher.watch(FileSystemSubset.builder().add(directory).build());
+            watchedDirectories.add(path);
+        } catch (IOException e) {
+            LOGGER.debug("Could not watch {} for changes, details will not be kept between builds.", path, e);
+        }
+    }
+
+    /**
+     * Replaces the watcher with one that only watches the directories used by the last build, as there is no way to stop watching a single directory.
+     */
+    private synchronized void unwatchUnusedDirectories() {
+        Set<String> stillUsed = new HashSet<String>();
+        for (String path : usedDirectories) {
+            String watchedDirectory = findWatchedDirectory(path);
+            if (watchedDirectory != null) {
+                stillUsed.add(watchedDirectory);
+            }
+        }
+        if (stillUsed.size() == watchedDirectories.size()) {
+            return;
+        }
+        FileWatcher previousWatcher = watcher;
+        watcher = null;
+        watchedDirectories.clear();
+        if (!stillUsed.isEmpty()) {
+            // Start watching again before the previous watcher stops, so that no change in between is missed
+            try {
+                watcher = startWatcher();
+                FileSystemSubset.Builder directories = FileSystemSubset.builder();
+                for (String path : stillUsed) {
+                    directories.add(new File(path));
+                }
+                watcher.watch(directories.build());
+                watchedDirectories.addAll(stillUsed);
+            } catch (IOException e) {
+                LOGGER.debug("Could not watch {} for changes, details will not be kept between builds.", stillUsed, e);
+            }
+        }
+        previousWatcher.stop();
+    }
+
+    private FileWatcher startWatcher() {
+        return fileWatcherFactory.watch(new Action<Throwable>() {
+            @Override
+            public void execute(Throwable failure) {
+                stopWatching(failure);
+            }
+        }, this);
+    }
+
+    private void stopWatching(Throwable failure) {
+        synchronized (this) {
+            if (watcher != null && watcher.isRunning()) {
+                // A watcher that has been replaced failed
+                return;
+            }
+            LOGGER.info("Stopped watching for changes to snapshotted files.", failure);
+            watching = false;
+        }
+        invalidateAll();
+    }
+
+    private boolean isWatched(String path) {
+        return findWatchedDirectory(path) != null;
+    }
+
+    @Nullable
+    private String findWatchedDirectory(String path) {
+        for (String current = path; current != null; current = parentOf(current)) {
+            if (watchedDirectories.contains(current)) {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    private <T> void removeUnwatched(Map<String, T> entries) {
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (!isWatched(iterator.next())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void invalidate(String path) {
+        for (Map.Entry<String, Boolean> pending : pendingPaths.entrySet()) {
+            if (overlaps(pending.getKey(), path)) {
+                pending.setValue(Boolean.FALSE);
+            }
+        }
+        // The path itself and everything below it
+        removeFrom(files, path);
+        removeFrom(directoryTrees, path);
+        // Every tree containing the path, and missing ancestors that might have been created
+        for (String ancestor = parentOf(path); ancestor != null; ancestor = parentOf(ancestor)) {
+            directoryTrees.remove(ancestor);
+            files.remove(ancestor);
+        }
+    }
+
+    private void invalidateAll() {
+        for (Map.Entry<String, Boolean> pending : pendingPaths.entrySet()) {
+            pending.setValue(Boolean.FALSE);
+        }
+        files.clear();
+        directoryTrees.clear();
+    }
+
+    private static boolean isUnchanged(String path, List<DefaultFileDetails> elements) {
+        String[] children = new File(path).list();
+        if (children == null) {
+            return false;
+        }
+        // Elements below the root are covered by the modification time of the directory containing them
+        Set<String> visitedChildren = new HashSet<String>();
+        for (DefaultFileDetails element : elements) {
+            if (element.getRelativePath().getSegments().length == 1) {
+                visitedChildren.add(element.getName());
+            }
+            if (!isUnchanged(element)) {
+                return false;
+            }
+        }
+        return visitedChildren.equals(Sets.newHashSet(children));
+    }
+
+    private static boolean isUnchanged(DefaultFileDetails details) {
+        File file = new File(details.path);
+        switch (details.type) {
+            case Missing:
+                return !file.exists();
+            case Directory:
+                return file.isDirectory() && file.lastModified() == details.details.getLastModified();
+            case RegularFile:
+                return file.isFile() && file.lastModified() == details.details.getLastModified() && file.length() == details.details.getSize();
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    private static <T> void removeFrom(ConcurrentNavigableMap<String, T> entries, String path) {
+        entries.remove(path);
+        entries.subMap(path + SEPARATOR, (path + (char) (SEPARATOR + 1))).clear();
+    }
+
+    private static boolean overlaps(String first, String second) {
+        return isSameOrAncestor(first, second) || isSameOrAncestor(second, first);
+    }
+
+    private static boolean isSameOrAncestor(String ancestor, String path) {
+        return path.startsWith(ancestor) && (path.length() == ancestor.length() || path.charAt(ancestor.length()) == SEPARATOR);
+    }
+
+    @Nullable
+    private static String parentOf(String path) {
+        int index = path.lastIndexOf(SEPARATOR);
+        if (index <= 0 || index == path.length() - 1) {
+            return null;
+        }
+        return path.substring(0, index);
+    }
+}
@@ -17,6 +17,7 @@ package org.gradle.api.internal.changedetection.state;
 
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
+import org.gradle.cache.IndexedCacheBackend;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
@@ -24,10 +25,16 @@ import org.gradle.cache.internal.FileLockManager;
 import org.gradle.internal.serialize.Serializer;
 
 import java.io.Closeable;
+import java.util.Collections;
 
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class DefaultTaskHistoryStore implements TaskHistoryStore, Closeable {
+    private static final IndexedCacheBackend BACKEND = System.getProperty("org.gradle.internal.cache.task-history.append-only", "false").equalsIgnoreCase("true")
+        ? IndexedCacheBackend.APPEND_ONLY_LOG
+        : IndexedCacheBackend.BTREE;
+    // Increment when the format of any of the caches in the store changes, so that caches written by an earlier build of the same Gradle version are discarded
+    private static final int LAYOUT_VERSION = 2;
     private final InMemoryTaskArtifactCache inMemoryTaskArtifactCache;
     private final PersistentCache cache;
 
@@ -36,6 +43,7 @@ public class DefaultTaskHistoryStore implements TaskHistoryStore, Closeable {
         cache = cacheRepository
                 .cache(gradle, "taskArtifacts")
                 .withDisplayName("task history cache")
+                .withProperties(Collections.singletonMap("layout.version", LAYOUT_VERSION))
                 .withLockOptions(mode(FileLockManager.LockMode.None)) // Lock on demand
                 .open();
     }
@@ -46,7 +54,8 @@ public class DefaultTaskHistoryStore implements TaskHistoryStore, Closeable {
 
     public <K, V> PersistentIndexedCache<K, V> createCache(final String cacheName, final Class<K> keyType, final Serializer<V> valueSerializer) {
         PersistentIndexedCacheParameters<K, V> parameters = new PersistentIndexedCacheParameters<K, V>(cacheName, keyType, valueSerializer)
-                .cacheDecorator(inMemoryTaskArtifactCache);
+                .cacheDecorator(inMemoryTaskArtifactCache)
+                .backend(BACKEND);
         return cache.createCache(parameters);
     }
 
@@ -16,8 +16,9 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import com.google.common.hash.HashCode;
 import org.gradle.api.internal.changedetection.rules.TaskStateChange;
-import org.gradle.api.internal.tasks.cache.TaskCacheKeyBuilder;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeySink;
 
 import java.io.File;
 import java.util.Collection;
@@ -35,6 +36,12 @@ public interface FileCollectionSnapshot {
 
     boolean isEmpty();
 
+    /**
+     * Returns a hash of the normalized paths and contents of this snapshot. When two snapshots have the same hash, there are no content changes between them.
+     * The hash is calculated once per snapshot, and is also what the snapshot contributes to task cache keys.
+     */
+    HashCode getHash();
+
     /**
      * Returns an iterator over the changes to file contents since the given snapshot, subject to the given filters.
      */
@@ -52,5 +59,8 @@ public interface FileCollectionSnapshot {
 
     Map<String, NormalizedFileSnapshot> getSnapshots();
 
-    void appendToCacheKey(TaskCacheKeyBuilder builder);
+    /**
+     * Appends the hash of this snapshot to the given cache key.
+     */
+    void appendToCacheKey(TaskCacheKeySink builder);
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeySink;
+
+/**
+ * Calculates the hash of a file collection snapshot from what the snapshot contributes to task cache keys.
+ * Unlike {@link org.gradle.api.internal.tasks.cache.DefaultTaskCacheKeyBuilder}, it does not log every value appended.
+ */
+class FileCollectionSnapshotHasher implements TaskCacheKeySink {
+    private final Hasher hasher = Hashing.md5().newHasher();
+
+    @Override
+    public TaskCacheKeySink putByte(byte b) {
+        hasher.putByte(b);
+        return this;
+    }
+
+    @Override
+    public TaskCacheKeySink putBytes(byte[] bytes) {
+        hasher.putBytes(bytes);
+        return this;
+    }
+
+    @Override
+    public TaskCacheKeySink putBytes(byte[] bytes, int off, int len) {
+        hasher.putBytes(bytes, off, len);
+        return this;
+    }
+
+    @Override
+    public TaskCacheKeySink putInt(int i) {
+        hasher.putInt(i);
+        return this;
+    }
+
+    @Override
+    public TaskCacheKeySink putLong(long l) {
+        hasher.putLong(l);
+        return this;
+    }
+
+    @Override
+    public TaskCacheKeySink putDouble(double d) {
+        hasher.putDouble(d);
+        return this;
+    }
+
+    @Override
+    public TaskCacheKeySink putBoolean(boolean b) {
+        hasher.putBoolean(b);
+        return this;
+    }
+
+    @Override
+    public TaskCacheKeySink putString(CharSequence charSequence) {
+        // Include the length so that consecutive strings cannot be confused with each other
+        hasher.putInt(charSequence.length());
+        hasher.putString(charSequence, Charsets.UTF_8);
+        return this;
+    }
+
+    public HashCode hash() {
+        return hasher.hash();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.Nullable;
+
+import java.util.List;
+
+/**
+ * An in-memory view of the details of files and directory trees that have been snapshotted, shared by all builds run by this process.
+ *
+ * <p>A lookup that misses should be followed by a put for the same path once the details have been calculated.
+ * The details are only kept when nothing has changed at that path in the meantime.</p>
+ */
+public interface FileSystemMirror {
+    @Nullable
+    DefaultFileDetails getFile(String path);
+
+    void putFile(DefaultFileDetails file);
+
+    /**
+     * Returns the details of the directory at the given path and all of its descendants, in the order they were visited, or null when they are not known.
+     */
+    @Nullable
+    List<DefaultFileDetails> getDirectoryTree(String path);
+
+    void putDirectoryTree(String path, List<DefaultFileDetails> elements);
+}
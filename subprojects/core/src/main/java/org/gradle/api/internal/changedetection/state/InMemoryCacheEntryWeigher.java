@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.cache.Weigher;
+import org.gradle.api.internal.cache.HasEstimatedRetainedSize;
+
+import java.io.File;
+
+/**
+ * Weighs the entries of an in-memory task artifact cache by the estimated number of bytes of heap they retain.
+ * Values that cannot estimate their size are given a fixed weight.
+ */
+class InMemoryCacheEntryWeigher implements Weigher<Object, Object> {
+    private static final int OBJECT_OVERHEAD = 16;
+    // The map entry of the in-memory cache itself
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final int defaultValueWeight;
+
+    InMemoryCacheEntryWeigher(int defaultValueWeight) {
+        this.defaultValueWeight = defaultValueWeight;
+    }
+
+    @Override
+    public int weigh(Object key, Object value) {
+        long weight = ENTRY_OVERHEAD + weighKey(key) + weighValue(value);
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static long weighKey(Object key) {
+        if (key instanceof String) {
+            return weighString((String) key);
+        }
+        if (key instanceof File) {
+            return OBJECT_OVERHEAD + weighString(((File) key).getPath());
+        }
+        return OBJECT_OVERHEAD + 8;
+    }
+
+    private long weighValue(Object value) {
+        if (value instanceof HasEstimatedRetainedSize) {
+            return ((HasEstimatedRetainedSize) value).getEstimatedRetainedSize();
+        }
+        if (value instanceof String) {
+            return weighString((String) value);
+        }
+        if (value instanceof Long) {
+            return OBJECT_OVERHEAD + 8;
+        }
+        if (value == InMemoryDecoratedCache.NULL) {
+            return 0;
+        }
+        return defaultValueWeight;
+    }
+
+    private static long weighString(String string) {
+        return 2 * OBJECT_OVERHEAD + 8 + 2L * string.length();
+    }
+}
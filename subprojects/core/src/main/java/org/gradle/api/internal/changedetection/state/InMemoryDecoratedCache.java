@@ -24,13 +24,18 @@ import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache;
 import org.gradle.internal.UncheckedException;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 
 class InMemoryDecoratedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
     private final static Logger LOG = Logging.getLogger(InMemoryDecoratedCache.class);
-    private final static Object NULL = new Object();
+    final static Object NULL = new Object();
     private final MultiProcessSafePersistentIndexedCache<K, V> delegate;
     private final Cache<Object, Object> inMemoryCache;
     private final String cacheId;
@@ -70,6 +75,35 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafePersistentIndexedC
         }
     }
 
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new LinkedHashMap<K, V>();
+        List<K> misses = new ArrayList<K>();
+        for (K key : keys) {
+            assert key instanceof String || key instanceof Long || key instanceof File : "Unsupported key type: " + key;
+            Object value = inMemoryCache.getIfPresent(key);
+            if (value == null) {
+                misses.add(key);
+            } else if (value != NULL) {
+                result.put(key, (V) value);
+            }
+        }
+        if (!misses.isEmpty()) {
+            // Fetch all the misses from the backing cache in one go, and remember those without a value too
+            Map<K, V> loaded = delegate.getAll(misses);
+            for (K key : misses) {
+                V value = loaded.get(key);
+                if (value == null) {
+                    inMemoryCache.put(key, NULL);
+                } else {
+                    inMemoryCache.put(key, value);
+                    result.put(key, value);
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public void put(K key, V value) {
         inMemoryCache.put(key, value);
@@ -82,6 +116,18 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafePersistentIndexedC
         delegate.putLater(key, value, completion);
     }
 
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        inMemoryCache.putAll(entries);
+        delegate.putAll(entries);
+    }
+
+    @Override
+    public void putAllLater(Map<? extends K, ? extends V> entries, Runnable completion) {
+        inMemoryCache.putAll(entries);
+        delegate.putAllLater(entries, completion);
+    }
+
     @Override
     public void remove(final K key) {
         inMemoryCache.put(key, NULL);
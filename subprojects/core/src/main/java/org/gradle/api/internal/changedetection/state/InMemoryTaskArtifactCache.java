@@ -29,16 +29,18 @@ import org.gradle.cache.internal.FileLock;
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A {@link CacheDecorator} that wraps each cache with an in-memory cache that is used to short-circuit reads from the backing cache.
  * The in-memory cache is invalidated when the backing cache is changed by another process.
+ * The in-memory caches are bounded by the estimated heap retained by their entries, see {@link CacheCapSizer}.
  */
 public class InMemoryTaskArtifactCache implements CacheDecorator {
     private final static Logger LOG = Logging.getLogger(InMemoryTaskArtifactCache.class);
-    private final Cache<String, Cache<Object, Object>> cache;
+    private final Cache<String, InMemoryCache> cache;
     private final Map<String, AtomicReference<FileLock.State>> fileLockStates = new HashMap<String, AtomicReference<FileLock.State>>();
     private final CacheCapSizer cacheCapSizer;
 
@@ -74,21 +76,27 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
     }
 
     private Cache<Object, Object> createInMemoryCache(String cacheId, String cacheName) {
-        Cache<Object, Object> inMemoryCache = this.cache.getIfPresent(cacheId);
+        InMemoryCache inMemoryCache = this.cache.getIfPresent(cacheId);
         if (inMemoryCache != null) {
-            LOG.info("In-memory cache of {}: Size{{}}, {}", cacheId, inMemoryCache.size(), inMemoryCache.stats());
+            LOG.info("In-memory cache of {}: Size{{}}, {}", cacheId, inMemoryCache.entries.size(), inMemoryCache.entries.stats());
         } else {
             Integer maxSize = cacheCapSizer.getMaxSize(cacheName);
-            assert maxSize != null : "Unknown cache.";
-            LOG.debug("Creating In-memory cache of {}: MaxSize{{}}", cacheId, maxSize);
-            LoggingEvictionListener evictionListener = new LoggingEvictionListener(cacheId, maxSize);
-            final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().removalListener(evictionListener);
+            Long maxWeight = cacheCapSizer.getMaxWeight(cacheName);
+            assert maxSize != null && maxWeight != null : "Unknown cache.";
+            LOG.debug("Creating In-memory cache of {}: MaxWeight{{}}", cacheId, maxWeight);
+            LoggingEvictionListener evictionListener = new LoggingEvictionListener(cacheId, maxSize, maxWeight);
+            InMemoryCacheEntryWeigher weigher = new InMemoryCacheEntryWeigher(cacheCapSizer.getDefaultEntryWeight(cacheName));
+            final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher(weigher)
+                .recordStats()
+                .removalListener(evictionListener);
             configureInMemoryCache(cacheBuilder, cacheId, cacheName);
-            inMemoryCache = cacheBuilder.build();
-            evictionListener.setCache(inMemoryCache);
+            inMemoryCache = new InMemoryCache(cacheBuilder.build(), weigher);
+            evictionListener.setCache(inMemoryCache.entries);
             this.cache.put(cacheId, inMemoryCache);
         }
-        return inMemoryCache;
+        return inMemoryCache.entries;
     }
 
     protected void configureInMemoryCache(CacheBuilder<Object, Object> cacheBuilder, String cacheId, String cacheName) {
@@ -96,8 +104,21 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
     }
 
     public void invalidateAll() {
-        for(Cache<Object, Object> subcache : cache.asMap().values()) {
-            subcache.invalidateAll();
+        for(InMemoryCache subcache : cache.asMap().values()) {
+            subcache.entries.invalidateAll();
+        }
+    }
+
+    /**
+     * Drops entries of each in-memory cache until they retain at most half of the heap they did, to release heap when the process is running low on memory.
+     * The dropped entries are loaded again from the backing caches when they are next used.
+     */
+    public void reduceMemoryUsage() {
+        for (Map.Entry<String, InMemoryCache> entry : cache.asMap().entrySet()) {
+            Cache<Object, Object> subcache = entry.getValue().entries;
+            long sizeBefore = subcache.size();
+            entry.getValue().trimToHalf();
+            LOG.info("Reduced in-memory cache of {} from {} to {} entries.", entry.getKey(), sizeBefore, subcache.size());
         }
     }
 
@@ -105,4 +126,29 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
         // do nothing by default on flush
     }
 
+    private static class InMemoryCache {
+        final Cache<Object, Object> entries;
+        final InMemoryCacheEntryWeigher weigher;
+
+        InMemoryCache(Cache<Object, Object> entries, InMemoryCacheEntryWeigher weigher) {
+            this.entries = entries;
+            this.weigher = weigher;
+        }
+
+        void trimToHalf() {
+            Map<Object, Object> map = entries.asMap();
+            long weight = 0;
+            for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                weight += weigher.weigh(entry.getKey(), entry.getValue());
+            }
+            // Guava does not expose the access order of the entries, so this drops them in iteration order
+            long retained = weight;
+            for (Iterator<Map.Entry<Object, Object>> iterator = map.entrySet().iterator(); iterator.hasNext() && retained > weight / 2;) {
+                Map.Entry<Object, Object> entry = iterator.next();
+                retained -= weigher.weigh(entry.getKey(), entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.hash.HashCode;
+import org.gradle.api.internal.changedetection.rules.TaskStateChange;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeySink;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A snapshot stored in a {@link FileSnapshotRepository} that is only loaded when its contents are required.
+ * When the hash of the snapshot is known, comparing a snapshot with the same hash to it does not load it.
+ */
+class LazyFileCollectionSnapshot implements FileCollectionSnapshot {
+    private final Long id;
+    private final HashCode hash;
+    private final FileSnapshotRepository snapshotRepository;
+    private FileCollectionSnapshot snapshot;
+
+    LazyFileCollectionSnapshot(Long id, HashCode hash, FileSnapshotRepository snapshotRepository) {
+        this.id = id;
+        this.hash = hash;
+        this.snapshotRepository = snapshotRepository;
+    }
+
+    private FileCollectionSnapshot getSnapshot() {
+        if (snapshot == null) {
+            snapshot = snapshotRepository.get(id);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public HashCode getHash() {
+        if (hash != null) {
+            return hash;
+        }
+        return getSnapshot().getHash();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getSnapshot().isEmpty();
+    }
+
+    @Override
+    public Iterator<TaskStateChange> iterateContentChangesSince(FileCollectionSnapshot oldSnapshot, String title) {
+        return getSnapshot().iterateContentChangesSince(oldSnapshot, title);
+    }
+
+    @Override
+    public Collection<File> getElements() {
+        return getSnapshot().getElements();
+    }
+
+    @Override
+    public Collection<File> getFiles() {
+        return getSnapshot().getFiles();
+    }
+
+    @Override
+    public Map<String, NormalizedFileSnapshot> getSnapshots() {
+        return getSnapshot().getSnapshots();
+    }
+
+    @Override
+    public void appendToCacheKey(TaskCacheKeySink builder) {
+        builder.putBytes(getHash().asBytes());
+    }
+}
@@ -30,13 +30,16 @@ class LoggingEvictionListener implements RemovalListener<Object, Object> {
     volatile int evictionCounter;
     private final String cacheId;
     private Cache<Object, Object> cache;
-    private final int maxSize;
+    private final long maxWeight;
     private final int logInterval;
 
-    LoggingEvictionListener(String cacheId, int maxSize) {
+    /**
+     * @param expectedSize the number of entries the cache is expected to hold, evictions are logged every tenth of it.
+     */
+    LoggingEvictionListener(String cacheId, int expectedSize, long maxWeight) {
         this.cacheId = cacheId;
-        this.maxSize = maxSize;
-        this.logInterval = maxSize / 10;
+        this.maxWeight = maxWeight;
+        this.logInterval = Math.max(1, expectedSize / 10);
     }
 
     public void setCache(Cache<Object, Object> cache) {
@@ -45,9 +48,10 @@ class LoggingEvictionListener implements RemovalListener<Object, Object> {
 
     @Override
     public void onRemoval(RemovalNotification<Object, Object> notification) {
+        // Only evictions to stay within the maximum weight are counted, entries removed or trimmed explicitly are not
         if (notification.getCause() == RemovalCause.SIZE) {
             if (evictionCounter % logInterval == 0) {
-                logger.log(LogLevel.INFO, "Cache entries evicted. In-memory cache of {}: Size{{}} MaxSize{{}}, {} {}", cacheId, cache.size(), maxSize, cache.stats(), EVICTION_MITIGATION_MESSAGE);
+                logger.log(LogLevel.INFO, "Cache entries evicted. In-memory cache of {}: Size{{}} MaxWeight{{}}, {} {}", cacheId, cache.size(), maxWeight, cache.stats(), EVICTION_MITIGATION_MESSAGE);
             }
             evictionCounter++;
         }
@@ -24,7 +24,7 @@ import com.google.common.collect.MultimapBuilder;
 import org.gradle.api.internal.changedetection.rules.ChangeType;
 import org.gradle.api.internal.changedetection.rules.FileChange;
 import org.gradle.api.internal.changedetection.rules.TaskStateChange;
-import org.gradle.api.internal.tasks.cache.TaskCacheKeyBuilder;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeySink;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -54,6 +54,9 @@ class OrderInsensitiveTaskFilePropertyCompareStrategy implements TaskFilePropert
     @Override
     public Iterator<TaskStateChange> iterateContentChangesSince(Map<String, NormalizedFileSnapshot> current, Map<String, NormalizedFileSnapshot> previous, String fileType, boolean pathIsAbsolute) {
         if (pathIsAbsolute) {
+            if (current instanceof CompactSnapshotMap && previous instanceof CompactSnapshotMap) {
+                return iterateCompactChangesForAbsolutePaths((CompactSnapshotMap) current, (CompactSnapshotMap) previous, fileType);
+            }
             return iterateChangesForAbsolutePaths(current, previous, fileType);
         } else {
             return iterateChangesForRelativePaths(current, previous, fileType);
@@ -113,6 +116,50 @@ class OrderInsensitiveTaskFilePropertyCompareStrategy implements TaskFilePropert
         };
     }
 
+    /**
+     * Same as {@link #iterateChangesForAbsolutePaths(Map, Map, String)}, but compares the entries in place, creating objects only for the changes.
+     */
+    private Iterator<TaskStateChange> iterateCompactChangesForAbsolutePaths(final CompactSnapshotMap current, final CompactSnapshotMap previous, final String fileType) {
+        final boolean[] accountedForPreviousEntries = new boolean[previous.size()];
+        final int[] addedEntries = new int[current.size()];
+        return new AbstractIterator<TaskStateChange>() {
+            private int currentEntry;
+            private int previousEntry;
+            private int addedCount;
+            private int addedEntry;
+
+            @Override
+            protected TaskStateChange computeNext() {
+                while (currentEntry < current.size()) {
+                    int entry = currentEntry++;
+                    int previousEntryWithSamePath = previous.indexOf(current, entry);
+                    if (previousEntryWithSamePath >= 0) {
+                        accountedForPreviousEntries[previousEntryWithSamePath] = true;
+                        if (!current.isContentUpToDate(entry, previous, previousEntryWithSamePath)) {
+                            return new FileChange(current.getPath(entry), ChangeType.MODIFIED, fileType);
+                        }
+                        // else, unchanged; check next file
+                    } else {
+                        addedEntries[addedCount++] = entry;
+                    }
+                }
+
+                while (previousEntry < previous.size()) {
+                    int entry = previousEntry++;
+                    if (!accountedForPreviousEntries[entry]) {
+                        return new FileChange(previous.getPath(entry), ChangeType.REMOVED, fileType);
+                    }
+                }
+
+                if (includeAdded && addedEntry < addedCount) {
+                    return new FileChange(current.getPath(addedEntries[addedEntry++]), ChangeType.ADDED, fileType);
+                }
+
+                return endOfData();
+            }
+        };
+    }
+
     private Iterator<TaskStateChange> iterateChangesForRelativePaths(final Map<String, NormalizedFileSnapshot> current, Map<String, NormalizedFileSnapshot> previous, final String fileType) {
         final ListMultimap<NormalizedFileSnapshot, IncrementalFileSnapshotWithAbsolutePath> unaccountedForPreviousSnapshots = MultimapBuilder.hashKeys().linkedListValues().build();
         for (Entry<String, NormalizedFileSnapshot> entry : previous.entrySet()) {
@@ -189,7 +236,14 @@ class OrderInsensitiveTaskFilePropertyCompareStrategy implements TaskFilePropert
     }
 
     @Override
-    public void appendToCacheKey(TaskCacheKeyBuilder builder, Map<String, NormalizedFileSnapshot> snapshots) {
+    public void appendToCacheKey(TaskCacheKeySink builder, Map<String, NormalizedFileSnapshot> snapshots) {
+        if (snapshots instanceof CompactSnapshotMap) {
+            CompactSnapshotMap compactSnapshots = (CompactSnapshotMap) snapshots;
+            for (int entry : compactSnapshots.sortedEntries()) {
+                compactSnapshots.appendToCacheKey(entry, builder);
+            }
+            return;
+        }
         List<NormalizedFileSnapshot> normalizedSnapshots = Lists.newArrayList(snapshots.values());
         Collections.sort(normalizedSnapshots);
         for (NormalizedFileSnapshot normalizedSnapshot : normalizedSnapshots) {
@@ -20,7 +20,7 @@ import com.google.common.collect.AbstractIterator;
 import org.gradle.api.internal.changedetection.rules.ChangeType;
 import org.gradle.api.internal.changedetection.rules.FileChange;
 import org.gradle.api.internal.changedetection.rules.TaskStateChange;
-import org.gradle.api.internal.tasks.cache.TaskCacheKeyBuilder;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeySink;
 
 import java.util.Iterator;
 import java.util.Map;
@@ -29,6 +29,9 @@ class OrderSensitiveTaskFilePropertyCompareStrategy implements TaskFilePropertyC
 
     @Override
     public Iterator<TaskStateChange> iterateContentChangesSince(Map<String, NormalizedFileSnapshot> current, Map<String, NormalizedFileSnapshot> previous, final String fileType, boolean isPathAbsolute) {
+        if (current instanceof CompactSnapshotMap && previous instanceof CompactSnapshotMap) {
+            return iterateCompactContentChangesSince((CompactSnapshotMap) current, (CompactSnapshotMap) previous, fileType);
+        }
         final Iterator<Map.Entry<String, NormalizedFileSnapshot>> currentEntries = current.entrySet().iterator();
         final Iterator<Map.Entry<String, NormalizedFileSnapshot>> previousEntries = previous.entrySet().iterator();
         return new AbstractIterator<TaskStateChange>() {
@@ -68,8 +71,44 @@ class OrderSensitiveTaskFilePropertyCompareStrategy implements TaskFilePropertyC
         };
     }
 
+    /**
+     * Compares the entries in place, creating objects only for the changes.
+     */
+    private static Iterator<TaskStateChange> iterateCompactContentChangesSince(final CompactSnapshotMap current, final CompactSnapshotMap previous, final String fileType) {
+        return new AbstractIterator<TaskStateChange>() {
+            private int entry;
+
+            @Override
+            protected TaskStateChange computeNext() {
+                while (entry < current.size()) {
+                    int currentEntry = entry++;
+                    if (currentEntry >= previous.size()) {
+                        return new FileChange(current.getPath(currentEntry), ChangeType.ADDED, fileType);
+                    }
+                    if (current.compareNormalizedPaths(currentEntry, previous, currentEntry) != 0) {
+                        return new FileChange(current.getPath(currentEntry), ChangeType.REPLACED, fileType);
+                    }
+                    if (!current.isContentUpToDate(currentEntry, previous, currentEntry)) {
+                        return new FileChange(current.getPath(currentEntry), ChangeType.MODIFIED, fileType);
+                    }
+                }
+                if (entry < previous.size()) {
+                    return new FileChange(previous.getPath(entry++), ChangeType.REMOVED, fileType);
+                }
+                return endOfData();
+            }
+        };
+    }
+
     @Override
-    public void appendToCacheKey(TaskCacheKeyBuilder builder, Map<String, NormalizedFileSnapshot> snapshots) {
+    public void appendToCacheKey(TaskCacheKeySink builder, Map<String, NormalizedFileSnapshot> snapshots) {
+        if (snapshots instanceof CompactSnapshotMap) {
+            CompactSnapshotMap compactSnapshots = (CompactSnapshotMap) snapshots;
+            for (int entry = 0; entry < compactSnapshots.size(); entry++) {
+                compactSnapshots.appendToCacheKey(entry, builder);
+            }
+            return;
+        }
         for (Map.Entry<String, NormalizedFileSnapshot> entry : snapshots.entrySet()) {
             NormalizedFileSnapshot normalizedSnapshot = entry.getValue();
             normalizedSnapshot.appendToCacheKey(builder);
@@ -35,8 +35,11 @@ public class TaskExecutionSnapshot {
     private final ImmutableSortedMap<String, Long> inputFilesSnapshotIds;
     private final ImmutableSortedMap<String, Long> outputFilesSnapshotIds;
     private final Long discoveredFilesSnapshotId;
+    private final ImmutableSortedMap<String, HashCode> inputFilesSnapshotHashes;
+    private final ImmutableSortedMap<String, HashCode> outputFilesSnapshotHashes;
+    private final HashCode discoveredFilesSnapshotHash;
 
-    public TaskExecutionSnapshot(String taskClass, ImmutableSet<String> declaredOutputFilePaths, HashCode taskClassLoaderHash, HashCode taskActionsClassLoaderHash, Map<String, Object> inputProperties, ImmutableSortedMap<String, Long> inputFilesSnapshotIds, Long discoveredFilesSnapshotId, ImmutableSortedMap<String, Long> outputFilesSnapshotIds) {
+    public TaskExecutionSnapshot(String taskClass, ImmutableSet<String> declaredOutputFilePaths, HashCode taskClassLoaderHash, HashCode taskActionsClassLoaderHash, Map<String, Object> inputProperties, ImmutableSortedMap<String, Long> inputFilesSnapshotIds, ImmutableSortedMap<String, HashCode> inputFilesSnapshotHashes, Long discoveredFilesSnapshotId, HashCode discoveredFilesSnapshotHash, ImmutableSortedMap<String, Long> outputFilesSnapshotIds, ImmutableSortedMap<String, HashCode> outputFilesSnapshotHashes) {
         this.taskClass = taskClass;
         this.declaredOutputFilePaths = declaredOutputFilePaths;
         this.taskClassLoaderHash = taskClassLoaderHash;
@@ -45,6 +48,9 @@ public class TaskExecutionSnapshot {
         this.inputFilesSnapshotIds = inputFilesSnapshotIds;
         this.discoveredFilesSnapshotId = discoveredFilesSnapshotId;
         this.outputFilesSnapshotIds = outputFilesSnapshotIds;
+        this.inputFilesSnapshotHashes = inputFilesSnapshotHashes;
+        this.discoveredFilesSnapshotHash = discoveredFilesSnapshotHash;
+        this.outputFilesSnapshotHashes = outputFilesSnapshotHashes;
     }
 
     public ImmutableSet<String> getDeclaredOutputFilePaths() {
@@ -55,10 +61,21 @@ public class TaskExecutionSnapshot {
         return discoveredFilesSnapshotId;
     }
 
+    public HashCode getDiscoveredFilesSnapshotHash() {
+        return discoveredFilesSnapshotHash;
+    }
+
     public ImmutableSortedMap<String, Long> getInputFilesSnapshotIds() {
         return inputFilesSnapshotIds;
     }
 
+    /**
+     * Returns the hashes of the input file snapshots, by property name. Properties whose hash is not known are missing from the map.
+     */
+    public ImmutableSortedMap<String, HashCode> getInputFilesSnapshotHashes() {
+        return inputFilesSnapshotHashes;
+    }
+
     public Map<String, Object> getInputProperties() {
         return inputProperties;
     }
@@ -67,6 +84,13 @@ public class TaskExecutionSnapshot {
         return outputFilesSnapshotIds;
     }
 
+    /**
+     * Returns the hashes of the output file snapshots, by property name. Properties whose hash is not known are missing from the map.
+     */
+    public ImmutableSortedMap<String, HashCode> getOutputFilesSnapshotHashes() {
+        return outputFilesSnapshotHashes;
+    }
+
     public HashCode getTaskActionsClassLoaderHash() {
         return taskActionsClassLoaderHash;
     }
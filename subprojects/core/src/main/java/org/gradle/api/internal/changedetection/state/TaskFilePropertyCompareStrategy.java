@@ -20,7 +20,7 @@ import com.google.common.annotations.VisibleForTesting;
 import org.gradle.api.internal.changedetection.rules.ChangeType;
 import org.gradle.api.internal.changedetection.rules.FileChange;
 import org.gradle.api.internal.changedetection.rules.TaskStateChange;
-import org.gradle.api.internal.tasks.cache.TaskCacheKeyBuilder;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeySink;
 
 import java.util.Iterator;
 import java.util.Map;
@@ -49,13 +49,13 @@ public enum TaskFilePropertyCompareStrategy {
         return delegate.iterateContentChangesSince(current, previous, fileType, pathIsAbsolute);
     }
 
-    public void appendToCacheKey(TaskCacheKeyBuilder builder, Map<String, NormalizedFileSnapshot> snapshots) {
+    public void appendToCacheKey(TaskCacheKeySink builder, Map<String, NormalizedFileSnapshot> snapshots) {
         delegate.appendToCacheKey(builder, snapshots);
     }
 
     interface Impl {
         Iterator<TaskStateChange> iterateContentChangesSince(Map<String, NormalizedFileSnapshot> current, Map<String, NormalizedFileSnapshot> previous, String fileType, boolean pathIsAbsolute);
-        void appendToCacheKey(TaskCacheKeyBuilder builder, Map<String, NormalizedFileSnapshot> snapshots);
+        void appendToCacheKey(TaskCacheKeySink builder, Map<String, NormalizedFileSnapshot> snapshots);
         boolean isIncludeAdded();
     }
 
@@ -16,43 +16,82 @@
 package org.gradle.api.internal.hash;
 
 import com.google.common.base.Charsets;
-import com.google.common.hash.Funnels;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hasher;
-import com.google.common.hash.Hashing;
-import com.google.common.io.Files;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.internal.resource.TextResource;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DefaultFileHasher implements FileHasher {
-    private static final byte[] SIGNATURE = Hashing.md5().hashString(DefaultFileHasher.class.getName(), Charsets.UTF_8).asBytes();
+    // Reading in larger chunks than the usual stream copy buffer saves a lot of calls into the hasher for large files
+    private static final int MAX_BUFFER_SIZE = 64 * 1024;
+
+    private final FileHashStrategy strategy;
+    private final byte[] signature;
+
+    public DefaultFileHasher() {
+        this(FileHashStrategy.MD5);
+    }
+
+    public DefaultFileHasher(FileHashStrategy strategy) {
+        this.strategy = strategy;
+        this.signature = strategy.getHashFunction().hashString(DefaultFileHasher.class.getName(), Charsets.UTF_8).asBytes();
+    }
+
+    public FileHashStrategy getStrategy() {
+        return strategy;
+    }
 
     @Override
     public HashCode hash(TextResource resource) {
-        Hasher hasher = Hashing.md5().newHasher();
-        hasher.putBytes(SIGNATURE);
+        Hasher hasher = strategy.getHashFunction().newHasher();
+        hasher.putBytes(signature);
         hasher.putString(resource.getText(), Charsets.UTF_8);
         return hasher.hash();
     }
 
     @Override
     public HashCode hash(File file) {
-        try {
-            Hasher hasher = Hashing.md5().newHasher();
-            hasher.putBytes(SIGNATURE);
-            Files.copy(file, Funnels.asOutputStream(hasher));
-            return hasher.hash();
-        } catch (IOException e) {
-            throw new UncheckedIOException(String.format("Failed to create MD5 hash for file '%s'.", file), e);
-        }
+        return hash(file, file.length());
     }
 
     @Override
     public HashCode hash(FileTreeElement fileDetails) {
-        return hash(fileDetails.getFile());
+        return hash(fileDetails.getFile(), fileDetails.getSize());
+    }
+
+    @Override
+    public List<HashCode> hashAll(List<? extends FileTreeElement> fileDetails) {
+        List<HashCode> hashes = new ArrayList<HashCode>(fileDetails.size());
+        for (FileTreeElement details : fileDetails) {
+            hashes.add(hash(details));
+        }
+        return hashes;
+    }
+
+    private HashCode hash(File file, long length) {
+        try {
+            Hasher hasher = strategy.getHashFunction().newHasher();
+            hasher.putBytes(signature);
+            byte[] buffer = new byte[(int) Math.max(1, Math.min(length, MAX_BUFFER_SIZE))];
+            FileInputStream inputStream = new FileInputStream(file);
+            try {
+                int read;
+                while ((read = inputStream.read(buffer)) >= 0) {
+                    hasher.putBytes(buffer, 0, read);
+                }
+            } finally {
+                inputStream.close();
+            }
+            return hasher.hash();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file '%s'.", strategy, file), e);
+        }
     }
 }
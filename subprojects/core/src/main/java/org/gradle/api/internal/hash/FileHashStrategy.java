@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.Locale;
+
+/**
+ * The hash function used to detect changes to the content of files.
+ */
+public enum FileHashStrategy {
+    /**
+     * MD5, the default.
+     */
+    MD5(Hashing.md5()),
+    /**
+     * The 128-bit variant of MurmurHash3. It is not cryptographic, but is much faster to calculate and good enough to detect changes.
+     */
+    MURMUR3(Hashing.murmur3_128());
+
+    /**
+     * The system property used to select the strategy, see {@link #fromSystemProperty()}.
+     */
+    public static final String SYSTEM_PROPERTY = "org.gradle.internal.file.hash";
+
+    private final HashFunction hashFunction;
+
+    FileHashStrategy(HashFunction hashFunction) {
+        this.hashFunction = hashFunction;
+    }
+
+    public HashFunction getHashFunction() {
+        return hashFunction;
+    }
+
+    /**
+     * Returns the strategy selected with the {@value #SYSTEM_PROPERTY} system property, or {@link #MD5} when none is selected.
+     */
+    public static FileHashStrategy fromSystemProperty() {
+        String strategy = System.getProperty(SYSTEM_PROPERTY);
+        if (strategy == null) {
+            return MD5;
+        }
+        try {
+            return valueOf(strategy.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Unknown file hash strategy '%s' set by system property '%s'.", strategy, SYSTEM_PROPERTY), e);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import org.gradle.api.file.FileTreeElement;
 import org.gradle.internal.resource.TextResource;
 
 import java.io.File;
+import java.util.List;
 
 public interface FileHasher {
     /**
@@ -36,4 +37,9 @@ public interface FileHasher {
      * Returns the hash of the current content of the given file, assuming the given file metadata. The provided file must exist and be a file (rather than, say, a directory).
      */
     HashCode hash(FileTreeElement fileDetails);
+
+    /**
+     * Returns the hashes of the current content of the given files, in the same order, assuming the given file metadata. The provided files must exist and be files.
+     */
+    List<HashCode> hashAll(List<? extends FileTreeElement> fileDetails);
 }
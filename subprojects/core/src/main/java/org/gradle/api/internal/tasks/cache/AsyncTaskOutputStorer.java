@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.cache;
+
+import com.google.common.io.Files;
+import org.gradle.api.internal.file.TemporaryFileProvider;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Stores task output in a {@link TaskOutputCache} on background threads, so that the calling worker can continue with the next task
+ * while the output is being uploaded.
+ *
+ * <p>The output is packed into a temporary file on the calling thread, so that later tasks cannot change the output while it is being stored.
+ * Only the upload of the packed file happens in the background.</p>
+ *
+ * <p>The number of outstanding stores is bounded: when the queue is full, callers block until a store finishes.
+ * {@link #waitForPendingStores()} and stopping the storer wait for all outstanding stores to finish.</p>
+ */
+public class AsyncTaskOutputStorer implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncTaskOutputStorer.class);
+
+    private final TaskOutputCache cache;
+    private final TemporaryFileProvider temporaryFileProvider;
+    private final ExecutorFactory executorFactory;
+    private final int maxWorkerCount;
+    private final int maxPendingStores;
+    private final Semaphore pendingStores;
+    private StoppableExecutor executor;
+
+    public AsyncTaskOutputStorer(TaskOutputCache cache, TemporaryFileProvider temporaryFileProvider, ExecutorFactory executorFactory, int maxWorkerCount, int maxPendingStores) {
+        this.cache = cache;
+        this.temporaryFileProvider = temporaryFileProvider;
+        this.executorFactory = executorFactory;
+        this.maxWorkerCount = maxWorkerCount;
+        this.maxPendingStores = maxPendingStores;
+        this.pendingStores = new Semaphore(maxPendingStores);
+    }
+
+    /**
+     * Packs the given output and schedules it to be stored in the cache. Failures to pack the output are propagated, failures to store it are logged.
+     */
+    public void store(final TaskCacheKey key, TaskOutputWriter writer, final String displayName) throws IOException {
+        final File packedOutput = pack(writer);
+        try {
+            pendingStores.acquire();
+        } catch (InterruptedException e) {
+            packedOutput.delete();
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        try {
+            getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        cache.store(key, new TaskOutputWriter() {
+                            @Override
+                            public void writeTo(OutputStream output) throws IOException {
+                                Files.copy(packedOutput, output);
+                            }
+                        });
+                        LOGGER.debug("Stored results for {} in {}", displayName, cache.getDescription());
+                    } catch (Exception e) {
+                        LOGGER.warn("Could not cache results for {} for cache key {}", displayName, key, e);
+                    } finally {
+                        packedOutput.delete();
+                        pendingStores.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            packedOutput.delete();
+            pendingStores.release();
+            throw e;
+        }
+    }
+
+    private File pack(TaskOutputWriter writer) throws IOException {
+        File file = temporaryFileProvider.createTemporaryFile("task-output-", ".bin", "task-output-store");
+        boolean packed = false;
+        try {
+            OutputStream output = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                writer.writeTo(output);
+            } finally {
+                output.close();
+            }
+            packed = true;
+        } finally {
+            if (!packed) {
+                file.delete();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Blocks until all stores scheduled so far have finished.
+     */
+    public void waitForPendingStores() {
+        pendingStores.acquireUninterruptibly(maxPendingStores);
+        pendingStores.release(maxPendingStores);
+    }
+
+    private synchronized StoppableExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("Task output cache store", maxWorkerCount);
+        }
+        return executor;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            LOGGER.debug("Waiting for outstanding task output cache stores to finish");
+            waitForPendingStores();
+            executor.stop();
+            executor = null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.cache;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import org.gradle.api.internal.TaskOutputsInternal;
+import org.gradle.api.internal.tasks.CacheableTaskOutputFilePropertySpec;
+import org.gradle.api.internal.tasks.TaskOutputFilePropertySpec;
+import org.gradle.api.internal.tasks.cache.config.TaskCachingInternal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Adds compression to the packed task output. The codec is chosen by the configured cache, unless all outputs
+ * of the task are files that are already compressed, in which case the output is stored uncompressed.
+ */
+public class CompressingTaskOutputPacker implements TaskOutputPacker {
+    private static final Set<String> COMPRESSED_EXTENSIONS = ImmutableSet.of("jar", "war", "ear", "aar", "zip", "gz", "tgz", "bz2", "xz", "7z", "png", "jpg", "jpeg", "gif");
+
+    private final TarTaskOutputPacker delegate;
+    private final TaskCachingInternal taskCaching;
+
+    public CompressingTaskOutputPacker(TarTaskOutputPacker delegate, TaskCachingInternal taskCaching) {
+        this.delegate = delegate;
+        this.taskCaching = taskCaching;
+    }
+
+    @Override
+    public void pack(TaskOutputsInternal taskOutputs, OutputStream output) throws IOException {
+        OutputStream compressedOutput = selectCompression(taskOutputs).compress(output);
+        try {
+            delegate.pack(taskOutputs, compressedOutput);
+        } finally {
+            compressedOutput.close();
+        }
+    }
+
+    @Override
+    public void unpack(TaskOutputsInternal taskOutputs, InputStream input) throws IOException {
+        InputStream decompressedInput = TaskOutputCompression.decompress(input);
+        try {
+            delegate.unpack(taskOutputs, decompressedInput);
+        } finally {
+            decompressedInput.close();
+        }
+    }
+
+    private TaskOutputCompression selectCompression(TaskOutputsInternal taskOutputs) {
+        TaskOutputCompression compression = taskCaching.getCompression();
+        if (taskOutputs.getFileProperties().isEmpty()) {
+            return compression;
+        }
+        for (TaskOutputFilePropertySpec propertySpec : taskOutputs.getFileProperties()) {
+            CacheableTaskOutputFilePropertySpec property = (CacheableTaskOutputFilePropertySpec) propertySpec;
+            if (property.getOutputType() != CacheableTaskOutputFilePropertySpec.OutputType.FILE) {
+                return compression;
+            }
+            String extension = Files.getFileExtension(property.getOutputFile().getName()).toLowerCase(Locale.ROOT);
+            if (!COMPRESSED_EXTENSIONS.contains(extension)) {
+                return compression;
+            }
+        }
+        return TaskOutputCompression.NONE;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.cache;
+
+import org.gradle.StartParameter;
+import org.gradle.api.internal.tasks.cache.config.TaskCachingInternal;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Creates the task output cache configured for the build when it is first used, and closes it when the build finishes.
+ */
+public class LazyTaskOutputCache implements TaskOutputCache, Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyTaskOutputCache.class);
+
+    private final TaskCachingInternal taskCaching;
+    private final StartParameter startParameter;
+    private TaskOutputCache cache;
+
+    public LazyTaskOutputCache(TaskCachingInternal taskCaching, StartParameter startParameter) {
+        this.taskCaching = taskCaching;
+        this.startParameter = startParameter;
+    }
+
+    @Override
+    public boolean load(TaskCacheKey key, TaskOutputReader reader) throws IOException {
+        return getCache().load(key, reader);
+    }
+
+    @Override
+    public void store(TaskCacheKey key, TaskOutputWriter writer) throws IOException {
+        getCache().store(key, writer);
+    }
+
+    @Override
+    public String getDescription() {
+        return getCache().getDescription();
+    }
+
+    private synchronized TaskOutputCache getCache() {
+        if (cache == null) {
+            cache = taskCaching.getCacheFactory().createCache(startParameter);
+            LOGGER.info("Using {}", cache.getDescription());
+        }
+        return cache;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (cache != null) {
+            CompositeStoppable.stoppable(cache).stop();
+            cache = null;
+        }
+    }
+}
@@ -14,20 +14,68 @@
  * limitations under the License.
  */
 
+
 package org.gradle.api.internal.tasks.cache;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.io.FileUtils;
 import org.gradle.api.UncheckedIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A task output cache that stores entries as files in a local directory.
+ *
+ * <p>Entries are stored in a two-level sharded layout based on the first characters of the cache key, and are written
+ * to a temporary file first and then renamed, so that concurrent builds sharing the directory never read partially
+ * written entries. Every access is appended to a journal. When the size of the cache exceeds its target size, the
+ * least recently accessed entries are removed when the cache is closed at the end of the build.</p>
+ */
+public class LocalDirectoryTaskOutputCache implements TaskOutputCache, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalDirectoryTaskOutputCache.class);
+
+    public static final long DEFAULT_TARGET_SIZE = 5L * 1024 * 1024 * 1024;
+    static final String JOURNAL_FILE_NAME = "access.journal";
+    private static final String CLEANUP_MARKER_FILE_NAME = "cleanup.marker";
+    private static final String COMPACTED_JOURNAL_FILE_NAME = JOURNAL_FILE_NAME + ".compacting";
+    private static final String TEMP_FILE_SUFFIX = ".part";
+    private static final long CLEANUP_INTERVAL = TimeUnit.DAYS.toMillis(1);
+    private static final long STALE_TEMP_FILE_AGE = TimeUnit.HOURS.toMillis(1);
 
-public class LocalDirectoryTaskOutputCache implements TaskOutputCache {
     private final File directory;
+    private final File journalFile;
+    private final File cleanupMarkerFile;
+    private final long targetSize;
+    private final AtomicLong bytesStoredSinceCleanup = new AtomicLong();
+    private final AtomicBoolean cleanupMarkerChecked = new AtomicBoolean();
+    private final AtomicBoolean cleanupRequested = new AtomicBoolean();
+    private final Object cleanupLock = new Object();
 
     public LocalDirectoryTaskOutputCache(File directory) {
+        this(directory, DEFAULT_TARGET_SIZE);
+    }
+
+    public LocalDirectoryTaskOutputCache(File directory, long targetSize) {
         if (directory.exists()) {
             if (!directory.isDirectory()) {
                 throw new IllegalArgumentException(String.format("Cache directory %s must be a directory", directory));
@@ -43,41 +91,258 @@ public class LocalDirectoryTaskOutputCache implements TaskOutputCache {
                 throw new UncheckedIOException(String.format("Could not create cache directory: %s", directory));
             }
         }
+        if (targetSize <= 0) {
+            throw new IllegalArgumentException(String.format("Target size of cache directory %s must be positive", directory));
+        }
         this.directory = directory;
+        this.journalFile = new File(directory, JOURNAL_FILE_NAME);
+        this.cleanupMarkerFile = new File(directory, CLEANUP_MARKER_FILE_NAME);
+        this.targetSize = targetSize;
     }
 
     @Override
     public boolean load(TaskCacheKey key, TaskOutputReader reader) throws IOException {
-        final File file = getFile(key.getHashCode());
-        if (file.isFile()) {
-            FileInputStream stream = new FileInputStream(file);
+        String hashCode = key.getHashCode();
+        File file = getFile(hashCode);
+        if (!file.isFile()) {
+            // Entries written before the sharded layout was introduced
+            file = new File(directory, hashCode);
+            if (!file.isFile()) {
+                return false;
+            }
+        }
+        FileInputStream stream;
+        try {
+            stream = new FileInputStream(file);
+        } catch (FileNotFoundException e) {
+            // Removed by a concurrent cleanup
+            return false;
+        }
+        try {
+            reader.readFrom(stream);
+        } finally {
+            stream.close();
+        }
+        recordAccess(hashCode);
+        if (isCleanupDue()) {
+            cleanupRequested.set(true);
+        }
+        return true;
+    }
+
+    @Override
+    public void store(TaskCacheKey key, TaskOutputWriter result) throws IOException {
+        String hashCode = key.getHashCode();
+        File file = getFile(hashCode);
+        File shardDirectory = file.getParentFile();
+        FileUtils.forceMkdir(shardDirectory);
+        File tempFile = File.createTempFile(hashCode + "-", TEMP_FILE_SUFFIX, shardDirectory);
+        try {
+            OutputStream output = new FileOutputStream(tempFile);
+            try {
+                result.writeTo(output);
+            } finally {
+                output.close();
+            }
+            // Renaming over an existing file fails on some platforms, in which case another build has stored the same entry already
+            if (!tempFile.renameTo(file) && !file.isFile()) {
+                throw new IOException(String.format("Could not move %s to %s", tempFile, file));
+            }
+        } finally {
+            if (tempFile.exists() && !tempFile.delete()) {
+                LOGGER.debug("Could not delete temporary file {}", tempFile);
+            }
+        }
+        recordAccess(hashCode);
+        if (bytesStoredSinceCleanup.addAndGet(file.length()) > targetSize / 10 || isCleanupDue()) {
+            cleanupRequested.set(true);
+        }
+    }
+
+    private File getFile(String hashCode) {
+        if (hashCode.length() < 4) {
+            return new File(directory, hashCode);
+        }
+        File shardDirectory = new File(new File(directory, hashCode.substring(0, 2)), hashCode.substring(2, 4));
+        return new File(shardDirectory, hashCode);
+    }
+
+    private boolean isCleanupDue() {
+        if (!cleanupMarkerChecked.compareAndSet(false, true)) {
+            return false;
+        }
+        return System.currentTimeMillis() - cleanupMarkerFile.lastModified() > CLEANUP_INTERVAL;
+    }
+
+    private void recordAccess(String hashCode) {
+        String line = System.currentTimeMillis() + " " + hashCode + "\n";
+        try {
+            // A single write to a file opened for appending does not interleave with writes from other processes
+            FileOutputStream output = new FileOutputStream(journalFile, true);
             try {
-                reader.readFrom(stream);
-                return true;
+                output.write(line.getBytes("UTF-8"));
             } finally {
-                stream.close();
+                output.close();
             }
+        } catch (IOException e) {
+            LOGGER.debug("Could not record access to {} in {}", hashCode, journalFile, e);
         }
-        return false;
     }
 
+    /**
+     * Cleans up the cache if enough has been stored since the last cleanup, or the last cleanup was too long ago.
+     */
     @Override
-    public void store(TaskCacheKey key, TaskOutputWriter result) throws IOException {
-        File file = getFile(key.getHashCode());
-        OutputStream output = new FileOutputStream(file);
+    public void close() {
+        if (cleanupRequested.getAndSet(false)) {
+            cleanup();
+        }
+    }
+
+    /**
+     * Removes the least recently accessed entries until the cache fits within its target size, and compacts the access journal.
+     * Holds an exclusive lock on the cleanup marker while doing so, so that builds sharing the directory do not clean up concurrently.
+     */
+    void cleanup() {
+        synchronized (cleanupLock) {
+            bytesStoredSinceCleanup.set(0);
+            try {
+                RandomAccessFile markerFile = new RandomAccessFile(cleanupMarkerFile, "rw");
+                try {
+                    FileLock lock = markerFile.getChannel().lock();
+                    try {
+                        if (!cleanupMarkerFile.setLastModified(System.currentTimeMillis())) {
+                            LOGGER.debug("Could not update {}", cleanupMarkerFile);
+                        }
+                        doCleanup();
+                    } finally {
+                        lock.release();
+                    }
+                } finally {
+                    markerFile.close();
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Could not clean up {}", getDescription(), e);
+            }
+        }
+    }
+
+    private void doCleanup() throws IOException {
+        // Move the journal aside instead of truncating it, so that accesses recorded by other builds while cleaning up go to a new journal
+        File compactedJournalFile = new File(directory, COMPACTED_JOURNAL_FILE_NAME);
+        if (journalFile.isFile() && !compactedJournalFile.isFile() && !journalFile.renameTo(compactedJournalFile)) {
+            LOGGER.debug("Could not move {} aside, not compacting it", journalFile);
+            compactedJournalFile = journalFile;
+        }
+        Map<String, Long> accessTimes = Maps.newHashMap();
+        readJournal(compactedJournalFile, accessTimes);
+        if (compactedJournalFile != journalFile) {
+            readJournal(journalFile, accessTimes);
+        }
+        List<CacheEntry> entries = Lists.newArrayList();
+        collectEntries(directory, 0, accessTimes, entries);
+
+        long totalSize = 0;
+        for (CacheEntry entry : entries) {
+            totalSize += entry.size;
+        }
+        LOGGER.debug("{} contains {} entries with a total size of {} bytes", getDescription(), entries.size(), totalSize);
+
+        Collections.sort(entries, new Comparator<CacheEntry>() {
+            @Override
+            public int compare(CacheEntry o1, CacheEntry o2) {
+                return o1.lastAccess < o2.lastAccess ? -1 : (o1.lastAccess == o2.lastAccess ? 0 : 1);
+            }
+        });
+        int removed = 0;
+        for (CacheEntry entry : entries) {
+            if (totalSize <= targetSize) {
+                // Carry the access time over to the entry itself, so that the journal can be truncated
+                if (entry.lastAccess > entry.file.lastModified() && !entry.file.setLastModified(entry.lastAccess)) {
+                    LOGGER.debug("Could not record access time of {}", entry.file);
+                }
+            } else if (entry.file.delete()) {
+                totalSize -= entry.size;
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            LOGGER.info("Removed {} least recently used entries from {}", removed, getDescription());
+        }
+        // The access times are now carried by the entries themselves
+        if (compactedJournalFile != journalFile && compactedJournalFile.isFile() && !compactedJournalFile.delete()) {
+            LOGGER.debug("Could not delete {}", compactedJournalFile);
+        }
+    }
+
+    private static void readJournal(File journal, Map<String, Long> accessTimes) throws IOException {
+        if (!journal.isFile()) {
+            return;
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journal), "UTF-8"));
         try {
-            result.writeTo(output);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(' ');
+                if (separator <= 0) {
+                    continue;
+                }
+                long accessTime;
+                try {
+                    accessTime = Long.parseLong(line.substring(0, separator));
+                } catch (NumberFormatException e) {
+                    // Ignore partially written lines
+                    continue;
+                }
+                String hashCode = line.substring(separator + 1);
+                Long previous = accessTimes.get(hashCode);
+                if (previous == null || previous < accessTime) {
+                    accessTimes.put(hashCode, accessTime);
+                }
+            }
         } finally {
-            output.close();
+            reader.close();
         }
     }
 
-    private File getFile(String key) {
-        return new File(directory, key);
+    private void collectEntries(File dir, int depth, Map<String, Long> accessTimes, List<CacheEntry> entries) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                if (depth < 2) {
+                    collectEntries(file, depth + 1, accessTimes, entries);
+                }
+            } else if (name.endsWith(TEMP_FILE_SUFFIX)) {
+                if (now - file.lastModified() > STALE_TEMP_FILE_AGE && !file.delete()) {
+                    LOGGER.debug("Could not delete stale temporary file {}", file);
+                }
+            } else if (depth > 0 || (!name.equals(JOURNAL_FILE_NAME) && !name.equals(COMPACTED_JOURNAL_FILE_NAME) && !name.equals(CLEANUP_MARKER_FILE_NAME))) {
+                Long accessTime = accessTimes.get(name);
+                long lastModified = file.lastModified();
+                entries.add(new CacheEntry(file, file.length(), accessTime != null ? Math.max(accessTime, lastModified) : lastModified));
+            }
+        }
     }
 
     @Override
     public String getDescription() {
         return "local directory cache in " + directory;
     }
+
+    private static class CacheEntry {
+        private final File file;
+        private final long size;
+        private final long lastAccess;
+
+        private CacheEntry(File file, long size, long lastAccess) {
+            this.file = file;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
 }
@@ -18,7 +18,7 @@ package org.gradle.api.internal.tasks.cache;
 
 import com.google.common.base.Function;
 import com.google.common.base.Strings;
-import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.io.Files;
 import org.apache.commons.io.FileUtils;
@@ -26,8 +26,10 @@ import org.apache.tools.tar.TarEntry;
 import org.apache.tools.tar.TarInputStream;
 import org.apache.tools.tar.TarOutputStream;
 import org.apache.tools.zip.UnixStat;
+import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.JavaVersion;
+import org.gradle.api.UncheckedIOException;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
 import org.gradle.api.file.RelativePath;
@@ -38,13 +40,20 @@ import org.gradle.api.internal.tasks.CacheableTaskOutputFilePropertySpec.OutputT
 import org.gradle.api.internal.tasks.TaskFilePropertySpec;
 import org.gradle.api.internal.tasks.TaskOutputFilePropertySpec;
 import org.gradle.api.specs.Specs;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
@@ -54,17 +63,24 @@ import java.util.regex.Pattern;
  * Packages task output to a POSIX TAR file. Because Ant's TAR implementation
  * supports only 1 second precision for file modification times, we encode the
  * fractional nanoseconds into the group ID of the file.
+ *
+ * <p>The contents of small files are read ahead on the build operation thread pool while the archive is written in order.
+ * When unpacking, small files are written to disk on the build operation thread pool while the archive is being read.</p>
  */
 public class TarTaskOutputPacker implements TaskOutputPacker {
     private static final Pattern PROPERTY_PATH = Pattern.compile("property-([^/]+)(?:/(.*))?");
     private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_BUFFERED_FILE_SIZE = 256 * 1024;
+    private static final int MAX_BUFFERED_FILES = 64;
 
     private final DefaultDirectoryWalkerFactory directoryWalkerFactory;
     private final FileSystem fileSystem;
+    private final BuildOperationProcessor buildOperationProcessor;
 
-    public TarTaskOutputPacker(FileSystem fileSystem) {
+    public TarTaskOutputPacker(FileSystem fileSystem, BuildOperationProcessor buildOperationProcessor) {
         this.directoryWalkerFactory = new DefaultDirectoryWalkerFactory(JavaVersion.current(), fileSystem);
         this.fileSystem = fileSystem;
+        this.buildOperationProcessor = buildOperationProcessor;
     }
 
     @Override
@@ -80,78 +96,184 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
         }
     }
 
-    private void pack(TaskOutputsInternal taskOutputs, TarOutputStream outputStream) {
+    private void pack(TaskOutputsInternal taskOutputs, final TarOutputStream outputStream) {
+        final List<PackedEntry> entries = Lists.newArrayList();
         for (TaskOutputFilePropertySpec spec : taskOutputs.getFileProperties()) {
             try {
-                packProperty((CacheableTaskOutputFilePropertySpec) spec, outputStream);
+                collectProperty((CacheableTaskOutputFilePropertySpec) spec, entries);
             } catch (Exception ex) {
                 throw new GradleException(String.format("Could not pack property '%s'", spec.getPropertyName()), ex);
             }
         }
+        buildOperationProcessor.run(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+            @Override
+            public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                storeEntries(entries, queue, outputStream);
+            }
+        });
     }
 
-    private void packProperty(CacheableTaskOutputFilePropertySpec propertySpec, final TarOutputStream outputStream) throws IOException {
+    private void collectProperty(CacheableTaskOutputFilePropertySpec propertySpec, List<PackedEntry> entries) {
         final String propertyName = propertySpec.getPropertyName();
         File outputFile = propertySpec.getOutputFile();
         switch (propertySpec.getOutputType()) {
             case DIRECTORY:
-                storeDirectoryProperty(propertyName, outputFile, outputStream);
+                collectDirectoryProperty(propertyName, outputFile, entries);
                 break;
             case FILE:
-                storeFileProperty(propertyName, outputFile, outputStream);
+                collectFileProperty(propertyName, outputFile, entries);
                 break;
             default:
                 throw new AssertionError();
         }
     }
 
-    private void storeDirectoryProperty(String propertyName, File directory, final TarOutputStream outputStream) throws IOException {
+    private void collectDirectoryProperty(final String propertyName, File directory, final List<PackedEntry> entries) {
         final String propertyRoot = "property-" + propertyName + "/";
-        outputStream.putNextEntry(new TarEntry(propertyRoot));
+        entries.add(new PackedEntry(propertyName, propertyRoot, null, 0, 0, 0, EntryType.PROPERTY_ROOT));
         FileVisitor visitor = new FileVisitor() {
             @Override
             public void visitDir(FileVisitDetails dirDetails) {
-                storeDirectoryEntry(dirDetails, propertyRoot, outputStream);
+                String path = propertyRoot + dirDetails.getRelativePath().getPathString() + "/";
+                entries.add(new PackedEntry(propertyName, path, null, dirDetails.getLastModified(), 0, dirDetails.getMode(), EntryType.DIRECTORY));
             }
 
             @Override
             public void visitFile(FileVisitDetails fileDetails) {
                 String path = propertyRoot + fileDetails.getRelativePath().getPathString();
-                storeFileEntry(fileDetails.getFile(), path, fileDetails.getLastModified(), fileDetails.getSize(), fileDetails.getMode(), outputStream);
+                entries.add(new PackedEntry(propertyName, path, fileDetails.getFile(), fileDetails.getLastModified(), fileDetails.getSize(), fileDetails.getMode(), EntryType.FILE));
             }
         };
         directoryWalkerFactory.create().walkDir(directory, RelativePath.EMPTY_ROOT, visitor, Specs.satisfyAll(), new AtomicBoolean(), false);
     }
 
-    private void storeFileProperty(String propertyName, File file, TarOutputStream outputStream) {
+    private void collectFileProperty(String propertyName, File file, List<PackedEntry> entries) {
         String path = "property-" + propertyName;
-        storeFileEntry(file, path, file.lastModified(), file.length(), fileSystem.getUnixMode(file), outputStream);
+        entries.add(new PackedEntry(propertyName, path, file, file.lastModified(), file.length(), fileSystem.getUnixMode(file), EntryType.FILE));
     }
 
-    private void storeDirectoryEntry(FileVisitDetails dirDetails, String propertyRoot, TarOutputStream outputStream) {
-        String path = dirDetails.getRelativePath().getPathString();
-        try {
-            TarEntry entry = new TarEntry(propertyRoot + path + "/");
-            storeModificationTime(entry, dirDetails.getLastModified());
-            entry.setMode(UnixStat.DIR_FLAG | dirDetails.getMode());
-            outputStream.putNextEntry(entry);
-            outputStream.closeEntry();
-        } catch (IOException e) {
-            throw Throwables.propagate(e);
+    private static void storeEntries(List<PackedEntry> entries, BuildOperationQueue<RunnableBuildOperation> queue, TarOutputStream outputStream) {
+        int nextToRead = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            // Keep reading ahead of the entry currently being written
+            while (nextToRead < entries.size() && nextToRead < i + MAX_BUFFERED_FILES) {
+                entries.get(nextToRead++).scheduleRead(queue);
+            }
+            PackedEntry entry = entries.get(i);
+            try {
+                entry.store(outputStream);
+            } catch (Exception ex) {
+                throw new GradleException(String.format("Could not pack property '%s'", entry.propertyName), ex);
+            }
         }
     }
 
-    private void storeFileEntry(File file, String path, long lastModified, long size, int mode, TarOutputStream outputStream) {
-        try {
-            TarEntry entry = new TarEntry(path);
-            storeModificationTime(entry, lastModified);
-            entry.setSize(size);
-            entry.setMode(UnixStat.FILE_FLAG | mode);
-            outputStream.putNextEntry(entry);
-            Files.copy(file, outputStream);
-            outputStream.closeEntry();
-        } catch (IOException e) {
-            throw Throwables.propagate(e);
+    private enum EntryType {
+        PROPERTY_ROOT, DIRECTORY, FILE
+    }
+
+    private static class PackedEntry {
+        private final String propertyName;
+        private final String path;
+        private final File file;
+        private final long lastModified;
+        private final long size;
+        private final int mode;
+        private final EntryType type;
+        private BufferedContent content;
+
+        PackedEntry(String propertyName, String path, File file, long lastModified, long size, int mode, EntryType type) {
+            this.propertyName = propertyName;
+            this.path = path;
+            this.file = file;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.mode = mode;
+            this.type = type;
+        }
+
+        void scheduleRead(BuildOperationQueue<RunnableBuildOperation> queue) {
+            if (type != EntryType.FILE || size > MAX_BUFFERED_FILE_SIZE) {
+                return;
+            }
+            content = new BufferedContent(file);
+            queue.add(content);
+        }
+
+        void store(TarOutputStream outputStream) throws IOException {
+            switch (type) {
+                case PROPERTY_ROOT:
+                    outputStream.putNextEntry(new TarEntry(path));
+                    break;
+                case DIRECTORY:
+                    TarEntry dirEntry = new TarEntry(path);
+                    storeModificationTime(dirEntry, lastModified);
+                    dirEntry.setMode(UnixStat.DIR_FLAG | mode);
+                    outputStream.putNextEntry(dirEntry);
+                    outputStream.closeEntry();
+                    break;
+                case FILE:
+                    TarEntry fileEntry = new TarEntry(path);
+                    storeModificationTime(fileEntry, lastModified);
+                    fileEntry.setSize(size);
+                    fileEntry.setMode(UnixStat.FILE_FLAG | mode);
+                    outputStream.putNextEntry(fileEntry);
+                    if (content != null) {
+                        outputStream.write(content.take());
+                        content = null;
+                    } else {
+                        Files.copy(file, outputStream);
+                    }
+                    outputStream.closeEntry();
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+        }
+    }
+
+    /**
+     * Reads a small file into memory. The queue retains the operation until all operations are complete,
+     * so the content is handed over exactly once and not kept by the operation afterwards.
+     */
+    private static class BufferedContent implements RunnableBuildOperation {
+        private final File file;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private byte[] content;
+        private Throwable failure;
+
+        BufferedContent(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public void run() {
+            try {
+                content = Files.toByteArray(file);
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                done.countDown();
+            }
+        }
+
+        byte[] take() throws IOException {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            if (failure != null) {
+                throw new IOException(String.format("Could not read '%s'", file), failure);
+            }
+            byte[] result = content;
+            content = null;
+            return result;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Read " + file;
         }
     }
 
@@ -165,13 +287,27 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
         }
     }
 
-    private void unpack(TaskOutputsInternal taskOutputs, TarInputStream tarInput) throws IOException {
-        Map<String, TaskOutputFilePropertySpec> propertySpecs = Maps.uniqueIndex(taskOutputs.getFileProperties(), new Function<TaskFilePropertySpec, String>() {
+    private void unpack(TaskOutputsInternal taskOutputs, final TarInputStream tarInput) {
+        final Map<String, TaskOutputFilePropertySpec> propertySpecs = Maps.uniqueIndex(taskOutputs.getFileProperties(), new Function<TaskFilePropertySpec, String>() {
             @Override
             public String apply(TaskFilePropertySpec propertySpec) {
                 return propertySpec.getPropertyName();
             }
         });
+        buildOperationProcessor.run(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+            @Override
+            public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                try {
+                    unpackEntries(propertySpecs, tarInput, queue);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    private void unpackEntries(Map<String, TaskOutputFilePropertySpec> propertySpecs, TarInputStream tarInput, BuildOperationQueue<RunnableBuildOperation> queue) throws IOException {
+        Semaphore bufferedFiles = new Semaphore(MAX_BUFFERED_FILES);
         TarEntry entry;
         while ((entry = tarInput.getNextEntry()) != null) {
             String name = entry.getName();
@@ -193,21 +329,87 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
             } else {
                 outputFile = new File(specRoot, path);
             }
+            //noinspection OctalInteger
+            int mode = entry.getMode() & 0777;
+            long lastModified = getModificationTime(entry);
             if (entry.isDirectory()) {
                 if (propertySpec.getOutputType() != OutputType.DIRECTORY) {
                     throw new IllegalStateException("Property should be an output directory property: " + propertyName);
                 }
                 FileUtils.forceMkdir(outputFile);
+                restoreMetadata(outputFile, mode, lastModified);
+            } else if (entry.getSize() <= MAX_BUFFERED_FILE_SIZE) {
+                // Directory entries always precede their contents, so the parent directory already exists
+                acquire(bufferedFiles);
+                byte[] content = new byte[(int) entry.getSize()];
+                readFully(tarInput, content);
+                queue.add(new UnpackFile(outputFile, content, mode, lastModified, bufferedFiles));
             } else {
                 Files.asByteSink(outputFile).writeFrom(tarInput);
+                restoreMetadata(outputFile, mode, lastModified);
             }
-            //noinspection OctalInteger
-            fileSystem.chmod(outputFile, entry.getMode() & 0777);
-            long lastModified = getModificationTime(entry);
-            if (!outputFile.setLastModified(lastModified)) {
-                throw new IOException(String.format("Could not set modification time for '%s'", outputFile));
+        }
+    }
+
+    private void restoreMetadata(File outputFile, int mode, long lastModified) throws IOException {
+        fileSystem.chmod(outputFile, mode);
+        if (!outputFile.setLastModified(lastModified)) {
+            throw new IOException(String.format("Could not set modification time for '%s'", outputFile));
+        }
+    }
+
+    private static void acquire(Semaphore semaphore) {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private static void readFully(InputStream input, byte[] buffer) throws IOException {
+        int offset = 0;
+        while (offset < buffer.length) {
+            int read = input.read(buffer, offset, buffer.length - offset);
+            if (read < 0) {
+                throw new IOException("Cached result format error, unexpected end of entry");
+            }
+            offset += read;
+        }
+    }
+
+    private class UnpackFile implements RunnableBuildOperation {
+        private final File outputFile;
+        private final int mode;
+        private final long lastModified;
+        private final Semaphore bufferedFiles;
+        // Cleared once written, as the queue retains the operation until all operations are complete
+        private byte[] content;
+
+        UnpackFile(File outputFile, byte[] content, int mode, long lastModified, Semaphore bufferedFiles) {
+            this.outputFile = outputFile;
+            this.content = content;
+            this.mode = mode;
+            this.lastModified = lastModified;
+            this.bufferedFiles = bufferedFiles;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Files.write(content, outputFile);
+                restoreMetadata(outputFile, mode, lastModified);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                content = null;
+                bufferedFiles.release();
             }
         }
+
+        @Override
+        public String getDescription() {
+            return "Unpack " + outputFile;
+        }
     }
 
     private static void storeModificationTime(TarEntry entry, long lastModified) {
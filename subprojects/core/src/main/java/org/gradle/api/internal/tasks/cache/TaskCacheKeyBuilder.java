@@ -16,7 +16,7 @@
 
 package org.gradle.api.internal.tasks.cache;
 
-public interface TaskCacheKeyBuilder {
+public interface TaskCacheKeyBuilder extends TaskCacheKeySink {
     TaskCacheKeyBuilder putByte(byte b);
     TaskCacheKeyBuilder putBytes(byte[] bytes);
     TaskCacheKeyBuilder putBytes(byte[] bytes, int off, int len);
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+/**
+ * Receives the values that make up a task cache key, or a part of one.
+ */
+public interface TaskCacheKeySink {
+    TaskCacheKeySink putByte(byte b);
+    TaskCacheKeySink putBytes(byte[] bytes);
+    TaskCacheKeySink putBytes(byte[] bytes, int off, int len);
+    TaskCacheKeySink putInt(int i);
+    TaskCacheKeySink putLong(long l);
+    TaskCacheKeySink putDouble(double d);
+    TaskCacheKeySink putBoolean(boolean b);
+    TaskCacheKeySink putString(CharSequence charSequence);
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression codecs for packed task output.
+ *
+ * <p>Each entry starts with a header identifying the codec it was written with, so caches containing entries
+ * written with different codecs keep working. Entries without a header are read as plain GZIP, which is the format
+ * used before the header was introduced.</p>
+ */
+public enum TaskOutputCompression {
+    /**
+     * GZIP without compression, for outputs that are already compressed. The content is stored as is, but still has its CRC32 checked when read.
+     */
+    NONE(0, Deflater.NO_COMPRESSION),
+    /**
+     * GZIP with the fastest compression level, for caches where the cost of compressing matters more than the size.
+     */
+    FAST(1, Deflater.BEST_SPEED),
+    /**
+     * GZIP with the default compression level.
+     */
+    DEFAULT(2, Deflater.DEFAULT_COMPRESSION),
+    /**
+     * GZIP with the best compression level, for caches where transfer size matters most.
+     */
+    BEST(3, Deflater.BEST_COMPRESSION);
+
+    private static final byte[] MAGIC = {'G', 'T', 'O'};
+    private static final int HEADER_LENGTH = MAGIC.length + 1;
+    private static final int GZIP_MAGIC_0 = 0x1f;
+    private static final int GZIP_MAGIC_1 = 0x8b;
+
+    private final byte id;
+    private final int level;
+
+    TaskOutputCompression(int id, int level) {
+        this.id = (byte) id;
+        this.level = level;
+    }
+
+    /**
+     * Writes the header for this codec to the given output, and returns a stream that compresses data written to it.
+     * Closing the returned stream closes the given output.
+     */
+    public OutputStream compress(OutputStream output) throws IOException {
+        output.write(MAGIC);
+        output.write(id);
+        return new LevelledGZIPOutputStream(output, level);
+    }
+
+    /**
+     * Reads the header from the given input, and returns a stream that decompresses the rest of the input with the codec the entry was written with.
+     */
+    public static InputStream decompress(InputStream input) throws IOException {
+        PushbackInputStream pushbackInput = new PushbackInputStream(input, HEADER_LENGTH);
+        byte[] header = new byte[HEADER_LENGTH];
+        int read = readHeader(pushbackInput, header);
+        if (read >= 2 && (header[0] & 0xff) == GZIP_MAGIC_0 && (header[1] & 0xff) == GZIP_MAGIC_1) {
+            pushbackInput.unread(header, 0, read);
+            return new GZIPInputStream(pushbackInput);
+        }
+        if (read < HEADER_LENGTH || header[0] != MAGIC[0] || header[1] != MAGIC[1] || header[2] != MAGIC[2]) {
+            throw new IllegalStateException("Cached result format error, unknown header");
+        }
+        // Validate the codec, all of them are read the same way
+        forId(header[MAGIC.length]);
+        return new GZIPInputStream(pushbackInput);
+    }
+
+    static TaskOutputCompression forId(byte id) {
+        for (TaskOutputCompression compression : values()) {
+            if (compression.id == id) {
+                return compression;
+            }
+        }
+        throw new IllegalStateException("Cached result format error, unknown compression: " + id);
+    }
+
+    private static int readHeader(InputStream input, byte[] header) throws IOException {
+        int offset = 0;
+        while (offset < header.length) {
+            int read = input.read(header, offset, header.length - offset);
+            if (read < 0) {
+                break;
+            }
+            offset += read;
+        }
+        return offset;
+    }
+
+    private static class LevelledGZIPOutputStream extends GZIPOutputStream {
+        LevelledGZIPOutputStream(OutputStream output, int level) throws IOException {
+            super(output);
+            def.setLevel(level);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.cache;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A task output cache that puts a fast local cache in front of a slower remote one.
+ *
+ * <p>Entries are looked up in the local cache first. Entries found in the remote cache are written through to the
+ * local cache, so later lookups on the same machine do not need to go to the remote cache again. New entries are
+ * stored in both caches.</p>
+ */
+public class TwoTierTaskOutputCache implements TaskOutputCache, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TwoTierTaskOutputCache.class);
+
+    private final TaskOutputCache local;
+    private final TaskOutputCache remote;
+
+    public TwoTierTaskOutputCache(TaskOutputCache local, TaskOutputCache remote) {
+        this.local = local;
+        this.remote = remote;
+    }
+
+    @Override
+    public boolean load(final TaskCacheKey key, TaskOutputReader reader) throws IOException {
+        if (local.load(key, reader)) {
+            return true;
+        }
+        boolean storedLocally;
+        try {
+            storedLocally = remote.load(key, new TaskOutputReader() {
+                @Override
+                public void readFrom(final InputStream input) throws IOException {
+                    try {
+                        local.store(key, new TaskOutputWriter() {
+                            @Override
+                            public void writeTo(OutputStream output) throws IOException {
+                                IOUtils.copy(input, output);
+                            }
+                        });
+                    } catch (IOException e) {
+                        throw new WriteThroughFailure(e);
+                    }
+                }
+            });
+        } catch (WriteThroughFailure e) {
+            LOGGER.debug("Could not copy entry {} from {} to {}", key, remote.getDescription(), local.getDescription(), e.getCause());
+            return remote.load(key, reader);
+        }
+        if (!storedLocally) {
+            return false;
+        }
+        // The entry may have been removed from the local cache in the meantime
+        return local.load(key, reader) || remote.load(key, reader);
+    }
+
+    @Override
+    public void store(final TaskCacheKey key, TaskOutputWriter writer) throws IOException {
+        try {
+            local.store(key, writer);
+        } catch (IOException e) {
+            LOGGER.debug("Could not store entry {} in {}", key, local.getDescription(), e);
+            remote.store(key, writer);
+            return;
+        }
+        remote.store(key, new TaskOutputWriter() {
+            @Override
+            public void writeTo(final OutputStream output) throws IOException {
+                boolean found = local.load(key, new TaskOutputReader() {
+                    @Override
+                    public void readFrom(InputStream input) throws IOException {
+                        IOUtils.copy(input, output);
+                    }
+                });
+                if (!found) {
+                    throw new IOException(String.format("Entry %s disappeared from %s", key, local.getDescription()));
+                }
+            }
+        });
+    }
+
+    @Override
+    public String getDescription() {
+        return local.getDescription() + " in front of " + remote.getDescription();
+    }
+
+    @Override
+    public void close() throws IOException {
+        CompositeStoppable.stoppable(local, remote).stop();
+    }
+
+    private static class WriteThroughFailure extends IOException {
+        WriteThroughFailure(IOException cause) {
+            super(cause.getMessage());
+            initCause(cause);
+        }
+    }
+}
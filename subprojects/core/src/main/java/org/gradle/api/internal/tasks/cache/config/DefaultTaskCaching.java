@@ -20,10 +20,15 @@ import org.gradle.StartParameter;
 import org.gradle.api.internal.tasks.cache.LocalDirectoryTaskOutputCache;
 import org.gradle.api.internal.tasks.cache.TaskOutputCache;
 import org.gradle.api.internal.tasks.cache.TaskOutputCacheFactory;
+import org.gradle.api.internal.tasks.cache.TaskOutputCompression;
+import org.gradle.api.internal.tasks.cache.TwoTierTaskOutputCache;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Locale;
 
 public class DefaultTaskCaching implements TaskCachingInternal {
+    private static final String COMPRESSION_PROPERTY = "org.gradle.cache.tasks.compression";
     private static final TaskOutputCacheFactory DEFAULT_LOCAL_TASK_CACHE_FACTORY = new TaskOutputCacheFactory() {
         @Override
         public TaskOutputCache createCache(StartParameter startParameter) {
@@ -31,21 +36,52 @@ public class DefaultTaskCaching implements TaskCachingInternal {
             File cacheDirectory = cacheDirectoryPath != null
                 ? new File(cacheDirectoryPath)
                 : new File(startParameter.getGradleUserHomeDir(), "task-cache");
-            return new LocalDirectoryTaskOutputCache(cacheDirectory);
+            return new LocalDirectoryTaskOutputCache(cacheDirectory, getLocalCacheTargetSize());
         }
     };
     private final boolean pullAllowed;
     private final boolean pushAllowed;
+    private final boolean pushAsynchronous;
+    private final TaskOutputCompression compressionOverride;
+    private final boolean localCacheInFront;
     private TaskOutputCacheFactory factory = DEFAULT_LOCAL_TASK_CACHE_FACTORY;
+    private TaskOutputCacheFactory localFactory = DEFAULT_LOCAL_TASK_CACHE_FACTORY;
+    private boolean remote;
+    private TaskOutputCompression compression = TaskOutputCompression.FAST;
 
     public DefaultTaskCaching() {
         this.pullAllowed = "true".equalsIgnoreCase(System.getProperty("org.gradle.cache.tasks.pull", "true").trim());
         this.pushAllowed = "true".equalsIgnoreCase(System.getProperty("org.gradle.cache.tasks.push", "true").trim());
+        this.pushAsynchronous = "true".equalsIgnoreCase(System.getProperty("org.gradle.cache.tasks.push.async", "false").trim());
+        this.compressionOverride = getCompressionOverride();
+        this.localCacheInFront = "true".equalsIgnoreCase(System.getProperty("org.gradle.cache.tasks.local", "false").trim());
+    }
+
+    private static TaskOutputCompression getCompressionOverride() {
+        String compression = System.getProperty(COMPRESSION_PROPERTY);
+        if (compression == null) {
+            return null;
+        }
+        try {
+            return TaskOutputCompression.valueOf(compression.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Unknown task output compression '%s' set by system property '%s'. Supported values are %s.", compression, COMPRESSION_PROPERTY, Arrays.toString(TaskOutputCompression.values())), e);
+        }
+    }
+
+    private static long getLocalCacheTargetSize() {
+        String targetSizeInMegabytes = System.getProperty("org.gradle.cache.tasks.directory.targetSize");
+        return targetSizeInMegabytes != null
+            ? Long.parseLong(targetSizeInMegabytes.trim()) * 1024 * 1024
+            : LocalDirectoryTaskOutputCache.DEFAULT_TARGET_SIZE;
     }
 
     @Override
     public void useLocalCache() {
         this.factory = DEFAULT_LOCAL_TASK_CACHE_FACTORY;
+        this.localFactory = DEFAULT_LOCAL_TASK_CACHE_FACTORY;
+        this.remote = false;
+        this.compression = TaskOutputCompression.FAST;
     }
 
     @Override
@@ -53,18 +89,33 @@ public class DefaultTaskCaching implements TaskCachingInternal {
         this.factory = new TaskOutputCacheFactory() {
             @Override
             public TaskOutputCache createCache(StartParameter startParameter) {
-                return new LocalDirectoryTaskOutputCache(directory);
+                return new LocalDirectoryTaskOutputCache(directory, getLocalCacheTargetSize());
             }
         };
+        this.localFactory = factory;
+        this.remote = false;
+        this.compression = TaskOutputCompression.FAST;
     }
 
     @Override
     public void useCacheFactory(TaskOutputCacheFactory factory) {
         this.factory = factory;
+        this.remote = true;
+        this.compression = TaskOutputCompression.DEFAULT;
     }
 
     @Override
     public TaskOutputCacheFactory getCacheFactory() {
+        if (remote && localCacheInFront) {
+            final TaskOutputCacheFactory localFactory = this.localFactory;
+            final TaskOutputCacheFactory remoteFactory = this.factory;
+            return new TaskOutputCacheFactory() {
+                @Override
+                public TaskOutputCache createCache(StartParameter startParameter) {
+                    return new TwoTierTaskOutputCache(localFactory.createCache(startParameter), remoteFactory.createCache(startParameter));
+                }
+            };
+        }
         return factory;
     }
 
@@ -77,4 +128,14 @@ public class DefaultTaskCaching implements TaskCachingInternal {
     public boolean isPushAllowed() {
         return pushAllowed;
     }
+
+    @Override
+    public boolean isPushAsynchronous() {
+        return pushAsynchronous;
+    }
+
+    @Override
+    public TaskOutputCompression getCompression() {
+        return compressionOverride != null ? compressionOverride : compression;
+    }
 }
@@ -17,10 +17,17 @@
 package org.gradle.api.internal.tasks.cache.config;
 
 import org.gradle.api.internal.tasks.cache.TaskOutputCacheFactory;
+import org.gradle.api.internal.tasks.cache.TaskOutputCompression;
 import org.gradle.api.tasks.TaskCaching;
 
 public interface TaskCachingInternal extends TaskCaching {
     TaskOutputCacheFactory getCacheFactory();
     boolean isPullAllowed();
     boolean isPushAllowed();
+    boolean isPushAsynchronous();
+
+    /**
+     * Returns the compression to use for entries of the configured cache.
+     */
+    TaskOutputCompression getCompression();
 }
@@ -16,8 +16,8 @@
 
 package org.gradle.api.internal.tasks.execution;
 
-import org.gradle.StartParameter;
 import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.TaskOutputsInternal;
 import org.gradle.api.internal.changedetection.TaskArtifactState;
@@ -25,6 +25,7 @@ import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.TaskExecutionContext;
 import org.gradle.api.internal.tasks.TaskExecutionOutcome;
 import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.api.internal.tasks.cache.AsyncTaskOutputStorer;
 import org.gradle.api.internal.tasks.cache.TaskCacheKey;
 import org.gradle.api.internal.tasks.cache.TaskOutputCache;
 import org.gradle.api.internal.tasks.cache.TaskOutputPacker;
@@ -44,17 +45,21 @@ public class SkipCachedTaskExecuter implements TaskExecuter {
     private static final Logger LOGGER = LoggerFactory.getLogger(SkipCachedTaskExecuter.class);
 
     private final TaskCachingInternal taskCaching;
-    private final StartParameter startParameter;
     private final TaskOutputPacker packer;
     private final TaskExecuter delegate;
     private final TaskOutputsGenerationListener taskOutputsGenerationListener;
-    private TaskOutputCache cache;
+    private final AsyncTaskOutputStorer asyncStorer;
+    private final TaskOutputCache cache;
 
-    public SkipCachedTaskExecuter(TaskCachingInternal taskCaching, TaskOutputPacker packer, StartParameter startParameter, TaskOutputsGenerationListener taskOutputsGenerationListener, TaskExecuter delegate) {
+    /**
+     * @param asyncStorer the storer to push results in the background with, or {@code null} to push results synchronously.
+     */
+    public SkipCachedTaskExecuter(TaskCachingInternal taskCaching, TaskOutputPacker packer, TaskOutputCache cache, TaskOutputsGenerationListener taskOutputsGenerationListener, @Nullable AsyncTaskOutputStorer asyncStorer, TaskExecuter delegate) {
         this.taskCaching = taskCaching;
-        this.startParameter = startParameter;
         this.packer = packer;
+        this.cache = cache;
         this.taskOutputsGenerationListener = taskOutputsGenerationListener;
+        this.asyncStorer = asyncStorer;
         this.delegate = delegate;
         SingleMessageLogger.incubatingFeatureUsed("Task output caching");
     }
@@ -93,7 +98,7 @@ public class SkipCachedTaskExecuter implements TaskExecuter {
                             if (cacheKey != null) {
                                 if (taskState.isAllowedToUseCachedResults()) {
                                     try {
-                                        boolean found = getCache().load(cacheKey, new TaskOutputReader() {
+                                        boolean found = cache.load(cacheKey, new TaskOutputReader() {
                                             @Override
                                             public void readFrom(InputStream input) throws IOException {
                                                 packer.unpack(taskOutputs, input);
@@ -102,7 +107,7 @@ public class SkipCachedTaskExecuter implements TaskExecuter {
                                         });
                                         if (found) {
                                             state.setOutcome(TaskExecutionOutcome.FROM_CACHE);
-                                            taskOutputsGenerationListener.beforeTaskOutputsGenerated();
+                                            taskOutputsGenerationListener.beforeTaskOutputsGenerated(task);
                                             return;
                                         }
                                     } catch (Exception e) {
@@ -135,13 +140,19 @@ public class SkipCachedTaskExecuter implements TaskExecuter {
         if (cacheKey != null) {
             if (taskCaching.isPushAllowed()) {
                 if (state.getFailure() == null) {
+                    TaskOutputWriter writer = new TaskOutputWriter() {
+                        @Override
+                        public void writeTo(OutputStream output) throws IOException {
+                            packer.pack(taskOutputs, output);
+                        }
+                    };
                     try {
-                        getCache().store(cacheKey, new TaskOutputWriter() {
-                            @Override
-                            public void writeTo(OutputStream output) throws IOException {
-                                packer.pack(taskOutputs, output);
-                            }
-                        });
+                        if (asyncStorer != null) {
+                            // Packs the output on this thread, before any other task can change it
+                            asyncStorer.store(cacheKey, writer, task.toString());
+                        } else {
+                            cache.store(cacheKey, writer);
+                        }
                     } catch (Exception e) {
                         LOGGER.warn("Could not cache results for {} for cache key {}", task, cacheKey, e);
                     }
@@ -155,12 +166,4 @@ public class SkipCachedTaskExecuter implements TaskExecuter {
             LOGGER.info("Not pushing results from {} to cache because no valid cache key was generated", task);
         }
     }
-
-    private TaskOutputCache getCache() {
-        if (cache == null) {
-            cache = taskCaching.getCacheFactory().createCache(startParameter);
-            LOGGER.info("Using {}", cache.getDescription());
-        }
-        return cache;
-    }
 }
@@ -42,6 +42,9 @@ public interface TaskCaching {
 
     /**
      * Use the give task output cache factory.
+     *
+     * <p>If the {@code org.gradle.cache.tasks.local} system property is set to {@code true}, the local directory cache is checked
+     * before the cache created by the given factory, and results found in the latter are copied to the local cache.</p>
      */
     void useCacheFactory(TaskOutputCacheFactory factory);
 }
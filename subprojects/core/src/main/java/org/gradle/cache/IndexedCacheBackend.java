@@ -0,0 +1,31 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache;
+
+/**
+ * The on-disk structure used by a {@link PersistentIndexedCache}.
+ */
+public enum IndexedCacheBackend {
+    /**
+     * A B-tree of index blocks, whose blocks are updated in place. Suited to caches that are mostly read.
+     */
+    BTREE,
+    /**
+     * A log that is only ever appended to, with an index of the entries kept in memory. Suited to caches that are written a lot.
+     */
+    APPEND_ONLY_LOG
+}
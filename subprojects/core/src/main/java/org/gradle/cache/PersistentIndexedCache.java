@@ -17,6 +17,9 @@ package org.gradle.cache;
 
 import org.gradle.api.Nullable;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * A persistent store of objects of type V indexed by a key of type K.
  */
@@ -34,6 +37,18 @@ public interface PersistentIndexedCache<K, V> {
      */
     void put(K key, V value);
 
+    /**
+     * Fetches the values of the given keys from this cache. Implementations hold their lock once for the whole batch, rather than once per key.
+     *
+     * @return The values of those keys that have a value in this cache. Keys without a value are not included.
+     */
+    Map<K, V> getAll(Collection<? extends K> keys);
+
+    /**
+     * Puts/replaces the values of the given keys in this cache. Implementations hold their lock once for the whole batch, rather than once per key.
+     */
+    void putAll(Map<? extends K, ? extends V> entries);
+
     /**
      * Removes a key-value mapping from this cache. A shared lock is held while updating the value.
      */
@@ -26,6 +26,7 @@ public class PersistentIndexedCacheParameters<K, V> {
     private final Serializer<K> keySerializer;
     private final Serializer<V> valueSerializer;
     private CacheDecorator cacheDecorator;
+    private IndexedCacheBackend backend = IndexedCacheBackend.BTREE;
 
     public PersistentIndexedCacheParameters(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
         this.cacheName = cacheName;
@@ -67,4 +68,14 @@ public class PersistentIndexedCacheParameters<K, V> {
         this.cacheDecorator = cacheDecorator;
         return this;
     }
+
+    public IndexedCacheBackend getBackend() {
+        return backend;
+    }
+
+    public PersistentIndexedCacheParameters<K, V> backend(IndexedCacheBackend backend) {
+        assert backend != null;
+        this.backend = backend;
+        return this;
+    }
 }
\ No newline at end of file
@@ -19,6 +19,10 @@ package org.gradle.cache.internal;
 import org.gradle.api.Nullable;
 import org.gradle.internal.Factory;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
     private final AsyncCacheAccess asyncCacheAccess;
     private final MultiProcessSafePersistentIndexedCache<K, V> persistentCache;
@@ -68,6 +72,43 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafePer
         });
     }
 
+    @Override
+    public Map<K, V> getAll(final Collection<? extends K> keys) {
+        return asyncCacheAccess.read(new Factory<Map<K, V>>() {
+            @Override
+            public Map<K, V> create() {
+                return persistentCache.getAll(keys);
+            }
+        });
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        // Take a copy, as the caller may reuse the map once this method returns
+        final Map<K, V> copy = new LinkedHashMap<K, V>(entries);
+        asyncCacheAccess.enqueue(new Runnable() {
+            @Override
+            public void run() {
+                persistentCache.putAll(copy);
+            }
+        });
+    }
+
+    @Override
+    public void putAllLater(Map<? extends K, ? extends V> entries, final Runnable completion) {
+        final Map<K, V> copy = new LinkedHashMap<K, V>(entries);
+        asyncCacheAccess.enqueue(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    persistentCache.putAll(copy);
+                } finally {
+                    completion.run();
+                }
+            }
+        });
+    }
+
     @Override
     public void remove(final K key) {
         asyncCacheAccess.enqueue(new Runnable() {
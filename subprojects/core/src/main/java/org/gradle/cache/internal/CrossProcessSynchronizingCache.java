@@ -19,6 +19,9 @@ package org.gradle.cache.internal;
 import org.gradle.api.Nullable;
 import org.gradle.internal.Factory;
 
+import java.util.Collection;
+import java.util.Map;
+
 public class CrossProcessSynchronizingCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
     private final CrossProcessCacheAccess cacheAccess;
     private final MultiProcessSafePersistentIndexedCache<K, V> target;
@@ -56,6 +59,28 @@ public class CrossProcessSynchronizingCache<K, V> implements MultiProcessSafePer
         target.putLater(key, value, runnable);
     }
 
+    @Override
+    public Map<K, V> getAll(final Collection<? extends K> keys) {
+        return cacheAccess.withFileLock(new Factory<Map<K, V>>() {
+            @Override
+            public Map<K, V> create() {
+                return target.getAll(keys);
+            }
+        });
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        Runnable runnable = cacheAccess.acquireFileLock();
+        target.putAllLater(entries, runnable);
+    }
+
+    @Override
+    public void putAllLater(Map<? extends K, ? extends V> entries, Runnable completion) {
+        Runnable runnable = cacheAccess.acquireFileLock(completion);
+        target.putAllLater(entries, runnable);
+    }
+
     @Override
     public void remove(K key) {
         Runnable runnable = cacheAccess.acquireFileLock();
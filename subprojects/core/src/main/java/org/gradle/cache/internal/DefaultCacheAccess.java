@@ -20,7 +20,9 @@ import org.gradle.api.Action;
 import org.gradle.api.internal.cache.HeapProportionalCacheSizer;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.cache.IndexedCacheBackend;
 import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.internal.appendlog.AppendOnlyLogPersistentIndexedCache;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
 import org.gradle.cache.internal.filelock.LockOptions;
@@ -318,9 +320,13 @@ public class DefaultCacheAccess implements CacheCoordinator {
     }
 
     public <K, V> MultiProcessSafePersistentIndexedCache<K, V> newCache(final PersistentIndexedCacheParameters<K, V> parameters) {
-        final File cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
-        Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
-            public BTreePersistentIndexedCache<K, V> create() {
+        final boolean appendOnlyLog = parameters.getBackend() == IndexedCacheBackend.APPEND_ONLY_LOG;
+        final File cacheFile = new File(baseDir, parameters.getCacheName() + (appendOnlyLog ? ".log" : ".bin"));
+        Factory<CloseablePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<CloseablePersistentIndexedCache<K, V>>() {
+            public CloseablePersistentIndexedCache<K, V> create() {
+                if (appendOnlyLog) {
+                    return doCreateAppendOnlyLogCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+                }
                 return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
             }
         };
@@ -362,6 +368,10 @@ public class DefaultCacheAccess implements CacheCoordinator {
         return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
     }
 
+    <K, V> AppendOnlyLogPersistentIndexedCache<K, V> doCreateAppendOnlyLogCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        return new AppendOnlyLogPersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
+    }
+
     /**
      * Called just after the file lock has been acquire.
      */
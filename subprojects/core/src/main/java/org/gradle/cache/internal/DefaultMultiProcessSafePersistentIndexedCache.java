@@ -16,15 +16,18 @@
 package org.gradle.cache.internal;
 
 import org.gradle.cache.PersistentIndexedCache;
-import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.internal.Factory;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
 public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
     private final FileAccess fileAccess;
-    private final Factory<BTreePersistentIndexedCache<K, V>> factory;
-    private BTreePersistentIndexedCache<K, V> cache;
+    private final Factory<? extends CloseablePersistentIndexedCache<K, V>> factory;
+    private CloseablePersistentIndexedCache<K, V> cache;
 
-    public DefaultMultiProcessSafePersistentIndexedCache(Factory<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
+    public DefaultMultiProcessSafePersistentIndexedCache(Factory<? extends CloseablePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
         this.factory = factory;
         this.fileAccess = fileAccess;
     }
@@ -55,6 +58,41 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
         });
     }
 
+    @Override
+    public Map<K, V> getAll(final Collection<? extends K> keys) {
+        final PersistentIndexedCache<K, V> cache = getCache();
+        try {
+            return fileAccess.readFile(new Factory<Map<K, V>>() {
+                public Map<K, V> create() {
+                    return cache.getAll(keys);
+                }
+            });
+        } catch (FileIntegrityViolationException e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> entries) {
+        final PersistentIndexedCache<K, V> cache = getCache();
+        // Use writeFile because the cache can internally recover from datafile
+        // corruption, so we don't care at this level if it's corrupt
+        fileAccess.writeFile(new Runnable() {
+            public void run() {
+                cache.putAll(entries);
+            }
+        });
+    }
+
+    @Override
+    public void putAllLater(Map<? extends K, ? extends V> entries, Runnable completion) {
+        try {
+            putAll(entries);
+        } finally {
+            completion.run();
+        }
+    }
+
     @Override
     public void putLater(K key, V value, Runnable completion) {
         try {
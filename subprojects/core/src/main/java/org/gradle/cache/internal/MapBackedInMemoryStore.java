@@ -23,6 +23,7 @@ import org.gradle.cache.PersistentStore;
 import org.gradle.internal.Factory;
 import org.gradle.internal.serialize.Serializer;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -96,6 +97,33 @@ public class MapBackedInMemoryStore implements PersistentStore, CacheAccess {
             }
         }
 
+        @Override
+        public Map<K, V> getAll(Collection<? extends K> keys) {
+            lock.lock();
+            try {
+                Map<K, V> result = Maps.newLinkedHashMap();
+                for (K key : keys) {
+                    V value = entries.get(key);
+                    if (value != null) {
+                        result.put(key, value);
+                    }
+                }
+                return result;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void putAll(Map<? extends K, ? extends V> entries) {
+            lock.lock();
+            try {
+                this.entries.putAll(entries);
+            } finally {
+                lock.unlock();
+            }
+        }
+
         @Override
         public void remove(K key) {
             lock.lock();
@@ -18,6 +18,7 @@ package org.gradle.cache.internal;
 import org.gradle.cache.PersistentIndexedCache;
 
 import java.io.Closeable;
+import java.util.Map;
 
 public interface MultiProcessSafePersistentIndexedCache<K, V> extends
         PersistentIndexedCache<K, V>, UnitOfWorkParticipant, Closeable {
@@ -26,6 +27,11 @@ public interface MultiProcessSafePersistentIndexedCache<K, V> extends
      */
     void putLater(K key, V value, Runnable completion);
 
+    /**
+     * Submits a batch of updates to be applied later. This method does not block, but invokes the given completion action when all of the updates are complete.
+     */
+    void putAllLater(Map<? extends K, ? extends V> entries, Runnable completion);
+
     /**
      * Submits a removal to be applied later. This method does not block, but invokes the given completion action when the operation is complete.
      */
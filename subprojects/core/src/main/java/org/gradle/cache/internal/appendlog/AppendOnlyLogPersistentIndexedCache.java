@@ -0,0 +1,379 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.appendlog;
+
+import org.gradle.api.JavaVersion;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.internal.CloseablePersistentIndexedCache;
+import org.gradle.cache.internal.appendlog.jdk7.Jdk7FileReplacer;
+import org.gradle.cache.internal.btree.KeyHasher;
+import org.gradle.internal.io.RandomAccessFileInputStream;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent indexed cache that appends every update to the end of a log file, and keeps the location of the latest value of each key in memory.
+ *
+ * <p>The index is rebuilt by scanning the log when the cache is opened. A record that was only partially written, for example because the process crashed,
+ * fails its checksum and is truncated from the log together with everything after it. When the cache is closed and most of the log is made up of
+ * overwritten or removed values, the live records are copied to a new log which replaces the old one. A new log left behind by an interrupted
+ * compaction is discarded when the cache is opened, or used in place of the old log when that has already been removed.</p>
+ *
+ * <p>Keys are identified by a 64 bit hash of their serialized form, like in the B-tree cache.</p>
+ */
+public class AppendOnlyLogPersistentIndexedCache<K, V> implements CloseablePersistentIndexedCache<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppendOnlyLogPersistentIndexedCache.class);
+    private static final int MAGIC = 0x474c4f47;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    // type, key hash, value length, then the value and a checksum
+    private static final int RECORD_HEADER_SIZE = 1 + 8 + 4;
+    private static final int RECORD_OVERHEAD = RECORD_HEADER_SIZE + 4;
+    private static final int MAX_PENDING_BYTES = 64 * 1024;
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+    private final File cacheFile;
+    private final File compactedFile;
+    private final KeyHasher<K> keyHasher;
+    private final Serializer<V> serializer;
+    private final Map<Long, RecordLocation> index = new HashMap<Long, RecordLocation>();
+    private final PendingRecords pending = new PendingRecords();
+    private RandomAccessFile file;
+    private long writtenSize;
+    private long liveBytes;
+
+    public AppendOnlyLogPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this.cacheFile = cacheFile;
+        this.compactedFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".compacting");
+        this.keyHasher = new KeyHasher<K>(keySerializer);
+        this.serializer = valueSerializer;
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not open %s.", this), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "cache " + cacheFile.getName() + " (" + cacheFile + ")";
+    }
+
+    private void open() throws IOException {
+        LOGGER.debug("Opening {}", this);
+        cacheFile.getParentFile().mkdirs();
+        if (compactedFile.exists()) {
+            recoverFromCompaction();
+        }
+        file = new RandomAccessFile(cacheFile, "rw");
+        long validSize = readLog();
+        if (validSize < file.length()) {
+            if (validSize >= FILE_HEADER_SIZE) {
+                LOGGER.warn("{} has an incomplete or corrupt tail. Discarding the entries written after offset {}.", this, validSize);
+            }
+            file.setLength(validSize);
+        }
+        if (validSize == 0) {
+            file.seek(0);
+            file.writeInt(MAGIC);
+            file.writeInt(VERSION);
+            validSize = FILE_HEADER_SIZE;
+        }
+        writtenSize = validSize;
+    }
+
+    private void recoverFromCompaction() throws IOException {
+        if (cacheFile.exists()) {
+            // The compaction did not complete, the old log is still intact
+            LOGGER.debug("Discarding incomplete compacted log for {}", this);
+            if (!compactedFile.delete()) {
+                throw new IOException(String.format("Could not delete %s.", compactedFile));
+            }
+        } else {
+            // The old log was removed, but the compacted log did not replace it yet
+            LOGGER.debug("Completing compaction of {}", this);
+            replace(compactedFile, cacheFile);
+        }
+    }
+
+    /**
+     * Rebuilds the index from the log, returning the size of the valid part of the log.
+     */
+    private long readLog() throws IOException {
+        index.clear();
+        liveBytes = 0;
+        long fileSize = file.length();
+        if (fileSize < FILE_HEADER_SIZE) {
+            return 0;
+        }
+        file.seek(0);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new RandomAccessFileInputStream(file)));
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            LOGGER.warn("{} has an unexpected format. Discarding.", this);
+            return 0;
+        }
+        long position = FILE_HEADER_SIZE;
+        CRC32 checksum = new CRC32();
+        byte[] buffer = new byte[1024];
+        try {
+            while (position + RECORD_OVERHEAD <= fileSize) {
+                byte type = input.readByte();
+                long keyHash = input.readLong();
+                int valueLength = input.readInt();
+                if (type != PUT && type != REMOVE || valueLength < 0 || position + RECORD_OVERHEAD + valueLength > fileSize) {
+                    break;
+                }
+                checksum.reset();
+                updateChecksum(checksum, type, keyHash, valueLength);
+                if (buffer.length < valueLength) {
+                    buffer = new byte[valueLength];
+                }
+                input.readFully(buffer, 0, valueLength);
+                checksum.update(buffer, 0, valueLength);
+                if (input.readInt() != (int) checksum.getValue()) {
+                    break;
+                }
+                int recordSize = RECORD_OVERHEAD + valueLength;
+                RecordLocation previous;
+                if (type == PUT) {
+                    previous = index.put(keyHash, new RecordLocation(position, recordSize));
+                    liveBytes += recordSize;
+                } else {
+                    previous = index.remove(keyHash);
+                }
+                if (previous != null) {
+                    liveBytes -= previous.size;
+                }
+                position += recordSize;
+            }
+        } catch (EOFException e) {
+            // Incomplete record at the end of the log
+        }
+        return position;
+    }
+
+    private static void updateChecksum(CRC32 checksum, byte type, long keyHash, int valueLength) {
+        checksum.update(type);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            checksum.update((int) (keyHash >>> shift));
+        }
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            checksum.update(valueLength >>> shift);
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        try {
+            RecordLocation location = index.get(keyHasher.getHashCode(key));
+            if (location == null) {
+                return null;
+            }
+            if (location.offset + location.size > writtenSize) {
+                flushPending();
+            }
+            byte[] value = new byte[location.size - RECORD_OVERHEAD];
+            file.seek(location.offset + RECORD_HEADER_SIZE);
+            file.readFully(value);
+            return serializer.read(new KryoBackedDecoder(new ByteArrayInputStream(value)));
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        try {
+            ByteArrayOutputStream valueBytes = new ByteArrayOutputStream();
+            KryoBackedEncoder encoder = new KryoBackedEncoder(valueBytes);
+            serializer.write(encoder, value);
+            encoder.flush();
+            long keyHash = keyHasher.getHashCode(key);
+            RecordLocation location = append(PUT, keyHash, valueBytes.toByteArray());
+            RecordLocation previous = index.put(keyHash, location);
+            liveBytes += location.size;
+            if (previous != null) {
+                liveBytes -= previous.size;
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new LinkedHashMap<K, V>();
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void remove(K key) {
+        try {
+            long keyHash = keyHasher.getHashCode(key);
+            RecordLocation previous = index.remove(keyHash);
+            if (previous == null) {
+                return;
+            }
+            liveBytes -= previous.size;
+            append(REMOVE, keyHash, new byte[0]);
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    private RecordLocation append(byte type, long keyHash, byte[] value) throws IOException {
+        long offset = writtenSize + pending.size();
+        CRC32 checksum = new CRC32();
+        updateChecksum(checksum, type, keyHash, value.length);
+        checksum.update(value, 0, value.length);
+        DataOutputStream output = new DataOutputStream(pending);
+        output.writeByte(type);
+        output.writeLong(keyHash);
+        output.writeInt(value.length);
+        output.write(value);
+        output.writeInt((int) checksum.getValue());
+        if (pending.size() >= MAX_PENDING_BYTES) {
+            flushPending();
+        }
+        return new RecordLocation(offset, RECORD_OVERHEAD + value.length);
+    }
+
+    private void flushPending() throws IOException {
+        if (pending.size() == 0) {
+            return;
+        }
+        file.seek(writtenSize);
+        file.write(pending.getBuffer(), 0, pending.size());
+        writtenSize += pending.size();
+        pending.reset();
+    }
+
+    @Override
+    public void close() {
+        LOGGER.debug("Closing {}", this);
+        try {
+            flushPending();
+            if (writtenSize >= MIN_COMPACTION_SIZE && writtenSize - FILE_HEADER_SIZE > 2 * liveBytes) {
+                compact();
+            }
+            file.close();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not close %s.", this), e);
+        }
+    }
+
+    /**
+     * Copies the live records to a new log, in the order they were written, and replaces the current log with it.
+     */
+    private void compact() throws IOException {
+        LOGGER.debug("Compacting {}", this);
+        List<RecordLocation> liveRecords = new ArrayList<RecordLocation>(index.values());
+        Collections.sort(liveRecords, new Comparator<RecordLocation>() {
+            @Override
+            public int compare(RecordLocation first, RecordLocation second) {
+                return first.offset < second.offset ? -1 : first.offset == second.offset ? 0 : 1;
+            }
+        });
+        RandomAccessFile compacted = new RandomAccessFile(compactedFile, "rw");
+        try {
+            compacted.setLength(0);
+            compacted.writeInt(MAGIC);
+            compacted.writeInt(VERSION);
+            byte[] buffer = new byte[1024];
+            for (RecordLocation record : liveRecords) {
+                if (buffer.length < record.size) {
+                    buffer = new byte[record.size];
+                }
+                file.seek(record.offset);
+                file.readFully(buffer, 0, record.size);
+                compacted.write(buffer, 0, record.size);
+            }
+        } finally {
+            compacted.close();
+        }
+        file.close();
+        replace(compactedFile, cacheFile);
+    }
+
+    private static void replace(File source, File target) throws IOException {
+        if (JavaVersion.current().isJava7Compatible()) {
+            Jdk7FileReplacer.replace(source, target);
+            return;
+        }
+        // Renaming replaces the target atomically on most platforms, except Windows where the target has to be removed first
+        if (!source.renameTo(target) && (!target.delete() || !source.renameTo(target))) {
+            throw new IOException(String.format("Could not replace %s with %s.", target, source));
+        }
+    }
+
+    public boolean isOpen() {
+        return file.getChannel().isOpen();
+    }
+
+    private static class RecordLocation {
+        final long offset;
+        final int size;
+
+        RecordLocation(long offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    private static class PendingRecords extends ByteArrayOutputStream {
+        byte[] getBuffer() {
+            return buf;
+        }
+    }
+}
@@ -16,7 +16,7 @@
 package org.gradle.cache.internal.btree;
 
 import org.gradle.api.UncheckedIOException;
-import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.internal.CloseablePersistentIndexedCache;
 import org.gradle.internal.io.StreamByteBuffer;
 import org.gradle.internal.serialize.Serializer;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
@@ -32,7 +32,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 // todo - stream serialised value to file
 // todo - handle hash collisions (properly, this time)
@@ -45,7 +47,7 @@ import java.util.List;
 // todo - free list leaks disk space
 // todo - merge adjacent free blocks
 // todo - use more efficient lookup for free block with nearest size
-public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
+public class BTreePersistentIndexedCache<K, V> implements CloseablePersistentIndexedCache<K, V> {
     private static final Logger LOGGER = LoggerFactory.getLogger(BTreePersistentIndexedCache.class);
     private final File cacheFile;
     private final KeyHasher<K> keyHasher;
@@ -134,31 +136,62 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new LinkedHashMap<K, V>();
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
     public void put(K key, V value) {
         try {
-            long hashCode = keyHasher.getHashCode(key);
-            Lookup lookup = header.getRoot().find(hashCode);
-            DataBlock newBlock = null;
-            if (lookup.entry != null) {
-                DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
-                DataBlockUpdateResult updateResult = block.useNewValue(value);
-                if (updateResult.isFailed()) {
-                    store.remove(block);
-                    newBlock = new DataBlock(value, updateResult.getSerializedValue());
-                }
-            } else {
-                newBlock = new DataBlock(value);
-            }
-            if (newBlock != null) {
-                store.write(newBlock);
-                lookup.indexBlock.put(hashCode, newBlock.getPos());
-            }
+            doPut(key, value);
             store.flush();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
         }
     }
 
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        // Flush the dirty blocks once for the whole batch, rather than once per entry
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            try {
+                doPut(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", entry.getKey(), this), e);
+            }
+        }
+        try {
+            store.flush();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not flush %s.", this), e);
+        }
+    }
+
+    private void doPut(K key, V value) throws Exception {
+        long hashCode = keyHasher.getHashCode(key);
+        Lookup lookup = header.getRoot().find(hashCode);
+        DataBlock newBlock = null;
+        if (lookup.entry != null) {
+            DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
+            DataBlockUpdateResult updateResult = block.useNewValue(value);
+            if (updateResult.isFailed()) {
+                store.remove(block);
+                newBlock = new DataBlock(value, updateResult.getSerializedValue());
+            }
+        } else {
+            newBlock = new DataBlock(value);
+        }
+        if (newBlock != null) {
+            store.write(newBlock);
+            lookup.indexBlock.put(hashCode, newBlock.getPos());
+        }
+    }
+
     public void remove(K key) {
         try {
             Lookup lookup = header.getRoot().find(key);
@@ -16,6 +16,7 @@
 package org.gradle.cache.internal.btree;
 
 import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.os.OperatingSystem;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -24,10 +25,14 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 
 public class FileBackedBlockStore implements BlockStore {
+    // Truncating a file that is still mapped fails on Windows, and mappings are only released when they are garbage collected
+    private static final boolean MAP_FOR_READING = !OperatingSystem.current().isWindows()
+        && System.getProperty("org.gradle.internal.cache.mmap", "true").equalsIgnoreCase("true");
     private final File cacheFile;
     private RandomAccessFile file;
     private ByteOutput output;
     private ByteInput input;
+    private MappedByteInput mappedInput;
     private long nextBlock;
     private Factory factory;
     private long currentFileSize;
@@ -48,6 +53,7 @@ public class FileBackedBlockStore implements BlockStore {
             file = new RandomAccessFile(cacheFile, "rw");
             output = new ByteOutput(file);
             input = new ByteInput(file);
+            mappedInput = MAP_FOR_READING ? new MappedByteInput(file) : null;
             currentFileSize = file.length();
             nextBlock = currentFileSize;
             if (currentFileSize == 0) {
@@ -60,6 +66,7 @@ public class FileBackedBlockStore implements BlockStore {
 
     public void close() {
         try {
+            mappedInput = null;
             file.close();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
@@ -68,6 +75,9 @@ public class FileBackedBlockStore implements BlockStore {
 
     public void clear() {
         try {
+            if (mappedInput != null) {
+                mappedInput.reset();
+            }
             file.setLength(0);
             currentFileSize = 0;
         } catch (IOException e) {
@@ -213,7 +223,8 @@ public class FileBackedBlockStore implements BlockStore {
                 throw blockCorruptedException();
             }
 
-            DataInputStream inputStream = input.start(pos);
+            boolean mapped = mappedInput != null && MappedByteInput.canMap(currentFileSize);
+            DataInputStream inputStream = mapped ? mappedInput.start(pos, currentFileSize) : input.start(pos);
 
             BlockPayload payload = getPayload();
 
@@ -231,12 +242,16 @@ public class FileBackedBlockStore implements BlockStore {
             payload.read(inputStream);
 
             // Read and verify count
-            long actualCount = input.getBytesRead();
+            long actualCount = mapped ? mappedInput.getBytesRead() : input.getBytesRead();
             long count = inputStream.readInt();
             if (actualCount != count) {
                 throw blockCorruptedException();
             }
-            input.done();
+            if (mapped) {
+                mappedInput.done();
+            } else {
+                input.done();
+            }
         }
 
         public RuntimeException blockCorruptedException() {
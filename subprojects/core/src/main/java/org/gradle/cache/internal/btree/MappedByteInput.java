@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Allows a stream of bytes to be read from a particular location of a file, through a read-only memory mapping of the file.
+ * Content written after the end of the mapping is read from the file, until enough of it has been appended to make mapping the file again worthwhile.
+ */
+class MappedByteInput {
+    // The least number of bytes appended to the file before it is mapped again
+    private static final int MIN_REMAP_GROWTH = 64 * 1024;
+    private final RandomAccessFile file;
+    private MappedByteBuffer mappedBuffer;
+    private MappedInputStream inputStream;
+    private long start;
+
+    public MappedByteInput(RandomAccessFile file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns true when a file of the given size can be read through a mapping.
+     */
+    public static boolean canMap(long fileSize) {
+        return fileSize <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Starts reading from the given offset of a file of the given size.
+     */
+    public DataInputStream start(long offset, long fileSize) throws IOException {
+        if (mappedBuffer == null || fileSize < mappedBuffer.capacity() || fileSize - mappedBuffer.capacity() > Math.max(MIN_REMAP_GROWTH, mappedBuffer.capacity() / 4)) {
+            // Grow the mapping geometrically, so that a file that keeps growing is not mapped again for every few blocks appended to it
+            mappedBuffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        }
+        inputStream = new MappedInputStream(mappedBuffer, file.getChannel(), offset, fileSize);
+        start = offset;
+        return new DataInputStream(inputStream);
+    }
+
+    /**
+     * Returns the number of bytes read since {@link #start(long, long)} was called.
+     */
+    public long getBytesRead() {
+        return inputStream.position - start;
+    }
+
+    /**
+     * Finishes reading.
+     */
+    public void done() {
+        inputStream = null;
+    }
+
+    /**
+     * Discards the mapping, for example because the file has been truncated.
+     */
+    public void reset() {
+        mappedBuffer = null;
+        inputStream = null;
+    }
+
+    private static class MappedInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        MappedInputStream(ByteBuffer mappedBuffer, FileChannel channel, long position, long end) {
+            this.buffer = mappedBuffer.duplicate();
+            this.channel = channel;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            if (position < buffer.capacity()) {
+                return buffer.get((int) position++) & 0xff;
+            }
+            byte[] bytes = new byte[1];
+            return read(bytes, 0, 1) < 0 ? -1 : bytes[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int count = (int) Math.min(length, end - position);
+            if (position < buffer.capacity()) {
+                count = (int) Math.min(count, buffer.capacity() - position);
+                buffer.position((int) position);
+                buffer.get(bytes, offset, count);
+            } else {
+                // Past the end of the mapping
+                count = channel.read(ByteBuffer.wrap(bytes, offset, count), position);
+                if (count < 0) {
+                    return -1;
+                }
+            }
+            position += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            long skipped = Math.max(0, Math.min(count, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, end - position));
+        }
+    }
+}
@@ -18,8 +18,8 @@ package org.gradle.execution.taskgraph;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
-import com.google.common.base.StandardSystemProperty;
 import com.google.common.collect.*;
+import com.google.common.primitives.Longs;
 import org.gradle.api.*;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.tasks.CachingTaskDependencyResolveContext;
@@ -40,7 +40,6 @@ import org.gradle.internal.graph.DirectedGraphRenderer;
 import org.gradle.internal.graph.GraphNodeRenderer;
 import org.gradle.internal.logging.text.StyledTextOutput;
 import org.gradle.util.CollectionUtils;
-import org.gradle.util.TextUtil;
 
 import java.io.File;
 import java.io.IOException;
@@ -61,21 +60,42 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final static Logger LOGGER = Logging.getLogger(DefaultTaskExecutionPlan.class);
 
     private final Lock lock = new ReentrantLock();
-    private final Condition condition = lock.newCondition();
+    private final Condition taskAvailable = lock.newCondition();
+    private final Condition taskCompleted = lock.newCondition();
     private final Set<TaskInfo> tasksInUnknownState = new LinkedHashSet<TaskInfo>();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final TaskDependencyGraph graph = new TaskDependencyGraph();
     private final LinkedHashMap<Task, TaskInfo> executionPlan = new LinkedHashMap<Task, TaskInfo>();
-    private final List<TaskInfo> executionQueue = new LinkedList<TaskInfo>();
+    private final Map<TaskInfo, Integer> executionPositions = Maps.newHashMap();
+    // Estimated time from starting a task until all tasks that have to wait for it have completed
+    private final Map<TaskInfo, Long> criticalPathDurations = Maps.newHashMap();
+    // Tasks in the plan that still have to be started or skipped
+    private final Set<TaskInfo> pendingTasks = Sets.newHashSet();
+    // Pending tasks whose dependencies have all completed, longest critical path first and then in execution plan order
+    private final NavigableSet<TaskInfo> readyTasks = new TreeSet<TaskInfo>(new Comparator<TaskInfo>() {
+        @Override
+        public int compare(TaskInfo first, TaskInfo second) {
+            int result = Longs.compare(criticalPathDuration(second), criticalPathDuration(first));
+            if (result != 0) {
+                return result;
+            }
+            return executionPositions.get(first).compareTo(executionPositions.get(second));
+        }
+    });
+    private int waitingWorkers;
     private final List<Throwable> failures = new ArrayList<Throwable>();
     private Spec<? super Task> filter = Specs.satisfyAll();
 
     private TaskFailureHandler failureHandler = new RethrowingFailureHandler();
+    private TaskDurationEstimator taskDurationEstimator;
     private final BuildCancellationToken cancellationToken;
     private final Multiset<String> projectsWithRunningTasks = HashMultiset.create();
     private final Multiset<String> projectsWithRunningNonParallelizableTasks = HashMultiset.create();
     private final Set<TaskInternal> runningTasks = Sets.newIdentityHashSet();
     private final Map<Task, Set<String>> canonicalizedOutputCache = Maps.newIdentityHashMap();
+    private final Set<TaskInternal> canonicalizingTasks = Sets.newIdentityHashSet();
+    private final OutputPathTrie runningTaskOutputs = new OutputPathTrie();
+    private final List<TaskInternal> unindexedRunningTasks = Lists.newArrayList();
     private final Map<Task, Boolean> isParallelSafeCache = Maps.newIdentityHashMap();
     private boolean tasksCancelled;
 
@@ -306,8 +326,51 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 }
             }
         }
-        executionQueue.clear();
-        executionQueue.addAll(executionPlan.values());
+        initializeReadyTasks();
+    }
+
+    /**
+     * Estimates for each task how long it takes from starting the task until the longest chain of tasks waiting for it has completed.
+     * Tasks are visited in reverse execution plan order, so the tasks waiting for a task are visited before the task itself.
+     */
+    private void determineCriticalPathDurations() {
+        criticalPathDurations.clear();
+        if (taskDurationEstimator == null) {
+            return;
+        }
+        List<TaskInfo> plannedTasks = new ArrayList<TaskInfo>(executionPlan.values());
+        for (int i = plannedTasks.size() - 1; i >= 0; i--) {
+            TaskInfo taskInfo = plannedTasks.get(i);
+            long longestRemainder = 0;
+            for (TaskInfo waitingTask : Iterables.concat(taskInfo.getAllPredecessors(), taskInfo.getFinalizers())) {
+                longestRemainder = Math.max(longestRemainder, criticalPathDuration(waitingTask));
+            }
+            criticalPathDurations.put(taskInfo, taskDurationEstimator.getEstimatedDuration(taskInfo.getTask()) + longestRemainder);
+        }
+    }
+
+    private long criticalPathDuration(TaskInfo taskInfo) {
+        Long duration = criticalPathDurations.get(taskInfo);
+        return duration == null ? 0 : duration;
+    }
+
+    private void initializeReadyTasks() {
+        executionPositions.clear();
+        pendingTasks.clear();
+        readyTasks.clear();
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            executionPositions.put(taskInfo, executionPositions.size());
+        }
+        determineCriticalPathDurations();
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            taskInfo.countIncompleteDependencies();
+            if (taskInfo.isReady()) {
+                pendingTasks.add(taskInfo);
+                if (taskInfo.allDependenciesComplete()) {
+                    readyTasks.add(taskInfo);
+                }
+            }
+        }
     }
 
     private void maybeRemoveProcessedShouldRunAfterEdge(Stack<GraphEdge> walkedShouldRunAfterEdges, TaskInfo taskNode) {
@@ -428,11 +491,17 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             graph.clear();
             entryTasks.clear();
             executionPlan.clear();
-            executionQueue.clear();
+            executionPositions.clear();
+            criticalPathDurations.clear();
+            pendingTasks.clear();
+            readyTasks.clear();
             failures.clear();
             projectsWithRunningTasks.clear();
             projectsWithRunningNonParallelizableTasks.clear();
             canonicalizedOutputCache.clear();
+            canonicalizingTasks.clear();
+            runningTaskOutputs.clear();
+            unindexedRunningTasks.clear();
             isParallelSafeCache.clear();
             runningTasks.clear();
         } finally {
@@ -452,53 +521,123 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         this.failureHandler = handler;
     }
 
+    /**
+     * Prefer ready tasks with the longest estimated chain of tasks waiting for them, instead of following the execution plan order.
+     * Takes effect when the execution plan is next determined.
+     */
+    public void useTaskDurationEstimator(TaskDurationEstimator taskDurationEstimator) {
+        this.taskDurationEstimator = taskDurationEstimator;
+    }
+
     public TaskInfo getTaskToExecute() {
-        lock.lock();
-        try {
-            while (true) {
-                if (cancellationToken.isCancellationRequested()) {
-                    if (abortExecution()) {
-                        tasksCancelled = true;
-                    }
+        List<TaskInternal> tasksToCanonicalize = Lists.newArrayList();
+        TaskInfo taskToExecute;
+        while (true) {
+            lock.lock();
+            try {
+                taskToExecute = selectTaskToExecute(tasksToCanonicalize);
+            } finally {
+                lock.unlock();
+            }
+            if (tasksToCanonicalize.isEmpty()) {
+                break;
+            }
+            // Resolving and canonicalizing output files can touch the file system, so do it without holding the lock
+            canonicalizeOutputPaths(tasksToCanonicalize);
+            tasksToCanonicalize.clear();
+        }
+        return taskToExecute;
+    }
+
+    /**
+     * Selects the next task to execute, waiting for one to become available if necessary.
+     * Returns null when all tasks are complete, or when the output paths of the given tasks need to be canonicalized before a decision can be made.
+     */
+    @Nullable
+    private TaskInfo selectTaskToExecute(List<TaskInternal> tasksToCanonicalize) {
+        while (true) {
+            if (cancellationToken.isCancellationRequested()) {
+                if (abortExecution()) {
+                    tasksCancelled = true;
+                    signalWorkers();
+                    taskCompleted.signalAll();
                 }
-                TaskInfo nextMatching = null;
-                boolean allTasksComplete = true;
-                Iterator<TaskInfo> iterator = executionQueue.iterator();
-                while (iterator.hasNext()) {
-                    TaskInfo taskInfo = iterator.next();
-                    allTasksComplete = allTasksComplete && taskInfo.isComplete();
-                    if (taskInfo.isReady() && taskInfo.allDependenciesComplete() && canRunWithWithCurrentlyExecutedTasks(taskInfo)) {
-                        nextMatching = taskInfo;
-                        iterator.remove();
-                        break;
-                    }
+            }
+            if (pendingTasks.isEmpty()) {
+                return null;
+            }
+            TaskInfo nextMatching = null;
+            for (TaskInfo taskInfo : readyTasks) {
+                if (canRunWithWithCurrentlyExecutedTasks(taskInfo, tasksToCanonicalize)) {
+                    nextMatching = taskInfo;
+                    break;
                 }
-                if (allTasksComplete) {
+                if (!tasksToCanonicalize.isEmpty()) {
                     return null;
                 }
-                if (nextMatching == null) {
-                    try {
-                        condition.await();
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
+            }
+            if (nextMatching == null) {
+                waitingWorkers++;
+                try {
+                    taskAvailable.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    waitingWorkers--;
+                }
+            } else {
+                readyTasks.remove(nextMatching);
+                pendingTasks.remove(nextMatching);
+                if (nextMatching.allDependenciesSuccessful()) {
+                    nextMatching.startExecution();
+                    recordTaskStarted(nextMatching);
+                    return nextMatching;
                 } else {
-                    if (nextMatching.allDependenciesSuccessful()) {
-                        nextMatching.startExecution();
-                        recordTaskStarted(nextMatching);
-                        return nextMatching;
-                    } else {
-                        nextMatching.skipExecution();
-                        condition.signalAll();
-                    }
+                    nextMatching.skipExecution();
+                    taskBecameComplete(nextMatching);
+                    signalWorkers();
+                    taskCompleted.signalAll();
                 }
             }
-        } finally {
-            lock.unlock();
         }
     }
 
-    private boolean canRunWithWithCurrentlyExecutedTasks(TaskInfo taskInfo) {
+    /**
+     * Moves the tasks that were waiting for the given task to the ready tasks, when it was the last of their dependencies to complete.
+     */
+    private void taskBecameComplete(TaskInfo taskInfo) {
+        for (TaskInfo predecessor : taskInfo.getAllPredecessors()) {
+            if (predecessor.dependencyCompleted() && pendingTasks.contains(predecessor)) {
+                readyTasks.add(predecessor);
+            }
+        }
+    }
+
+    /**
+     * Moves the tasks that depend on the given task, which was complete before, out of the ready tasks.
+     */
+    private void taskBecameIncomplete(TaskInfo taskInfo) {
+        for (TaskInfo predecessor : taskInfo.getAllPredecessors()) {
+            predecessor.dependencyNoLongerComplete();
+            readyTasks.remove(predecessor);
+        }
+    }
+
+    /**
+     * Wakes up as many waiting workers as there are ready tasks, or all of them when there is nothing left to execute.
+     */
+    private void signalWorkers() {
+        if (pendingTasks.isEmpty()) {
+            taskAvailable.signalAll();
+            return;
+        }
+        int workersToWake = Math.min(readyTasks.size(), waitingWorkers);
+        for (int i = 0; i < workersToWake; i++) {
+            taskAvailable.signal();
+        }
+    }
+
+    private boolean canRunWithWithCurrentlyExecutedTasks(TaskInfo taskInfo, List<TaskInternal> tasksToCanonicalize) {
         TaskInternal task = taskInfo.getTask();
         String projectPath = task.getProject().getPath();
 
@@ -512,7 +651,16 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             }
         }
 
-        Pair<TaskInternal, String> overlap = firstTaskWithOverlappingOutput(task);
+        if (runningTasks.isEmpty()) {
+            return true;
+        }
+
+        Set<String> candidateOutputPaths = canonicalizedOutputPaths(task, tasksToCanonicalize);
+        if (!indexRunningTaskOutputs(tasksToCanonicalize) || candidateOutputPaths == null) {
+            return false;
+        }
+
+        Pair<TaskInternal, String> overlap = runningTaskOutputs.firstOverlap(candidateOutputPaths);
         if (overlap == null) {
             return true;
         } else {
@@ -522,62 +670,72 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         return false;
     }
 
-    private Set<String> canonicalizedOutputPaths(TaskInternal task) {
-        Set<String> paths = canonicalizedOutputCache.get(task);
-        if (paths == null) {
-            paths = Sets.newHashSet(Iterables.transform(task.getOutputs().getFiles(), new Function<File, String>() {
-                @Override
-                public String apply(File file) {
-                    String path;
-                    try {
-                        path = file.getCanonicalPath();
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
-                    }
-                    return path;
-                }
-            }));
-            canonicalizedOutputCache.put(task, paths);
+    /**
+     * Adds the outputs of running tasks whose output paths have been canonicalized to the trie of running task outputs.
+     *
+     * @return true when the outputs of all running tasks are indexed.
+     */
+    private boolean indexRunningTaskOutputs(List<TaskInternal> tasksToCanonicalize) {
+        boolean allIndexed = true;
+        Iterator<TaskInternal> iterator = unindexedRunningTasks.iterator();
+        while (iterator.hasNext()) {
+            TaskInternal runningTask = iterator.next();
+            Set<String> paths = canonicalizedOutputPaths(runningTask, tasksToCanonicalize);
+            if (paths == null) {
+                allIndexed = false;
+            } else {
+                runningTaskOutputs.add(runningTask, paths);
+                iterator.remove();
+            }
         }
-
-        return paths;
+        return allIndexed;
     }
 
+    /**
+     * Returns the canonicalized output paths of the given task, or null when they are not known yet.
+     * In that case the task is claimed and added to the given list, unless another worker is already canonicalizing its outputs.
+     */
     @Nullable
-    private Pair<TaskInternal, String> firstTaskWithOverlappingOutput(TaskInternal candidateTask) {
-        if (runningTasks.isEmpty()) {
-            return null;
+    private Set<String> canonicalizedOutputPaths(TaskInternal task, List<TaskInternal> tasksToCanonicalize) {
+        Set<String> paths = canonicalizedOutputCache.get(task);
+        if (paths == null && canonicalizingTasks.add(task)) {
+            tasksToCanonicalize.add(task);
         }
+        return paths;
+    }
 
-        for (String candidateTaskOutputPath : canonicalizedOutputPaths(candidateTask)) {
-            for (TaskInternal runningTask : runningTasks) {
-                for (String runningTaskOutputPath : canonicalizedOutputPaths(runningTask)) {
-                    if (pathsOverlap(candidateTaskOutputPath, runningTaskOutputPath)) {
-                        return Pair.of(runningTask, TextUtil.shorterOf(candidateTaskOutputPath, runningTaskOutputPath));
+    private void canonicalizeOutputPaths(List<TaskInternal> tasks) {
+        Map<TaskInternal, Set<String>> canonicalized = Maps.newIdentityHashMap();
+        try {
+            for (TaskInternal task : tasks) {
+                canonicalized.put(task, Sets.newHashSet(Iterables.transform(task.getOutputs().getFiles(), new Function<File, String>() {
+                    @Override
+                    public String apply(File file) {
+                        String path;
+                        try {
+                            path = file.getCanonicalPath();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        return path;
+                    }
+                })));
+            }
+        } finally {
+            lock.lock();
+            try {
+                for (TaskInternal task : tasks) {
+                    // Drop the paths of tasks that completed in the meantime, nothing will remove them later
+                    if (canonicalizingTasks.remove(task) && canonicalized.containsKey(task)) {
+                        canonicalizedOutputCache.put(task, canonicalized.get(task));
                     }
                 }
+                // Other workers may be waiting for these paths to decide whether a task can run
+                taskAvailable.signalAll();
+            } finally {
+                lock.unlock();
             }
         }
-
-        return null;
-    }
-
-
-    private boolean pathsOverlap(String firstPath, String secondPath) {
-        if (firstPath.equals(secondPath)) {
-            return true;
-        }
-
-        String shorter;
-        String longer;
-        if (firstPath.length() > secondPath.length()) {
-            shorter = secondPath;
-            longer = firstPath;
-        } else {
-            shorter = firstPath;
-            longer = secondPath;
-        }
-        return longer.startsWith(shorter + StandardSystemProperty.FILE_SEPARATOR.value());
     }
 
     boolean isParallelizable(TaskInternal task) {
@@ -614,6 +772,12 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         projectsWithRunningTasks.add(projectPath);
         runningTasks.add(task);
+        Set<String> outputPaths = canonicalizedOutputCache.get(task);
+        if (outputPaths != null) {
+            runningTaskOutputs.add(task, outputPaths);
+        } else {
+            unindexedRunningTasks.add(task);
+        }
     }
 
     private void recordTaskCompleted(TaskInfo taskInfo) {
@@ -623,7 +787,11 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             projectsWithRunningNonParallelizableTasks.remove(projectPath);
         }
         projectsWithRunningTasks.remove(projectPath);
+        if (!unindexedRunningTasks.remove(task)) {
+            runningTaskOutputs.remove(task, canonicalizedOutputCache.get(task));
+        }
         canonicalizedOutputCache.remove(task);
+        canonicalizingTasks.remove(task);
         isParallelSafeCache.remove(task);
         runningTasks.remove(task);
     }
@@ -637,8 +805,10 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             }
 
             taskInfo.finishExecution();
+            taskBecameComplete(taskInfo);
             recordTaskCompleted(taskInfo);
-            condition.signalAll();
+            signalWorkers();
+            taskCompleted.signalAll();
         } finally {
             lock.unlock();
         }
@@ -663,7 +833,15 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             enforceWithDependencies(dependencyNode, enforcedTasks);
         }
         if (node.isMustNotRun() || node.isRequired()) {
+            boolean wasComplete = node.isComplete();
             node.enforceRun();
+            if (wasComplete && executionPositions.containsKey(node)) {
+                taskBecameIncomplete(node);
+                pendingTasks.add(node);
+                if (node.allDependenciesComplete()) {
+                    readyTasks.add(node);
+                }
+            }
         }
     }
 
@@ -693,6 +871,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         for (TaskInfo taskInfo : executionPlan.values()) {
             if (taskInfo.isRequired()) {
                 taskInfo.skipExecution();
+                pendingTasks.remove(taskInfo);
+                readyTasks.remove(taskInfo);
+                taskBecameComplete(taskInfo);
                 aborted = true;
             }
         }
@@ -704,7 +885,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         try {
             while (!allTasksComplete()) {
                 try {
-                    condition.await();
+                    taskCompleted.await();
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
@@ -731,12 +912,8 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     private boolean allTasksComplete() {
-        for (TaskInfo taskInfo : executionPlan.values()) {
-            if (!taskInfo.isComplete()) {
-                return false;
-            }
-        }
-        return true;
+        // Every task in the plan that is not complete is either pending or running
+        return pendingTasks.isEmpty() && runningTasks.isEmpty();
     }
 
     private static class GraphEdge {
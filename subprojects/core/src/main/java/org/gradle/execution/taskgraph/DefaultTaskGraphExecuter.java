@@ -67,6 +67,8 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private final ListenerBroadcast<InternalTaskExecutionListener> internalTaskListeners;
     private final DefaultTaskExecutionPlan taskExecutionPlan;
     private final BuildOperationExecutor buildOperationExecutor;
+    // This needs to be lazy as well, as the estimates are read from the task history of the root project
+    private Factory<? extends TaskDurationEstimator> taskDurationEstimator;
     private TaskGraphState taskGraphState = TaskGraphState.EMPTY;
 
     public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, Factory<? extends TaskExecuter> taskExecuter, BuildCancellationToken cancellationToken, TimeProvider timeProvider, BuildOperationExecutor buildOperationExecutor) {
@@ -84,6 +86,10 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         taskExecutionPlan.useFailureHandler(handler);
     }
 
+    public void useTaskDurationEstimator(Factory<? extends TaskDurationEstimator> taskDurationEstimator) {
+        this.taskDurationEstimator = taskDurationEstimator;
+    }
+
     public void useFilter(Spec<? super Task> filter) {
         taskExecutionPlan.useFilter(filter);
         taskGraphState = TaskGraphState.DIRTY;
@@ -199,6 +205,9 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
                 throw new IllegalStateException(
                         "Task information is not available, as this task execution graph has not been populated.");
             case DIRTY:
+                if (taskDurationEstimator != null) {
+                    taskExecutionPlan.useTaskDurationEstimator(taskDurationEstimator.create());
+                }
                 taskExecutionPlan.determineExecutionPlan();
                 taskGraphState = TaskGraphState.POPULATED;
                 return;
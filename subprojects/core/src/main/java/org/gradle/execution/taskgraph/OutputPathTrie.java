@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.internal.Pair;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A prefix tree of the canonical output paths of running tasks, split into file name segments.
+ * Finds a running task whose outputs overlap a given path in time proportional to the depth of the path.
+ * Two paths overlap when they are the same or one is an ancestor of the other.
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+class OutputPathTrie {
+    private final Node root = new Node();
+
+    public boolean isEmpty() {
+        return root.outputCount == 0;
+    }
+
+    public void clear() {
+        root.children.clear();
+        root.owners.clear();
+        root.outputCount = 0;
+        root.path = null;
+    }
+
+    public void add(TaskInternal task, Iterable<String> paths) {
+        for (String path : paths) {
+            Node node = root;
+            node.outputCount++;
+            for (String segment : segments(path)) {
+                Node child = node.children.get(segment);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(segment, child);
+                }
+                node = child;
+                node.outputCount++;
+            }
+            node.owners.add(task);
+            node.path = path;
+        }
+    }
+
+    public void remove(TaskInternal task, Iterable<String> paths) {
+        for (String path : paths) {
+            List<String> segments = segments(path);
+            List<Node> nodes = Lists.newArrayListWithCapacity(segments.size() + 1);
+            Node node = root;
+            nodes.add(node);
+            for (String segment : segments) {
+                node = node.children.get(segment);
+                if (node == null) {
+                    break;
+                }
+                nodes.add(node);
+            }
+            if (node == null || !node.owners.remove(task)) {
+                continue;
+            }
+            for (Node visited : nodes) {
+                visited.outputCount--;
+            }
+            // Prune the part of the branch that no longer leads to any output
+            for (int i = 0; i < segments.size(); i++) {
+                if (nodes.get(i + 1).outputCount == 0) {
+                    nodes.get(i).children.remove(segments.get(i));
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a running task with an output that overlaps one of the given paths, together with the shorter of the two overlapping paths.
+     */
+    @Nullable
+    public Pair<TaskInternal, String> firstOverlap(Iterable<String> paths) {
+        if (isEmpty()) {
+            return null;
+        }
+        for (String path : paths) {
+            Node node = root;
+            if (!node.owners.isEmpty()) {
+                return Pair.of(node.owners.get(0), node.path);
+            }
+            for (String segment : segments(path)) {
+                node = node.children.get(segment);
+                if (node == null) {
+                    break;
+                }
+                if (!node.owners.isEmpty()) {
+                    // A running task has an output that contains this path
+                    return Pair.of(node.owners.get(0), node.path);
+                }
+            }
+            if (node != null) {
+                // A running task has an output inside this path
+                while (node.owners.isEmpty()) {
+                    node = node.children.values().iterator().next();
+                }
+                return Pair.of(node.owners.get(0), path);
+            }
+        }
+        return null;
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = Lists.newArrayList();
+        int start = 0;
+        while (start < path.length()) {
+            int end = path.indexOf(File.separatorChar, start);
+            if (end < 0) {
+                end = path.length();
+            }
+            if (end > start) {
+                segments.add(path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return segments;
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = Maps.newHashMap();
+        private final List<TaskInternal> owners = Lists.newArrayListWithCapacity(1);
+        // The number of outputs at or below this node
+        private int outputCount;
+        private String path;
+    }
+}
@@ -34,8 +34,10 @@ public class TaskInfo implements Comparable<TaskInfo> {
     private final TreeSet<TaskInfo> dependencyPredecessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> dependencySuccessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> mustSuccessors = new TreeSet<TaskInfo>();
+    private final TreeSet<TaskInfo> mustPredecessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> shouldSuccessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> finalizers = new TreeSet<TaskInfo>();
+    private int incompleteDependencies;
 
     public TaskInfo(TaskInternal task) {
         this.task = task;
@@ -129,13 +131,36 @@ public class TaskInfo implements Comparable<TaskInfo> {
         return this.getTask().getState().getFailure();
     }
 
-    public boolean allDependenciesComplete() {
+    /**
+     * Recalculates the number of dependencies, including tasks this task must run after, that have not completed yet.
+     */
+    public void countIncompleteDependencies() {
+        incompleteDependencies = 0;
         for (TaskInfo dependency : Iterables.concat(mustSuccessors, dependencySuccessors)) {
             if (!dependency.isComplete()) {
-                return false;
+                incompleteDependencies++;
             }
         }
-        return true;
+    }
+
+    /**
+     * Records that one of the dependencies of this task has completed.
+     *
+     * @return true if this was the last dependency to complete.
+     */
+    public boolean dependencyCompleted() {
+        return --incompleteDependencies == 0;
+    }
+
+    /**
+     * Records that one of the dependencies of this task, which was complete before, is now required to run.
+     */
+    public void dependencyNoLongerComplete() {
+        incompleteDependencies++;
+    }
+
+    public boolean allDependenciesComplete() {
+        return incompleteDependencies == 0;
     }
 
     public boolean allDependenciesSuccessful() {
@@ -159,6 +184,13 @@ public class TaskInfo implements Comparable<TaskInfo> {
         return mustSuccessors;
     }
 
+    /**
+     * Returns the tasks that have to wait for this task to complete before they can start, that is, the tasks that depend on or must run after this task.
+     */
+    public Iterable<TaskInfo> getAllPredecessors() {
+        return Iterables.concat(mustPredecessors, dependencyPredecessors);
+    }
+
     public TreeSet<TaskInfo> getFinalizers() {
         return finalizers;
     }
@@ -182,6 +214,7 @@ public class TaskInfo implements Comparable<TaskInfo> {
 
     public void addMustSuccessor(TaskInfo toNode) {
         mustSuccessors.add(toNode);
+        toNode.mustPredecessors.add(this);
     }
 
     public void addFinalizer(TaskInfo finalizerNode) {
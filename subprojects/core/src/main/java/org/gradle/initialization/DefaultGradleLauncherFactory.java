@@ -20,6 +20,7 @@ import com.google.common.collect.ImmutableList;
 import org.gradle.StartParameter;
 import org.gradle.api.internal.ExceptionAnalyser;
 import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.changedetection.state.FileSystemMirror;
 import org.gradle.api.internal.tasks.cache.TaskExecutionStatisticsEventAdapter;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.logging.StandardOutputListener;
@@ -162,6 +163,8 @@ public class DefaultGradleLauncherFactory implements GradleLauncherFactory {
         }
 
         listenerManager.addListener(serviceRegistry.get(ProfileEventAdapter.class));
+        // Keeps the file system mirror in sync with the outputs written by this build, and trims it once the build has completed
+        listenerManager.addListener(serviceRegistry.get(FileSystemMirror.class));
         if (startParameter.isProfile()) {
             listenerManager.addListener(new ReportGeneratingProfileListener());
         }
@@ -29,6 +29,8 @@ import org.gradle.api.internal.DocumentationRegistry;
 import org.gradle.api.internal.DynamicModulesClassPathProvider;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.CachingFileSnapshotter;
+import org.gradle.api.internal.changedetection.state.DefaultFileSystemMirror;
+import org.gradle.api.internal.changedetection.state.FileSystemMirror;
 import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
 import org.gradle.api.internal.changedetection.state.SoftInMemoryTaskArtifactCache;
 import org.gradle.api.internal.classpath.DefaultModuleRegistry;
@@ -45,6 +47,7 @@ import org.gradle.api.internal.file.TmpDirTemporaryFileProvider;
 import org.gradle.api.internal.file.collections.DefaultDirectoryFileTreeFactory;
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
 import org.gradle.api.internal.hash.DefaultFileHasher;
+import org.gradle.api.internal.hash.FileHashStrategy;
 import org.gradle.api.internal.hash.FileHasher;
 import org.gradle.api.internal.initialization.loadercache.ClassLoaderCache;
 import org.gradle.api.internal.initialization.loadercache.DefaultClassLoaderCache;
@@ -132,6 +135,9 @@ import java.util.List;
  * Defines the global services shared by all services in a given process. This includes the Gradle CLI, daemon and tooling API provider.
  */
 public class GlobalScopeServices {
+    // Keeping the details of snapshotted files between builds relies on file system events, so it has to be asked for
+    private static final String RETAIN_FILE_SYSTEM_STATE_PROPERTY = "org.gradle.internal.file-system-mirror.retain";
+
     private final ClassPath additionalModuleClassPath;
 
     private GradleBuildEnvironment environment;
@@ -322,7 +328,8 @@ public class GlobalScopeServices {
     }
 
     FileHasher createCachingFileHasher(StringInterner stringInterner, MapBackedInMemoryStore inMemoryStore) {
-        return new CachingFileSnapshotter(new DefaultFileHasher(), inMemoryStore, stringInterner);
+        DefaultFileHasher hasher = new DefaultFileHasher(FileHashStrategy.fromSystemProperty());
+        return new CachingFileSnapshotter(hasher, hasher.getStrategy(), inMemoryStore, stringInterner);
     }
 
     ClassLoaderCache createClassLoaderCache(HashingClassLoaderFactory classLoaderFactory, ClassPathSnapshotter classPathSnapshotter) {
@@ -362,6 +369,12 @@ public class GlobalScopeServices {
         return new DefaultFileWatcherFactory(executorFactory, fileSystem);
     }
 
+    FileSystemMirror createFileSystemMirror(FileWatcherFactory fileWatcherFactory, GradleBuildEnvironment environment) {
+        // Only worth watching for changes when the details can be reused by a later build
+        boolean retainFileSystemState = environment.isLongLivingProcess() && System.getProperty(RETAIN_FILE_SYSTEM_STATE_PROPERTY, "false").equalsIgnoreCase("true");
+        return new DefaultFileSystemMirror(retainFileSystemState ? fileWatcherFactory : null);
+    }
+
     StringInterner createStringInterner() {
         return new StringInterner();
     }
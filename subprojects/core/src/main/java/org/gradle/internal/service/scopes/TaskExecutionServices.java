@@ -15,6 +15,8 @@
  */
 package org.gradle.internal.service.scopes;
 
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
 import org.gradle.StartParameter;
 import org.gradle.api.execution.TaskActionListener;
 import org.gradle.api.execution.internal.TaskInputsListener;
@@ -24,6 +26,7 @@ import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.DefaultTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.ShortCircuitTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.state.CacheBackedFileSnapshotRepository;
+import org.gradle.api.internal.changedetection.state.CacheBackedTaskDurationHistory;
 import org.gradle.api.internal.changedetection.state.CacheBackedTaskHistoryRepository;
 import org.gradle.api.internal.changedetection.state.CachingFileSnapshotter;
 import org.gradle.api.internal.changedetection.state.ClasspathSnapshotter;
@@ -34,19 +37,26 @@ import org.gradle.api.internal.changedetection.state.DefaultTaskHistoryStore;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshot;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotterRegistry;
+import org.gradle.api.internal.changedetection.state.FileSnapshottingForkJoinPool;
+import org.gradle.api.internal.changedetection.state.FileSystemMirror;
 import org.gradle.api.internal.changedetection.state.GenericFileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
 import org.gradle.api.internal.changedetection.state.OutputFilesSnapshotter;
 import org.gradle.api.internal.changedetection.state.TaskHistoryRepository;
 import org.gradle.api.internal.changedetection.state.TaskHistoryStore;
 import org.gradle.api.internal.file.FileCollectionFactory;
+import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
 import org.gradle.api.internal.hash.DefaultFileHasher;
+import org.gradle.api.internal.hash.FileHashStrategy;
 import org.gradle.api.internal.hash.FileHasher;
 import org.gradle.api.internal.tasks.TaskExecuter;
-import org.gradle.api.internal.tasks.cache.GZipTaskOutputPacker;
+import org.gradle.api.internal.tasks.cache.AsyncTaskOutputStorer;
+import org.gradle.api.internal.tasks.cache.CompressingTaskOutputPacker;
+import org.gradle.api.internal.tasks.cache.LazyTaskOutputCache;
 import org.gradle.api.internal.tasks.cache.OutputPreparingTaskOutputPacker;
 import org.gradle.api.internal.tasks.cache.TarTaskOutputPacker;
+import org.gradle.api.internal.tasks.cache.TaskOutputCache;
 import org.gradle.api.internal.tasks.cache.TaskOutputPacker;
 import org.gradle.api.internal.tasks.cache.config.TaskCachingInternal;
 import org.gradle.api.internal.tasks.execution.CatchExceptionTaskExecuter;
@@ -81,10 +91,11 @@ import org.gradle.internal.serialize.SerializerRegistry;
 import org.gradle.internal.service.ServiceRegistry;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class TaskExecutionServices {
 
-    TaskExecuter createTaskExecuter(TaskArtifactStateRepository repository, TaskOutputPacker packer, StartParameter startParameter, ListenerManager listenerManager, GradleInternal gradle) {
+    TaskExecuter createTaskExecuter(TaskArtifactStateRepository repository, TaskOutputPacker packer, TaskOutputCache taskOutputCache, AsyncTaskOutputStorer asyncStorer, StartParameter startParameter, ListenerManager listenerManager, GradleInternal gradle) {
         // TODO - need a more comprehensible way to only collect inputs for the outer build
         //      - we are trying to ignore buildSrc here, but also avoid weirdness with use of GradleBuild tasks
         boolean isOuterBuild = gradle.getParent() == null;
@@ -92,6 +103,8 @@ public class TaskExecutionServices {
             ? listenerManager.getBroadcaster(TaskInputsListener.class)
             : TaskInputsListener.NOOP;
 
+        TaskCachingInternal taskCaching = gradle.getTaskCaching();
+
         TaskOutputsGenerationListener taskOutputsGenerationListener = listenerManager.getBroadcaster(TaskOutputsGenerationListener.class);
         return new CatchExceptionTaskExecuter(
             new ExecuteAtMostOnceTaskExecuter(
@@ -105,8 +118,10 @@ public class TaskExecutionServices {
                                     new SkipUpToDateTaskExecuter(
                                         createSkipCachedExecuterIfNecessary(
                                             startParameter,
-                                            gradle.getTaskCaching(),
+                                            taskCaching,
                                             packer,
+                                            taskOutputCache,
+                                            asyncStorer,
                                             taskOutputsGenerationListener,
                                             new ExecuteActionsTaskExecuter(
                                                 taskOutputsGenerationListener,
@@ -123,9 +138,9 @@ public class TaskExecutionServices {
         );
     }
 
-    private static TaskExecuter createSkipCachedExecuterIfNecessary(StartParameter startParameter, TaskCachingInternal taskCaching, TaskOutputPacker packer, TaskOutputsGenerationListener taskOutputsGenerationListener, TaskExecuter delegate) {
+    private static TaskExecuter createSkipCachedExecuterIfNecessary(StartParameter startParameter, TaskCachingInternal taskCaching, TaskOutputPacker packer, TaskOutputCache taskOutputCache, AsyncTaskOutputStorer asyncStorer, TaskOutputsGenerationListener taskOutputsGenerationListener, TaskExecuter delegate) {
         if (startParameter.isTaskOutputCacheEnabled()) {
-            return new SkipCachedTaskExecuter(taskCaching, packer, startParameter, taskOutputsGenerationListener, delegate);
+            return new SkipCachedTaskExecuter(taskCaching, packer, taskOutputCache, taskOutputsGenerationListener, taskCaching.isPushAsynchronous() ? asyncStorer : null, delegate);
         } else {
             return delegate;
         }
@@ -135,20 +150,33 @@ public class TaskExecutionServices {
         return new DefaultTaskHistoryStore(gradle, cacheRepository, inMemoryTaskArtifactCache);
     }
 
+    CacheBackedTaskDurationHistory createTaskDurationHistory(TaskHistoryStore cacheAccess, ListenerManager listenerManager) {
+        // Only requested when ready tasks are ordered by their estimated duration, so durations are not recorded in other builds
+        CacheBackedTaskDurationHistory taskDurationHistory = new CacheBackedTaskDurationHistory(cacheAccess);
+        listenerManager.addListener(taskDurationHistory);
+        return taskDurationHistory;
+    }
+
     CachingFileSnapshotter createFileSnapshotter(TaskHistoryStore cacheAccess, StringInterner stringInterner) {
-        return new CachingFileSnapshotter(new DefaultFileHasher(), cacheAccess, stringInterner);
+        DefaultFileHasher hasher = new DefaultFileHasher(FileHashStrategy.fromSystemProperty());
+        return new CachingFileSnapshotter(hasher, hasher.getStrategy(), cacheAccess, stringInterner);
     }
 
-    GenericFileCollectionSnapshotter createGenericFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, ListenerManager listenerManager) {
-        DefaultGenericFileCollectionSnapshotter snapshotter = new DefaultGenericFileCollectionSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory);
-        listenerManager.addListener(snapshotter);
-        return snapshotter;
+    FileSnapshottingForkJoinPool createFileSnapshottingForkJoinPool(StartParameter startParameter) {
+        return new FileSnapshottingForkJoinPool(Math.max(1, startParameter.getMaxWorkerCount()));
     }
 
-    ClasspathSnapshotter createClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, ListenerManager listenerManager) {
-        DefaultClasspathSnapshotter snapshotter = new DefaultClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory);
-        listenerManager.addListener(snapshotter);
-        return snapshotter;
+    GenericFileCollectionSnapshotter createGenericFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, FileSnapshottingForkJoinPool forkJoinPool) {
+        return new DefaultGenericFileCollectionSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, parallelOrNull(forkJoinPool));
+    }
+
+    ClasspathSnapshotter createClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, FileSnapshottingForkJoinPool forkJoinPool) {
+        return new DefaultClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, parallelOrNull(forkJoinPool));
+    }
+
+    private static ForkJoinPool parallelOrNull(ForkJoinPool forkJoinPool) {
+        // Handing work to a single worker thread only adds overhead
+        return forkJoinPool.getParallelism() > 1 ? forkJoinPool : null;
     }
 
     FileCollectionSnapshotterRegistry createFileCollectionSnapshotterRegistry(ServiceRegistry serviceRegistry) {
@@ -197,10 +225,27 @@ public class TaskExecutionServices {
         return new DefaultBuildOperationWorkerRegistry(startParameter.getMaxWorkerCount());
     }
 
-    TaskOutputPacker createTaskResultPacker(FileSystem fileSystem) {
+    TaskOutputCache createTaskOutputCache(GradleInternal gradle, StartParameter startParameter) {
+        return new LazyTaskOutputCache(gradle.getTaskCaching(), startParameter);
+    }
+
+    AsyncTaskOutputStorer createAsyncTaskOutputStorer(TaskOutputCache taskOutputCache, TemporaryFileProvider temporaryFileProvider, StartParameter startParameter, ExecutorFactory executorFactory, ListenerManager listenerManager) {
+        int maxWorkerCount = startParameter.getMaxWorkerCount();
+        final AsyncTaskOutputStorer storer = new AsyncTaskOutputStorer(taskOutputCache, temporaryFileProvider, executorFactory, maxWorkerCount, 4 * maxWorkerCount);
+        listenerManager.addListener(new BuildAdapter() {
+            @Override
+            public void buildFinished(BuildResult result) {
+                storer.waitForPendingStores();
+            }
+        });
+        return storer;
+    }
+
+    TaskOutputPacker createTaskResultPacker(FileSystem fileSystem, BuildOperationProcessor buildOperationProcessor, GradleInternal gradle) {
         return new OutputPreparingTaskOutputPacker(
-            new GZipTaskOutputPacker(
-                new TarTaskOutputPacker(fileSystem)
+            new CompressingTaskOutputPacker(
+                new TarTaskOutputPacker(fileSystem, buildOperationProcessor),
+                gradle.getTaskCaching()
             )
         );
     }
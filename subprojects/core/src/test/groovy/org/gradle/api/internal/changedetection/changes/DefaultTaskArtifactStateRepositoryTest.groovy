@@ -25,6 +25,7 @@ import org.gradle.api.internal.changedetection.state.CacheBackedFileSnapshotRepo
 import org.gradle.api.internal.changedetection.state.CacheBackedTaskHistoryRepository
 import org.gradle.api.internal.changedetection.state.CachingFileSnapshotter
 import org.gradle.api.internal.changedetection.state.DefaultFileCollectionSnapshotterRegistry
+import org.gradle.api.internal.changedetection.state.DefaultFileSystemMirror
 import org.gradle.api.internal.changedetection.state.DefaultGenericFileCollectionSnapshotter
 import org.gradle.api.internal.changedetection.state.DefaultTaskHistoryStore
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshot
@@ -34,6 +35,7 @@ import org.gradle.api.internal.changedetection.state.TaskHistoryRepository
 import org.gradle.api.internal.changedetection.state.TaskHistoryStore
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.internal.hash.DefaultFileHasher
+import org.gradle.api.internal.hash.FileHashStrategy
 import org.gradle.api.tasks.incremental.InputFileDetails
 import org.gradle.cache.CacheRepository
 import org.gradle.cache.internal.CacheScopeMapping
@@ -70,6 +72,7 @@ public class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuild
         }
     }
     DefaultGenericFileCollectionSnapshotter fileCollectionSnapshotter
+    DefaultFileSystemMirror fileSystemMirror = new DefaultFileSystemMirror(null)
     DefaultTaskArtifactStateRepository repository
 
     def setup() {
@@ -78,8 +81,8 @@ public class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuild
         CacheRepository cacheRepository = new DefaultCacheRepository(mapping, new InMemoryCacheFactory())
         TaskHistoryStore cacheAccess = new DefaultTaskHistoryStore(gradle, cacheRepository, new InMemoryTaskArtifactCache())
         def stringInterner = new StringInterner()
-        def snapshotter = new CachingFileSnapshotter(new DefaultFileHasher(), cacheAccess, stringInterner)
-        fileCollectionSnapshotter = new DefaultGenericFileCollectionSnapshotter(snapshotter, stringInterner, TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory())
+        def snapshotter = new CachingFileSnapshotter(new DefaultFileHasher(), FileHashStrategy.MD5, cacheAccess, stringInterner)
+        fileCollectionSnapshotter = new DefaultGenericFileCollectionSnapshotter(snapshotter, stringInterner, TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), fileSystemMirror, null)
         OutputFilesSnapshotter outputFilesSnapshotter = new OutputFilesSnapshotter()
         def classLoaderHierarchyHasher = Mock(ConfigurableClassLoaderHierarchyHasher) // new ConfigurableClassLoaderHierarchyHasher([:], Mock(ClassLoaderHasher))
         SerializerRegistry<FileCollectionSnapshot> serializerRegistry = new DefaultSerializerRegistry<FileCollectionSnapshot>();
@@ -612,13 +615,12 @@ public class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuild
         for (TaskInternal task : tasks) {
             TaskArtifactState state = repository.getStateFor(task)
             state.isUpToDate([])
-            // reset state
-            fileCollectionSnapshotter.beforeTaskOutputsGenerated()
+            fileSystemMirror.beforeTaskOutputsGenerated(task)
             task.execute()
             state.afterTask()
         }
         // reset state
-        fileCollectionSnapshotter.beforeTaskOutputsGenerated()
+        fileSystemMirror.completed()
     }
 
     private static class ChangedFiles {
@@ -17,6 +17,8 @@ package org.gradle.api.internal.changedetection.state
 
 import com.google.common.collect.Iterators
 import org.gradle.api.file.FileCollection
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.TaskOutputsInternal
 import org.gradle.api.internal.cache.StringInterner
 import org.gradle.api.internal.changedetection.rules.ChangeType
 import org.gradle.api.internal.changedetection.rules.FileChange
@@ -29,17 +31,15 @@ import org.gradle.util.ChangeListener
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.concurrent.ForkJoinPool
+
 import static org.gradle.api.internal.changedetection.state.TaskFilePropertyCompareStrategy.*
 import static org.gradle.api.internal.changedetection.state.TaskFilePropertySnapshotNormalizationStrategy.ABSOLUTE
 
 public class AbstractFileCollectionSnapshotterTest extends Specification {
     def stringInterner = new StringInterner()
-    def snapshotter = new AbstractFileCollectionSnapshotter(new DefaultFileHasher(), stringInterner, TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory()) {
-        @Override
-        Class<? extends FileCollectionSnapshotter> getRegisteredType() {
-            FileCollectionSnapshotter
-        }
-    }
+    def fileSystemMirror = new DefaultFileSystemMirror(null)
+    def snapshotter = createSnapshotter(fileSystemMirror, null)
     def listener = Mock(ChangeListener)
     @Rule
     public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
@@ -314,7 +314,9 @@ public class AbstractFileCollectionSnapshotterTest extends Specification {
         0 * listener._
 
         when:
-        snapshotter.beforeTaskOutputsGenerated()
+        fileSystemMirror.beforeTaskOutputsGenerated(Stub(TaskInternal) {
+            getOutputs() >> Stub(TaskOutputsInternal)
+        })
 
         def snapshot3 = snapshotter.snapshot(files(dir, file, missing), UNORDERED, ABSOLUTE)
         changes(snapshot3, snapshot, listener)
@@ -325,6 +327,46 @@ public class AbstractFileCollectionSnapshotterTest extends Specification {
         0 * listener._
     }
 
+    def "snapshots directory trees in parallel in the same order as on a single thread"() {
+        given:
+        def roots = (1..4).collect { root ->
+            def rootDir = tmpDir.createDir("root$root")
+            (1..5).each { dir ->
+                (1..20).each { file ->
+                    rootDir.createFile("dir$dir/file${file}.txt") << "content $root $dir $file"
+                }
+            }
+            rootDir
+        }
+        def file = tmpDir.createFile('file')
+        def missing = tmpDir.file('missing')
+        def pool = new FileSnapshottingForkJoinPool(4)
+        def parallelSnapshotter = createSnapshotter(new DefaultFileSystemMirror(null), pool)
+        def fileCollection = files(*([roots[0], file] + roots[1..3] + [missing]))
+
+        when:
+        def snapshot = snapshotter.snapshot(fileCollection, ORDERED, ABSOLUTE)
+        def parallelSnapshot = parallelSnapshotter.snapshot(fileCollection, ORDERED, ABSOLUTE)
+
+        then:
+        parallelSnapshot.elements == snapshot.elements
+        parallelSnapshot.snapshots.keySet() as List == snapshot.snapshots.keySet() as List
+        parallelSnapshot.snapshots.values() as List == snapshot.snapshots.values() as List
+        !parallelSnapshot.iterateContentChangesSince(snapshot, "TYPE").hasNext()
+
+        cleanup:
+        pool.stop()
+    }
+
+    private AbstractFileCollectionSnapshotter createSnapshotter(FileSystemMirror fileSystemMirror, ForkJoinPool forkJoinPool) {
+        new AbstractFileCollectionSnapshotter(new DefaultFileHasher(), stringInterner, TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), fileSystemMirror, forkJoinPool) {
+            @Override
+            Class<? extends FileCollectionSnapshotter> getRegisteredType() {
+                FileCollectionSnapshotter
+            }
+        }
+    }
+
     private static void changes(FileCollectionSnapshot newSnapshot, FileCollectionSnapshot oldSnapshot, ChangeListener<String> listener) {
         newSnapshot.iterateContentChangesSince(oldSnapshot, "TYPE").each { FileChange change ->
             switch (change.type) {
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.execution.internal.TaskOperationInternal
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.tasks.TaskExecutionOutcome
+import org.gradle.api.internal.tasks.TaskStateInternal
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.progress.OperationResult
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class CacheBackedTaskDurationHistoryTest extends Specification {
+    def durations = Mock(PersistentIndexedCache)
+    def store = Stub(TaskHistoryStore) {
+        createCache("taskDurations", String, _) >> durations
+    }
+    def state = new TaskStateInternal("task")
+    def task = Stub(TaskInternal) {
+        getPath() >> ":task"
+        getState() >> state
+    }
+    def history = new CacheBackedTaskDurationHistory(store)
+
+    def "records duration of executed task"() {
+        state.outcome = TaskExecutionOutcome.EXECUTED
+
+        when:
+        history.afterExecute(new TaskOperationInternal(1, null, task), new OperationResult(100, 300, null))
+
+        then:
+        1 * durations.get(":task") >> null
+        1 * durations.put(":task", 200)
+    }
+
+    def "averages duration with previous estimate"() {
+        state.outcome = TaskExecutionOutcome.EXECUTED
+
+        when:
+        history.afterExecute(new TaskOperationInternal(1, null, task), new OperationResult(100, 300, null))
+
+        then:
+        1 * durations.get(":task") >> 400L
+        1 * durations.put(":task", 300)
+    }
+
+    @Unroll
+    def "does not record duration of task with outcome #outcome"() {
+        state.outcome = outcome
+
+        when:
+        history.afterExecute(new TaskOperationInternal(1, null, task), new OperationResult(100, 101, null))
+
+        then:
+        0 * durations._
+
+        where:
+        outcome << [TaskExecutionOutcome.UP_TO_DATE, TaskExecutionOutcome.FROM_CACHE, TaskExecutionOutcome.SKIPPED]
+    }
+
+    def "does not record duration of failed task"() {
+        def failure = new RuntimeException()
+        state.setOutcome(failure)
+
+        when:
+        history.afterExecute(new TaskOperationInternal(1, null, task), new OperationResult(100, 101, failure))
+
+        then:
+        0 * durations._
+    }
+}
@@ -19,6 +19,9 @@ package org.gradle.api.internal.changedetection.state
 import com.google.common.base.Charsets
 import com.google.common.hash.Hashing
 import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.DefaultFileVisitDetails
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.internal.hash.FileHashStrategy
 import org.gradle.api.internal.hash.FileHasher
 import org.gradle.cache.PersistentIndexedCache
 import org.gradle.internal.resource.TextResource
@@ -39,7 +42,7 @@ class CachingFileSnapshotterTest extends Specification {
     def setup() {
         file.write("some-content")
         1 * cacheAccess.createCache("fileHashes", _, _) >> cache
-        hasher = new CachingFileSnapshotter(target, cacheAccess, new StringInterner());
+        hasher = new CachingFileSnapshotter(target, FileHashStrategy.MD5, cacheAccess, new StringInterner());
     }
 
     def hashesFileWhenHashNotCached() {
@@ -68,7 +71,7 @@ class CachingFileSnapshotterTest extends Specification {
         result == hash
 
         and:
-        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, 1024, file.lastModified())
+        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, FileHashStrategy.MD5, 1024, file.lastModified())
         1 * target.hash(file) >> hash
         1 * cache.put(file.getAbsolutePath(), _) >> { String key, CachingFileSnapshotter.FileInfo fileInfo ->
             fileInfo.hash == hash
@@ -86,7 +89,7 @@ class CachingFileSnapshotterTest extends Specification {
         result == hash
 
         and:
-        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), 124)
+        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, FileHashStrategy.MD5, file.length(), 124)
         1 * target.hash(file) >> hash
         1 * cache.put(file.getAbsolutePath(), _) >> { String key, CachingFileSnapshotter.FileInfo fileInfo ->
             fileInfo.hash == hash
@@ -104,7 +107,23 @@ class CachingFileSnapshotterTest extends Specification {
         result == hash
 
         and:
-        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), file.lastModified())
+        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, FileHashStrategy.MD5, file.length(), file.lastModified())
+        0 * _._
+    }
+
+    def hashesFileWhenCachedHashWasCalculatedWithAnotherStrategy() {
+        when:
+        def result = hasher.hash(file)
+
+        then:
+        result == hash
+
+        and:
+        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, FileHashStrategy.MURMUR3, file.length(), file.lastModified())
+        1 * target.hash(file) >> hash
+        1 * cache.put(file.getAbsolutePath(), _) >> { String key, CachingFileSnapshotter.FileInfo fileInfo ->
+            fileInfo.strategy == FileHashStrategy.MD5
+        }
         0 * _._
     }
 
@@ -119,7 +138,7 @@ class CachingFileSnapshotterTest extends Specification {
 
         and:
         1 * resource.file >> file
-        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), file.lastModified())
+        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, FileHashStrategy.MD5, file.length(), file.lastModified())
         0 * _._
     }
 
@@ -137,4 +156,38 @@ class CachingFileSnapshotterTest extends Specification {
         1 * target.hash(resource) >> hash
         0 * _._
     }
+
+    def hashesFilesInBatchWithSingleCacheReadAndWrite() {
+        def otherFile = tmpDir.createFile("otherfile")
+        otherFile.write("other-content")
+        def otherHash = Hashing.md5().hashString("other", Charsets.UTF_8)
+
+        when:
+        def result = hasher.hashAll([fileDetails(file), fileDetails(otherFile)])
+
+        then:
+        result == [hash, otherHash]
+
+        and:
+        1 * cache.getAll([file.absolutePath, otherFile.absolutePath]) >> [(file.absolutePath): new CachingFileSnapshotter.FileInfo(hash, FileHashStrategy.MD5, file.length(), file.lastModified())]
+        1 * target.hash(otherFile) >> otherHash
+        1 * cache.putAll({ it.keySet() == [otherFile.absolutePath] as Set })
+        0 * _._
+    }
+
+    def doesNotWriteToCacheWhenNoFileInBatchHasChanged() {
+        when:
+        def result = hasher.hashAll([fileDetails(file)])
+
+        then:
+        result == [hash]
+
+        and:
+        1 * cache.getAll([file.absolutePath]) >> [(file.absolutePath): new CachingFileSnapshotter.FileInfo(hash, FileHashStrategy.MD5, file.length(), file.lastModified())]
+        0 * _._
+    }
+
+    def fileDetails(File file) {
+        new DefaultFileVisitDetails(file, TestFiles.fileSystem(), TestFiles.fileSystem())
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import com.google.common.base.Charsets
+import com.google.common.hash.HashCode
+import com.google.common.hash.Hashing
+import spock.lang.Specification
+
+class CompactSnapshotMapTest extends Specification {
+    def hash1 = Hashing.md5().hashString("one", Charsets.UTF_8)
+    def hash2 = Hashing.md5().hashString("two", Charsets.UTF_8)
+
+    def "holds the same snapshots in the same order as the original map"() {
+        def snapshots = new LinkedHashMap<String, NormalizedFileSnapshot>()
+        snapshots["/root/b/file"] = new NonNormalizedFileSnapshot("/root/b/file", new FileHashSnapshot(hash1, 1234))
+        snapshots["/root/a"] = new IndexedNormalizedFileSnapshot("/root/a", 6, DirSnapshot.getInstance())
+        snapshots["/root/a/file"] = new IndexedNormalizedFileSnapshot("/root/a/file", 6, new FileHashSnapshot(hash2, 5678))
+        snapshots["/root/missing"] = new DefaultNormalizedFileSnapshot("missing", MissingFileSnapshot.getInstance())
+        snapshots["/root/ignored"] = new IgnoredPathFileSnapshot(new FileHashSnapshot(hash1))
+
+        when:
+        def compact = CompactSnapshotMap.of(snapshots)
+
+        then:
+        compact instanceof CompactSnapshotMap
+        compact == snapshots
+        compact.keySet() as List == snapshots.keySet() as List
+        compact.values() as List == snapshots.values() as List
+        snapshots.every { path, snapshot -> compact[path] == snapshot && compact[path].class == snapshot.class }
+        compact["/root/a/file"].normalizedPath == "a/file"
+        compact["/root/b/file"].snapshot.isContentAndMetadataUpToDate(snapshots["/root/b/file"].snapshot)
+        !compact["/root/a/file"].snapshot.isContentAndMetadataUpToDate(new FileHashSnapshot(hash2, 1))
+    }
+
+    def "appends the same cache key as its snapshots"() {
+        def snapshots = new LinkedHashMap<String, NormalizedFileSnapshot>()
+        snapshots["/root/b/file"] = new NonNormalizedFileSnapshot("/root/b/file", new FileHashSnapshot(hash1, 1234))
+        snapshots["/root/a"] = new IndexedNormalizedFileSnapshot("/root/a", 6, DirSnapshot.getInstance())
+        snapshots["/root/a/file"] = new IndexedNormalizedFileSnapshot("/root/a/file", 6, new FileHashSnapshot(hash2, 5678))
+        snapshots["/root/c/file"] = new IndexedNormalizedFileSnapshot("/root/c/file", 8, new FileHashSnapshot(hash1))
+        snapshots["/root/d/file"] = new IndexedNormalizedFileSnapshot("/root/d/file", 8, new FileHashSnapshot(hash2))
+        snapshots["/root/missing"] = new DefaultNormalizedFileSnapshot("missing", MissingFileSnapshot.getInstance())
+        snapshots["/root/ignored"] = new IgnoredPathFileSnapshot(new FileHashSnapshot(hash1))
+
+        when:
+        def compact = CompactSnapshotMap.of(snapshots)
+
+        then:
+        compact instanceof CompactSnapshotMap
+        [TaskFilePropertyCompareStrategy.ORDERED, TaskFilePropertyCompareStrategy.UNORDERED].every { strategy ->
+            cacheKey(strategy, compact) == cacheKey(strategy, snapshots)
+        }
+    }
+
+    def "finds the entries of another map by path"() {
+        def compact = CompactSnapshotMap.of([
+            "/root/a": new NonNormalizedFileSnapshot("/root/a", new FileHashSnapshot(hash1)),
+            "/root/b": new NonNormalizedFileSnapshot("/root/b", new FileHashSnapshot(hash2))
+        ])
+        def other = CompactSnapshotMap.of([
+            "/root/b": new NonNormalizedFileSnapshot("/root/b", new FileHashSnapshot(hash2)),
+            "/root/c": new NonNormalizedFileSnapshot("/root/c", new FileHashSnapshot(hash1)),
+            "/root/a": new NonNormalizedFileSnapshot("/root/a", DirSnapshot.getInstance())
+        ])
+
+        expect:
+        compact.indexOf(other, 0) == 1
+        compact.indexOf(other, 1) == -1
+        compact.indexOf(other, 2) == 0
+        compact.isContentUpToDate(1, other, 0)
+        !compact.isContentUpToDate(0, other, 2)
+        compact.compareNormalizedPaths(0, other, 1) < 0
+        compact.compareNormalizedPaths(0, other, 2) == 0
+    }
+
+    def "does not find paths that are not in the map"() {
+        def compact = CompactSnapshotMap.of(["/root/file": new NonNormalizedFileSnapshot("/root/file", new FileHashSnapshot(hash1))])
+
+        expect:
+        compact.containsKey("/root/file")
+        !compact.containsKey("/root/fil")
+        !compact.containsKey("/root/file2")
+        !compact.containsKey(new File("/root/file"))
+        compact["/other"] == null
+    }
+
+    def "finds all of many paths"() {
+        def snapshots = new LinkedHashMap<String, NormalizedFileSnapshot>()
+        (1..1000).each {
+            def path = "/root/dir${it % 7}/file$it"
+            snapshots[path] = new NonNormalizedFileSnapshot(path, new FileHashSnapshot(Hashing.md5().hashInt(it)))
+        }
+
+        when:
+        def compact = CompactSnapshotMap.of(snapshots)
+
+        then:
+        compact.size() == 1000
+        snapshots.keySet().every { compact[it] == snapshots[it] }
+    }
+
+    def "keeps maps that cannot be represented compactly"() {
+        def snapshots = [
+            "/1": new NonNormalizedFileSnapshot("/1", new FileHashSnapshot(hash1)),
+            "/2": new NonNormalizedFileSnapshot("/2", new FileHashSnapshot(Hashing.sha1().hashInt(2)))
+        ]
+
+        expect:
+        CompactSnapshotMap.of(snapshots).is(snapshots)
+        CompactSnapshotMap.of([:]).isEmpty()
+    }
+
+    def "keeps maps with hashes shorter than a byte"() {
+        def shortHash = Stub(HashCode) {
+            bits() >> 4
+        }
+        def snapshots = new LinkedHashMap<String, NormalizedFileSnapshot>()
+        snapshots["/1"] = new NonNormalizedFileSnapshot("/1", new FileHashSnapshot(shortHash))
+        snapshots["/2"] = new NonNormalizedFileSnapshot("/2", new FileHashSnapshot(hash1))
+
+        expect:
+        CompactSnapshotMap.of(snapshots).is(snapshots)
+    }
+
+    private static HashCode cacheKey(TaskFilePropertyCompareStrategy strategy, Map<String, NormalizedFileSnapshot> snapshots) {
+        def hasher = new FileCollectionSnapshotHasher()
+        strategy.appendToCacheKey(hasher, snapshots)
+        return hasher.hash()
+    }
+}
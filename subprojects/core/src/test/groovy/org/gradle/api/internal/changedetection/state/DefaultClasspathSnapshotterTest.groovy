@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import com.google.common.hash.HashCode
 import org.gradle.api.file.FileVisitor
 import org.gradle.api.internal.cache.StringInterner
 import org.gradle.api.internal.file.DefaultFileVisitDetails
@@ -24,6 +25,7 @@ import org.gradle.api.internal.file.collections.DirectoryFileTree
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory
 import org.gradle.api.internal.file.collections.SimpleFileCollection
 import org.gradle.api.internal.hash.FileHasher
+import org.gradle.api.tasks.util.PatternSet
 import org.gradle.test.fixtures.file.CleanupTestDirectory
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -41,13 +43,15 @@ class DefaultClasspathSnapshotterTest extends Specification {
     @Rule
     public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
 
-    def hasher = Stub(FileHasher)
+    def hasher = Stub(FileHasher) {
+        hashAll(_) >> { List files -> files.collect { HashCode.fromInt(0) } }
+    }
     def stringInterner = Stub(StringInterner) {
         intern(_) >> { String s -> s }
     }
     def fileSystem = TestFiles.fileSystem()
     def directoryFileTreeFactory = Mock(DirectoryFileTreeFactory)
-    def snapshotter = new DefaultClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory)
+    def snapshotter = new DefaultClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, Stub(FileSystemMirror), null)
 
     def "root elements are unsorted, non-root elements are sorted amongst themselves"() {
         given:
@@ -56,7 +60,10 @@ class DefaultClasspathSnapshotterTest extends Specification {
         def subFile1 = rootDir.file("file1.txt") << "file1"
         def subFile2 = rootDir.file("file2.txt") << "file2"
         def rootFile2 = tmpDir.file("root2.txt") << "root2"
-        def rootDirTree = Mock(DirectoryFileTree)
+        def rootDirTree = Mock(DirectoryFileTree) {
+            getPatterns() >> new PatternSet()
+            getDir() >> rootDir
+        }
 
         when:
         def snapshotInOriginalOrder = snapshotter.snapshot(files(rootFile1, rootDir, rootFile2), ORDERED, ClasspathSnapshotNormalizationStrategy.INSTANCE)
@@ -26,7 +26,6 @@ import static org.gradle.api.internal.changedetection.state.TaskFilePropertyComp
 class DefaultFileCollectionSnapshotTest extends Specification {
 
     def "order-insensitive collection snapshot ignores order when hashing"() {
-        def builder = Mock(TaskCacheKeyBuilder)
         def oldSnapshot = new DefaultFileCollectionSnapshot([
             "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
             "file2.txt": new DefaultNormalizedFileSnapshot("file2.txt", new FileHashSnapshot(HashCode.fromInt(234))),
@@ -35,27 +34,13 @@ class DefaultFileCollectionSnapshotTest extends Specification {
             "file2.txt": new DefaultNormalizedFileSnapshot("file2.txt", new FileHashSnapshot(HashCode.fromInt(234))),
             "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
         ], UNORDERED, false)
-        when:
-        oldSnapshot.appendToCacheKey(builder)
-        then:
-        1 * builder.putString("file1.txt")
-        1 * builder.putBytes(HashCode.fromInt(123).asBytes())
-        1 * builder.putString("file2.txt")
-        1 * builder.putBytes(HashCode.fromInt(234).asBytes())
-        0 * _
 
-        when:
-        newSnapshot.appendToCacheKey(builder)
-        then:
-        1 * builder.putString("file1.txt")
-        1 * builder.putBytes(HashCode.fromInt(123).asBytes())
-        1 * builder.putString("file2.txt")
-        1 * builder.putBytes(HashCode.fromInt(234).asBytes())
-        0 * _
+        expect:
+        oldSnapshot.hash == newSnapshot.hash
+        !newSnapshot.iterateContentChangesSince(oldSnapshot, "input").hasNext()
     }
 
     def "order-sensitive collection snapshot considers order when hashing"() {
-        def builder = Mock(TaskCacheKeyBuilder)
         def oldSnapshot = new DefaultFileCollectionSnapshot([
             "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
             "file2.txt": new DefaultNormalizedFileSnapshot("file2.txt", new FileHashSnapshot(HashCode.fromInt(234))),
@@ -64,22 +49,67 @@ class DefaultFileCollectionSnapshotTest extends Specification {
             "file2.txt": new DefaultNormalizedFileSnapshot("file2.txt", new FileHashSnapshot(HashCode.fromInt(234))),
             "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
         ], ORDERED, false)
+
+        expect:
+        oldSnapshot.hash != newSnapshot.hash
+    }
+
+    def "appends hash of snapshot to cache key"() {
+        def builder = Mock(TaskCacheKeyBuilder)
+        def snapshot = new DefaultFileCollectionSnapshot([
+            "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
+        ], UNORDERED, false)
+
         when:
-        oldSnapshot.appendToCacheKey(builder)
+        snapshot.appendToCacheKey(builder)
+
         then:
-        1 * builder.putString("file1.txt")
-        1 * builder.putBytes(HashCode.fromInt(123).asBytes())
-        1 * builder.putString("file2.txt")
-        1 * builder.putBytes(HashCode.fromInt(234).asBytes())
+        1 * builder.putBytes(snapshot.hash.asBytes())
         0 * _
+    }
+
+    def "snapshots with the same paths and contents have the same hash"() {
+        def snapshot = new DefaultFileCollectionSnapshot([
+            "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
+            "file2.txt": new DefaultNormalizedFileSnapshot("file2.txt", new FileHashSnapshot(HashCode.fromInt(234))),
+        ], UNORDERED, false)
+        def sameSnapshot = new DefaultFileCollectionSnapshot([
+            "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
+            "file2.txt": new DefaultNormalizedFileSnapshot("file2.txt", new FileHashSnapshot(HashCode.fromInt(234))),
+        ], UNORDERED, false)
+        def changedContent = new DefaultFileCollectionSnapshot([
+            "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
+            "file2.txt": new DefaultNormalizedFileSnapshot("file2.txt", new FileHashSnapshot(HashCode.fromInt(345))),
+        ], UNORDERED, false)
+        def changedPath = new DefaultFileCollectionSnapshot([
+            "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
+            "file3.txt": new DefaultNormalizedFileSnapshot("file3.txt", new FileHashSnapshot(HashCode.fromInt(234))),
+        ], UNORDERED, false)
+        def changedType = new DefaultFileCollectionSnapshot([
+            "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
+            "file2.txt": new DefaultNormalizedFileSnapshot("file2.txt", DirSnapshot.getInstance()),
+        ], UNORDERED, false)
+
+        expect:
+        snapshot.hash == sameSnapshot.hash
+        snapshot.hash != changedContent.hash
+        snapshot.hash != changedPath.hash
+        snapshot.hash != changedType.hash
+        snapshot.hash != new DefaultFileCollectionSnapshot(snapshot.snapshots, ORDERED, false).hash
+    }
+
+    def "does not compare contents of snapshots with the same hash"() {
+        def snapshot = new DefaultFileCollectionSnapshot([
+            "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
+        ], UNORDERED, false)
+        def oldSnapshot = Mock(FileCollectionSnapshot)
 
         when:
-        newSnapshot.appendToCacheKey(builder)
+        def changes = snapshot.iterateContentChangesSince(oldSnapshot, "input")
+
         then:
-        1 * builder.putString("file2.txt")
-        1 * builder.putBytes(HashCode.fromInt(234).asBytes())
-        1 * builder.putString("file1.txt")
-        1 * builder.putBytes(HashCode.fromInt(123).asBytes())
-        0 * _
+        1 * oldSnapshot.hash >> snapshot.hash
+        0 * oldSnapshot._
+        !changes.hasNext()
     }
 }
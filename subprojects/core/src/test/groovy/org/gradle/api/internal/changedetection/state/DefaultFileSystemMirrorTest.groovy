@@ -0,0 +1,257 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.file.FileTreeElement
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.file.DefaultFileVisitDetails
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.internal.filewatch.FileWatcher
+import org.gradle.internal.filewatch.FileWatcherEvent
+import org.gradle.internal.filewatch.FileWatcherFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.atomic.AtomicBoolean
+
+import static org.gradle.api.internal.changedetection.state.FileDetails.FileType.RegularFile
+
+class DefaultFileSystemMirrorTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def mirror = new DefaultFileSystemMirror(null)
+
+    def "keeps file details until task outputs at that path are generated"() {
+        def file = details(tmpDir.file("out/file"), RegularFile)
+        def other = details(tmpDir.file("other"), RegularFile)
+
+        expect:
+        mirror.getFile(file.path) == null
+        mirror.putFile(file)
+        mirror.getFile(other.path) == null
+        mirror.putFile(other)
+        mirror.getFile(file.path) == file
+
+        when:
+        mirror.beforeTaskOutputsGenerated(taskWithOutputs(tmpDir.file("out")))
+
+        then:
+        mirror.getFile(file.path) == null
+        mirror.getFile(other.path) == other
+    }
+
+    def "discards trees that contain task outputs"() {
+        def dir = tmpDir.file("dir")
+        def otherDir = tmpDir.file("other")
+        def elements = [details(dir.file("a"), RegularFile)]
+
+        given:
+        put(dir, elements)
+        put(otherDir, elements)
+
+        when:
+        mirror.beforeTaskOutputsGenerated(taskWithOutputs(dir.file("a")))
+
+        then:
+        mirror.getDirectoryTree(dir.path) == null
+        mirror.getDirectoryTree(otherDir.path) == elements
+    }
+
+    def "discards everything when a task without declared outputs runs"() {
+        def file = details(tmpDir.file("file"), RegularFile)
+
+        given:
+        mirror.getFile(file.path)
+        mirror.putFile(file)
+
+        when:
+        mirror.beforeTaskOutputsGenerated(Stub(TaskInternal) {
+            getOutputs() >> Stub(TaskOutputsInternal)
+        })
+
+        then:
+        mirror.getFile(file.path) == null
+    }
+
+    def "does not keep details that changed while they were calculated"() {
+        def file = details(tmpDir.file("out/file"), RegularFile)
+
+        when:
+        mirror.getFile(file.path)
+        mirror.beforeTaskOutputsGenerated(taskWithOutputs(tmpDir.file("out")))
+        mirror.putFile(file)
+
+        then:
+        mirror.getFile(file.path) == null
+    }
+
+    def "discards everything at the end of the build when not watching for changes"() {
+        def dir = tmpDir.createDir("dir")
+
+        given:
+        put(dir, [])
+
+        when:
+        mirror.completed()
+
+        then:
+        mirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "keeps details in watched directories between builds until a change is reported"() {
+        def watcher = Mock(FileWatcher)
+        def fileWatcherFactory = Mock(FileWatcherFactory)
+        mirror = new DefaultFileSystemMirror(fileWatcherFactory)
+        def dir = tmpDir.createDir("dir")
+        def otherDir = tmpDir.createDir("other")
+        def file = details(tmpDir.file("file"), RegularFile)
+        def elements = [details(dir.file("a"), RegularFile)]
+
+        when:
+        put(dir, elements)
+        mirror.getFile(file.path)
+        mirror.putFile(file)
+
+        then:
+        1 * fileWatcherFactory.watch(_, mirror) >> watcher
+        1 * watcher.watch(_)
+
+        when:
+        mirror.completed()
+
+        then:
+        _ * watcher.isRunning() >> true
+        mirror.getDirectoryTree(dir.path) == elements
+        mirror.getFile(file.path) == null
+
+        when:
+        mirror.onChange(watcher, FileWatcherEvent.modify(otherDir))
+
+        then:
+        mirror.getDirectoryTree(dir.path) == elements
+
+        when:
+        mirror.onChange(watcher, FileWatcherEvent.create(dir.file("b")))
+
+        then:
+        mirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "discards details kept from an earlier build that changed before the next build starts"() {
+        def watcher = Stub(FileWatcher) {
+            isRunning() >> true
+        }
+        mirror = new DefaultFileSystemMirror(Stub(FileWatcherFactory) {
+            watch(_, _) >> watcher
+        })
+        def dir = tmpDir.createDir("dir")
+        def file = dir.file("a") << "content"
+        def otherDir = tmpDir.createDir("other")
+        def otherFile = otherDir.createFile("b")
+        def elements = [visited(file, "a")]
+        def otherElements = [visited(otherFile, "b")]
+
+        given:
+        put(dir, elements)
+        put(otherDir, otherElements)
+        mirror.completed()
+
+        when:
+        mirror.buildStarted(null)
+
+        then:
+        mirror.getDirectoryTree(dir.path) == elements
+        mirror.getDirectoryTree(otherDir.path) == otherElements
+
+        when:
+        file << "more content"
+        otherDir.createFile("c")
+        mirror.completed()
+        mirror.buildStarted(null)
+
+        then:
+        mirror.getDirectoryTree(dir.path) == null
+        mirror.getDirectoryTree(otherDir.path) == null
+    }
+
+    def "stops watching directories that were not used by the last build"() {
+        def watcher = Mock(FileWatcher)
+        def newWatcher = Mock(FileWatcher)
+        def fileWatcherFactory = Mock(FileWatcherFactory)
+        mirror = new DefaultFileSystemMirror(fileWatcherFactory)
+        def dir = tmpDir.createDir("dir")
+        def otherDir = tmpDir.createDir("other")
+
+        when:
+        put(dir, [])
+        put(otherDir, [])
+        mirror.completed()
+
+        then:
+        1 * fileWatcherFactory.watch(_, mirror) >> watcher
+        2 * watcher.watch(_)
+        _ * watcher.isRunning() >> true
+        0 * watcher.stop()
+
+        when:
+        mirror.getDirectoryTree(dir.path)
+        mirror.completed()
+
+        then:
+        _ * watcher.isRunning() >> true
+        1 * fileWatcherFactory.watch(_, mirror) >> newWatcher
+        1 * newWatcher.watch({ it.roots as List == [dir] })
+        1 * watcher.stop()
+
+        when:
+        def tree = mirror.getDirectoryTree(dir.path)
+        def otherTree = mirror.getDirectoryTree(otherDir.path)
+
+        then:
+        tree == []
+        otherTree == null
+        1 * newWatcher.watch({ it.roots as List == [otherDir] })
+    }
+
+    private void put(File dir, List<DefaultFileDetails> elements) {
+        assert mirror.getDirectoryTree(dir.path) == null
+        mirror.putDirectoryTree(dir.path, elements)
+    }
+
+    private TaskInternal taskWithOutputs(File... outputs) {
+        Stub(TaskInternal) {
+            getOutputs() >> Stub(TaskOutputsInternal) {
+                getHasOutput() >> true
+                getFiles() >> new SimpleFileCollection(outputs)
+            }
+        }
+    }
+
+    private static DefaultFileDetails visited(File file, String path) {
+        def details = new DefaultFileVisitDetails(file, RelativePath.parse(true, path), new AtomicBoolean(), TestFiles.fileSystem(), TestFiles.fileSystem(), false)
+        new DefaultFileDetails(file.absolutePath, RegularFile, details)
+    }
+
+    private DefaultFileDetails details(File file, FileDetails.FileType type) {
+        new DefaultFileDetails(file.absolutePath, type, Stub(FileTreeElement))
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.internal.cache.HasEstimatedRetainedSize
+import spock.lang.Specification
+
+class InMemoryCacheEntryWeigherTest extends Specification {
+    def weigher = new InMemoryCacheEntryWeigher(1000)
+
+    def "weighs values by their estimated retained size"() {
+        def value = Stub(HasEstimatedRetainedSize) {
+            getEstimatedRetainedSize() >> 5000
+        }
+
+        expect:
+        weigher.weigh(1L, value) > 5000
+        weigher.weigh(1L, value) < 6000
+    }
+
+    def "uses default weight for values that cannot estimate their size"() {
+        expect:
+        weigher.weigh(1L, new Object()) > 1000
+        weigher.weigh(1L, new Object()) < 2000
+    }
+
+    def "missing entries weigh little"() {
+        expect:
+        weigher.weigh(1L, InMemoryDecoratedCache.NULL) < 200
+    }
+
+    def "longer keys weigh more"() {
+        expect:
+        weigher.weigh("a much longer key for an entry", "value") > weigher.weigh("key", "value")
+    }
+}
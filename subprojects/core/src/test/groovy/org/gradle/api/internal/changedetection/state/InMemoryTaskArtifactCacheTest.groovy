@@ -158,4 +158,89 @@ class InMemoryTaskArtifactCacheTest extends Specification {
         0 * _
     }
 
+    def "fetches only uncached keys from backing cache in a single batch"() {
+        given:
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+
+        when:
+        def result = cache.get("cached")
+
+        then:
+        result == "cached value"
+
+        and:
+        1 * crossProcessCacheAccess.withFileLock(_) >> { Factory f -> f.create() }
+        1 * asyncCacheAccess.read(_) >> { Factory f -> f.create() }
+        1 * target.get("cached") >> "cached value"
+        0 * _
+
+        when:
+        result = cache.getAll(["cached", "key", "missing"])
+
+        then:
+        result == [cached: "cached value", key: "result"]
+
+        and:
+        1 * crossProcessCacheAccess.withFileLock(_) >> { Factory f -> f.create() }
+        1 * asyncCacheAccess.read(_) >> { Factory f -> f.create() }
+        1 * target.getAll(["key", "missing"]) >> [key: "result"]
+        0 * _
+
+        when:
+        result = cache.getAll(["key", "missing"])
+
+        then:
+        result == [key: "result"]
+
+        and:
+        1 * crossProcessCacheAccess.withFileLock(_) >> { Factory f -> f.create() }
+        0 * _
+    }
+
+    def "caches result of putting items in a single batch"() {
+        given:
+        def lockReleaseAction = Mock(Runnable)
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+
+        when:
+        cache.putAll([key1: "value1", key2: "value2"])
+
+        then:
+        1 * crossProcessCacheAccess.acquireFileLock() >> lockReleaseAction
+        1 * asyncCacheAccess.enqueue(_) >> { Runnable action -> action.run() }
+        1 * target.putAll([key1: "value1", key2: "value2"])
+        1 * lockReleaseAction.run()
+        0 * _
+
+        when:
+        def result = cache.getAll(["key1", "key2"])
+
+        then:
+        result == [key1: "value1", key2: "value2"]
+
+        and:
+        1 * crossProcessCacheAccess.withFileLock(_) >> { Factory f -> f.create() }
+        0 * _
+    }
+
+    def "drops half of the cached entries by weight when reducing memory usage"() {
+        given:
+        def cache = cacheFactory.decorate("path/fileHashes.bin", "fileHashes", target, crossProcessCacheAccess, asyncCacheAccess)
+        def entries = (10..19).collectEntries { ["key$it".toString(), "value$it".toString()] }
+        _ * crossProcessCacheAccess.acquireFileLock() >> Mock(Runnable)
+        _ * crossProcessCacheAccess.withFileLock(_) >> { Factory f -> f.create() }
+        _ * asyncCacheAccess.enqueue(_) >> { Runnable action -> action.run() }
+        _ * asyncCacheAccess.read(_) >> { Factory f -> f.create() }
+        cache.putAll(entries)
+
+        when:
+        cacheFactory.reduceMemoryUsage()
+        def result = cache.getAll(entries.keySet())
+
+        then:
+        result == entries
+
+        and:
+        1 * target.getAll({ it.size() == 5 }) >> { List keys -> entries.subMap(keys) }
+    }
 }
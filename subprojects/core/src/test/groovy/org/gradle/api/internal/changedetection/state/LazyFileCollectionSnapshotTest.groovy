@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state
+
+import com.google.common.hash.HashCode
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyBuilder
+import spock.lang.Specification
+
+import static org.gradle.api.internal.changedetection.state.TaskFilePropertyCompareStrategy.UNORDERED
+
+class LazyFileCollectionSnapshotTest extends Specification {
+    def repository = Mock(FileSnapshotRepository)
+    def storedSnapshot = new DefaultFileCollectionSnapshot([
+        "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
+    ], UNORDERED, false)
+
+    def "does not load snapshot when comparing with a snapshot with the same hash"() {
+        def lazySnapshot = new LazyFileCollectionSnapshot(12L, storedSnapshot.hash, repository)
+        def currentSnapshot = new DefaultFileCollectionSnapshot(storedSnapshot.snapshots, UNORDERED, false)
+
+        when:
+        def changes = currentSnapshot.iterateContentChangesSince(lazySnapshot, "input")
+
+        then:
+        !changes.hasNext()
+        0 * repository._
+    }
+
+    def "loads snapshot once when comparing with a snapshot with a different hash"() {
+        def lazySnapshot = new LazyFileCollectionSnapshot(12L, storedSnapshot.hash, repository)
+        def currentSnapshot = new DefaultFileCollectionSnapshot([
+            "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(234))),
+        ], UNORDERED, false)
+
+        when:
+        def changes = currentSnapshot.iterateContentChangesSince(lazySnapshot, "input")
+
+        then:
+        changes.hasNext()
+        1 * repository.get(12L) >> storedSnapshot
+        0 * repository._
+
+        when:
+        lazySnapshot.files
+
+        then:
+        0 * repository._
+    }
+
+    def "loads snapshot to calculate hash when hash is not known"() {
+        def lazySnapshot = new LazyFileCollectionSnapshot(12L, null, repository)
+
+        when:
+        def hash = lazySnapshot.hash
+
+        then:
+        hash == storedSnapshot.hash
+        1 * repository.get(12L) >> storedSnapshot
+    }
+
+    def "does not load snapshot to append it to cache key"() {
+        def builder = Mock(TaskCacheKeyBuilder)
+        def lazySnapshot = new LazyFileCollectionSnapshot(12L, storedSnapshot.hash, repository)
+
+        when:
+        lazySnapshot.appendToCacheKey(builder)
+
+        then:
+        1 * builder.putBytes(storedSnapshot.hash.asBytes())
+        0 * repository._
+    }
+}
@@ -24,7 +24,7 @@ class LoggingEvictionListenerTest extends Specification {
 
     def "test logging eviction listener"() {
         given:
-        LoggingEvictionListener evictionListener = new LoggingEvictionListener("cacheId", 1000)
+        LoggingEvictionListener evictionListener = new LoggingEvictionListener("cacheId", 1000, 1000)
         def logger = Mock(Logger)
         if (replaceLogger) {
             evictionListener.logger = logger
@@ -44,4 +44,26 @@ class LoggingEvictionListenerTest extends Specification {
         where:
         replaceLogger << [true, false]
     }
+
+    def "does not log entries that are removed explicitly"() {
+        given:
+        LoggingEvictionListener evictionListener = new LoggingEvictionListener("cacheId", 10, 1000)
+        def logger = Mock(Logger)
+        evictionListener.logger = logger
+        def cache = CacheBuilder.newBuilder().maximumSize(1000).removalListener(evictionListener).build()
+        evictionListener.setCache(cache)
+        100.times { cache.put(it, it) }
+        def keys = cache.asMap().keySet().iterator()
+
+        when:
+        50.times {
+            keys.next()
+            keys.remove()
+        }
+        cache.invalidateAll()
+
+        then:
+        0 * logger._
+        evictionListener.evictionCounter == 0
+    }
 }
@@ -244,6 +244,36 @@ class TaskFilePropertyCompareStrategyTest extends Specification {
         ["one": snapshot("one"), "two": snapshot("two")] | [:]
     }
 
+    @Unroll
+    def "compact snapshots give the same changes as other snapshots (#strategy, absolute paths: #pathIsAbsolute)"() {
+        def current = new LinkedHashMap<String, NormalizedFileSnapshot>()
+        current["one"] = snapshot("one")
+        current["two"] = snapshot("two", "2345abcd")
+        current["three"] = snapshot("three")
+        current["four"] = snapshot("four-renamed")
+        current["five"] = snapshot("five")
+        def previous = new LinkedHashMap<String, NormalizedFileSnapshot>()
+        previous["one"] = snapshot("one")
+        previous["two"] = snapshot("two")
+        previous["four"] = snapshot("four")
+        previous["three"] = snapshot("three")
+        previous["six"] = snapshot("six")
+
+        expect:
+        def compactCurrent = CompactSnapshotMap.of(current)
+        def compactPrevious = CompactSnapshotMap.of(previous)
+        compactCurrent instanceof CompactSnapshotMap
+        compactPrevious instanceof CompactSnapshotMap
+        Lists.newArrayList(strategy.iterateContentChangesSince(compactCurrent, compactPrevious, "test", pathIsAbsolute)) == Lists.newArrayList(strategy.iterateContentChangesSince(current, previous, "test", pathIsAbsolute))
+
+        where:
+        strategy  | pathIsAbsolute
+        ORDERED   | false
+        ORDERED   | true
+        UNORDERED | true
+        OUTPUT    | true
+    }
+
     def changes(TaskFilePropertyCompareStrategy strategy, Map<String, NormalizedFileSnapshot> current, Map<String, NormalizedFileSnapshot> previous) {
         Lists.newArrayList(strategy.iterateContentChangesSince(current, previous, "test", false))
     }
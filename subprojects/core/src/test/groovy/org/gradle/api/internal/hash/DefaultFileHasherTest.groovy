@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash
+
+import com.google.common.base.Charsets
+import com.google.common.hash.Hashing
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class DefaultFileHasherTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def "hashes file content with the hash function of the strategy"() {
+        def file = tmpDir.file("file")
+        file.bytes = content
+        def hashFunction = strategy.hashFunction
+        def signature = hashFunction.hashString(DefaultFileHasher.name, Charsets.UTF_8).asBytes()
+
+        expect:
+        new DefaultFileHasher(strategy).hash(file) == hashFunction.newHasher().putBytes(signature).putBytes(content).hash()
+
+        where:
+        strategy                 | content
+        FileHashStrategy.MD5     | new byte[0]
+        FileHashStrategy.MD5     | "some content".bytes
+        FileHashStrategy.MD5     | randomBytes(200 * 1024)
+        FileHashStrategy.MURMUR3 | new byte[0]
+        FileHashStrategy.MURMUR3 | "some content".bytes
+        FileHashStrategy.MURMUR3 | randomBytes(200 * 1024)
+    }
+
+    def "uses MD5 by default"() {
+        def file = tmpDir.createFile("file") << "some content"
+
+        expect:
+        new DefaultFileHasher().strategy == FileHashStrategy.MD5
+        new DefaultFileHasher().hash(file) == new DefaultFileHasher(FileHashStrategy.MD5).hash(file)
+        new DefaultFileHasher(FileHashStrategy.MURMUR3).hash(file) != new DefaultFileHasher(FileHashStrategy.MD5).hash(file)
+        new DefaultFileHasher(FileHashStrategy.MURMUR3).hash(file).bits() == Hashing.md5().bits()
+    }
+
+    private static byte[] randomBytes(int count) {
+        def bytes = new byte[count]
+        new Random(1234).nextBytes(bytes)
+        bytes
+    }
+}
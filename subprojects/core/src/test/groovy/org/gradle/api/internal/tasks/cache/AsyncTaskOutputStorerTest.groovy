@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache
+
+import org.gradle.api.internal.file.DefaultTemporaryFileProvider
+import org.gradle.internal.Factories
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+
+class AsyncTaskOutputStorerTest extends ConcurrentSpec {
+    @Rule
+    TestNameTestDirectoryProvider tempDir = new TestNameTestDirectoryProvider()
+    def tmpDir = tempDir.createDir("tmp")
+    def temporaryFileProvider = new DefaultTemporaryFileProvider(Factories.constant(tmpDir))
+    def cache = Mock(TaskOutputCache)
+    def key = Mock(TaskCacheKey)
+    def writer = Mock(TaskOutputWriter)
+
+    def "stores output in the background and waits for outstanding stores when stopped"() {
+        def storer = new AsyncTaskOutputStorer(cache, temporaryFileProvider, executorFactory, 2, 4)
+
+        when:
+        async {
+            storer.store(key, writer, "task")
+            instant.queued
+            storer.stop()
+            instant.stopped
+        }
+
+        then:
+        1 * cache.store(key, _) >> {
+            thread.blockUntil.queued
+            instant.stored
+        }
+        instant.stored < instant.stopped
+    }
+
+    def "packs output on the calling thread and stores the packed output"() {
+        def storer = new AsyncTaskOutputStorer(cache, temporaryFileProvider, executorFactory, 2, 4)
+        def stored = new ByteArrayOutputStream()
+        def outputFile = tempDir.file("output.txt")
+        outputFile.text = "original"
+
+        when:
+        storer.store(key, { OutputStream output -> output.write(outputFile.bytes) } as TaskOutputWriter, "task")
+        // A later task changes the output while the store is still pending
+        outputFile.text = "changed"
+        storer.waitForPendingStores()
+
+        then:
+        1 * cache.store(key, _) >> { TaskCacheKey k, TaskOutputWriter w -> w.writeTo(stored) }
+        stored.toString() == "original"
+        tmpDir.file("task-output-store").list().length == 0
+
+        cleanup:
+        storer.stop()
+    }
+
+    def "waits for pending stores when the build finishes"() {
+        def storer = new AsyncTaskOutputStorer(cache, temporaryFileProvider, executorFactory, 2, 4)
+
+        when:
+        async {
+            storer.store(key, writer, "task")
+            storer.waitForPendingStores()
+            instant.drained
+        }
+
+        then:
+        1 * cache.store(key, _) >> {
+            thread.block()
+            instant.stored
+        }
+        instant.stored < instant.drained
+
+        cleanup:
+        storer.stop()
+    }
+
+    def "propagates failures to pack output and does not store it"() {
+        def storer = new AsyncTaskOutputStorer(cache, temporaryFileProvider, executorFactory, 1, 1)
+
+        when:
+        storer.store(key, writer, "task")
+
+        then:
+        1 * writer.writeTo(_) >> { throw new IOException("broken") }
+        thrown(IOException)
+        0 * cache._
+
+        cleanup:
+        storer.stop()
+    }
+
+    def "does not propagate failures from background stores"() {
+        def storer = new AsyncTaskOutputStorer(cache, temporaryFileProvider, executorFactory, 1, 1)
+
+        when:
+        storer.store(key, writer, "task")
+        storer.store(key, writer, "task")
+        storer.stop()
+
+        then:
+        2 * cache.store(key, _) >> { throw new IOException("broken") }
+        noExceptionThrown()
+    }
+
+    def "stopping without any stores does nothing"() {
+        def storer = new AsyncTaskOutputStorer(cache, temporaryFileProvider, executorFactory, 1, 1)
+
+        when:
+        storer.stop()
+
+        then:
+        0 * _
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.cache
+
+import org.gradle.api.internal.tasks.CacheableTaskOutputFilePropertySpec
+import org.gradle.api.internal.tasks.cache.config.TaskCachingInternal
+import spock.lang.Unroll
+
+class CompressingTaskOutputPackerTest extends AbstractTaskOutputPackerSpec {
+    def delegate = Mock(TarTaskOutputPacker)
+    def taskCaching = Mock(TaskCachingInternal)
+    def packer = new CompressingTaskOutputPacker(delegate, taskCaching)
+
+    @Unroll
+    def "uses #expected compression for output #fileName"() {
+        def output = new ByteArrayOutputStream()
+        def outputFile = tempDir.file(fileName)
+
+        when:
+        packer.pack(taskOutputs, output)
+
+        then:
+        _ * taskOutputs.getFileProperties() >> ([
+            new TestProperty(propertyName: "test", outputFile: outputFile, outputType: outputType)
+        ] as SortedSet)
+        1 * taskCaching.getCompression() >> TaskOutputCompression.FAST
+        1 * delegate.pack(taskOutputs, _) >> { taskOutputs, compressedOutput -> compressedOutput << "Some data" }
+        0 * _
+
+        then:
+        def input = new ByteArrayInputStream(output.toByteArray())
+        TaskOutputCompression.decompress(input).text == "Some data"
+        TaskOutputCompression.forId(output.toByteArray()[3]) == expected
+
+        where:
+        fileName     | outputType                                                | expected
+        "output.jar" | CacheableTaskOutputFilePropertySpec.OutputType.FILE      | TaskOutputCompression.NONE
+        "output.txt" | CacheableTaskOutputFilePropertySpec.OutputType.FILE      | TaskOutputCompression.FAST
+        "classes"    | CacheableTaskOutputFilePropertySpec.OutputType.DIRECTORY | TaskOutputCompression.FAST
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.cache
+
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+@CleanupTestDirectory(fieldName = "tempDir")
+class LocalDirectoryTaskOutputCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tempDir = new TestNameTestDirectoryProvider()
+    def cacheDir = tempDir.file("cache")
+
+    def "stores entries in sharded layout without leaving temporary files behind"() {
+        def cache = new LocalDirectoryTaskOutputCache(cacheDir)
+
+        when:
+        cache.store(key("0123456789abcdef"), writer("data"))
+
+        then:
+        cacheDir.file("01/23/0123456789abcdef").text == "data"
+        cacheDir.file("01/23").list() as List == ["0123456789abcdef"]
+
+        and:
+        def loaded = null
+        cache.load(key("0123456789abcdef"), { input -> loaded = input.text } as TaskOutputReader)
+        loaded == "data"
+    }
+
+    def "can load entries stored in flat layout"() {
+        def cache = new LocalDirectoryTaskOutputCache(cacheDir)
+        cacheDir.file("0123456789abcdef") << "data"
+
+        when:
+        def loaded = null
+        def found = cache.load(key("0123456789abcdef"), { input -> loaded = input.text } as TaskOutputReader)
+
+        then:
+        found
+        loaded == "data"
+    }
+
+    def "reports missing entries"() {
+        def cache = new LocalDirectoryTaskOutputCache(cacheDir)
+
+        expect:
+        !cache.load(key("0123456789abcdef"), Mock(TaskOutputReader))
+    }
+
+    def "removes least recently used entries when target size is exceeded once closed"() {
+        def cache = new LocalDirectoryTaskOutputCache(cacheDir, 100)
+        cache.store(key("aaaa0001"), writer("x" * 40))
+        cache.store(key("aaaa0002"), writer("x" * 40))
+        cacheDir.file("aa/aa/aaaa0001").lastModified = 1000
+        cacheDir.file("aa/aa/aaaa0002").lastModified = 1000
+        cacheDir.file(LocalDirectoryTaskOutputCache.JOURNAL_FILE_NAME).text = "2000 aaaa0001\n"
+
+        when:
+        cache.store(key("aaaa0003"), writer("x" * 40))
+
+        then:
+        cacheDir.file("aa/aa/aaaa0001").file
+        cacheDir.file("aa/aa/aaaa0002").file
+        cacheDir.file("aa/aa/aaaa0003").file
+
+        when:
+        cache.close()
+
+        then:
+        cacheDir.file("aa/aa/aaaa0001").file
+        !cacheDir.file("aa/aa/aaaa0002").exists()
+        cacheDir.file("aa/aa/aaaa0003").file
+
+        and:
+        !cacheDir.file(LocalDirectoryTaskOutputCache.JOURNAL_FILE_NAME).exists()
+        cacheDir.file("aa/aa/aaaa0001").lastModified() == 2000
+    }
+
+    def "keeps access times recorded while a previous cleanup was interrupted"() {
+        def cache = new LocalDirectoryTaskOutputCache(cacheDir, 100)
+        cache.store(key("aaaa0001"), writer("x" * 40))
+        cache.store(key("aaaa0002"), writer("x" * 40))
+        cacheDir.file("aa/aa/aaaa0001").lastModified = 1000
+        cacheDir.file("aa/aa/aaaa0002").lastModified = 1000
+        cacheDir.file(LocalDirectoryTaskOutputCache.JOURNAL_FILE_NAME).text = "3000 aaaa0002\n"
+        cacheDir.file(LocalDirectoryTaskOutputCache.JOURNAL_FILE_NAME + ".compacting").text = "2000 aaaa0001\n"
+
+        when:
+        cache.store(key("aaaa0003"), writer("x" * 40))
+        cache.close()
+
+        then:
+        !cacheDir.file("aa/aa/aaaa0001").exists()
+        cacheDir.file("aa/aa/aaaa0002").file
+        cacheDir.file("aa/aa/aaaa0003").file
+        !cacheDir.file(LocalDirectoryTaskOutputCache.JOURNAL_FILE_NAME + ".compacting").exists()
+    }
+
+    private static TaskCacheKey key(String hashCode) {
+        return { hashCode } as TaskCacheKey
+    }
+
+    private static TaskOutputWriter writer(String data) {
+        return { output -> output << data } as TaskOutputWriter
+    }
+}
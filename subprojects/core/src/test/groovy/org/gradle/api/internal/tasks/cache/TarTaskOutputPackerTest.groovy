@@ -16,12 +16,24 @@
 
 package org.gradle.api.internal.tasks.cache
 
+import org.gradle.api.Action
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.nativeplatform.filesystem.FileSystem
+import org.gradle.internal.operations.BuildOperationProcessor
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
+import org.gradle.internal.operations.DefaultBuildOperationQueueFactory
+import org.gradle.internal.operations.RunnableBuildOperation
 import spock.lang.Unroll
 
 class TarTaskOutputPackerTest extends AbstractTaskOutputPackerSpec {
     def fileSystem = Mock(FileSystem)
-    def packer = new TarTaskOutputPacker(fileSystem)
+    def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), 4)
+    def packer = new TarTaskOutputPacker(fileSystem, buildOperationProcessor)
+
+    def cleanup() {
+        buildOperationProcessor.stop()
+    }
 
     @Unroll
     def "can pack single task output file with file mode #mode"() {
@@ -132,4 +144,85 @@ class TarTaskOutputPackerTest extends AbstractTaskOutputPackerSpec {
         targetOutputFile.text == "output"
         0 * _
     }
+
+    def "can pack task output directory with many small and large files"() {
+        def sourceOutputDir = tempDir.file("source").createDir()
+        def largeContent = "x" * (512 * 1024)
+        100.times { index ->
+            sourceOutputDir.file("dir-${index % 10}/file-${index}.txt") << "output ${index}"
+        }
+        sourceOutputDir.file("large.txt") << largeContent
+        def targetOutputDir = tempDir.file("target").createDir()
+        def output = new ByteArrayOutputStream()
+
+        when:
+        packer.pack(taskOutputs, output)
+        then:
+        taskOutputs.getFileProperties() >> ([
+            new TestProperty(propertyName: "test", outputFile: sourceOutputDir)
+        ] as SortedSet)
+        _ * fileSystem.getUnixMode(_) >> 0644
+
+        when:
+        def input = new ByteArrayInputStream(output.toByteArray())
+        packer.unpack(taskOutputs, input)
+
+        then:
+        taskOutputs.getFileProperties() >> ([
+            new TestProperty(propertyName: "test", outputFile: targetOutputDir)
+        ] as SortedSet)
+        _ * fileSystem.chmod(_, _)
+        then:
+        100.times { index ->
+            assert targetOutputDir.file("dir-${index % 10}/file-${index}.txt").text == "output ${index}"
+        }
+        targetOutputDir.file("large.txt").text == largeContent
+    }
+
+    def "queued operations do not retain buffered file content"() {
+        def retainedOperations = []
+        def retainingProcessor = [
+            run: { Action<BuildOperationQueue<RunnableBuildOperation>> generator ->
+                buildOperationProcessor.run({ BuildOperationQueue<RunnableBuildOperation> queue ->
+                    generator.execute([
+                        add: { RunnableBuildOperation operation ->
+                            retainedOperations << operation
+                            queue.add(operation)
+                        }
+                    ] as BuildOperationQueue)
+                } as Action)
+            }
+        ] as BuildOperationProcessor
+        def packer = new TarTaskOutputPacker(fileSystem, retainingProcessor)
+        def sourceOutputDir = tempDir.file("source").createDir()
+        200.times { index ->
+            sourceOutputDir.file("file-${index}.txt") << "output ${index}"
+        }
+        def targetOutputDir = tempDir.file("target").createDir()
+        def output = new ByteArrayOutputStream()
+
+        when:
+        packer.pack(taskOutputs, output)
+        then:
+        taskOutputs.getFileProperties() >> ([
+            new TestProperty(propertyName: "test", outputFile: sourceOutputDir)
+        ] as SortedSet)
+        _ * fileSystem.getUnixMode(_) >> 0644
+        retainedOperations.size() == 200
+        retainedOperations.every { it.@content == null }
+
+        when:
+        retainedOperations.clear()
+        packer.unpack(taskOutputs, new ByteArrayInputStream(output.toByteArray()))
+        then:
+        taskOutputs.getFileProperties() >> ([
+            new TestProperty(propertyName: "test", outputFile: targetOutputDir)
+        ] as SortedSet)
+        _ * fileSystem.chmod(_, _)
+        retainedOperations.size() == 200
+        retainedOperations.every { it.@content == null }
+        200.times { index ->
+            assert targetOutputDir.file("file-${index}.txt").text == "output ${index}"
+        }
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.cache
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.zip.GZIPOutputStream
+
+class TaskOutputCompressionTest extends Specification {
+    @Unroll
+    def "can read back entry written with #compression"() {
+        def output = new ByteArrayOutputStream()
+
+        when:
+        def compressed = compression.compress(output)
+        compressed << "Some data" * 100
+        compressed.close()
+        def input = TaskOutputCompression.decompress(new ByteArrayInputStream(output.toByteArray()))
+
+        then:
+        input.text == "Some data" * 100
+
+        where:
+        compression << TaskOutputCompression.values()
+    }
+
+    def "does not compress entries without compression"() {
+        def output = new ByteArrayOutputStream()
+        def data = new byte[64 * 1024]
+        new Random(1234).nextBytes(data)
+
+        when:
+        def compressed = TaskOutputCompression.NONE.compress(output)
+        compressed << data
+        compressed.close()
+
+        then:
+        output.size() > data.length
+        output.size() < data.length + 100
+        TaskOutputCompression.decompress(new ByteArrayInputStream(output.toByteArray())).bytes == data
+    }
+
+    @Unroll
+    def "detects corrupted entry written with #compression"() {
+        def output = new ByteArrayOutputStream()
+        def compressed = compression.compress(output)
+        compressed << "Some data" * 100
+        compressed.close()
+        def bytes = output.toByteArray()
+        // Flip a bit in the CRC32 of the GZIP trailer
+        bytes[bytes.length - 8] ^= 1
+
+        when:
+        TaskOutputCompression.decompress(new ByteArrayInputStream(bytes)).text
+
+        then:
+        def ex = thrown IOException
+        ex.message == "Corrupt GZIP trailer"
+
+        where:
+        compression << TaskOutputCompression.values()
+    }
+
+    def "can read GZIP entries without header"() {
+        def output = new ByteArrayOutputStream()
+        def gzipOutput = new GZIPOutputStream(output)
+        gzipOutput << "Some data"
+        gzipOutput.close()
+
+        when:
+        def input = TaskOutputCompression.decompress(new ByteArrayInputStream(output.toByteArray()))
+
+        then:
+        input.text == "Some data"
+    }
+
+    def "fails on unknown header"() {
+        when:
+        TaskOutputCompression.decompress(new ByteArrayInputStream("Some data".bytes))
+
+        then:
+        def ex = thrown IllegalStateException
+        ex.message == "Cached result format error, unknown header"
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.cache
+
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentHashMap
+
+class TwoTierTaskOutputCacheTest extends Specification {
+    def localEntries = new ConcurrentHashMap<String, byte[]>()
+    def remoteEntries = new ConcurrentHashMap<String, byte[]>()
+    def local = Spy(MapBasedTaskOutputCache, constructorArgs: ["local", localEntries])
+    def remote = Spy(MapBasedTaskOutputCache, constructorArgs: ["remote", remoteEntries])
+    def cache = new TwoTierTaskOutputCache(local, remote)
+    def key = Mock(TaskCacheKey) {
+        getHashCode() >> "key"
+    }
+
+    def "loads from local cache without going to remote cache"() {
+        localEntries["key"] = "local".bytes
+
+        when:
+        def loaded = load()
+
+        then:
+        loaded == "local"
+        0 * remote.load(_, _)
+    }
+
+    def "copies entries found in remote cache to local cache"() {
+        remoteEntries["key"] = "remote".bytes
+
+        when:
+        def loaded = load()
+
+        then:
+        loaded == "remote"
+        new String(localEntries["key"]) == "remote"
+
+        when:
+        loaded = load()
+
+        then:
+        loaded == "remote"
+        0 * remote.load(_, _)
+    }
+
+    def "reports miss when neither cache has the entry"() {
+        expect:
+        load() == null
+        localEntries.isEmpty()
+    }
+
+    def "stores entries in both caches"() {
+        def writer = Mock(TaskOutputWriter)
+
+        when:
+        cache.store(key, writer)
+
+        then:
+        1 * writer.writeTo(_) >> { OutputStream output -> output << "data" }
+        new String(localEntries["key"]) == "data"
+        new String(remoteEntries["key"]) == "data"
+    }
+
+    private String load() {
+        String loaded = null
+        cache.load(key, { input -> loaded = input.text } as TaskOutputReader)
+        return loaded
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache.config
+
+import org.gradle.api.internal.tasks.cache.TaskOutputCompression
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class DefaultTaskCachingTest extends Specification {
+    @Rule SetSystemProperties systemProperties
+
+    def "compression can be overridden with system property"() {
+        System.setProperty("org.gradle.cache.tasks.compression", " best ")
+
+        expect:
+        new DefaultTaskCaching().compression == TaskOutputCompression.BEST
+    }
+
+    def "reports unknown compression set with system property"() {
+        System.setProperty("org.gradle.cache.tasks.compression", "zip")
+
+        when:
+        new DefaultTaskCaching()
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Unknown task output compression 'zip' set by system property 'org.gradle.cache.tasks.compression'. Supported values are [NONE, FAST, DEFAULT, BEST]."
+    }
+}
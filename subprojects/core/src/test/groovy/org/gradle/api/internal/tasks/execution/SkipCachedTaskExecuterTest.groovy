@@ -26,6 +26,8 @@ import org.gradle.api.internal.tasks.TaskExecuter
 import org.gradle.api.internal.tasks.TaskExecutionContext
 import org.gradle.api.internal.tasks.TaskExecutionOutcome
 import org.gradle.api.internal.tasks.TaskStateInternal
+import org.gradle.api.internal.tasks.cache.AsyncTaskOutputStorer
+import org.gradle.api.internal.tasks.cache.LazyTaskOutputCache
 import org.gradle.api.internal.tasks.cache.TaskCacheKey
 import org.gradle.api.internal.tasks.cache.TaskOutputCache
 import org.gradle.api.internal.tasks.cache.TaskOutputCacheFactory
@@ -50,7 +52,11 @@ public class SkipCachedTaskExecuterTest extends Specification {
     def cacheKey = Mock(TaskCacheKey)
     def internalTaskExecutionListener = Mock(TaskOutputsGenerationListener)
 
-    def executer = new SkipCachedTaskExecuter(taskCaching, taskOutputPacker, startParameter, internalTaskExecutionListener, delegate)
+    def asyncStorer = Mock(AsyncTaskOutputStorer)
+
+    def lazyTaskOutputCache = new LazyTaskOutputCache(taskCaching, startParameter)
+
+    def executer = new SkipCachedTaskExecuter(taskCaching, taskOutputPacker, lazyTaskOutputCache, internalTaskExecutionListener, null, delegate)
 
     def "skip task when cached results exist"() {
         when:
@@ -77,7 +83,7 @@ public class SkipCachedTaskExecuterTest extends Specification {
         1 * taskOutputCache.load(cacheKey, _) >> true
         1 * taskState.setOutcome(TaskExecutionOutcome.FROM_CACHE)
         1 * taskState.setCacheable(true)
-        1 * internalTaskExecutionListener.beforeTaskOutputsGenerated()
+        1 * internalTaskExecutionListener.beforeTaskOutputsGenerated(task)
         0 * _
     }
 
@@ -116,6 +122,43 @@ public class SkipCachedTaskExecuterTest extends Specification {
         0 * _
     }
 
+    def "stores result in the background when pushing asynchronously"() {
+        def executer = new SkipCachedTaskExecuter(taskCaching, taskOutputPacker, lazyTaskOutputCache, internalTaskExecutionListener, asyncStorer, delegate)
+
+        when:
+        executer.execute(task, taskState, taskContext)
+
+        then:
+        1 * task.getOutputs() >> outputs
+        1 * outputs.hasDeclaredOutputs() >> true
+        1 * outputs.isCacheAllowed() >> true
+        1 * outputs.isCacheEnabled() >> true
+
+        then:
+        1 * taskContext.getTaskArtifactState() >> taskArtifactState
+        1 * taskArtifactState.calculateCacheKey() >> cacheKey
+        1 * taskCaching.isPullAllowed() >> true
+        1 * taskArtifactState.isAllowedToUseCachedResults() >> true
+
+        then:
+        1 * taskCaching.getCacheFactory() >> taskOutputCacheFactory
+        1 * taskOutputCacheFactory.createCache(_) >> taskOutputCache
+        1 * taskOutputCache.getDescription() >> "test"
+
+        then:
+        1 * taskOutputCache.load(cacheKey, _) >> false
+
+        then:
+        1 * delegate.execute(task, taskState, taskContext)
+        1 * taskCaching.isPushAllowed() >> true
+        1 * taskState.getFailure() >> null
+        1 * taskState.setCacheable(true)
+
+        then:
+        1 * asyncStorer.store(cacheKey, _, _)
+        0 * _
+    }
+
     def "executes task and stores result when use of cached result is not allowed"() {
         when:
         executer.execute(task, taskState, taskContext)
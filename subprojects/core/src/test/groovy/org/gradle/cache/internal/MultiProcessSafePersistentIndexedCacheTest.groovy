@@ -63,6 +63,35 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
+    def "holds read lock once while getting several entries from cache"() {
+        given:
+        cacheOpened()
+
+        when:
+        def result = cache.getAll(["key1", "key2"])
+
+        then:
+        result == [key1: "value1"]
+
+        and:
+        1 * fileAccess.readFile(!null) >> { Factory action -> action.create() }
+        1 * backingCache.getAll(["key1", "key2"]) >> [key1: "value1"]
+        0 * _._
+    }
+
+    def "holds write lock once while putting several entries into cache"() {
+        given:
+        cacheOpened()
+
+        when:
+        cache.putAll([key1: "value1", key2: "value2"])
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.putAll([key1: "value1", key2: "value2"])
+        0 * _._
+    }
+
     def "holds write lock while removing entry from cache"() {
         given:
         cacheOpened()
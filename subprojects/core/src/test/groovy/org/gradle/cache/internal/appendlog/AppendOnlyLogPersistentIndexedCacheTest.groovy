@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.appendlog
+
+import org.gradle.internal.serialize.BaseSerializerFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class AppendOnlyLogPersistentIndexedCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheFile = tmpDir.file("cache.log")
+    AppendOnlyLogPersistentIndexedCache<String, String> cache
+
+    def setup() {
+        cache = openCache()
+    }
+
+    def cleanup() {
+        cache?.close()
+    }
+
+    def "returns null for unknown entries"() {
+        expect:
+        cache.get("unknown") == null
+    }
+
+    def "reads back entries that were added, updated and removed"() {
+        when:
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.put("a", "3")
+        cache.remove("b")
+        cache.remove("unknown")
+
+        then:
+        cache.get("a") == "3"
+        cache.get("b") == null
+    }
+
+    def "rebuilds the index from the log when reopened"() {
+        given:
+        (1..1000).each { cache.put("key$it", "value$it") }
+        cache.put("key1", "updated")
+        cache.remove("key2")
+
+        when:
+        reopen()
+
+        then:
+        cache.get("key1") == "updated"
+        cache.get("key2") == null
+        (3..1000).every { cache.get("key$it") == "value$it" }
+    }
+
+    def "discards a partially written record at the end of the log"() {
+        given:
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.close()
+        def raf = new RandomAccessFile(cacheFile, "rw")
+        raf.setLength(raf.length() - 3)
+        raf.close()
+
+        when:
+        cache = openCache()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == null
+
+        when:
+        cache.put("c", "3")
+        reopen()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("c") == "3"
+    }
+
+    def "discards records after a corrupted record"() {
+        given:
+        cache.put("a", "1")
+        cache.close()
+        def lengthAfterFirstRecord = cacheFile.length()
+        cache = openCache()
+        cache.put("b", "2")
+        cache.put("c", "3")
+        cache.close()
+        def raf = new RandomAccessFile(cacheFile, "rw")
+        raf.seek(lengthAfterFirstRecord + 14)
+        raf.write(raf.read() ^ 0xff)
+        raf.close()
+
+        when:
+        cache = openCache()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == null
+        cache.get("c") == null
+        cacheFile.length() == lengthAfterFirstRecord
+    }
+
+    def "discards a file with an unexpected format"() {
+        given:
+        cache.close()
+        cacheFile.text = "not a cache"
+
+        when:
+        cache = openCache()
+        cache.put("a", "1")
+        reopen()
+
+        then:
+        cache.get("a") == "1"
+    }
+
+    def "compacts the log on close when most of it is garbage"() {
+        given:
+        def value = "x" * 10000
+        (1..300).each { cache.put("key", value + it) }
+        cache.put("other", "value")
+
+        when:
+        cache.close()
+
+        then:
+        cacheFile.length() < 20000
+        !compactedFile.exists()
+
+        when:
+        cache = openCache()
+
+        then:
+        cache.get("key") == value + 300
+        cache.get("other") == "value"
+    }
+
+    def "discards the compacted log left behind by an incomplete compaction"() {
+        given:
+        cache.put("a", "1")
+        cache.close()
+        compactedFile.bytes = [1, 2, 3] as byte[]
+
+        when:
+        cache = openCache()
+
+        then:
+        cache.get("a") == "1"
+        !compactedFile.exists()
+    }
+
+    def "uses the compacted log when compaction was interrupted after the old log was removed"() {
+        given:
+        cache.put("a", "1")
+        cache.close()
+        assert cacheFile.renameTo(compactedFile)
+
+        when:
+        cache = openCache()
+
+        then:
+        cache.get("a") == "1"
+        cacheFile.exists()
+        !compactedFile.exists()
+    }
+
+    private File getCompactedFile() {
+        new File(cacheFile.parentFile, cacheFile.name + ".compacting")
+    }
+
+    private void reopen() {
+        cache.close()
+        cache = openCache()
+    }
+
+    private AppendOnlyLogPersistentIndexedCache<String, String> openCache() {
+        new AppendOnlyLogPersistentIndexedCache<String, String>(cacheFile, BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER)
+    }
+}
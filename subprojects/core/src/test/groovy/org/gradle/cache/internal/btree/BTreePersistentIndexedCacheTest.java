@@ -161,6 +161,26 @@ public class BTreePersistentIndexedCacheTest {
         cache.close();
     }
 
+    @Test
+    public void persistsEntriesAddedInBatch() {
+        createCache();
+
+        Map<String, Integer> entries = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < 20; i++) {
+            entries.put(String.format("key_%d", i), i);
+        }
+        cache.putAll(entries);
+
+        cache.reset();
+
+        Map<String, Integer> values = cache.getAll(Arrays.asList("key_3", "unknown", "key_17"));
+        assertThat(values.size(), equalTo(2));
+        assertThat(values.get("key_3"), equalTo(3));
+        assertThat(values.get("key_17"), equalTo(17));
+        assertThat(cache.getAll(entries.keySet()), equalTo(entries));
+        verifyAndCloseCache();
+    }
+
     @Test
     public void persistsAddedEntriesAfterReopen() {
         createCache();
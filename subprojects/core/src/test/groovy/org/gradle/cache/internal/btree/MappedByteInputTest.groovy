@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
+import org.junit.Rule
+import spock.lang.Specification
+
+@Requires(TestPrecondition.NOT_WINDOWS)
+class MappedByteInputTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    RandomAccessFile file
+    MappedByteInput input
+
+    def setup() {
+        file = new RandomAccessFile(tmpDir.file("test.bin"), "rw")
+        input = new MappedByteInput(file)
+    }
+
+    def cleanup() {
+        file.close()
+    }
+
+    def "can reuse to read from multiple locations in file"() {
+        given:
+        file.seek(0)
+        file.writeInt(123)
+        file.writeInt(321)
+        file.writeInt(456)
+
+        expect:
+        def stream = input.start(0, file.length())
+        stream.readInt() == 123
+        stream.readInt() == 321
+        input.bytesRead == 8
+        input.done()
+
+        def stream2 = input.start(4, file.length())
+        stream2.readInt() == 321
+        stream2.readInt() == 456
+        input.bytesRead == 8
+        input.done()
+    }
+
+    def "sees content written after the file was mapped"() {
+        given:
+        file.seek(0)
+        file.writeInt(123)
+        input.start(0, file.length()).readInt()
+        input.done()
+
+        when:
+        file.seek(0)
+        file.writeInt(456)
+        file.writeInt(789)
+
+        then:
+        def stream = input.start(0, file.length())
+        stream.readInt() == 456
+        stream.readInt() == 789
+        input.done()
+    }
+
+    def "reads content appended after the file was mapped from the file"() {
+        given:
+        file.seek(0)
+        file.writeInt(123)
+        file.writeInt(321)
+        input.start(0, file.length()).readInt()
+        input.done()
+        def mapping = input.@mappedBuffer
+
+        when:
+        file.writeInt(456)
+        file.writeLong(789)
+        def stream = input.start(4, file.length())
+
+        then:
+        input.@mappedBuffer.is(mapping)
+        stream.readInt() == 321
+        stream.readInt() == 456
+        stream.readLong() == 789
+        input.bytesRead == 16
+        stream.read() == -1
+        input.done()
+    }
+
+    def "maps the file again once enough content has been appended"() {
+        given:
+        file.seek(0)
+        file.writeInt(123)
+        input.start(0, file.length()).readInt()
+        input.done()
+
+        when:
+        file.write(new byte[128 * 1024])
+        file.writeInt(456)
+        def stream = input.start(file.length() - 4, file.length())
+
+        then:
+        stream.readInt() == 456
+        input.@mappedBuffer.capacity() == file.length()
+        input.done()
+    }
+
+    def "cannot read beyond end of file"() {
+        given:
+        file.seek(0)
+        file.writeInt(123)
+
+        when:
+        def stream = input.start(2, file.length())
+        stream.readInt()
+
+        then:
+        EOFException e = thrown()
+    }
+}
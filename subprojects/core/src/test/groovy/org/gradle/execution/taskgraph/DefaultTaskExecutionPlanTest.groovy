@@ -885,6 +885,69 @@ public class DefaultTaskExecutionPlanTest extends AbstractProjectBuilderSpec {
         t3.task.project != t4.task.project
     }
 
+    def "does not keep output paths of task that completes while they are canonicalized"() {
+        given:
+        def projectA = createChildProject(root, "a")
+        def projectB = createChildProject(root, "b")
+        TaskInfo first = null
+        def fooA = projectA.task("foo").doLast {}
+        def fooB = projectB.task("foo").doLast {}
+        fooA.outputs.file({
+            // Completes while another worker canonicalizes its outputs
+            executionPlan.taskComplete(first)
+            "a-output"
+        })
+        fooB.outputs.file("b-output")
+        addToGraphAndPopulate([fooA, fooB])
+
+        when:
+        first = executionPlan.getTaskToExecute()
+        def second = executionPlan.getTaskToExecute()
+
+        then:
+        first.task == fooA
+        second.task == fooB
+        executionPlan.canonicalizedOutputCache.keySet() == [fooB] as Set
+
+        when:
+        executionPlan.taskComplete(second)
+
+        then:
+        executionPlan.canonicalizedOutputCache.isEmpty()
+    }
+
+    def "starts ready tasks with the longest estimated chain of waiting tasks first"() {
+        def estimator = Stub(TaskDurationEstimator)
+        executionPlan.useTaskDurationEstimator(estimator)
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [a])
+        estimator.getEstimatedDuration(a) >> 10
+        estimator.getEstimatedDuration(b) >> 50
+        estimator.getEstimatedDuration(c) >> 100
+
+        when:
+        addToGraphAndPopulate([b, c])
+
+        then:
+        executionPlan.tasks == [b, a, c]
+        executedTasks == [a, b, c]
+    }
+
+    def "keeps execution plan order for ready tasks when durations are not known"() {
+        def estimator = Stub(TaskDurationEstimator)
+        executionPlan.useTaskDurationEstimator(estimator)
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [a])
+
+        when:
+        addToGraphAndPopulate([b, c])
+
+        then:
+        executedTasks == [b, a, c]
+    }
+
     void executes(Task... expectedTasks) {
         assert executionPlan.tasks == expectedTasks as List
         assert expectedTasks == expectedTasks as List
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.internal.TaskInternal
+import org.gradle.internal.Pair
+import spock.lang.Specification
+
+class OutputPathTrieTest extends Specification {
+    def trie = new OutputPathTrie()
+    def a = Stub(TaskInternal)
+    def b = Stub(TaskInternal)
+
+    def "empty trie does not overlap anything"() {
+        expect:
+        trie.isEmpty()
+        trie.firstOverlap([path("/a/b")]) == null
+    }
+
+    def "finds task with the same output path"() {
+        given:
+        trie.add(a, [path("/a/b")])
+
+        expect:
+        trie.firstOverlap([path("/c"), path("/a/b")]) == Pair.of(a, path("/a/b"))
+    }
+
+    def "finds task with an output that contains the path"() {
+        given:
+        trie.add(a, [path("/a")])
+
+        expect:
+        trie.firstOverlap([path("/a/b/c")]) == Pair.of(a, path("/a"))
+    }
+
+    def "finds task with an output inside the path"() {
+        given:
+        trie.add(a, [path("/a/b/c")])
+
+        expect:
+        trie.firstOverlap([path("/a")]) == Pair.of(a, path("/a"))
+    }
+
+    def "siblings sharing a name prefix do not overlap"() {
+        given:
+        trie.add(a, [path("/a/b")])
+
+        expect:
+        trie.firstOverlap([path("/a/bc")]) == null
+        trie.firstOverlap([path("/a/c")]) == null
+    }
+
+    def "removing a task removes only its outputs"() {
+        given:
+        trie.add(a, [path("/a/b"), path("/x")])
+        trie.add(b, [path("/a/b/c")])
+
+        when:
+        trie.remove(a, [path("/a/b"), path("/x")])
+
+        then:
+        !trie.isEmpty()
+        trie.firstOverlap([path("/x")]) == null
+        trie.firstOverlap([path("/a/b")]) == Pair.of(b, path("/a/b"))
+
+        when:
+        trie.remove(b, [path("/a/b/c")])
+
+        then:
+        trie.isEmpty()
+        trie.firstOverlap([path("/a")]) == null
+    }
+
+    def "can be cleared"() {
+        given:
+        trie.add(a, [path("/a")])
+
+        when:
+        trie.clear()
+
+        then:
+        trie.isEmpty()
+        trie.firstOverlap([path("/a")]) == null
+    }
+
+    private static String path(String path) {
+        path.replace('/', File.separator)
+    }
+}
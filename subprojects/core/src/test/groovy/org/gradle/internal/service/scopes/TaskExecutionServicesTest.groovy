@@ -18,6 +18,7 @@ package org.gradle.internal.service.scopes
 import org.gradle.StartParameter
 import org.gradle.api.internal.GradleInternal
 import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.changedetection.state.CacheBackedTaskDurationHistory
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotter
 import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache
 import org.gradle.api.internal.file.FileCollectionFactory
@@ -50,10 +51,11 @@ class TaskExecutionServicesTest extends Specification {
         given:
         CacheRepository cacheRepository = Mock()
         CacheBuilder cacheBuilder = Mock()
+        ListenerManager listenerManager = Mock()
         _ * parent.get(Gradle) >> gradle
         _ * parent.get(GradleInternal) >> gradle
         gradle.getTaskGraph() >> Mock(TaskGraphExecuter)
-        _ * parent.get(ListenerManager) >> Mock(ListenerManager)
+        _ * parent.get(ListenerManager) >> listenerManager
         _ * parent.get(StartParameter) >> Mock(StartParameter) {
             getSystemPropertiesArgs() >> [:]
         }
@@ -71,11 +73,19 @@ class TaskExecutionServicesTest extends Specification {
         _ * parent.getAll(FileCollectionSnapshotter) >> []
         _ * cacheRepository.cache(gradle, 'taskArtifacts') >> cacheBuilder
         _ * cacheBuilder.withDisplayName(!null) >> cacheBuilder
+        _ * cacheBuilder.withProperties(!null) >> cacheBuilder
         _ * cacheBuilder.withLockOptions(!null) >> cacheBuilder
         _ * cacheBuilder.open() >> Mock(PersistentCache)
 
-        expect:
-        services.get(TaskExecuter).is(services.get(TaskExecuter))
+        when:
+        def taskExecuter = services.get(TaskExecuter)
+
+        then:
+        taskExecuter.is(services.get(TaskExecuter))
+
+        and:
+        // Task durations are only recorded when they are used to order tasks
+        0 * listenerManager.addListener({ it instanceof CacheBackedTaskDurationHistory })
     }
 
     def "makes a BuildOperationProcessor available"() {
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.integtests.resolve.caching
+
+import org.gradle.integtests.fixtures.AbstractHttpDependencyResolutionTest
+
+class CachedResolvedGraphIntegrationTest extends AbstractHttpDependencyResolutionTest {
+    def repo = mavenHttpRepo("repo")
+    def b10 = repo.module("org", "b", "1.0").publish()
+    def b11 = repo.module("org", "b", "1.1").publish()
+    def c = repo.module("org", "c", "1.0").dependsOn(b11).publish()
+    def a = repo.module("org", "a", "1.0").dependsOn(b10).publish()
+
+    def setup() {
+        [a, b10, b11, c]*.allowAll()
+
+        buildFile << """
+repositories {
+    maven { url "${repo.uri}" }
+}
+configurations { compile }
+dependencies {
+    compile 'org:a:1.0'
+    compile 'org:c:1.0'
+}
+"""
+        buildFile << '''
+task report {
+    doLast {
+        def lines = []
+        def resolvedConfiguration = configurations.compile.resolvedConfiguration
+        def visit
+        visit = { ResolvedDependency dependency, String indent ->
+            lines << "${indent}${dependency.name} ${dependency.moduleArtifacts.collect { "${it.id} ${it.file.name}" }}"
+            dependency.children.each { visit(it, indent + "  ") }
+        }
+        resolvedConfiguration.firstLevelModuleDependencies.each { visit(it, "") }
+        resolvedConfiguration.resolvedArtifacts.each { lines << "artifact ${it.id} ${it.file.name}" }
+        configurations.compile.incoming.resolutionResult.allComponents.each { component ->
+            lines << "component ${component.id} ${component.selectionReason.description} ${component.dependencies.collect { "${it.requested} -> ${it.selected.id}" }}"
+        }
+        configurations.compile.files.each { lines << "file ${it.name}" }
+        file(reportFile).text = lines.join("\\n")
+    }
+}
+'''
+    }
+
+    def "replayed graph is the same as the resolved graph"() {
+        when:
+        executer.withArguments("-d", "-PreportFile=resolved.txt")
+        run "report"
+
+        then:
+        !output.contains("Using cached dependency graph")
+        file("resolved.txt").text.contains("component org:b:1.1 conflict resolution")
+
+        when:
+        executer.withArguments("-d", "-PreportFile=replayed.txt")
+        run "report"
+
+        then:
+        output.contains("Using cached dependency graph")
+        file("replayed.txt").text == file("resolved.txt").text
+    }
+
+    def "does not use cached graph when dependencies are refreshed"() {
+        given:
+        executer.withArguments("-PreportFile=resolved.txt")
+        run "report"
+
+        when:
+        def d = repo.module("org", "d", "1.0").publish()
+        repo.module("org", "a", "1.0").dependsOn(d).publish()
+        d.allowAll()
+        executer.withArguments("-d", "--refresh-dependencies", "-PreportFile=refreshed.txt")
+        run "report"
+
+        then:
+        !output.contains("Using cached dependency graph")
+        file("refreshed.txt").text.contains("org:d:1.0")
+        !file("refreshed.txt").text.contains("org:b:1.0")
+
+        when:
+        executer.withArguments("-d", "-PreportFile=replayed.txt")
+        run "report"
+
+        then:
+        output.contains("Using cached dependency graph")
+        file("replayed.txt").text == file("refreshed.txt").text
+    }
+}
@@ -35,6 +35,7 @@ import org.gradle.api.internal.artifacts.dsl.PublishArtifactNotationParserFactor
 import org.gradle.api.internal.artifacts.dsl.dependencies.DefaultDependencyHandler;
 import org.gradle.api.internal.artifacts.dsl.dependencies.DependencyFactory;
 import org.gradle.api.internal.artifacts.dsl.dependencies.ProjectFinder;
+import org.gradle.api.internal.artifacts.ivyservice.ArtifactPrefetcher;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
 import org.gradle.api.internal.artifacts.ivyservice.DefaultConfigurationResolver;
 import org.gradle.api.internal.artifacts.ivyservice.ErrorHandlingConfigurationResolver;
@@ -169,6 +170,7 @@ public class DefaultDependencyManagementServices implements DependencyManagement
                                                        GlobalDependencyResolutionRules metadataHandler,
                                                        ComponentIdentifierFactory componentIdentifierFactory,
                                                        CacheLockingManager cacheLockingManager,
+                                                       ArtifactPrefetcher artifactPrefetcher,
                                                        ResolutionResultsStoreFactory resolutionResultsStoreFactory,
                                                        StartParameter startParameter) {
             return new ErrorHandlingConfigurationResolver(
@@ -179,6 +181,7 @@ public class DefaultDependencyManagementServices implements DependencyManagement
                                             repositories,
                                             metadataHandler,
                                             cacheLockingManager,
+                                            artifactPrefetcher,
                                             resolutionResultsStoreFactory,
                                             startParameter.isBuildProjectDependencies())),
                             componentIdentifierFactory)
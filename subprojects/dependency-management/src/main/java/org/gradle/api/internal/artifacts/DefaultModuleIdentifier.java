@@ -22,7 +22,7 @@ import com.google.common.collect.Interners;
 import org.gradle.api.artifacts.ModuleIdentifier;
 
 public class DefaultModuleIdentifier implements ModuleIdentifier {
-    private static final Interner<DefaultModuleIdentifier> INSTANCES_INTERNER = Interners.newStrongInterner();
+    private static final Interner<DefaultModuleIdentifier> INSTANCES_INTERNER = Interners.newWeakInterner();
     private final String group;
     private final String name;
     private final int hashCode;
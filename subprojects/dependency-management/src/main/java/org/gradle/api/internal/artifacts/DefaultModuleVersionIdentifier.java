@@ -21,9 +21,10 @@ import com.google.common.collect.Interners;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
 
 public class DefaultModuleVersionIdentifier implements ModuleVersionIdentifier {
-    private static final Interner<DefaultModuleVersionIdentifier> INSTANCES_INTERNER = Interners.newStrongInterner();
+    private static final Interner<DefaultModuleVersionIdentifier> INSTANCES_INTERNER = Interners.newWeakInterner();
     private final DefaultModuleIdentifier id;
     private final String version;
     private String displayName;
@@ -39,7 +40,9 @@ public class DefaultModuleVersionIdentifier implements ModuleVersionIdentifier {
     }
 
     private DefaultModuleVersionIdentifier(ModuleIdentifier id, String version) {
-        this.id = DefaultModuleIdentifier.of(id.getGroup(), id.getName());
+        assert version != null : "version cannot be null";
+        // Reuse the module identifier when it has already been interned
+        this.id = id instanceof DefaultModuleIdentifier ? (DefaultModuleIdentifier) id : DefaultModuleIdentifier.of(id.getGroup(), id.getName());
         this.version = version;
         this.hashCode = calculateHashCode();
     }
@@ -129,6 +132,9 @@ public class DefaultModuleVersionIdentifier implements ModuleVersionIdentifier {
     }
 
     public static ModuleVersionIdentifier newId(ModuleComponentIdentifier componentId) {
+        if (componentId instanceof DefaultModuleComponentIdentifier) {
+            return of(((DefaultModuleComponentIdentifier) componentId).getModuleIdentifier(), componentId.getVersion());
+        }
         return of(componentId.getGroup(), componentId.getModule(), componentId.getVersion());
     }
 }
@@ -23,7 +23,7 @@ import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.ModuleVersionSelector;
 
 public class DefaultModuleVersionSelector implements ModuleVersionSelector {
-    private static final Interner<DefaultModuleVersionSelector> INSTANCES_INTERNER = Interners.newStrongInterner();
+    private static final Interner<DefaultModuleVersionSelector> INSTANCES_INTERNER = Interners.newWeakInterner();
     private final DefaultModuleIdentifier id;
     private final String version;
     private final int hashCode;
@@ -21,17 +21,24 @@ import org.gradle.api.artifacts.ResolvedArtifact;
 import org.gradle.api.artifacts.ResolvedModuleVersion;
 import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
 import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.component.model.IvyArtifactName;
 
 import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
 
 public class DefaultResolvedArtifact implements ResolvedArtifact {
     private static final Interner<File> ARTIFACT_FILE_INTERNER = Interners.newWeakInterner();
     private final ResolvedModuleVersion owner;
     private final IvyArtifactName artifact;
     private final ComponentArtifactIdentifier artifactId;
+    // Guarded by this, as is the resolution
     private Factory<File> artifactSource;
-    private File file;
+    private FileResolution resolution;
+    private volatile File file;
 
     public DefaultResolvedArtifact(ResolvedModuleVersion owner, IvyArtifactName artifact, ComponentArtifactIdentifier artifactId, Factory<File> artifactSource) {
         this.owner = owner;
@@ -88,12 +95,83 @@ public class DefaultResolvedArtifact implements ResolvedArtifact {
         return artifact.getClassifier();
     }
 
+    /**
+     * Returns true when the file of this artifact has been resolved, so that {@link #getFile()} will not need to do any work.
+     */
+    public boolean isResolved() {
+        return file != null;
+    }
+
+    /**
+     * Returns the resolution of the file of this artifact. The file is resolved once, by the first thread that runs the resolution or calls {@link #getFile()}.
+     * A failed resolution is not reused, the next attempt resolves the file again.
+     */
+    public synchronized RunnableFuture<File> getFileResolution() {
+        if (resolution == null) {
+            resolution = new FileResolution();
+        }
+        return resolution;
+    }
+
     public File getFile() {
-        if (file == null) {
-            file = artifactSource.create();
-            file = ARTIFACT_FILE_INTERNER.intern(file);
-            artifactSource = null;
+        File file = this.file;
+        if (file != null) {
+            return file;
+        }
+        RunnableFuture<File> resolution = getFileResolution();
+        resolution.run();
+        if (!resolution.isDone()) {
+            // Another thread is resolving the file. Waiting for it while holding a lock it needs, such as the artifact cache lock, would deadlock
+            return resolveConcurrently();
+        }
+        try {
+            return resolution.get();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    private File resolveConcurrently() {
+        Factory<File> artifactSource;
+        synchronized (this) {
+            artifactSource = this.artifactSource;
+        }
+        if (artifactSource == null) {
+            // Resolved in the meantime
+            return file;
+        }
+        return ARTIFACT_FILE_INTERNER.intern(artifactSource.create());
+    }
+
+    private class FileResolution extends FutureTask<File> {
+        FileResolution() {
+            super(new Callable<File>() {
+                @Override
+                public File call() {
+                    return resolveConcurrently();
+                }
+            });
+        }
+
+        @Override
+        protected void set(File result) {
+            file = result;
+            synchronized (DefaultResolvedArtifact.this) {
+                artifactSource = null;
+            }
+            super.set(result);
+        }
+
+        @Override
+        protected void setException(Throwable failure) {
+            synchronized (DefaultResolvedArtifact.this) {
+                if (resolution == this) {
+                    resolution = null;
+                }
+            }
+            super.setException(failure);
         }
-        return file;
     }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RunnableFuture;
+
+/**
+ * Resolves the files of a set of artifacts concurrently on a bounded pool, so that downloads from remote repositories do not happen one
+ * after the other. The number of connections to each repository is limited by the transport of that repository.
+ *
+ * <p>The caller may hold the artifact cache lock, which resolving an artifact needs as well. Waiting for the artifacts therefore happens as a
+ * long running operation, which releases the lock in the meantime. Failures are ignored here: the artifacts stay unresolved, and the failure
+ * is reported when the caller asks the artifact for its file.</p>
+ */
+public class ArtifactPrefetcher implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactPrefetcher.class);
+
+    private final ExecutorFactory executorFactory;
+    private final CacheLockingManager cacheLockingManager;
+    private final int maxConcurrentDownloads;
+    private StoppableExecutor executor;
+
+    public ArtifactPrefetcher(ExecutorFactory executorFactory, CacheLockingManager cacheLockingManager, int maxConcurrentDownloads) {
+        this.executorFactory = executorFactory;
+        this.cacheLockingManager = cacheLockingManager;
+        this.maxConcurrentDownloads = maxConcurrentDownloads;
+    }
+
+    /**
+     * Resolves the files of the given artifacts that have not been resolved yet, and waits for them to complete.
+     */
+    public void prefetch(Collection<? extends ResolvedArtifact> artifacts) {
+        if (maxConcurrentDownloads < 2) {
+            return;
+        }
+        List<DefaultResolvedArtifact> unresolved = new ArrayList<DefaultResolvedArtifact>();
+        for (ResolvedArtifact artifact : artifacts) {
+            if (artifact instanceof DefaultResolvedArtifact && !((DefaultResolvedArtifact) artifact).isResolved()) {
+                unresolved.add((DefaultResolvedArtifact) artifact);
+            }
+        }
+        if (unresolved.size() < 2) {
+            return;
+        }
+
+        final List<RunnableFuture<File>> tasks = new ArrayList<RunnableFuture<File>>(unresolved.size());
+        StoppableExecutor executor = getExecutor();
+        for (DefaultResolvedArtifact artifact : unresolved) {
+            // When another thread is already resolving the artifact, this waits for that thread instead
+            RunnableFuture<File> task = artifact.getFileResolution();
+            executor.execute(task);
+            tasks.add(task);
+        }
+
+        cacheLockingManager.longRunningOperation("Wait for artifacts", new Runnable() {
+            @Override
+            public void run() {
+                for (RunnableFuture<File> task : tasks) {
+                    try {
+                        task.get();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    } catch (ExecutionException e) {
+                        LOGGER.debug("Could not resolve artifact in the background.", e.getCause());
+                    }
+                }
+            }
+        });
+    }
+
+    private synchronized StoppableExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("Artifact resolution", maxConcurrentDownloads);
+        }
+        return executor;
+    }
+
+    @Override
+    public void stop() {
+        StoppableExecutor executor;
+        synchronized (this) {
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+}
@@ -58,6 +58,27 @@ public class DefaultArtifactSet implements ArtifactSet {
         return id;
     }
 
+    public ModuleVersionIdentifier getModuleVersionIdentifier() {
+        return moduleVersionIdentifier;
+    }
+
+    public ModuleSource getModuleSource() {
+        return moduleSource;
+    }
+
+    /**
+     * Returns the meta-data of the artifacts in this set, excluding those that are filtered out by the exclusions of this set.
+     */
+    public Set<ComponentArtifactMetadata> getArtifactMetadata() {
+        Set<ComponentArtifactMetadata> result = new LinkedHashSet<ComponentArtifactMetadata>(artifacts.size());
+        for (ComponentArtifactMetadata artifact : artifacts) {
+            if (!exclusions.excludeArtifact(moduleVersionIdentifier.getModule(), artifact.getName())) {
+                result.add(artifact);
+            }
+        }
+        return result;
+    }
+
     public Set<ResolvedArtifact> getArtifacts() {
         Set<ResolvedArtifact> resolvedArtifacts = new LinkedHashSet<ResolvedArtifact>(artifacts.size());
         for (ComponentArtifactMetadata artifact : artifacts) {
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.ComponentResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Resolves component meta-data in the background on a bounded pool, so that the dependency graph builder does not have to wait for each
+ * remote request in turn.
+ *
+ * <p>The thread that builds the graph holds the artifact cache lock, which the background resolution needs as well. Waiting for a result
+ * therefore happens as a long running operation, which releases the lock in the meantime. Remote requests release the lock too, so they
+ * run concurrently while access to the cache itself stays serialized.</p>
+ */
+public class ComponentMetaDataPrefetcher implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ComponentMetaDataPrefetcher.class);
+
+    private final ExecutorFactory executorFactory;
+    private final CacheLockingManager cacheLockingManager;
+    private final int maxConcurrentRequests;
+    private StoppableExecutor executor;
+
+    public ComponentMetaDataPrefetcher(ExecutorFactory executorFactory, CacheLockingManager cacheLockingManager, int maxConcurrentRequests) {
+        this.executorFactory = executorFactory;
+        this.cacheLockingManager = cacheLockingManager;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    /**
+     * Starts resolving the meta-data of the given component in the background.
+     */
+    public Future<ComponentResolveResult> resolve(final ComponentMetaDataResolver resolver, final ComponentIdentifier identifier, final ComponentOverrideMetadata componentOverrideMetadata) {
+        FutureTask<ComponentResolveResult> task = new FutureTask<ComponentResolveResult>(new Callable<ComponentResolveResult>() {
+            @Override
+            public ComponentResolveResult call() {
+                DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+                resolver.resolve(identifier, componentOverrideMetadata, result);
+                return result;
+            }
+        });
+        getExecutor().execute(task);
+        return task;
+    }
+
+    /**
+     * Waits for a result started with {@link #resolve}, releasing the cache lock while waiting. Rethrows any failure to resolve.
+     */
+    public ComponentResolveResult waitFor(final Future<ComponentResolveResult> result) {
+        if (result.isDone()) {
+            return getResult(result);
+        }
+        return cacheLockingManager.longRunningOperation("Wait for component meta-data", new Factory<ComponentResolveResult>() {
+            @Override
+            public ComponentResolveResult create() {
+                return getResult(result);
+            }
+        });
+    }
+
+    /**
+     * Waits for results that are no longer required, ignoring any failures.
+     */
+    public void waitForAll(final Collection<Future<ComponentResolveResult>> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        cacheLockingManager.longRunningOperation("Wait for component meta-data", new Runnable() {
+            @Override
+            public void run() {
+                for (Future<ComponentResolveResult> result : results) {
+                    try {
+                        result.get();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    } catch (ExecutionException e) {
+                        LOGGER.debug("Could not resolve component meta-data that is no longer required.", e.getCause());
+                    }
+                }
+            }
+        });
+    }
+
+    private static ComponentResolveResult getResult(Future<ComponentResolveResult> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    private synchronized StoppableExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("Component meta-data resolution", maxConcurrentRequests);
+        }
+        return executor;
+    }
+
+    @Override
+    public void stop() {
+        StoppableExecutor executor;
+        synchronized (this) {
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
 
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.ModuleDependency;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
@@ -37,6 +38,7 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflict
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons;
 import org.gradle.internal.component.local.model.DslOriginDependencyMetadata;
 import org.gradle.internal.component.model.ComponentArtifactMetadata;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
 import org.gradle.internal.component.model.ComponentResolveMetadata;
 import org.gradle.internal.component.model.ConfigurationMetadata;
 import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
@@ -64,6 +66,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 public class DependencyGraphBuilder {
     private static final Logger LOGGER = LoggerFactory.getLogger(DependencyGraphBuilder.class);
@@ -71,14 +74,25 @@ public class DependencyGraphBuilder {
     private final ResolveContextToComponentResolver moduleResolver;
     private final DependencyToComponentIdResolver idResolver;
     private final ComponentMetaDataResolver metaDataResolver;
+    private final ComponentMetaDataPrefetcher metaDataPrefetcher;
 
     public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
                                   ResolveContextToComponentResolver resolveContextToComponentResolver,
                                   ConflictHandler conflictHandler) {
+        this(componentIdResolver, componentMetaDataResolver, resolveContextToComponentResolver, conflictHandler, null);
+    }
+
+    /**
+     * @param metaDataPrefetcher Used to resolve component meta-data in the background, or null to resolve it when required.
+     */
+    public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
+                                  ResolveContextToComponentResolver resolveContextToComponentResolver,
+                                  ConflictHandler conflictHandler, @Nullable ComponentMetaDataPrefetcher metaDataPrefetcher) {
         this.idResolver = componentIdResolver;
         this.metaDataResolver = componentMetaDataResolver;
         this.moduleResolver = resolveContextToComponentResolver;
         this.conflictHandler = conflictHandler;
+        this.metaDataPrefetcher = metaDataPrefetcher;
     }
 
     public void resolve(ResolveContext resolveContext, DependencyGraphVisitor modelVisitor) {
@@ -86,10 +100,14 @@ public class DependencyGraphBuilder {
         DefaultBuildableComponentResolveResult rootModule = new DefaultBuildableComponentResolveResult();
         moduleResolver.resolve(resolveContext, rootModule);
 
-        ResolveState resolveState = new ResolveState(idGenerator, rootModule, resolveContext.getName(), idResolver, metaDataResolver);
+        ResolveState resolveState = new ResolveState(idGenerator, rootModule, resolveContext.getName(), idResolver, metaDataResolver, metaDataPrefetcher);
         conflictHandler.registerResolver(new DirectDependencyForcingResolver(resolveState.root.moduleRevision));
 
-        traverseGraph(resolveState, conflictHandler);
+        try {
+            traverseGraph(resolveState, conflictHandler);
+        } finally {
+            resolveState.discardPrefetchedMetaData();
+        }
         resolveState.root.moduleRevision.setSelectionReason(VersionSelectionReasons.ROOT);
 
         assembleResult(resolveState, modelVisitor);
@@ -111,6 +129,10 @@ public class DependencyGraphBuilder {
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
 
+                // Start resolving the meta-data of the new target components in the background, so that it is (more likely to be) available
+                // once the edges are attached below. This does not change the graph, so that the result is the same as when resolving serially.
+                resolveState.prefetchMetaData(dependencies);
+
                 for (DependencyEdge dependency : dependencies) {
                     LOGGER.debug("Visiting dependency {}", dependency);
 
@@ -340,14 +362,17 @@ public class DependencyGraphBuilder {
         private final IdGenerator<Long> idGenerator;
         private final DependencyToComponentIdResolver idResolver;
         private final ComponentMetaDataResolver metaDataResolver;
+        private final ComponentMetaDataPrefetcher metaDataPrefetcher;
+        private final Map<ModuleVersionIdentifier, PrefetchedMetaData> prefetchedMetaData = new LinkedHashMap<ModuleVersionIdentifier, PrefetchedMetaData>();
         private final Set<ConfigurationNode> queued = new HashSet<ConfigurationNode>();
         private final LinkedList<ConfigurationNode> queue = new LinkedList<ConfigurationNode>();
 
         public ResolveState(IdGenerator<Long> idGenerator, ComponentResolveResult rootResult, String rootConfigurationName, DependencyToComponentIdResolver idResolver,
-                            ComponentMetaDataResolver metaDataResolver) {
+                            ComponentMetaDataResolver metaDataResolver, ComponentMetaDataPrefetcher metaDataPrefetcher) {
             this.idGenerator = idGenerator;
             this.idResolver = idResolver;
             this.metaDataResolver = metaDataResolver;
+            this.metaDataPrefetcher = metaDataPrefetcher;
             ModuleVersionResolveState rootVersion = getRevision(rootResult.getId());
             rootVersion.setMetaData(rootResult.getMetaData());
             root = new RootConfigurationNode(idGenerator.generateId(), rootVersion, new ResolvedConfigurationIdentifier(rootVersion.id, rootConfigurationName), this);
@@ -392,6 +417,62 @@ public class DependencyGraphBuilder {
             return resolveState;
         }
 
+        /**
+         * Starts resolving the meta-data of the components the given dependencies resolve to, where not known yet.
+         */
+        public void prefetchMetaData(Collection<DependencyEdge> dependencies) {
+            if (metaDataPrefetcher == null) {
+                return;
+            }
+            for (DependencyEdge dependency : dependencies) {
+                ModuleVersionSelectorResolveState selector = dependency.selector;
+                ComponentIdResolveResult idResolveResult = selector.resolveComponentId();
+                if (idResolveResult.getFailure() != null || idResolveResult.getMetaData() != null) {
+                    continue;
+                }
+                ModuleVersionIdentifier id = idResolveResult.getModuleVersionId();
+                if (prefetchedMetaData.containsKey(id) || isMetaDataKnown(id)) {
+                    continue;
+                }
+                ComponentOverrideMetadata componentOverrideMetadata = DefaultComponentOverrideMetadata.forDependency(selector.dependencyMetadata);
+                Future<ComponentResolveResult> result = metaDataPrefetcher.resolve(metaDataResolver, idResolveResult.getId(), componentOverrideMetadata);
+                prefetchedMetaData.put(id, new PrefetchedMetaData(selector, result));
+            }
+        }
+
+        private boolean isMetaDataKnown(ModuleVersionIdentifier id) {
+            // Look up without creating state, to leave the graph untouched
+            ModuleResolveState module = modules.get(id.getModule());
+            ModuleVersionResolveState version = module == null ? null : module.versions.get(id);
+            return version != null && (version.metaData != null || version.failure != null);
+        }
+
+        /**
+         * Returns the meta-data resolved in the background for the given component and selector, or null if there is none.
+         */
+        @Nullable
+        public ComponentResolveResult takePrefetchedMetaData(ModuleVersionIdentifier id, ModuleVersionSelectorResolveState selector) {
+            PrefetchedMetaData prefetched = prefetchedMetaData.remove(id);
+            if (prefetched == null) {
+                return null;
+            }
+            ComponentResolveResult result = metaDataPrefetcher.waitFor(prefetched.result);
+            // The result for another selector may have been resolved with different overrides, so only use it to warm up the caches
+            return prefetched.selector == selector ? result : null;
+        }
+
+        public void discardPrefetchedMetaData() {
+            if (prefetchedMetaData.isEmpty()) {
+                return;
+            }
+            List<Future<ComponentResolveResult>> results = new ArrayList<Future<ComponentResolveResult>>(prefetchedMetaData.size());
+            for (PrefetchedMetaData prefetched : prefetchedMetaData.values()) {
+                results.add(prefetched.result);
+            }
+            prefetchedMetaData.clear();
+            metaDataPrefetcher.waitForAll(results);
+        }
+
         public ConfigurationNode peek() {
             return queue.isEmpty() ? null : queue.getFirst();
         }
@@ -424,6 +505,16 @@ public class DependencyGraphBuilder {
         }
     }
 
+    private static class PrefetchedMetaData {
+        final ModuleVersionSelectorResolveState selector;
+        final Future<ComponentResolveResult> result;
+
+        PrefetchedMetaData(ModuleVersionSelectorResolveState selector, Future<ComponentResolveResult> result) {
+            this.selector = selector;
+            this.result = result;
+        }
+    }
+
     enum ModuleState {
         New,
         Selected,
@@ -604,8 +695,12 @@ public class DependencyGraphBuilder {
                 return;
             }
 
-            DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
-            resolver.resolve(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetadata), result);
+            ComponentResolveResult result = module.resolveState.takePrefetchedMetaData(id, firstReference);
+            if (result == null) {
+                DefaultBuildableComponentResolveResult resolveResult = new DefaultBuildableComponentResolveResult();
+                resolver.resolve(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetadata), resolveResult);
+                result = resolveResult;
+            }
             if (result.getFailure() != null) {
                 failure = result.getFailure();
                 return;
@@ -905,8 +1000,7 @@ public class DependencyGraphBuilder {
                 return null;
             }
 
-            idResolveResult = new DefaultBuildableComponentIdResolveResult();
-            resolver.resolve(dependencyMetadata, idResolveResult);
+            resolveComponentId();
             if (idResolveResult.getFailure() != null) {
                 failure = idResolveResult.getFailure();
                 return null;
@@ -921,6 +1015,17 @@ public class DependencyGraphBuilder {
             return targetModuleRevision;
         }
 
+        /**
+         * Resolves the id of the target component, without adding it to the graph.
+         */
+        public ComponentIdResolveResult resolveComponentId() {
+            if (idResolveResult == null) {
+                idResolveResult = new DefaultBuildableComponentIdResolveResult();
+                resolver.resolve(dependencyMetadata, idResolveResult);
+            }
+            return idResolveResult;
+        }
+
         public void restart(ModuleVersionResolveState moduleRevision) {
             this.targetModuleRevision = moduleRevision;
             this.targetModule = moduleRevision.module;
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import com.google.common.collect.Maps;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.artifacts.result.ComponentSelectionReason;
+import org.gradle.api.internal.artifacts.DefaultModuleVersionSelector;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusion;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentResult;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.internal.component.model.ComponentArtifactMetadata;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.ConfigurationMetadata;
+import org.gradle.internal.component.model.ModuleSource;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+import org.gradle.internal.resolve.resolver.ArtifactResolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A dependency graph that has been resolved for a configuration, in a form that can be persisted and later replayed to the visitors that
+ * assemble the resolution results.
+ *
+ * <p>The replayed graph carries everything the result visitors use, but none of the component or configuration meta-data. The artifacts
+ * of each node are recorded up front, so that they do not need to be calculated from the meta-data either.</p>
+ */
+public class CachedResolvedGraph {
+    private final List<ComponentResult> components;
+    private final List<NodeData> nodes;
+    private final int rootNode;
+    private final List<ArtifactSetData> artifactSets;
+    private final List<ArtifactsVisit> artifactsVisits;
+
+    CachedResolvedGraph(List<ComponentResult> components, List<NodeData> nodes, int rootNode, List<ArtifactSetData> artifactSets, List<ArtifactsVisit> artifactsVisits) {
+        this.components = components;
+        this.nodes = nodes;
+        this.rootNode = rootNode;
+        this.artifactSets = artifactSets;
+        this.artifactsVisits = artifactsVisits;
+    }
+
+    public List<ComponentResult> getComponents() {
+        return components;
+    }
+
+    List<NodeData> getNodes() {
+        return nodes;
+    }
+
+    int getRootNode() {
+        return rootNode;
+    }
+
+    List<ArtifactSetData> getArtifactSets() {
+        return artifactSets;
+    }
+
+    List<ArtifactsVisit> getArtifactsVisits() {
+        return artifactsVisits;
+    }
+
+    /**
+     * Replays this graph to the given visitors, in the same order as the graph builder visited the graph when it was resolved.
+     *
+     * @param declaredDependencies the module dependencies declared by the configuration, as returned by {@link ResolvedGraphCache#getDeclaredDependencies}.
+     * @param artifactResolver the resolver to use to resolve the files of the artifacts in the graph.
+     */
+    public void visit(List<ModuleDependency> declaredDependencies, ArtifactResolver artifactResolver, DependencyGraphVisitor graphVisitor, DependencyArtifactsVisitor artifactsVisitor) {
+        Map<Long, CachedComponent> componentsById = new LinkedHashMap<Long, CachedComponent>();
+        for (ComponentResult component : components) {
+            componentsById.put(component.getResultId(), new CachedComponent(component));
+        }
+        List<CachedNode> graphNodes = new ArrayList<CachedNode>(nodes.size());
+        for (NodeData node : nodes) {
+            graphNodes.add(new CachedNode(node.resultId, node.nodeId, componentsById.get(node.ownerId)));
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            CachedNode from = graphNodes.get(i);
+            for (EdgeData edge : nodes.get(i).outgoingEdges) {
+                ModuleDependency moduleDependency = edge.dependencyIndex < 0 ? null : declaredDependencies.get(edge.dependencyIndex);
+                from.outgoingEdges.add(new CachedEdge(from, edge.requested, edge.selected, moduleDependency));
+            }
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            CachedNode to = graphNodes.get(i);
+            for (EdgeReference edge : nodes.get(i).incomingEdges) {
+                to.incomingEdges.add(graphNodes.get(edge.node).outgoingEdges.get(edge.edge));
+            }
+        }
+
+        Map<ComponentArtifactIdentifier, ResolvedArtifact> allResolvedArtifacts = Maps.newHashMap();
+        Map<Long, ArtifactSet> artifactSetsById = Maps.newHashMap();
+        for (ArtifactSetData artifactSet : artifactSets) {
+            artifactSetsById.put(artifactSet.id, new DefaultArtifactSet(artifactSet.moduleVersionIdentifier, artifactSet.moduleSource, ModuleExclusions.excludeNone(), artifactSet.artifacts, artifactResolver, allResolvedArtifacts, artifactSet.id));
+        }
+
+        CachedNode root = graphNodes.get(rootNode);
+        graphVisitor.start(root);
+        for (CachedNode node : graphNodes) {
+            graphVisitor.visitNode(node);
+        }
+        int nextVisit = 0;
+        for (int i = 0; i < graphNodes.size(); i++) {
+            CachedNode node = graphNodes.get(i);
+            graphVisitor.visitEdge(node);
+            while (nextVisit < artifactsVisits.size() && artifactsVisits.get(nextVisit).child == i) {
+                ArtifactsVisit visit = artifactsVisits.get(nextVisit++);
+                artifactsVisitor.visitArtifacts(graphNodes.get(visit.parent), node, artifactSetsById.get(visit.artifactSetId));
+            }
+        }
+        graphVisitor.finish(root);
+        artifactsVisitor.finishArtifacts();
+    }
+
+    static class NodeData {
+        final long resultId;
+        final ResolvedConfigurationIdentifier nodeId;
+        final long ownerId;
+        final List<EdgeData> outgoingEdges = new ArrayList<EdgeData>();
+        final List<EdgeReference> incomingEdges = new ArrayList<EdgeReference>();
+
+        NodeData(long resultId, ResolvedConfigurationIdentifier nodeId, long ownerId) {
+            this.resultId = resultId;
+            this.nodeId = nodeId;
+            this.ownerId = ownerId;
+        }
+    }
+
+    static class EdgeData {
+        final ComponentSelector requested;
+        final long selected;
+        // Index of the declared dependency this edge originates from, or -1 when it does not originate from a declared dependency
+        final int dependencyIndex;
+
+        EdgeData(ComponentSelector requested, long selected, int dependencyIndex) {
+            this.requested = requested;
+            this.selected = selected;
+            this.dependencyIndex = dependencyIndex;
+        }
+    }
+
+    static class EdgeReference {
+        final int node;
+        final int edge;
+
+        EdgeReference(int node, int edge) {
+            this.node = node;
+            this.edge = edge;
+        }
+    }
+
+    static class ArtifactSetData {
+        final long id;
+        final ModuleVersionIdentifier moduleVersionIdentifier;
+        final ModuleSource moduleSource;
+        final Set<ComponentArtifactMetadata> artifacts;
+
+        ArtifactSetData(long id, ModuleVersionIdentifier moduleVersionIdentifier, ModuleSource moduleSource, Set<ComponentArtifactMetadata> artifacts) {
+            this.id = id;
+            this.moduleVersionIdentifier = moduleVersionIdentifier;
+            this.moduleSource = moduleSource;
+            this.artifacts = artifacts;
+        }
+    }
+
+    static class ArtifactsVisit {
+        final int parent;
+        final int child;
+        final long artifactSetId;
+
+        ArtifactsVisit(int parent, int child, long artifactSetId) {
+            this.parent = parent;
+            this.child = child;
+            this.artifactSetId = artifactSetId;
+        }
+    }
+
+    private static class CachedComponent implements DependencyGraphComponent {
+        private final ComponentResult component;
+
+        CachedComponent(ComponentResult component) {
+            this.component = component;
+        }
+
+        @Override
+        public Long getResultId() {
+            return component.getResultId();
+        }
+
+        @Override
+        public ModuleVersionIdentifier getModuleVersion() {
+            return component.getModuleVersion();
+        }
+
+        @Override
+        public ComponentSelectionReason getSelectionReason() {
+            return component.getSelectionReason();
+        }
+
+        @Override
+        public ComponentIdentifier getComponentId() {
+            return component.getComponentId();
+        }
+
+        @Override
+        public ComponentResolveMetadata getMetadata() {
+            throw new UnsupportedOperationException("Meta-data is not available for a cached dependency graph.");
+        }
+
+        @Override
+        public Set<? extends DependencyGraphComponent> getDependents() {
+            return Collections.emptySet();
+        }
+    }
+
+    private static class CachedNode implements DependencyGraphNode {
+        private final Long resultId;
+        private final ResolvedConfigurationIdentifier nodeId;
+        private final CachedComponent owner;
+        private final Set<CachedEdge> incomingEdges = new LinkedHashSet<CachedEdge>();
+        private final List<CachedEdge> outgoingEdges = new ArrayList<CachedEdge>();
+
+        CachedNode(Long resultId, ResolvedConfigurationIdentifier nodeId, CachedComponent owner) {
+            this.resultId = resultId;
+            this.nodeId = nodeId;
+            this.owner = owner;
+        }
+
+        @Override
+        public Long getResultId() {
+            return resultId;
+        }
+
+        @Override
+        public ResolvedConfigurationIdentifier getNodeId() {
+            return nodeId;
+        }
+
+        @Override
+        public DependencyGraphComponent getOwner() {
+            return owner;
+        }
+
+        @Override
+        public Set<? extends DependencyGraphEdge> getIncomingEdges() {
+            return incomingEdges;
+        }
+
+        @Override
+        public Set<? extends DependencyGraphEdge> getOutgoingEdges() {
+            return new LinkedHashSet<CachedEdge>(outgoingEdges);
+        }
+
+        /**
+         * Returns null, as only graphs that contain no local components other than the root are cached.
+         */
+        @Override
+        public ConfigurationMetadata getMetadata() {
+            return null;
+        }
+    }
+
+    private static class CachedEdge implements DependencyGraphEdge {
+        private final CachedNode from;
+        private final ComponentSelector requested;
+        private final Long selected;
+        private final ModuleDependency moduleDependency;
+
+        CachedEdge(CachedNode from, ComponentSelector requested, Long selected, ModuleDependency moduleDependency) {
+            this.from = from;
+            this.requested = requested;
+            this.selected = selected;
+            this.moduleDependency = moduleDependency;
+        }
+
+        @Override
+        public DependencyGraphNode getFrom() {
+            return from;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return requested;
+        }
+
+        @Override
+        public ModuleVersionSelector getRequestedModuleVersion() {
+            ModuleComponentSelector selector = (ModuleComponentSelector) requested;
+            return DefaultModuleVersionSelector.newSelector(selector.getGroup(), selector.getModule(), selector.getVersion());
+        }
+
+        @Override
+        public ModuleVersionResolveException getFailure() {
+            return null;
+        }
+
+        @Override
+        public Long getSelected() {
+            return selected;
+        }
+
+        @Override
+        public ComponentSelectionReason getReason() {
+            return null;
+        }
+
+        @Override
+        public ModuleExclusion getExclusions() {
+            throw new UnsupportedOperationException("Exclusions are not available for a cached dependency graph.");
+        }
+
+        @Override
+        public Set<ComponentArtifactMetadata> getArtifacts(ConfigurationMetadata metaData) {
+            throw new UnsupportedOperationException("Artifacts are not available for a cached dependency graph.");
+        }
+
+        @Override
+        public ModuleDependency getModuleDependency() {
+            return moduleDependency;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.internal.artifacts.ModuleVersionIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentResult;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentResultSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentSelectorSerializer;
+import org.gradle.api.internal.artifacts.metadata.ComponentArtifactMetadataSerializer;
+import org.gradle.internal.component.model.ComponentArtifactMetadata;
+import org.gradle.internal.component.model.ModuleSource;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.DefaultSerializer;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Serializer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public class CachedResolvedGraphSerializer implements Serializer<CachedResolvedGraph> {
+    private final ComponentResultSerializer componentResultSerializer = new ComponentResultSerializer();
+    private final ResolvedConfigurationIdentifierSerializer nodeIdSerializer = new ResolvedConfigurationIdentifierSerializer();
+    private final ComponentSelectorSerializer componentSelectorSerializer = new ComponentSelectorSerializer();
+    private final ModuleVersionIdentifierSerializer moduleVersionIdentifierSerializer = new ModuleVersionIdentifierSerializer();
+    private final DefaultSerializer<ModuleSource> moduleSourceSerializer = new DefaultSerializer<ModuleSource>(ModuleSource.class.getClassLoader());
+    private final ComponentArtifactMetadataSerializer artifactSerializer = new ComponentArtifactMetadataSerializer();
+
+    @Override
+    public CachedResolvedGraph read(Decoder decoder) throws Exception {
+        int componentCount = decoder.readSmallInt();
+        List<ComponentResult> components = new ArrayList<ComponentResult>(componentCount);
+        for (int i = 0; i < componentCount; i++) {
+            components.add(componentResultSerializer.read(decoder));
+        }
+
+        int nodeCount = decoder.readSmallInt();
+        List<CachedResolvedGraph.NodeData> nodes = new ArrayList<CachedResolvedGraph.NodeData>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            long resultId = decoder.readSmallLong();
+            ResolvedConfigurationIdentifier nodeId = nodeIdSerializer.read(decoder);
+            long ownerId = decoder.readSmallLong();
+            CachedResolvedGraph.NodeData node = new CachedResolvedGraph.NodeData(resultId, nodeId, ownerId);
+            int outgoingCount = decoder.readSmallInt();
+            for (int j = 0; j < outgoingCount; j++) {
+                node.outgoingEdges.add(new CachedResolvedGraph.EdgeData(componentSelectorSerializer.read(decoder), decoder.readSmallLong(), decoder.readInt()));
+            }
+            int incomingCount = decoder.readSmallInt();
+            for (int j = 0; j < incomingCount; j++) {
+                node.incomingEdges.add(new CachedResolvedGraph.EdgeReference(decoder.readSmallInt(), decoder.readSmallInt()));
+            }
+            nodes.add(node);
+        }
+        int rootNode = decoder.readSmallInt();
+
+        int artifactSetCount = decoder.readSmallInt();
+        List<CachedResolvedGraph.ArtifactSetData> artifactSets = new ArrayList<CachedResolvedGraph.ArtifactSetData>(artifactSetCount);
+        for (int i = 0; i < artifactSetCount; i++) {
+            long id = decoder.readSmallLong();
+            ModuleVersionIdentifier moduleVersionIdentifier = moduleVersionIdentifierSerializer.read(decoder);
+            ModuleSource moduleSource = moduleSourceSerializer.read(decoder);
+            int artifactCount = decoder.readSmallInt();
+            Set<ComponentArtifactMetadata> artifacts = new LinkedHashSet<ComponentArtifactMetadata>(artifactCount);
+            for (int j = 0; j < artifactCount; j++) {
+                artifacts.add(artifactSerializer.read(decoder));
+            }
+            artifactSets.add(new CachedResolvedGraph.ArtifactSetData(id, moduleVersionIdentifier, moduleSource, artifacts));
+        }
+
+        int visitCount = decoder.readSmallInt();
+        List<CachedResolvedGraph.ArtifactsVisit> visits = new ArrayList<CachedResolvedGraph.ArtifactsVisit>(visitCount);
+        for (int i = 0; i < visitCount; i++) {
+            visits.add(new CachedResolvedGraph.ArtifactsVisit(decoder.readSmallInt(), decoder.readSmallInt(), decoder.readSmallLong()));
+        }
+        return new CachedResolvedGraph(components, nodes, rootNode, artifactSets, visits);
+    }
+
+    @Override
+    public void write(Encoder encoder, CachedResolvedGraph value) throws Exception {
+        encoder.writeSmallInt(value.getComponents().size());
+        for (ComponentResult component : value.getComponents()) {
+            componentResultSerializer.write(encoder, component);
+        }
+
+        encoder.writeSmallInt(value.getNodes().size());
+        for (CachedResolvedGraph.NodeData node : value.getNodes()) {
+            encoder.writeSmallLong(node.resultId);
+            nodeIdSerializer.write(encoder, node.nodeId);
+            encoder.writeSmallLong(node.ownerId);
+            encoder.writeSmallInt(node.outgoingEdges.size());
+            for (CachedResolvedGraph.EdgeData edge : node.outgoingEdges) {
+                componentSelectorSerializer.write(encoder, edge.requested);
+                encoder.writeSmallLong(edge.selected);
+                encoder.writeInt(edge.dependencyIndex);
+            }
+            encoder.writeSmallInt(node.incomingEdges.size());
+            for (CachedResolvedGraph.EdgeReference edge : node.incomingEdges) {
+                encoder.writeSmallInt(edge.node);
+                encoder.writeSmallInt(edge.edge);
+            }
+        }
+        encoder.writeSmallInt(value.getRootNode());
+
+        encoder.writeSmallInt(value.getArtifactSets().size());
+        for (CachedResolvedGraph.ArtifactSetData artifactSet : value.getArtifactSets()) {
+            encoder.writeSmallLong(artifactSet.id);
+            moduleVersionIdentifierSerializer.write(encoder, artifactSet.moduleVersionIdentifier);
+            moduleSourceSerializer.write(encoder, artifactSet.moduleSource);
+            encoder.writeSmallInt(artifactSet.artifacts.size());
+            for (ComponentArtifactMetadata artifact : artifactSet.artifacts) {
+                artifactSerializer.write(encoder, artifact);
+            }
+        }
+
+        encoder.writeSmallInt(value.getArtifactsVisits().size());
+        for (CachedResolvedGraph.ArtifactsVisit visit : value.getArtifactsVisits()) {
+            encoder.writeSmallInt(visit.parent);
+            encoder.writeSmallInt(visit.child);
+            encoder.writeSmallLong(visit.artifactSetId);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.DependencyArtifact;
+import org.gradle.api.artifacts.ExcludeRule;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.Module;
+import org.gradle.api.internal.artifacts.ResolveContext;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.util.GradleVersion;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Calculates a hash of everything that the dependency graph of a configuration is calculated from, other than the content of the module meta-data caches.
+ *
+ * <p>Returns null for configurations whose graph depends on things that cannot be hashed, such as project dependencies or resolution rules.</p>
+ */
+class ResolveInputsHasher {
+    private final Hasher hasher = Hashing.md5().newHasher();
+
+    @Nullable
+    HashCode hash(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules globalRules) {
+        if (!(resolveContext instanceof ConfigurationInternal)) {
+            return null;
+        }
+        ConfigurationInternal configuration = (ConfigurationInternal) resolveContext;
+        putString(GradleVersion.current().getVersion());
+        putString(configuration.getPath());
+
+        Module module = configuration.getModule();
+        putString(module.getGroup());
+        putString(module.getName());
+        putString(module.getVersion());
+        putString(module.getStatus());
+        putString(module.getProjectPath());
+
+        for (Configuration candidate : configuration.getHierarchy()) {
+            if (!hashConfiguration(candidate)) {
+                return null;
+            }
+        }
+        if (!hashResolutionStrategy(configuration.getResolutionStrategy())) {
+            return null;
+        }
+        if (globalRules.getDependencySubstitutionRules().hasRules()
+            || globalRules.getComponentMetadataProcessor().hasRules()
+            || globalRules.getModuleMetadataProcessor().getModuleReplacements().hasReplacements()) {
+            return null;
+        }
+        for (ResolutionAwareRepository repository : repositories) {
+            ConfiguredModuleComponentRepository resolver = repository.createResolver();
+            if (resolver.isLocal()) {
+                return null;
+            }
+            putString(resolver.getId());
+            hasher.putBoolean(resolver.isDynamicResolveMode());
+        }
+        return hasher.hash();
+    }
+
+    private boolean hashConfiguration(Configuration configuration) {
+        putString(configuration.getName());
+        hasher.putBoolean(configuration.isVisible());
+        hasher.putBoolean(configuration.isTransitive());
+        Map<String, String> attributes = new TreeMap<String, String>(configuration.getAttributes());
+        hasher.putInt(attributes.size());
+        for (Map.Entry<String, String> entry : attributes.entrySet()) {
+            putString(entry.getKey());
+            putString(entry.getValue());
+        }
+        hashExcludeRules(configuration.getExcludeRules());
+        for (Dependency dependency : configuration.getDependencies()) {
+            if (!(dependency instanceof ModuleDependency)) {
+                // File dependencies are not part of the graph
+                continue;
+            }
+            if (!(dependency instanceof ExternalModuleDependency) || dependency instanceof ClientModule) {
+                return false;
+            }
+            ExternalModuleDependency moduleDependency = (ExternalModuleDependency) dependency;
+            if (moduleDependency.isChanging()) {
+                return false;
+            }
+            putString(moduleDependency.getGroup());
+            putString(moduleDependency.getName());
+            putString(moduleDependency.getVersion());
+            putString(moduleDependency.getConfiguration());
+            hasher.putBoolean(moduleDependency.isTransitive());
+            hasher.putBoolean(moduleDependency.isForce());
+            hashExcludeRules(moduleDependency.getExcludeRules());
+            hasher.putInt(moduleDependency.getArtifacts().size());
+            for (DependencyArtifact artifact : moduleDependency.getArtifacts()) {
+                putString(artifact.getName());
+                putString(artifact.getType());
+                putString(artifact.getExtension());
+                putString(artifact.getClassifier());
+                putString(artifact.getUrl());
+            }
+        }
+        // Separates the dependencies of this configuration from the next one
+        hasher.putInt(-1);
+        return true;
+    }
+
+    private void hashExcludeRules(Iterable<ExcludeRule> excludeRules) {
+        for (ExcludeRule excludeRule : excludeRules) {
+            putString(excludeRule.getGroup());
+            putString(excludeRule.getModule());
+        }
+        hasher.putInt(-1);
+    }
+
+    private boolean hashResolutionStrategy(ResolutionStrategyInternal resolutionStrategy) {
+        if (resolutionStrategy.getDependencySubstitution().hasRules() || !resolutionStrategy.getComponentSelection().getRules().isEmpty()) {
+            return false;
+        }
+        putString(resolutionStrategy.getConflictResolution().getClass().getName());
+        for (ModuleVersionSelector forcedModule : resolutionStrategy.getForcedModules()) {
+            putString(forcedModule.getGroup());
+            putString(forcedModule.getName());
+            putString(forcedModule.getVersion());
+        }
+        hasher.putInt(-1);
+        return true;
+    }
+
+    private void putString(@Nullable String value) {
+        if (value == null) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(value.length());
+            hasher.putString(value, Charsets.UTF_8);
+        }
+    }
+}
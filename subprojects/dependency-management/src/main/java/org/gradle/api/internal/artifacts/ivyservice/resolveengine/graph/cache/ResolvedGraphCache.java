@@ -0,0 +1,224 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.Module;
+import org.gradle.api.internal.artifacts.ResolveContext;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.DefaultResolvedModuleVersion;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentResult;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.resolve.resolver.ArtifactResolver;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.HashCodeSerializer;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.util.BuildCommencedTimeProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A persistent cache of the dependency graphs resolved for configurations, keyed by a hash of the inputs to the resolution.
+ *
+ * <p>A cached graph is used until the cache policy requires any of the modules in the graph to be refreshed, at which point the graph is resolved
+ * again. Configurations whose graph may change without any change to the inputs, such as those with dynamic versions or changing modules, are not
+ * cached.</p>
+ *
+ * <p>The cache holds a single graph for each configuration, which is replaced when the inputs of the configuration change. This bounds the size of
+ * the cache to the number of configurations resolved, rather than the number of distinct inputs ever resolved.</p>
+ */
+public class ResolvedGraphCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResolvedGraphCache.class);
+
+    private final CacheLockingManager cacheLockingManager;
+    private final BuildCommencedTimeProvider timeProvider;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final CachedResolvedGraphSerializer graphSerializer = new CachedResolvedGraphSerializer();
+    private PersistentIndexedCache<HashCode, CachedGraphEntry> cache;
+
+    public ResolvedGraphCache(CacheLockingManager cacheLockingManager, BuildCommencedTimeProvider timeProvider, VersionSelectorScheme versionSelectorScheme) {
+        this.cacheLockingManager = cacheLockingManager;
+        this.timeProvider = timeProvider;
+        this.versionSelectorScheme = versionSelectorScheme;
+    }
+
+    private PersistentIndexedCache<HashCode, CachedGraphEntry> getCache() {
+        if (cache == null) {
+            cache = cacheLockingManager.createCache("resolved-graphs", new HashCodeSerializer(), new CachedGraphEntrySerializer());
+        }
+        return cache;
+    }
+
+    /**
+     * Calculates the key to use for the graph of the given configuration, or null when the graph cannot be cached.
+     */
+    @Nullable
+    public HashCode getCacheKey(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules globalRules) {
+        return new ResolveInputsHasher().hash(resolveContext, repositories, globalRules);
+    }
+
+    /**
+     * Replays the cached graph with the given key to the given visitors.
+     *
+     * @return true when the cached graph was used, false when there is no usable graph and the graph needs to be resolved.
+     */
+    public boolean visitCachedGraph(HashCode key, ResolveContext resolveContext, ArtifactResolver artifactResolver, DependencyGraphVisitor graphVisitor, DependencyArtifactsVisitor artifactsVisitor) {
+        CachedGraphEntry entry = getCache().get(getEntryKey(resolveContext));
+        if (entry == null || !entry.inputsHash.equals(key)) {
+            return false;
+        }
+        CachedResolvedGraph graph;
+        try {
+            graph = graphSerializer.read(new KryoBackedDecoder(new ByteArrayInputStream(entry.encodedGraph)));
+        } catch (Exception e) {
+            LOGGER.debug("Could not read cached dependency graph for {}.", resolveContext, e);
+            return false;
+        }
+
+        long ageMillis = timeProvider.getCurrentTime() - entry.createTimestamp;
+        CachePolicy cachePolicy = resolveContext.getResolutionStrategy().getCachePolicy();
+        for (ComponentResult component : graph.getComponents()) {
+            if (component.getComponentId() instanceof ModuleComponentIdentifier) {
+                ModuleComponentIdentifier id = (ModuleComponentIdentifier) component.getComponentId();
+                if (cachePolicy.mustRefreshModule(id, new DefaultResolvedModuleVersion(component.getModuleVersion()), ageMillis)
+                    || cachePolicy.mustRefreshMissingModule(id, ageMillis)) {
+                    return false;
+                }
+            }
+        }
+
+        LOGGER.debug("Using cached dependency graph for {}.", resolveContext);
+        graph.visit(getDeclaredDependencies(resolveContext), artifactResolver, graphVisitor, artifactsVisitor);
+        return true;
+    }
+
+    /**
+     * Creates a recorder for the graph of the given configuration, to pass to {@link #store} once the graph has been resolved.
+     */
+    public ResolvedGraphRecorder createRecorder(ResolveContext resolveContext) {
+        List<ModuleDependency> declaredDependencies = getDeclaredDependencies(resolveContext);
+        Map<ModuleDependency, Integer> indexes = new IdentityHashMap<ModuleDependency, Integer>();
+        for (int i = 0; i < declaredDependencies.size(); i++) {
+            indexes.put(declaredDependencies.get(i), i);
+        }
+        return new ResolvedGraphRecorder(versionSelectorScheme, indexes);
+    }
+
+    public void store(HashCode key, ResolveContext resolveContext, ResolvedGraphRecorder recorder) {
+        CachedResolvedGraph graph = recorder.complete();
+        if (graph == null) {
+            return;
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream);
+        try {
+            graphSerializer.write(encoder, graph);
+            encoder.flush();
+        } catch (Exception e) {
+            // Some module sources cannot be serialized, in which case the graph is simply not cached
+            LOGGER.debug("Could not cache dependency graph.", e);
+            return;
+        }
+        getCache().put(getEntryKey(resolveContext), new CachedGraphEntry(key, timeProvider.getCurrentTime(), outputStream.toByteArray()));
+    }
+
+    /**
+     * Returns the key of the entry that holds the graph of the given configuration, whatever its inputs.
+     */
+    private static HashCode getEntryKey(ResolveContext resolveContext) {
+        Module module = ((ConfigurationInternal) resolveContext).getModule();
+        Hasher hasher = Hashing.md5().newHasher();
+        putString(hasher, module.getGroup());
+        putString(hasher, module.getName());
+        putString(hasher, module.getProjectPath());
+        putString(hasher, ((ConfigurationInternal) resolveContext).getPath());
+        return hasher.hash();
+    }
+
+    private static void putString(Hasher hasher, @Nullable String value) {
+        if (value == null) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(value.length());
+            hasher.putString(value, Charsets.UTF_8);
+        }
+    }
+
+    /**
+     * Returns the module dependencies declared by the given configuration and the configurations it extends, in a stable order.
+     */
+    static List<ModuleDependency> getDeclaredDependencies(ResolveContext resolveContext) {
+        List<ModuleDependency> dependencies = new ArrayList<ModuleDependency>();
+        for (Configuration configuration : ((Configuration) resolveContext).getHierarchy()) {
+            dependencies.addAll(configuration.getDependencies().withType(ModuleDependency.class));
+        }
+        return dependencies;
+    }
+
+    private static class CachedGraphEntry {
+        private final HashCode inputsHash;
+        private final long createTimestamp;
+        private final byte[] encodedGraph;
+
+        CachedGraphEntry(HashCode inputsHash, long createTimestamp, byte[] encodedGraph) {
+            this.inputsHash = inputsHash;
+            this.createTimestamp = createTimestamp;
+            this.encodedGraph = encodedGraph;
+        }
+    }
+
+    private static class CachedGraphEntrySerializer implements Serializer<CachedGraphEntry> {
+        private final HashCodeSerializer hashCodeSerializer = new HashCodeSerializer();
+
+        public void write(Encoder encoder, CachedGraphEntry value) throws Exception {
+            hashCodeSerializer.write(encoder, value.inputsHash);
+            encoder.writeLong(value.createTimestamp);
+            encoder.writeBinary(value.encodedGraph);
+        }
+
+        public CachedGraphEntry read(Decoder decoder) throws Exception {
+            HashCode inputsHash = hashCodeSerializer.read(decoder);
+            long createTimestamp = decoder.readLong();
+            byte[] encodedGraph = decoder.readBinary();
+            return new CachedGraphEntry(inputsHash, createTimestamp, encodedGraph);
+        }
+    }
+}
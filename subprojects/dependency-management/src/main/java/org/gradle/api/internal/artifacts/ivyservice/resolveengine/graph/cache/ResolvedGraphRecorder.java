@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentResult;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DefaultComponentResult;
+import org.gradle.internal.component.external.model.ModuleComponentArtifactMetadata;
+import org.gradle.internal.component.model.ComponentArtifactMetadata;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the dependency graph of a configuration as it is resolved, so that it can be stored in the {@link ResolvedGraphCache}.
+ *
+ * <p>Only graphs whose result is fully determined by the inputs of the resolution and the state of the module meta-data caches can be
+ * replayed. When the graph contains anything else, such as a failure, a local component, a dynamic version or a changing module, the recorder
+ * gives up and {@link #complete()} returns null.</p>
+ */
+public class ResolvedGraphRecorder implements DependencyGraphVisitor, DependencyArtifactsVisitor {
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final Map<ModuleDependency, Integer> declaredDependencies;
+    private final Map<Long, ComponentResult> components = new LinkedHashMap<Long, ComponentResult>();
+    private final List<CachedResolvedGraph.NodeData> nodes = new ArrayList<CachedResolvedGraph.NodeData>();
+    private final Map<DependencyGraphNode, Integer> nodeIndexes = new IdentityHashMap<DependencyGraphNode, Integer>();
+    private final Map<DependencyGraphEdge, CachedResolvedGraph.EdgeReference> edges = new IdentityHashMap<DependencyGraphEdge, CachedResolvedGraph.EdgeReference>();
+    private final Map<Long, CachedResolvedGraph.ArtifactSetData> artifactSets = new LinkedHashMap<Long, CachedResolvedGraph.ArtifactSetData>();
+    private final List<CachedResolvedGraph.ArtifactsVisit> artifactsVisits = new ArrayList<CachedResolvedGraph.ArtifactsVisit>();
+    private DependencyGraphNode root;
+    private DependencyGraphNode currentNode;
+    private boolean cacheable = true;
+
+    /**
+     * @param declaredDependencies the module dependencies declared by the configuration, mapped to their index in the list returned by {@link ResolvedGraphCache#getDeclaredDependencies}.
+     */
+    public ResolvedGraphRecorder(VersionSelectorScheme versionSelectorScheme, Map<ModuleDependency, Integer> declaredDependencies) {
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.declaredDependencies = declaredDependencies;
+    }
+
+    @Override
+    public void start(DependencyGraphNode root) {
+        this.root = root;
+    }
+
+    @Override
+    public void visitNode(DependencyGraphNode node) {
+        if (!cacheable) {
+            return;
+        }
+        DependencyGraphComponent owner = node.getOwner();
+        if (node != root && (!(owner.getComponentId() instanceof ModuleComponentIdentifier) || owner.getMetadata().isChanging())) {
+            cacheable = false;
+            return;
+        }
+        if (!components.containsKey(owner.getResultId())) {
+            components.put(owner.getResultId(), new DefaultComponentResult(owner.getResultId(), owner.getModuleVersion(), owner.getSelectionReason(), owner.getComponentId()));
+        }
+
+        int nodeIndex = nodes.size();
+        CachedResolvedGraph.NodeData nodeData = new CachedResolvedGraph.NodeData(node.getResultId(), node.getNodeId(), owner.getResultId());
+        for (DependencyGraphEdge edge : node.getOutgoingEdges()) {
+            ComponentSelector requested = edge.getRequested();
+            if (edge.getFailure() != null || !isStaticModuleSelector(requested)) {
+                cacheable = false;
+                return;
+            }
+            int dependencyIndex = -1;
+            ModuleDependency moduleDependency = edge.getModuleDependency();
+            if (moduleDependency != null) {
+                Integer index = declaredDependencies.get(moduleDependency);
+                if (index == null) {
+                    cacheable = false;
+                    return;
+                }
+                dependencyIndex = index;
+            }
+            edges.put(edge, new CachedResolvedGraph.EdgeReference(nodeIndex, nodeData.outgoingEdges.size()));
+            nodeData.outgoingEdges.add(new CachedResolvedGraph.EdgeData(requested, edge.getSelected(), dependencyIndex));
+        }
+        nodeIndexes.put(node, nodeIndex);
+        nodes.add(nodeData);
+    }
+
+    private boolean isStaticModuleSelector(ComponentSelector requested) {
+        return requested instanceof ModuleComponentSelector && !versionSelectorScheme.parseSelector(((ModuleComponentSelector) requested).getVersion()).isDynamic();
+    }
+
+    @Override
+    public void visitEdge(DependencyGraphNode node) {
+        currentNode = node;
+        if (!cacheable) {
+            return;
+        }
+        CachedResolvedGraph.NodeData nodeData = nodes.get(nodeIndexes.get(node));
+        for (DependencyGraphEdge edge : node.getIncomingEdges()) {
+            CachedResolvedGraph.EdgeReference reference = edges.get(edge);
+            if (reference == null) {
+                cacheable = false;
+                return;
+            }
+            nodeData.incomingEdges.add(reference);
+        }
+    }
+
+    @Override
+    public void visitArtifacts(DependencyGraphNode parent, DependencyGraphNode child, ArtifactSet artifacts) {
+        if (!cacheable) {
+            return;
+        }
+        if (child != currentNode || !(artifacts instanceof DefaultArtifactSet)) {
+            cacheable = false;
+            return;
+        }
+        DefaultArtifactSet artifactSet = (DefaultArtifactSet) artifacts;
+        if (!artifactSets.containsKey(artifactSet.getId())) {
+            for (ComponentArtifactMetadata artifact : artifactSet.getArtifactMetadata()) {
+                if (!(artifact instanceof ModuleComponentArtifactMetadata)) {
+                    cacheable = false;
+                    return;
+                }
+            }
+            artifactSets.put(artifactSet.getId(), new CachedResolvedGraph.ArtifactSetData(artifactSet.getId(), artifactSet.getModuleVersionIdentifier(), artifactSet.getModuleSource(), artifactSet.getArtifactMetadata()));
+        }
+        artifactsVisits.add(new CachedResolvedGraph.ArtifactsVisit(nodeIndexes.get(parent), nodeIndexes.get(child), artifactSet.getId()));
+    }
+
+    @Override
+    public void finish(DependencyGraphNode root) {
+    }
+
+    @Override
+    public void finishArtifacts() {
+    }
+
+    /**
+     * Returns the recorded graph, or null when the graph cannot be cached.
+     */
+    @Nullable
+    public CachedResolvedGraph complete() {
+        if (!cacheable || root == null) {
+            return null;
+        }
+        return new CachedResolvedGraph(new ArrayList<ComponentResult>(components.values()), nodes, nodeIndexes.get(root), new ArrayList<CachedResolvedGraph.ArtifactSetData>(artifactSets.values()), artifactsVisits);
+    }
+}
@@ -17,7 +17,6 @@ package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store;
 
 import org.gradle.api.internal.cache.BinaryStore;
 import org.gradle.internal.concurrent.CompositeStoppable;
-import org.gradle.internal.io.RandomAccessFileInputStream;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
@@ -26,22 +25,36 @@ import java.io.*;
 
 import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
 
+/**
+ * A binary store that keeps its data in memory until it grows beyond a given size, and then moves the data to a file.
+ */
 class DefaultBinaryStore implements BinaryStore, Closeable {
     private File file;
+    private final int maxInMemorySize;
+    private InMemoryOutputStream inMemoryOutput;
+    private OutputStream fileOutput;
     private KryoBackedEncoder encoder;
     private int offset = -1;
 
     public DefaultBinaryStore(File file) {
+        this(file, 0);
+    }
+
+    /**
+     * @param file - the file to write the data to, once it no longer fits in memory. Does not need to exist.
+     * @param maxInMemorySize - the approx. number of bytes to keep in memory before moving the data to the file
+     */
+    public DefaultBinaryStore(File file, int maxInMemorySize) {
         this.file = file;
+        this.maxInMemorySize = maxInMemorySize;
+        if (maxInMemorySize > 0) {
+            inMemoryOutput = new InMemoryOutputStream();
+        }
     }
 
     public void write(WriteAction write) {
         if (encoder == null) {
-            try {
-                encoder = new KryoBackedEncoder(new FileOutputStream(file));
-            } catch (FileNotFoundException e) {
-                throw throwAsUncheckedException(e);
-            }
+            encoder = new KryoBackedEncoder(new StoreOutputStream());
         }
         if (offset == -1) {
             offset = encoder.getWritePosition();
@@ -70,12 +83,45 @@ class DefaultBinaryStore implements BinaryStore, Closeable {
             if (encoder != null) {
                 encoder.flush();
             }
-            return new SimpleBinaryData(file, offset, diagnose());
+            return new SimpleBinaryData(this, offset, diagnose());
         } finally {
             offset = -1;
         }
     }
 
+    private synchronized void moveToFile() {
+        try {
+            fileOutput = new FileOutputStream(file);
+            inMemoryOutput.writeTo(fileOutput);
+        } catch (IOException e) {
+            throw throwAsUncheckedException(e);
+        }
+        inMemoryOutput = null;
+    }
+
+    private OutputStream getOutput() {
+        if (inMemoryOutput != null) {
+            return inMemoryOutput;
+        }
+        if (fileOutput == null) {
+            try {
+                fileOutput = new FileOutputStream(file);
+            } catch (FileNotFoundException e) {
+                throw throwAsUncheckedException(e);
+            }
+        }
+        return fileOutput;
+    }
+
+    private synchronized InputStream openInput(int offset) throws IOException {
+        if (inMemoryOutput != null) {
+            return inMemoryOutput.openInput(offset);
+        }
+        FileInputStream inputStream = new FileInputStream(file);
+        inputStream.getChannel().position(offset);
+        return inputStream;
+    }
+
     public void close() {
         try {
             if (encoder != null) {
@@ -87,6 +133,7 @@ class DefaultBinaryStore implements BinaryStore, Closeable {
             }
             encoder = null;
             file = null;
+            inMemoryOutput = null;
         }
     }
 
@@ -95,19 +142,64 @@ class DefaultBinaryStore implements BinaryStore, Closeable {
     }
 
     long getSize() {
-        return file.length();
+        InMemoryOutputStream inMemoryOutput = this.inMemoryOutput;
+        return inMemoryOutput != null ? inMemoryOutput.size() : file.length();
+    }
+
+    boolean isInMemory() {
+        return inMemoryOutput != null;
+    }
+
+    private void moveToFileWhenFull() {
+        if (inMemoryOutput != null && inMemoryOutput.size() > maxInMemorySize) {
+            moveToFile();
+        }
+    }
+
+    private class StoreOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            getOutput().write(b);
+            moveToFileWhenFull();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            getOutput().write(b, off, len);
+            moveToFileWhenFull();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileOutput != null) {
+                fileOutput.close();
+            }
+        }
+    }
+
+    private static class InMemoryOutputStream extends ByteArrayOutputStream {
+        InMemoryOutputStream() {
+            super(8192);
+        }
+
+        /**
+         * Does not copy the data, as the bytes written so far are never modified.
+         */
+        synchronized InputStream openInput(int offset) {
+            return new ByteArrayInputStream(buf, offset, count - offset);
+        }
     }
 
     private static class SimpleBinaryData implements BinaryStore.BinaryData {
         private final int offset;
-        private final File inputFile;
+        private final DefaultBinaryStore store;
         private final String sourceDescription;
 
         private Decoder decoder;
         private CompositeStoppable resources;
 
-        public SimpleBinaryData(File inputFile, int offset, String sourceDescription) {
-            this.inputFile = inputFile;
+        public SimpleBinaryData(DefaultBinaryStore store, int offset, String sourceDescription) {
+            this.store = store;
             this.offset = offset;
             this.sourceDescription = sourceDescription;
         }
@@ -115,10 +207,9 @@ class DefaultBinaryStore implements BinaryStore, Closeable {
         public <T> T read(BinaryStore.ReadAction<T> readAction) {
             try {
                 if (decoder == null) {
-                    RandomAccessFile randomAccess = new RandomAccessFile(inputFile, "r");
-                    randomAccess.seek(offset);
-                    decoder = new KryoBackedDecoder(new RandomAccessFileInputStream(randomAccess));
-                    resources = new CompositeStoppable().add(randomAccess, decoder);
+                    InputStream input = store.openInput(offset);
+                    decoder = new KryoBackedDecoder(input);
+                    resources = new CompositeStoppable().add(input, decoder);
                 }
                 return readAction.read(decoder);
             } catch (Exception e) {
@@ -34,9 +34,11 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class ResolutionResultsStoreFactory implements Closeable {
     private final static Logger LOG = Logging.getLogger(ResolutionResultsStoreFactory.class);
     private static final int DEFAULT_MAX_SIZE = 2000000000; //2 gigs
+    private static final int DEFAULT_MAX_IN_MEMORY_SIZE = 1024 * 1024; //1 meg
 
     private final TemporaryFileProvider temp;
     private int maxSize;
+    private final int maxInMemorySize;
 
     private CachedStoreFactory<TransientConfigurationResults> oldModelCache;
     private CachedStoreFactory<ResolvedComponentResult> newModelCache;
@@ -44,16 +46,22 @@ public class ResolutionResultsStoreFactory implements Closeable {
     private AtomicInteger storeSetBaseId = new AtomicInteger(0);
 
     public ResolutionResultsStoreFactory(TemporaryFileProvider temp) {
-        this(temp, DEFAULT_MAX_SIZE);
+        this(temp, DEFAULT_MAX_SIZE, DEFAULT_MAX_IN_MEMORY_SIZE);
+    }
+
+    ResolutionResultsStoreFactory(TemporaryFileProvider temp, int maxSize) {
+        this(temp, maxSize, 0);
     }
 
     /**
      * @param temp - Provider of temporary files.
      * @param maxSize - indicates the approx. maximum size of the binary store that will trigger rolling of the file
+     * @param maxInMemorySize - indicates the approx. size of the binary store up to which the data is kept in memory rather than written to the file
      */
-    ResolutionResultsStoreFactory(TemporaryFileProvider temp, int maxSize) {
+    ResolutionResultsStoreFactory(TemporaryFileProvider temp, int maxSize, int maxInMemorySize) {
         this.temp = temp;
         this.maxSize = maxSize;
+        this.maxInMemorySize = maxInMemorySize;
     }
 
     private final Map<String, DefaultBinaryStore> stores = new HashMap<String, DefaultBinaryStore>();
@@ -64,7 +72,7 @@ public class ResolutionResultsStoreFactory implements Closeable {
         if (store == null || isFull(store)) {
             File storeFile = temp.createTemporaryFile("gradle", ".bin");
             storeFile.deleteOnExit();
-            store = new DefaultBinaryStore(storeFile);
+            store = new DefaultBinaryStore(storeFile, maxInMemorySize);
             stores.put(storeKey, store);
             cleanUpLater.add(store);
         }
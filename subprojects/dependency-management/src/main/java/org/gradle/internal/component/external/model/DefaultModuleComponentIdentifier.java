@@ -23,7 +23,7 @@ import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
 
 public class DefaultModuleComponentIdentifier implements ModuleComponentIdentifier {
-    private static final Interner<DefaultModuleComponentIdentifier> INSTANCES_INTERNER = Interners.newStrongInterner();
+    private static final Interner<DefaultModuleComponentIdentifier> INSTANCES_INTERNER = Interners.newWeakInterner();
     private final DefaultModuleIdentifier id;
     private final String version;
     private String displayName;
@@ -38,11 +38,23 @@ public class DefaultModuleComponentIdentifier implements ModuleComponentIdentifi
         this.hashCode = calculateHashCode();
     }
 
+    private DefaultModuleComponentIdentifier(DefaultModuleIdentifier id, String version) {
+        assert version != null : "version cannot be null";
+        this.id = id;
+        this.version = version;
+        this.hashCode = calculateHashCode();
+    }
+
     public static DefaultModuleComponentIdentifier of(String group, String module, String version) {
         DefaultModuleComponentIdentifier instance = new DefaultModuleComponentIdentifier(group, module, version);
         return INSTANCES_INTERNER.intern(instance);
     }
 
+    private static DefaultModuleComponentIdentifier of(DefaultModuleIdentifier id, String version) {
+        DefaultModuleComponentIdentifier instance = new DefaultModuleComponentIdentifier(id, version);
+        return INSTANCES_INTERNER.intern(instance);
+    }
+
     public String getDisplayName() {
         if (displayName == null) {
             displayName = createDisplayName();
@@ -72,6 +84,10 @@ public class DefaultModuleComponentIdentifier implements ModuleComponentIdentifi
         return version;
     }
 
+    public DefaultModuleIdentifier getModuleIdentifier() {
+        return id;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -115,6 +131,9 @@ public class DefaultModuleComponentIdentifier implements ModuleComponentIdentifi
     }
 
     public static ModuleComponentIdentifier newId(ModuleVersionIdentifier moduleVersionIdentifier) {
+        if (moduleVersionIdentifier.getModule() instanceof DefaultModuleIdentifier) {
+            return of((DefaultModuleIdentifier) moduleVersionIdentifier.getModule(), moduleVersionIdentifier.getVersion());
+        }
         return of(moduleVersionIdentifier.getGroup(), moduleVersionIdentifier.getName(), moduleVersionIdentifier.getVersion());
     }
 }
@@ -25,7 +25,7 @@ import org.gradle.api.artifacts.component.ModuleComponentSelector;
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
 
 public class DefaultModuleComponentSelector implements ModuleComponentSelector {
-    private static final Interner<DefaultModuleComponentSelector> INSTANCES_INTERNER = Interners.newStrongInterner();
+    private static final Interner<DefaultModuleComponentSelector> INSTANCES_INTERNER = Interners.newWeakInterner();
     private final DefaultModuleIdentifier id;
     private final String version;
     private String displayName;
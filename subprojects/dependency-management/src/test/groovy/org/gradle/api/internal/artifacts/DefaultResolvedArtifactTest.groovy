@@ -19,10 +19,12 @@ import org.gradle.api.artifacts.ResolvedModuleVersion
 import org.gradle.api.artifacts.component.ComponentArtifactIdentifier
 import org.gradle.internal.Factory
 import org.gradle.internal.component.model.IvyArtifactName
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import org.gradle.util.Matchers
-import spock.lang.Specification
 
-class DefaultResolvedArtifactTest extends Specification {
+import java.util.concurrent.locks.ReentrantLock
+
+class DefaultResolvedArtifactTest extends ConcurrentSpec {
     final Factory artifactSource = Mock()
 
     def "artifacts are equal when module and artifact identifier are equal"() {
@@ -44,6 +46,84 @@ class DefaultResolvedArtifactTest extends Specification {
         artifact != differentId
     }
 
+    def "resolves file once"() {
+        def file = new File("one.jar")
+        def artifact = new DefaultResolvedArtifact(dep("group", "module1", "1.2"), Stub(IvyArtifactName), Stub(ComponentArtifactIdentifier), artifactSource)
+
+        when:
+        def result1 = artifact.file
+        def result2 = artifact.file
+
+        then:
+        result1 == file
+        result2 == file
+        artifact.resolved
+        1 * artifactSource.create() >> file
+        0 * artifactSource._
+    }
+
+    def "resolves file again after a failure"() {
+        def failure = new RuntimeException("broken")
+        def file = new File("one.jar")
+        def artifact = new DefaultResolvedArtifact(dep("group", "module1", "1.2"), Stub(IvyArtifactName), Stub(ComponentArtifactIdentifier), artifactSource)
+
+        when:
+        artifact.file
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+        !artifact.resolved
+        1 * artifactSource.create() >> { throw failure }
+
+        when:
+        def result = artifact.file
+
+        then:
+        result == file
+        artifact.resolved
+        1 * artifactSource.create() >> file
+    }
+
+    def "does not wait for resolution in another thread that needs a lock held by the caller"() {
+        def file = new File("one.jar")
+        def lock = new ReentrantLock()
+        def calls = 0
+        def source = {
+            if (calls++ == 0) {
+                instant.resolving
+                thread.blockUntil.locked
+                // Needs the lock held by the other thread, for example the artifact cache lock
+                lock.lock()
+                lock.unlock()
+            }
+            file
+        } as Factory<File>
+        def artifact = new DefaultResolvedArtifact(dep("group", "module1", "1.2"), Stub(IvyArtifactName), Stub(ComponentArtifactIdentifier), source)
+        def result1 = null
+        def result2 = null
+
+        when:
+        async {
+            start {
+                result1 = artifact.file
+            }
+            thread.blockUntil.resolving
+            lock.lock()
+            try {
+                instant.locked
+                result2 = artifact.file
+            } finally {
+                lock.unlock()
+            }
+        }
+
+        then:
+        result1 == file
+        result2 == file
+        artifact.resolved
+    }
+
     def dep(String group, String moduleName, String version) {
         ResolvedModuleVersion module = Mock()
         _ * module.id >> DefaultModuleVersionIdentifier.of(group, moduleName, version)
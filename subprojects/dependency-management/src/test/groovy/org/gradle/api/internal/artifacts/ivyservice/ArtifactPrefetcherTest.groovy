@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.api.artifacts.ResolvedModuleVersion
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact
+import org.gradle.internal.Factory
+import org.gradle.internal.component.model.IvyArtifactName
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+class ArtifactPrefetcherTest extends Specification {
+    def cacheLockingManager = Mock(CacheLockingManager)
+    def prefetcher = new ArtifactPrefetcher(new DefaultExecutorFactory(), cacheLockingManager, 2)
+
+    def cleanup() {
+        prefetcher.stop()
+    }
+
+    def "resolves files of artifacts in the background and releases cache lock while waiting for them"() {
+        def file1 = new File("one.jar")
+        def file2 = new File("two.jar")
+        def source1 = Mock(Factory)
+        def source2 = Mock(Factory)
+        def artifact1 = artifact(source1)
+        def artifact2 = artifact(source2)
+
+        when:
+        prefetcher.prefetch([artifact1, artifact2])
+
+        then:
+        1 * cacheLockingManager.longRunningOperation(_, _ as Runnable) >> { String name, Runnable action -> action.run() }
+        1 * source1.create() >> file1
+        1 * source2.create() >> file2
+
+        and:
+        artifact1.resolved
+        artifact2.resolved
+
+        when:
+        def files = [artifact1.file, artifact2.file]
+
+        then:
+        files == [file1, file2]
+        0 * _
+    }
+
+    def "does not resolve artifacts that are already resolved"() {
+        def source1 = Mock(Factory)
+        def source2 = Mock(Factory)
+        def artifact1 = artifact(source1)
+        def artifact2 = artifact(source2)
+
+        given:
+        1 * source1.create() >> new File("one.jar")
+        artifact1.file
+
+        when:
+        prefetcher.prefetch([artifact1, artifact2, Stub(ResolvedArtifact)])
+
+        then:
+        0 * _
+    }
+
+    def "ignores failures to resolve artifacts"() {
+        def source1 = Mock(Factory)
+        def source2 = Mock(Factory)
+        def artifact1 = artifact(source1)
+        def artifact2 = artifact(source2)
+
+        when:
+        prefetcher.prefetch([artifact1, artifact2])
+
+        then:
+        1 * cacheLockingManager.longRunningOperation(_, _ as Runnable) >> { String name, Runnable action -> action.run() }
+        1 * source1.create() >> { throw new RuntimeException("broken") }
+        1 * source2.create() >> new File("two.jar")
+
+        and:
+        !artifact1.resolved
+        artifact2.resolved
+    }
+
+    def artifact(Factory<File> source) {
+        return new DefaultResolvedArtifact(Stub(ResolvedModuleVersion), Stub(IvyArtifactName), Stub(ComponentArtifactIdentifier), source)
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph
+
+import org.gradle.api.artifacts.component.ComponentIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.internal.Factory
+import org.gradle.internal.component.model.ComponentOverrideMetadata
+import org.gradle.internal.component.model.ComponentResolveMetadata
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult
+import spock.lang.Specification
+
+class ComponentMetaDataPrefetcherTest extends Specification {
+    def cacheLockingManager = Mock(CacheLockingManager)
+    def resolver = Mock(ComponentMetaDataResolver)
+    def prefetcher = new ComponentMetaDataPrefetcher(new DefaultExecutorFactory(), cacheLockingManager, 2)
+
+    def cleanup() {
+        prefetcher.stop()
+    }
+
+    def "resolves meta-data in the background and releases cache lock while waiting for it"() {
+        def id = Stub(ComponentIdentifier)
+        def overrides = Stub(ComponentOverrideMetadata)
+        def metaData = Stub(ComponentResolveMetadata)
+
+        when:
+        def future = prefetcher.resolve(resolver, id, overrides)
+        def result = prefetcher.waitFor(future)
+
+        then:
+        result.metaData == metaData
+        1 * resolver.resolve(id, overrides, _) >> { ComponentIdentifier identifier, ComponentOverrideMetadata override, BuildableComponentResolveResult resolveResult ->
+            resolveResult.resolved(metaData)
+        }
+        (0..1) * cacheLockingManager.longRunningOperation(_, _ as Factory) >> { String name, Factory action -> action.create() }
+    }
+
+    def "rethrows failure to resolve meta-data"() {
+        def failure = new RuntimeException("broken")
+
+        given:
+        _ * cacheLockingManager.longRunningOperation(_, _ as Factory) >> { String name, Factory action -> action.create() }
+        _ * resolver.resolve(_, _, _) >> { throw failure }
+
+        when:
+        prefetcher.waitFor(prefetcher.resolve(resolver, Stub(ComponentIdentifier), Stub(ComponentOverrideMetadata)))
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+    }
+
+    def "ignores failures of results that are no longer required"() {
+        given:
+        _ * resolver.resolve(_, _, _) >> { throw new RuntimeException("broken") }
+        def futures = [prefetcher.resolve(resolver, Stub(ComponentIdentifier), Stub(ComponentOverrideMetadata))]
+
+        when:
+        prefetcher.waitForAll(futures)
+
+        then:
+        1 * cacheLockingManager.longRunningOperation(_, _ as Runnable) >> { String name, Runnable action -> action.run() }
+        futures[0].done
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache
+
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DefaultComponentResult
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactMetadata
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.model.DefaultIvyArtifactName
+import org.gradle.internal.component.model.ModuleSource
+import org.gradle.internal.serialize.SerializerSpec
+
+import static org.gradle.internal.component.local.model.TestComponentIdentifiers.newProjectId
+
+class CachedResolvedGraphSerializerTest extends SerializerSpec {
+    def serializer = new CachedResolvedGraphSerializer()
+
+    def "serializes and deserializes graph"() {
+        def rootVersion = DefaultModuleVersionIdentifier.newId("org", "a", "1.0")
+        def moduleVersion = DefaultModuleVersionIdentifier.newId("org", "b", "1.2")
+        def moduleId = DefaultModuleComponentIdentifier.newId("org", "b", "1.2")
+        def components = [
+            new DefaultComponentResult(1L, rootVersion, VersionSelectionReasons.ROOT, newProjectId(":a")),
+            new DefaultComponentResult(2L, moduleVersion, VersionSelectionReasons.CONFLICT_RESOLUTION, moduleId)
+        ]
+        def root = new CachedResolvedGraph.NodeData(1L, new ResolvedConfigurationIdentifier(rootVersion, "compile"), 1L)
+        root.outgoingEdges.add(new CachedResolvedGraph.EdgeData(DefaultModuleComponentSelector.newSelector("org", "b", "1.1"), 2L, 3))
+        def node = new CachedResolvedGraph.NodeData(2L, new ResolvedConfigurationIdentifier(moduleVersion, "default"), 2L)
+        node.incomingEdges.add(new CachedResolvedGraph.EdgeReference(0, 0))
+        def artifact = new DefaultModuleComponentArtifactMetadata(moduleId, DefaultIvyArtifactName.of("b", "jar", "jar", "sources"))
+        def artifactSets = [
+            new CachedResolvedGraph.ArtifactSetData(12L, moduleVersion, new TestModuleSource(repository: "repo1"), [artifact] as Set),
+            new CachedResolvedGraph.ArtifactSetData(13L, moduleVersion, null, [] as Set)
+        ]
+        def visits = [new CachedResolvedGraph.ArtifactsVisit(0, 1, 12L), new CachedResolvedGraph.ArtifactsVisit(0, 1, 13L)]
+
+        when:
+        def result = serialize(new CachedResolvedGraph(components, [root, node], 0, artifactSets, visits), serializer)
+
+        then:
+        result.components*.resultId == [1L, 2L]
+        result.components*.moduleVersion == [rootVersion, moduleVersion]
+        result.components*.selectionReason == [VersionSelectionReasons.ROOT, VersionSelectionReasons.CONFLICT_RESOLUTION]
+        result.components*.componentId == [newProjectId(":a"), moduleId]
+
+        and:
+        result.nodes.size() == 2
+        result.nodes[0].resultId == 1L
+        result.nodes[0].nodeId == new ResolvedConfigurationIdentifier(rootVersion, "compile")
+        result.nodes[0].ownerId == 1L
+        result.nodes[0].outgoingEdges.size() == 1
+        result.nodes[0].outgoingEdges[0].requested == DefaultModuleComponentSelector.newSelector("org", "b", "1.1")
+        result.nodes[0].outgoingEdges[0].selected == 2L
+        result.nodes[0].outgoingEdges[0].dependencyIndex == 3
+        result.nodes[0].incomingEdges.empty
+        result.nodes[1].resultId == 2L
+        result.nodes[1].nodeId == new ResolvedConfigurationIdentifier(moduleVersion, "default")
+        result.nodes[1].outgoingEdges.empty
+        result.nodes[1].incomingEdges.size() == 1
+        result.nodes[1].incomingEdges[0].node == 0
+        result.nodes[1].incomingEdges[0].edge == 0
+        result.rootNode == 0
+
+        and:
+        result.artifactSets*.id == [12L, 13L]
+        result.artifactSets*.moduleVersionIdentifier == [moduleVersion, moduleVersion]
+        result.artifactSets[0].moduleSource.repository == "repo1"
+        result.artifactSets[1].moduleSource == null
+        result.artifactSets[0].artifacts*.id == [artifact.id]
+        result.artifactSets[0].artifacts*.name == [artifact.name]
+        result.artifactSets[1].artifacts.empty
+
+        and:
+        result.artifactsVisits*.parent == [0, 0]
+        result.artifactsVisits*.child == [1, 1]
+        result.artifactsVisits*.artifactSetId == [12L, 13L]
+    }
+
+    def "serializes and deserializes empty graph"() {
+        def rootVersion = DefaultModuleVersionIdentifier.newId("org", "a", "1.0")
+        def root = new CachedResolvedGraph.NodeData(1L, new ResolvedConfigurationIdentifier(rootVersion, "compile"), 1L)
+
+        when:
+        def result = serialize(new CachedResolvedGraph([new DefaultComponentResult(1L, rootVersion, VersionSelectionReasons.ROOT, newProjectId(":a"))], [root], 0, [], []), serializer)
+
+        then:
+        result.components.size() == 1
+        result.nodes.size() == 1
+        result.nodes[0].outgoingEdges.empty
+        result.artifactSets.empty
+        result.artifactsVisits.empty
+    }
+
+    static class TestModuleSource implements ModuleSource {
+        String repository
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache
+
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.artifacts.DependencySet
+import org.gradle.api.artifacts.ProjectDependency
+import org.gradle.api.internal.artifacts.DefaultExcludeRule
+import org.gradle.api.internal.artifacts.DefaultModuleVersionSelector
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules
+import org.gradle.api.internal.artifacts.Module
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal
+import org.gradle.api.internal.artifacts.dependencies.DefaultExternalModuleDependency
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository
+import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.LatestConflictResolution
+import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.StrictConflictResolution
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ResolveInputsHasherTest extends Specification {
+    def dependencies = [new DefaultExternalModuleDependency("org", "a", "1.0")]
+    def excludes = [new DefaultExcludeRule("org", "b")]
+    def attributes = [usage: "compile"]
+    def forcedModules = [DefaultModuleVersionSelector.newSelector("org", "c", "1.0")]
+    def repositoryIds = ["repo1"]
+    def conflictResolution = new LatestConflictResolution()
+    def localRepository = false
+
+    def "hash is the same for the same inputs"() {
+        expect:
+        hash() != null
+        hash() == hash()
+    }
+
+    @Unroll
+    def "hash changes when #input changes"() {
+        def original = hash()
+
+        when:
+        change.call(this)
+
+        then:
+        hash() != original
+
+        where:
+        input                 | change
+        "dependency version"  | { it.dependencies = [new DefaultExternalModuleDependency("org", "a", "1.1")] }
+        "added dependency"    | { it.dependencies << new DefaultExternalModuleDependency("org", "d", "1.0") }
+        "exclude"             | { it.excludes = [new DefaultExcludeRule("org", "e")] }
+        "attribute"           | { it.attributes = [usage: "runtime"] }
+        "forced module"       | { it.forcedModules = [DefaultModuleVersionSelector.newSelector("org", "c", "2.0")] }
+        "repository id"       | { it.repositoryIds = ["repo2"] }
+        "conflict resolution" | { it.conflictResolution = new StrictConflictResolution() }
+    }
+
+    def "does not hash configuration with project dependency"() {
+        dependencies << Stub(ProjectDependency)
+
+        expect:
+        hash() == null
+    }
+
+    def "does not hash configuration with changing dependency"() {
+        def dependency = new DefaultExternalModuleDependency("org", "d", "1.0")
+        dependency.changing = true
+        dependencies << dependency
+
+        expect:
+        hash() == null
+    }
+
+    def "does not hash configuration resolved from a local repository"() {
+        localRepository = true
+
+        expect:
+        hash() == null
+    }
+
+    def hash() {
+        def resolutionStrategy = Stub(ResolutionStrategyInternal) {
+            getConflictResolution() >> conflictResolution
+            getForcedModules() >> (forcedModules as Set)
+        }
+        def module = Stub(Module) {
+            getGroup() >> "org"
+            getName() >> "test"
+            getVersion() >> "1.0"
+            getProjectPath() >> ":"
+        }
+        def declared = Stub(DependencySet) {
+            iterator() >> { dependencies.iterator() }
+        }
+        def hierarchy = Stub(Configuration) {
+            getName() >> "compile"
+            getAttributes() >> attributes
+            getExcludeRules() >> (excludes as Set)
+            getDependencies() >> declared
+        }
+        def configuration = Stub(ConfigurationInternal) {
+            getPath() >> ":compile"
+            getModule() >> module
+            getHierarchy() >> ([hierarchy] as Set)
+            getResolutionStrategy() >> resolutionStrategy
+        }
+        def repositories = repositoryIds.collect { String id ->
+            def resolver = Stub(ConfiguredModuleComponentRepository) {
+                getId() >> id
+                isLocal() >> localRepository
+            }
+            Stub(ResolutionAwareRepository) {
+                createResolver() >> resolver
+            }
+        }
+        return new ResolveInputsHasher().hash(configuration, repositories, GlobalDependencyResolutionRules.NO_OP)
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache
+
+import org.gradle.api.artifacts.ModuleDependency
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactSet
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultArtifactSet
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactMetadata
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.model.ComponentResolveMetadata
+import org.gradle.internal.component.model.DefaultIvyArtifactName
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import org.gradle.internal.resolve.resolver.ArtifactResolver
+import org.gradle.internal.serialize.SerializerSpec
+
+import static org.gradle.internal.component.local.model.TestComponentIdentifiers.newProjectId
+
+class ResolvedGraphRecorderTest extends SerializerSpec {
+    def dependency = Stub(ModuleDependency)
+    def recorder = new ResolvedGraphRecorder(new DefaultVersionSelectorScheme(new DefaultVersionComparator()), [(dependency): 0])
+    def rootComponent = Stub(DependencyGraphComponent) {
+        getResultId() >> 1L
+        getComponentId() >> newProjectId(":a")
+        getModuleVersion() >> DefaultModuleVersionIdentifier.newId("org", "a", "1.0")
+        getSelectionReason() >> VersionSelectionReasons.ROOT
+    }
+    def root = Stub(DependencyGraphNode) {
+        getResultId() >> 1L
+        getOwner() >> rootComponent
+        getNodeId() >> new ResolvedConfigurationIdentifier(rootComponent.moduleVersion, "compile")
+    }
+
+    def "recorded graph can be serialized and replayed"() {
+        def edge = edge(root, "org:b:1.2", 2L, dependency)
+        def node = moduleNode(2L, "org", "b", "1.2", [edge])
+        def artifact = new DefaultModuleComponentArtifactMetadata(DefaultModuleComponentIdentifier.newId("org", "b", "1.2"), DefaultIvyArtifactName.of("b", "jar", "jar"))
+        def artifacts = new DefaultArtifactSet(node.owner.moduleVersion, null, ModuleExclusions.excludeNone(), [artifact] as Set, Stub(ArtifactResolver), [:], 12L)
+        root.getOutgoingEdges() >> ([edge] as Set)
+        def graphVisitor = Mock(DependencyGraphVisitor)
+        def artifactsVisitor = Mock(DependencyArtifactsVisitor)
+
+        when:
+        record(recorder, [root, node], [(node): artifacts])
+        def graph = serialize(recorder.complete(), new CachedResolvedGraphSerializer())
+        graph.visit([dependency], Stub(ArtifactResolver), graphVisitor, artifactsVisitor)
+
+        then:
+        1 * graphVisitor.start({ it.resultId == 1L })
+        then:
+        1 * graphVisitor.visitNode({ it.resultId == 1L && it.nodeId.configuration == "compile" && it.owner.componentId == newProjectId(":a") })
+        then:
+        1 * graphVisitor.visitNode({ DependencyGraphNode n -> n.resultId == 2L && n.owner.moduleVersion.version == "1.2" && n.owner.selectionReason.description == "requested" })
+        then:
+        1 * graphVisitor.visitEdge({ it.resultId == 1L })
+        then:
+        1 * graphVisitor.visitEdge({ DependencyGraphNode n ->
+            def incoming = n.incomingEdges as List
+            n.resultId == 2L && incoming.size() == 1 && incoming[0].from.resultId == 1L && incoming[0].selected == 2L && incoming[0].moduleDependency.is(dependency) && incoming[0].requestedModuleVersion.version == "1.2"
+        })
+        then:
+        1 * artifactsVisitor.visitArtifacts({ it.resultId == 1L }, { it.resultId == 2L }, { ArtifactSet set -> set.id == 12L && set.artifactMetadata*.id == [artifact.id] })
+        then:
+        1 * graphVisitor.finish(_)
+        then:
+        1 * artifactsVisitor.finishArtifacts()
+    }
+
+    def "does not record graph with failed dependency"() {
+        def edge = edge(root, "org:b:1.2", 2L, dependency)
+        edge.getFailure() >> Stub(ModuleVersionResolveException)
+        root.getOutgoingEdges() >> ([edge] as Set)
+
+        when:
+        record(recorder, [root], [:])
+
+        then:
+        recorder.complete() == null
+    }
+
+    def "does not record graph with dynamic version"() {
+        def edge = edge(root, "org:b:1.+", 2L, dependency)
+        def node = moduleNode(2L, "org", "b", "1.2", [edge])
+        root.getOutgoingEdges() >> ([edge] as Set)
+
+        when:
+        record(recorder, [root, node], [:])
+
+        then:
+        recorder.complete() == null
+    }
+
+    def "does not record graph with changing module"() {
+        def edge = edge(root, "org:b:1.2", 2L, dependency)
+        def node = moduleNode(2L, "org", "b", "1.2", [edge])
+        node.owner.getMetadata() >> Stub(ComponentResolveMetadata) { isChanging() >> true }
+        root.getOutgoingEdges() >> ([edge] as Set)
+
+        when:
+        record(recorder, [root, node], [:])
+
+        then:
+        recorder.complete() == null
+    }
+
+    def "does not record graph with undeclared module dependency"() {
+        def edge = edge(root, "org:b:1.2", 2L, Stub(ModuleDependency))
+        root.getOutgoingEdges() >> ([edge] as Set)
+
+        when:
+        record(recorder, [root], [:])
+
+        then:
+        recorder.complete() == null
+    }
+
+    private void record(ResolvedGraphRecorder recorder, List<DependencyGraphNode> nodes, Map<DependencyGraphNode, ArtifactSet> artifacts) {
+        recorder.start(root)
+        nodes.each { recorder.visitNode(it) }
+        nodes.each { node ->
+            recorder.visitEdge(node)
+            node.incomingEdges.each { recorder.visitArtifacts(it.from, node, artifacts[node]) }
+        }
+        recorder.finish(root)
+        recorder.finishArtifacts()
+    }
+
+    private DependencyGraphEdge edge(DependencyGraphNode from, String requested, Long selected, ModuleDependency moduleDependency) {
+        def parts = requested.split(":")
+        return Stub(DependencyGraphEdge) {
+            getFrom() >> from
+            getRequested() >> DefaultModuleComponentSelector.newSelector(parts[0], parts[1], parts[2])
+            getSelected() >> selected
+            getModuleDependency() >> moduleDependency
+        }
+    }
+
+    private DependencyGraphNode moduleNode(Long id, String group, String module, String version, List<DependencyGraphEdge> incoming) {
+        def component = Stub(DependencyGraphComponent) {
+            getResultId() >> id
+            getComponentId() >> DefaultModuleComponentIdentifier.newId(group, module, version)
+            getModuleVersion() >> DefaultModuleVersionIdentifier.newId(group, module, version)
+            getSelectionReason() >> VersionSelectionReasons.REQUESTED
+        }
+        return Stub(DependencyGraphNode) {
+            getResultId() >> id
+            getOwner() >> component
+            getNodeId() >> new ResolvedConfigurationIdentifier(component.moduleVersion, "default")
+            getIncomingEdges() >> (incoming as Set)
+            getOutgoingEdges() >> ([] as Set)
+        }
+    }
+}
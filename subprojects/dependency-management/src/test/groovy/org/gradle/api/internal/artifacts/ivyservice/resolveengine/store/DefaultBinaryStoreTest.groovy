@@ -70,6 +70,73 @@ class DefaultBinaryStoreTest extends Specification {
 
     }
 
+    def "keeps small data in memory"() {
+        def file = temp.file("foo.bin")
+        def store = new DefaultBinaryStore(file, 100)
+
+        when:
+        store.write({ it.writeInt(10) } as BinaryStore.WriteAction)
+        store.write({ it.writeString("x") } as BinaryStore.WriteAction)
+        def data = store.done()
+
+        then:
+        store.inMemory
+        !file.exists()
+        data.read({ it.readInt() } as BinaryStore.ReadAction) == 10
+        data.read({ it.readString() } as BinaryStore.ReadAction) == "x"
+        data.close()
+
+        cleanup:
+        store.close()
+    }
+
+    def "moves data to file when it no longer fits in memory"() {
+        def file = temp.file("foo.bin")
+        def store = new DefaultBinaryStore(file, 100)
+
+        when:
+        store.write({ it.writeString("x") } as BinaryStore.WriteAction)
+        def data1 = store.done()
+        store.write({ it.writeString("y" * 200) } as BinaryStore.WriteAction)
+        def data2 = store.done()
+        store.write({ it.writeString("z") } as BinaryStore.WriteAction)
+        def data3 = store.done()
+
+        then:
+        !store.inMemory
+        file.exists()
+        data1.read({ it.readString() } as BinaryStore.ReadAction) == "x"
+        data1.close()
+        data2.read({ it.readString() } as BinaryStore.ReadAction) == "y" * 200
+        data2.close()
+        data3.read({ it.readString() } as BinaryStore.ReadAction) == "z"
+        data3.close()
+
+        cleanup:
+        store.close()
+    }
+
+    def "moves data to file while writing when it no longer fits in memory"() {
+        def file = temp.file("foo.bin")
+        def store = new DefaultBinaryStore(file, 100)
+
+        when:
+        store.write({ encoder ->
+            1000.times { encoder.writeString("x" * 100) }
+            assert !store.inMemory
+            assert file.length() > 0
+        } as BinaryStore.WriteAction)
+        def data = store.done()
+
+        then:
+        !store.inMemory
+        1000.times { assert data.read({ it.readString() } as BinaryStore.ReadAction) == "x" * 100 }
+        data.close()
+
+        cleanup:
+        store.close()
+    }
+
     class SomeException extends RuntimeException {}
 
     def "write action exception is propagated to the client"() {
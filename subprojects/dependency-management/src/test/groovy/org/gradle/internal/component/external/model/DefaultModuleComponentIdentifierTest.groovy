@@ -17,6 +17,7 @@
 package org.gradle.internal.component.external.model
 
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
 import spock.lang.Specification
 import spock.lang.Unroll
 
@@ -78,4 +79,21 @@ class DefaultModuleComponentIdentifierTest extends Specification {
         defaultModuleComponentIdentifier.displayName == 'some-group:some-name:1.0'
         defaultModuleComponentIdentifier.toString() == 'some-group:some-name:1.0'
     }
+
+    def "instances with the same coordinates are shared"() {
+        expect:
+        DefaultModuleComponentIdentifier.of('some-group', 'some-name', '1.0').is(DefaultModuleComponentIdentifier.of('some-group', 'some-name', '1.0'))
+        DefaultModuleComponentIdentifier.newId(DefaultModuleVersionIdentifier.newId('some-group', 'some-name', '1.0')).is(DefaultModuleComponentIdentifier.of('some-group', 'some-name', '1.0'))
+    }
+
+    def "shares module identifier with module version identifier"() {
+        def moduleVersionId = DefaultModuleVersionIdentifier.newId('some-group', 'some-name', '1.0')
+
+        when:
+        def componentId = DefaultModuleComponentIdentifier.newId(moduleVersionId)
+
+        then:
+        componentId.moduleIdentifier.is(moduleVersionId.module)
+        DefaultModuleVersionIdentifier.newId(componentId).is(moduleVersionId)
+    }
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.launcher.daemon.server.exec;
+
+import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.launcher.daemon.server.api.DaemonCommandAction;
+import org.gradle.launcher.daemon.server.api.DaemonCommandExecution;
+import org.gradle.launcher.daemon.server.health.DaemonMemoryStatus;
+
+/**
+ * Releases memory held by the in-memory task artifact caches after a build when the daemon is running low on tenured space,
+ * so that the daemon can keep running rather than expire because it runs out of memory.
+ */
+public class ReduceCacheMemoryUnderPressure implements DaemonCommandAction {
+    private static final Logger LOG = Logging.getLogger(ReduceCacheMemoryUnderPressure.class);
+
+    private final DaemonMemoryStatus memoryStatus;
+    private final InMemoryTaskArtifactCache inMemoryTaskArtifactCache;
+
+    public ReduceCacheMemoryUnderPressure(DaemonMemoryStatus memoryStatus, InMemoryTaskArtifactCache inMemoryTaskArtifactCache) {
+        this.memoryStatus = memoryStatus;
+        this.inMemoryTaskArtifactCache = inMemoryTaskArtifactCache;
+    }
+
+    @Override
+    public void execute(DaemonCommandExecution execution) {
+        execution.proceed();
+
+        if (!execution.isSingleUseDaemon() && memoryStatus.isTenuredSpaceUnderPressure()) {
+            LOG.info("Tenured space is running low, reducing the size of the in-memory caches.");
+            inMemoryTaskArtifactCache.reduceMemoryUsage();
+        }
+    }
+}
@@ -37,6 +37,8 @@ public class DaemonMemoryStatus {
 
     private static final String TENURED = "tenured";
     private static final String PERMGEN = "perm gen";
+    // Percentage points of tenured space usage below the expiration threshold at which memory pressure is reported
+    private static final int TENURED_PRESSURE_MARGIN = 10;
 
     private final DaemonHealthStats stats;
     private final GarbageCollectorMonitoringStrategy strategy;
@@ -69,6 +71,22 @@ public class DaemonMemoryStatus {
         });
     }
 
+    /**
+     * Returns true when the tenured space usage is getting close to the threshold at which the daemon expires, so that memory held by caches should be released.
+     */
+    public boolean isTenuredSpaceUnderPressure() {
+        GarbageCollectionStats gcStats = stats.getGcMonitor().getTenuredStats();
+
+        return exceedsThreshold(TENURED, gcStats, new Spec<GarbageCollectionStats>() {
+            @Override
+            public boolean isSatisfiedBy(GarbageCollectionStats gcStats) {
+                return tenuredUsageThreshold != 0
+                    && gcStats.getEventCount() >= 5
+                    && gcStats.getUsage() >= tenuredUsageThreshold - TENURED_PRESSURE_MARGIN;
+            }
+        });
+    }
+
     public boolean isPermGenSpaceExhausted() {
         GarbageCollectionStats gcStats = stats.getGcMonitor().getPermGenStats();
 
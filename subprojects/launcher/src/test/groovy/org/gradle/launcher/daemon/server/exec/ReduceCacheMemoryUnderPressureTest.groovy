@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.launcher.daemon.server.exec
+
+import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache
+import org.gradle.launcher.daemon.server.api.DaemonCommandExecution
+import org.gradle.launcher.daemon.server.health.DaemonMemoryStatus
+import spock.lang.Specification
+
+class ReduceCacheMemoryUnderPressureTest extends Specification {
+    def exec = Mock(DaemonCommandExecution)
+    def status = Mock(DaemonMemoryStatus)
+    def cache = Mock(InMemoryTaskArtifactCache)
+    def action = new ReduceCacheMemoryUnderPressure(status, cache)
+
+    def "reduces in-memory caches after build when tenured space is under pressure"() {
+        when:
+        action.execute(exec)
+
+        then:
+        1 * exec.proceed()
+
+        then:
+        1 * exec.isSingleUseDaemon() >> false
+        1 * status.isTenuredSpaceUnderPressure() >> true
+        1 * cache.reduceMemoryUsage()
+        0 * _
+    }
+
+    def "keeps in-memory caches when there is no memory pressure"() {
+        when:
+        action.execute(exec)
+
+        then:
+        1 * exec.proceed()
+        1 * exec.isSingleUseDaemon() >> false
+        1 * status.isTenuredSpaceUnderPressure() >> false
+        0 * _
+    }
+
+    def "does not check memory of single use daemon"() {
+        when:
+        action.execute(exec)
+
+        then:
+        1 * exec.proceed()
+        1 * exec.isSingleUseDaemon() >> true
+        0 * _
+    }
+}
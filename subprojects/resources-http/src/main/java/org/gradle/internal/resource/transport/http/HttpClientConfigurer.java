@@ -57,6 +57,11 @@ import java.util.Collections;
 
 public class HttpClientConfigurer {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientConfigurer.class);
+    /**
+     * The maximum number of connections a single client, and so a single repository, keeps open at once. Artifacts are downloaded concurrently,
+     * so this needs to be more than the per host default of the underlying client, while still being polite to the remote server.
+     */
+    static final int MAX_CONNECTIONS_PER_REPOSITORY = Integer.getInteger("org.gradle.internal.http.maxConnectionsPerRepository", 8);
 
     private final HttpSettings httpSettings;
 
@@ -67,6 +72,7 @@ public class HttpClientConfigurer {
     public void configure(HttpClientBuilder builder) {
         SystemDefaultCredentialsProvider credentialsProvider = new SystemDefaultCredentialsProvider();
         configureSslSocketConnectionFactory(builder, httpSettings.getSslContextFactory());
+        configureConnectionPool(builder);
         configureAuthSchemeRegistry(builder);
         configureCredentials(builder, credentialsProvider, httpSettings.getAuthenticationSettings());
         configureProxy(builder, credentialsProvider, httpSettings);
@@ -78,6 +84,11 @@ public class HttpClientConfigurer {
         builder.setSSLSocketFactory(new SSLConnectionSocketFactory(sslContextFactory.createSslContext(), new DefaultHostnameVerifier(null)));
     }
 
+    private void configureConnectionPool(HttpClientBuilder builder) {
+        builder.setMaxConnPerRoute(MAX_CONNECTIONS_PER_REPOSITORY);
+        builder.setMaxConnTotal(MAX_CONNECTIONS_PER_REPOSITORY);
+    }
+
     private void configureAuthSchemeRegistry(HttpClientBuilder builder) {
         builder.setDefaultAuthSchemeRegistry(RegistryBuilder.<AuthSchemeProvider>create()
             .register(AuthSchemes.BASIC, new BasicSchemeFactory())
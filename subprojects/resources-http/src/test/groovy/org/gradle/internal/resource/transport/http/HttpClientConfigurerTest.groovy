@@ -110,4 +110,16 @@ public class HttpClientConfigurerTest extends Specification {
         then:
         httpClientBuilder.userAgent == UriTextResource.userAgentString
     }
+
+    def "limits the number of connections the http client opens"() {
+        httpSettings.authenticationSettings >> []
+        httpSettings.sslContextFactory >> sslContextFactory
+
+        when:
+        configurer.configure(httpClientBuilder)
+
+        then:
+        httpClientBuilder.maxConnPerRoute == HttpClientConfigurer.MAX_CONNECTIONS_PER_REPOSITORY
+        httpClientBuilder.maxConnTotal == HttpClientConfigurer.MAX_CONNECTIONS_PER_REPOSITORY
+    }
 }
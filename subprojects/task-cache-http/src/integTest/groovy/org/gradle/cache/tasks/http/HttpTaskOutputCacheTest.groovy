@@ -34,6 +34,10 @@ class HttpTaskOutputCacheTest extends Specification {
         cache = new HttpTaskOutputCache(server.uri.resolve("/cache/"))
     }
 
+    def cleanup() {
+        cache.close()
+    }
+
     def "can cache artifact"() {
         def destFile = tempDir.file("cached.zip")
         server.expectPut("/cache/0123456abcdef", destFile)
@@ -59,4 +63,23 @@ class HttpTaskOutputCacheTest extends Specification {
         then:
         1 * key.hashCode >> "0123456abcdef"
     }
+
+    def "reuses connection for subsequent requests"() {
+        def srcFile = tempDir.file("cached.zip")
+        srcFile.text = "Data"
+        server.expectGet("/cache/0123456abcdef", srcFile)
+        server.expectGetMissing("/cache/fedcba6543210")
+
+        when:
+        def first = cache.load(key) { input ->
+            assert input.text == "Data"
+        }
+        def second = cache.load(key) { input ->
+            assert false
+        }
+        then:
+        2 * key.hashCode >>> ["0123456abcdef", "fedcba6543210"]
+        first
+        !second
+    }
 }
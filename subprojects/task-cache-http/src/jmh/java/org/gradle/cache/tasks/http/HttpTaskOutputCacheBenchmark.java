@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.cache.tasks.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.internal.tasks.cache.TaskCacheKey;
+import org.gradle.api.internal.tasks.cache.TaskOutputReader;
+import org.gradle.api.internal.tasks.cache.TaskOutputWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares loading and storing entries with a shared connection pool against creating a client per request,
+ * using a stub HTTP server running in the same process.
+ */
+@State(Scope.Benchmark)
+public class HttpTaskOutputCacheBenchmark {
+    private static final int ENTRY_COUNT = 64;
+    private static final int ENTRY_SIZE = 16 * 1024;
+
+    private HttpServer server;
+    private URI root;
+    private HttpTaskOutputCache pooledCache;
+    private final List<TaskCacheKey> keys = new ArrayList<TaskCacheKey>();
+    private byte[] data;
+    private int i;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        final Map<String, byte[]> entries = new ConcurrentHashMap<String, byte[]>();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/cache/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                String method = exchange.getRequestMethod();
+                try {
+                    if (method.equals("PUT")) {
+                        entries.put(path, IOUtils.toByteArray(exchange.getRequestBody()));
+                        exchange.sendResponseHeaders(200, -1);
+                    } else {
+                        byte[] entry = entries.get(path);
+                        if (entry == null) {
+                            exchange.sendResponseHeaders(404, -1);
+                        } else {
+                            exchange.sendResponseHeaders(200, entry.length);
+                            exchange.getResponseBody().write(entry);
+                        }
+                    }
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        root = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/cache/");
+
+        data = new byte[ENTRY_SIZE];
+        new Random(1234).nextBytes(data);
+        pooledCache = new HttpTaskOutputCache(root);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            // Every other key is missing from the cache
+            TaskCacheKey key = new Key("entry-" + i);
+            keys.add(key);
+            if (i % 2 == 0) {
+                pooledCache.store(key, writer());
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        pooledCache.close();
+        server.stop(0);
+    }
+
+    @Benchmark
+    public void loadPooled(Blackhole bh) throws IOException {
+        bh.consume(pooledCache.load(nextKey(), reader(bh)));
+    }
+
+    @Benchmark
+    public void loadUnpooled(Blackhole bh) throws IOException {
+        HttpTaskOutputCache cache = new HttpTaskOutputCache(root, 1);
+        try {
+            bh.consume(cache.load(nextKey(), reader(bh)));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Benchmark
+    public void storePooled() throws IOException {
+        pooledCache.store(nextKey(), writer());
+    }
+
+    @Benchmark
+    public void storeUnpooled() throws IOException {
+        HttpTaskOutputCache cache = new HttpTaskOutputCache(root, 1);
+        try {
+            cache.store(nextKey(), writer());
+        } finally {
+            cache.close();
+        }
+    }
+
+    private TaskCacheKey nextKey() {
+        return keys.get(i++ % (ENTRY_COUNT / 2) * 2);
+    }
+
+    private TaskOutputWriter writer() {
+        return new TaskOutputWriter() {
+            @Override
+            public void writeTo(OutputStream output) throws IOException {
+                output.write(data);
+            }
+        };
+    }
+
+    private static TaskOutputReader reader(final Blackhole bh) {
+        return new TaskOutputReader() {
+            @Override
+            public void readFrom(InputStream input) throws IOException {
+                bh.consume(IOUtils.toByteArray(input));
+            }
+        };
+    }
+
+    private static class Key implements TaskCacheKey {
+        private final String hashCode;
+
+        private Key(String hashCode) {
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public String getHashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -22,100 +22,146 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
 import org.gradle.api.internal.tasks.cache.TaskCacheKey;
 import org.gradle.api.internal.tasks.cache.TaskOutputCache;
 import org.gradle.api.internal.tasks.cache.TaskOutputReader;
 import org.gradle.api.internal.tasks.cache.TaskOutputWriter;
+import org.gradle.authentication.Authentication;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.resource.transport.http.DefaultHttpSettings;
+import org.gradle.internal.resource.transport.http.DefaultSslContextFactory;
+import org.gradle.internal.resource.transport.http.HttpClientConfigurer;
+import org.gradle.internal.resource.transport.http.HttpSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.util.Collections;
+
+/**
+ * A task output cache backed by a remote HTTP server.
+ *
+ * <p>All requests share a single client that keeps connections to the server alive between requests.
+ * The number of connections is bounded, so at most that many requests are in flight at any time; further requests wait for a connection to become available.
+ * The client is configured the same way as the client used for repositories, so it uses the same proxy, SSL and authentication settings.</p>
+ */
+public class HttpTaskOutputCache implements TaskOutputCache, Closeable {
+    public static final int DEFAULT_MAX_CONNECTIONS = 8;
 
-public class HttpTaskOutputCache implements TaskOutputCache {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpTaskOutputCache.class);
 
     private final URI root;
+    private final CloseableHttpClient httpClient;
 
     public HttpTaskOutputCache(URI root) {
+        this(root, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    public HttpTaskOutputCache(URI root, int maxConnections) {
+        this(root, new DefaultHttpSettings(Collections.<Authentication>emptyList(), new DefaultSslContextFactory()), maxConnections);
+    }
+
+    public HttpTaskOutputCache(URI root, HttpSettings httpSettings, int maxConnections) {
         if (!root.getPath().endsWith("/")) {
             throw new IncompleteArgumentException("HTTP cache root URI must end with '/'");
         }
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("HTTP cache must allow at least one connection");
+        }
         this.root = root;
+        HttpClientBuilder builder = HttpClientBuilder.create();
+        new HttpClientConfigurer(httpSettings).configure(builder);
+        // Replaces the pool size the configurer uses for a repository
+        builder.setMaxConnTotal(maxConnections);
+        builder.setMaxConnPerRoute(maxConnections);
+        this.httpClient = builder.build();
     }
 
     @Override
     public boolean load(TaskCacheKey key, TaskOutputReader reader) throws IOException {
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        final URI uri = getUri(key);
+        HttpGet httpGet = new HttpGet(uri);
+        final CloseableHttpResponse response = httpClient.execute(httpGet);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Response for GET {}: {}", uri, response.getStatusLine());
+        }
         try {
-            final URI uri = root.resolve("./" + key.getHashCode());
-            HttpGet httpGet = new HttpGet(uri);
-            final CloseableHttpResponse response = httpClient.execute(httpGet);
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Response for GET {}: {}", uri, response.getStatusLine());
-            }
-            try {
-                int statusCode = response.getStatusLine().getStatusCode();
-                if (statusCode >= 200 && statusCode < 300) {
-                    reader.readFrom(response.getEntity().getContent());
-                    return true;
-                } else {
-                    return false;
-                }
-            } finally {
-                response.close();
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (isSuccessful(statusCode)) {
+                reader.readFrom(response.getEntity().getContent());
+                return true;
+            } else {
+                return false;
             }
         } finally {
-            httpClient.close();
+            // Read whatever is left of the response so the connection can be reused
+            EntityUtils.consumeQuietly(response.getEntity());
+            response.close();
         }
     }
 
     @Override
     public void store(TaskCacheKey key, final TaskOutputWriter output) throws IOException {
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        final URI uri = getUri(key);
+        HttpPut httpPut = new HttpPut(uri);
+        httpPut.setEntity(new AbstractHttpEntity() {
+            @Override
+            public boolean isRepeatable() {
+                return true;
+            }
+
+            @Override
+            public long getContentLength() {
+                return -1;
+            }
+
+            @Override
+            public InputStream getContent() throws IOException, UnsupportedOperationException {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void writeTo(OutputStream outstream) throws IOException {
+                output.writeTo(outstream);
+            }
+
+            @Override
+            public boolean isStreaming() {
+                return false;
+            }
+        });
+        CloseableHttpResponse response = httpClient.execute(httpPut);
         try {
-            final URI uri = root.resolve(key.getHashCode());
-            HttpPut httpPut = new HttpPut(uri);
-            httpPut.setEntity(new AbstractHttpEntity() {
-                @Override
-                public boolean isRepeatable() {
-                    return true;
-                }
-
-                @Override
-                public long getContentLength() {
-                    return -1;
-                }
-
-                @Override
-                public InputStream getContent() throws IOException, UnsupportedOperationException {
-                    throw new UnsupportedOperationException();
-                }
-
-                @Override
-                public void writeTo(OutputStream outstream) throws IOException {
-                    output.writeTo(outstream);
-                }
-
-                @Override
-                public boolean isStreaming() {
-                    return false;
-                }
-            });
-            CloseableHttpResponse response = httpClient.execute(httpPut);
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Response for PUT {}: {}", uri, response.getStatusLine());
             }
         } finally {
-            httpClient.close();
+            EntityUtils.consumeQuietly(response.getEntity());
+            response.close();
         }
     }
 
+    private URI getUri(TaskCacheKey key) {
+        return root.resolve("./" + key.getHashCode());
+    }
+
+    private static boolean isSuccessful(int statusCode) {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
     @Override
     public String getDescription() {
         return "HTTP cache at " + root;
     }
+
+    @Override
+    public void close() {
+        CompositeStoppable.stoppable(httpClient).stop();
+    }
 }
@@ -20,11 +20,17 @@ import org.gradle.StartParameter;
 import org.gradle.api.GradleException;
 import org.gradle.api.internal.tasks.cache.TaskOutputCache;
 import org.gradle.api.internal.tasks.cache.TaskOutputCacheFactory;
+import org.gradle.authentication.Authentication;
+import org.gradle.internal.resource.transport.http.DefaultHttpSettings;
+import org.gradle.internal.resource.transport.http.DefaultSslContextFactory;
+import org.gradle.internal.resource.transport.http.HttpSettings;
 
 import java.net.URI;
+import java.util.Collections;
 
 public class HttpTaskOutputCacheFactory implements TaskOutputCacheFactory {
     private static final String HTTP_URI_PROPERTY = "org.gradle.cache.tasks.http.uri";
+    private static final String HTTP_MAX_CONNECTIONS_PROPERTY = "org.gradle.cache.tasks.http.maxConnections";
 
     private final URI root;
 
@@ -42,6 +48,19 @@ public class HttpTaskOutputCacheFactory implements TaskOutputCacheFactory {
 
     @Override
     public TaskOutputCache createCache(StartParameter startParameter) {
-        return new HttpTaskOutputCache(root);
+        HttpSettings httpSettings = new DefaultHttpSettings(Collections.<Authentication>emptyList(), new DefaultSslContextFactory());
+        return new HttpTaskOutputCache(root, httpSettings, getMaxConnections());
+    }
+
+    private static int getMaxConnections() {
+        String maxConnections = System.getProperty(HTTP_MAX_CONNECTIONS_PROPERTY);
+        if (maxConnections == null) {
+            return HttpTaskOutputCache.DEFAULT_MAX_CONNECTIONS;
+        }
+        try {
+            return Integer.parseInt(maxConnections);
+        } catch (NumberFormatException e) {
+            throw new GradleException(String.format("Invalid value '%s' for '%s' system property, must be a number", maxConnections, HTTP_MAX_CONNECTIONS_PROPERTY), e);
+        }
     }
 }